@@ -1,20 +1,45 @@
 import domain.User;
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
+import repository.CachingUserRepository;
+import repository.DatabaseFriendshipRepository;
 import repository.DatabaseUserRepository;
-import repository.Repository;
+import repository.InstrumentedRepository;
+import service.FriendSuggestion;
+import service.InstrumentedSocialNetworkService;
 import service.SocialNetworkService;
 import validator.UserValidator;
 import exceptions.ValidationException;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
 
 public class Main {
+    private static final int DEBUG_PAGE_SIZE = 100;
+    private static final int USER_CACHE_SIZE = 10_000;
+    private static final Duration USER_CACHE_TTL = Duration.ofMinutes(5);
+    private static final int FRIEND_SUGGESTIONS = 10;
+    private static final Duration METRICS_INTERVAL = Duration.ofMinutes(1);
     private static final Scanner scanner = new Scanner(System.in);
-    private static SocialNetworkService service;
+    private static InstrumentedSocialNetworkService service;
 
     public static void main(String[] args) {
-        Repository<String, User> repository = new DatabaseUserRepository("social-network.db", new UserValidator());
-        service = new SocialNetworkService(repository);
+        DatabaseUserRepository repository = new DatabaseUserRepository("social-network.db", new UserValidator(), 4, 60_000);
+        MetricsRegistry metrics = new MetricsRegistry();
+        CachingUserRepository cache = new CachingUserRepository(
+                new InstrumentedRepository<>(repository, metrics, "database"), USER_CACHE_SIZE, USER_CACHE_TTL);
+        InstrumentedRepository<String, User> users = new InstrumentedRepository<>(cache, metrics, "users");
+        service = new InstrumentedSocialNetworkService(new SocialNetworkService(users,
+                cache.invalidating(new DatabaseFriendshipRepository(repository))), metrics);
+        metrics.gauge("database.connectionsOpened", repository::getConnectionsOpened);
+        metrics.gauge("database.queriesExecuted", repository::getQueriesExecuted);
+        metrics.gauge("users.cache.hits", cache::getHits);
+        metrics.gauge("users.cache.misses", cache::getMisses);
+        metrics.gauge("users.cache.evictions", cache::getEvictions);
+        metrics.registerMBeans("social-network");
+        new MetricsReporter(metrics, METRICS_INTERVAL);
 
         while (true) {
             printMenu();
@@ -31,7 +56,9 @@ public class Main {
         System.out.println("4. Remove friendship");
         System.out.println("5. Show number of communities");
         System.out.println("6. Show most sociable community");
-        System.out.println("7. Exit");
+        System.out.println("7. Show friend suggestions");
+        System.out.println("8. Show how two users are connected");
+        System.out.println("9. Exit");
         System.out.print("Choose an option: ");
     }
 
@@ -45,7 +72,9 @@ public class Main {
                 case "4" -> removeFriendship();
                 case "5" -> showNumberOfCommunities();
                 case "6" -> showMostSociableCommunity();
-                case "7" -> {
+                case "7" -> showFriendSuggestions();
+                case "8" -> showConnection();
+                case "9" -> {
                     System.out.println("Goodbye!");
                     System.exit(0);
                 }
@@ -57,8 +86,12 @@ public class Main {
     }
 
     private static void debug() {
-        for (User user : service.getAllUsers()) {
-            System.out.println(user);
+        List<User> page = service.getUsers(null, DEBUG_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (User user : page) {
+                System.out.println(user);
+            }
+            page = service.getUsers(page.get(page.size() - 1).getId(), DEBUG_PAGE_SIZE);
         }
     }
 
@@ -113,4 +146,30 @@ public class Main {
             System.out.println(user);
         }
     }
-}
\ No newline at end of file
+
+    private static void showFriendSuggestions() {
+        System.out.print("Enter user ID: ");
+        String id = scanner.nextLine();
+        List<FriendSuggestion> suggestions = service.getFriendSuggestions(id, FRIEND_SUGGESTIONS);
+        System.out.println("People you may know:");
+        for (FriendSuggestion suggestion : suggestions) {
+            System.out.println(suggestion);
+        }
+    }
+
+    private static void showConnection() {
+        System.out.print("Enter first user ID: ");
+        String id1 = scanner.nextLine();
+        System.out.print("Enter second user ID: ");
+        String id2 = scanner.nextLine();
+        Optional<List<User>> path = service.findShortestPath(id1, id2);
+        if (path.isEmpty()) {
+            System.out.println("The users are not connected within six friendships.");
+            return;
+        }
+        System.out.println("Degrees of separation: " + (path.get().size() - 1));
+        for (User user : path.get()) {
+            System.out.println(user);
+        }
+    }
+}
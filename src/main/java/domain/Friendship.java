@@ -3,33 +3,52 @@ package domain;
 import java.util.Objects;
 
 /**
- * Represents a friendship between two users
+ * Represents a friendship between two users, identified by their ids
  */
-public class Friendship {
-    private final String id;
-    private final User user1;
-    private final User user2;
+public class Friendship extends Entity<String> {
+    private final String userId1;
+    private final String userId2;
+
+    public Friendship(String id, String userId1, String userId2) {
+        super(id);
+        this.userId1 = userId1;
+        this.userId2 = userId2;
+    }
 
     public Friendship(String id, User user1, User user2) {
-        this.id = id;
-        this.user1 = user1;
-        this.user2 = user2;
+        this(id, user1.getId(), user2.getId());
     }
 
-    public String getId() { return id; }
-    public User getUser1() { return user1; }
-    public User getUser2() { return user2; }
+    public String getUserId1() { return userId1; }
+    public String getUserId2() { return userId2; }
+
+    /**
+     * @param userId one of the two users
+     * @return the id of the other user
+     */
+    public String getOtherUserId(String userId) {
+        return userId.equals(userId1) ? userId2 : userId1;
+    }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Friendship that = (Friendship) o;
-        return Objects.equals(id, that.id);
+        return Objects.equals(getId(), that.getId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Objects.hash(getId());
+    }
+
+    @Override
+    public String toString() {
+        return "Friendship{" +
+                "id='" + getId() + '\'' +
+                ", userId1='" + userId1 + '\'' +
+                ", userId2='" + userId2 + '\'' +
+                '}';
     }
 }
@@ -16,14 +16,19 @@ public class User extends Entity<String> {
         super(id);
         this.firstName = firstName;
         this.lastName = lastName;
-        this.friends = new ArrayList<>();
     }
 
     public String getFirstName() { return firstName; }
     public void setFirstName(String firstName) { this.firstName = firstName; }
     public String getLastName() { return lastName; }
     public void setLastName(String lastName) { this.lastName = lastName; }
-    public List<User> getFriends() { return friends; }
+    public List<User> getFriends() {
+        // most users are read without their friends, so the list is created on first use
+        if (friends == null) {
+            friends = new ArrayList<>();
+        }
+        return friends;
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,26 @@
+package metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A number read from its owner whenever it is reported, e.g. a counter kept by a repository
+ */
+public class Gauge implements GaugeMBean {
+    private final String name;
+    private final LongSupplier value;
+
+    public Gauge(String name, LongSupplier value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() { return name; }
+
+    @Override
+    public long getValue() { return value.getAsLong(); }
+
+    @Override
+    public String toString() {
+        return name + "=" + getValue();
+    }
+}
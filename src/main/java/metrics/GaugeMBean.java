@@ -0,0 +1,8 @@
+package metrics;
+
+/**
+ * JMX view of a {@link Gauge}
+ */
+public interface GaugeMBean {
+    long getValue();
+}
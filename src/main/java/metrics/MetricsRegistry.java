@@ -0,0 +1,158 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Named operation metrics and gauges of one application. Once {@link #registerMBeans(String)}
+ * was called, every metric, including those created later, is also published as an MBean on
+ * the platform MBean server, under {@code <domain>:type=Operation,name=<name>} or
+ * {@code <domain>:type=Gauge,name=<name>}.
+ */
+public class MetricsRegistry {
+    private final Map<String, OperationMetrics> operations;
+    private final Map<String, Gauge> gauges;
+    private final List<ObjectName> registered;
+    private String domain;
+
+    public MetricsRegistry() {
+        this.operations = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.registered = new ArrayList<>();
+    }
+
+    /**
+     * @param name the operation name, e.g. {@code users.findOne}
+     * @return the metrics of the operation, created on first use
+     */
+    public OperationMetrics operation(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name must not be null");
+        }
+        OperationMetrics existing = operations.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        OperationMetrics created = new OperationMetrics(name);
+        existing = operations.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        publish("Operation", name, created);
+        return created;
+    }
+
+    /**
+     * @param name the gauge name, e.g. {@code database.queriesExecuted}
+     * @param value reads the current value
+     * @return the new gauge, replacing an earlier one with the same name
+     */
+    public Gauge gauge(String name, LongSupplier value) {
+        if (name == null) {
+            throw new IllegalArgumentException("name must not be null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        Gauge gauge = new Gauge(name, value);
+        gauges.put(name, gauge);
+        publish("Gauge", name, gauge);
+        return gauge;
+    }
+
+    /**
+     * @return the operations sorted by name
+     */
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> sorted = new ArrayList<>(operations.values());
+        sorted.sort(Comparator.comparing(OperationMetrics::getName));
+        return sorted;
+    }
+
+    /**
+     * @return the gauges sorted by name
+     */
+    public List<Gauge> getGauges() {
+        List<Gauge> sorted = new ArrayList<>(gauges.values());
+        sorted.sort(Comparator.comparing(Gauge::getName));
+        return sorted;
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server
+     * @param domain JMX domain of the object names, e.g. {@code social-network}
+     * @throws IllegalStateException if the metrics are already published
+     */
+    public synchronized void registerMBeans(String domain) {
+        if (domain == null) {
+            throw new IllegalArgumentException("domain must not be null");
+        }
+        if (this.domain != null) {
+            throw new IllegalStateException("Metrics are already registered under " + this.domain);
+        }
+        this.domain = domain;
+        for (OperationMetrics operation : operations.values()) {
+            publish("Operation", operation.getName(), operation);
+        }
+        for (Gauge gauge : gauges.values()) {
+            publish("Gauge", gauge.getName(), gauge);
+        }
+    }
+
+    /**
+     * Removes the MBeans published by {@link #registerMBeans(String)}
+     */
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // already gone
+            } catch (JMException e) {
+                throw new RuntimeException("Failed to unregister " + name, e);
+            }
+        }
+        registered.clear();
+        domain = null;
+    }
+
+    private synchronized void publish(String type, String name, Object mbean) {
+        if (domain == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(domain + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                // a replaced gauge
+                server.unregisterMBean(objectName);
+                registered.remove(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            registered.add(objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Another MBean is registered as " + name, e);
+        } catch (JMException e) {
+            throw new RuntimeException("Failed to register MBean for " + name, e);
+        }
+    }
+
+    /**
+     * @return the names of the published MBeans
+     */
+    synchronized Collection<ObjectName> getRegisteredNames() {
+        return new ArrayList<>(registered);
+    }
+}
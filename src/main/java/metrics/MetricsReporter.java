@@ -0,0 +1,63 @@
+package metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically logs a snapshot of a registry: one line per operation which was called at
+ * least once and one line with all gauges. The snapshot is logged at INFO on the
+ * {@code metrics} logger.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger("metrics");
+
+    private final MetricsRegistry registry;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Starts reporting
+     * @param registry the metrics to report
+     * @param interval time between two snapshots
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public MetricsReporter(MetricsRegistry registry, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.registry = registry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Logs a snapshot now
+     */
+    public void report() {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        for (OperationMetrics operation : registry.getOperations()) {
+            if (operation.getCount() > 0) {
+                LOG.info("{}", operation);
+            }
+        }
+        if (!registry.getGauges().isEmpty()) {
+            LOG.info("{}", registry.getGauges());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,95 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram of one operation
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final String name;
+    private final LatencyHistogram latencies;
+    private final LongAdder errors;
+
+    public OperationMetrics(String name) {
+        this.name = name;
+        this.latencies = new LatencyHistogram();
+        this.errors = new LongAdder();
+    }
+
+    /**
+     * Runs a call and records its latency; a call which throws is recorded as an error too
+     * @param call the call to measure
+     * @return what the call returned
+     * @throws X what the call threw
+     */
+    public <T, X extends Exception> T time(Call<T, X> call) throws X {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Exception | Error e) {
+            errors.increment();
+            throw e;
+        } finally {
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Like {@link #time(Call)}, for calls without a result
+     */
+    public <X extends Exception> void run(Action<X> action) throws X {
+        time(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public String getName() { return name; }
+
+    public LatencyHistogram getLatencies() { return latencies; }
+
+    @Override
+    public long getCount() { return latencies.getCount(); }
+
+    @Override
+    public long getErrors() { return errors.sum(); }
+
+    @Override
+    public double getMeanMicros() { return latencies.getMean() / NANOS_PER_MICRO; }
+
+    @Override
+    public double getP50Micros() { return latencies.getPercentile(50) / NANOS_PER_MICRO; }
+
+    @Override
+    public double getP99Micros() { return latencies.getPercentile(99) / NANOS_PER_MICRO; }
+
+    @Override
+    public double getP999Micros() { return latencies.getPercentile(99.9) / NANOS_PER_MICRO; }
+
+    @Override
+    public double getMaxMicros() { return latencies.getMax() / NANOS_PER_MICRO; }
+
+    @Override
+    public String toString() {
+        return String.format("%s count=%d errors=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                name, getCount(), getErrors(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+
+    /**
+     * A measured call with a result
+     */
+    @FunctionalInterface
+    public interface Call<T, X extends Exception> {
+        T call() throws X;
+    }
+
+    /**
+     * A measured call without a result
+     */
+    @FunctionalInterface
+    public interface Action<X extends Exception> {
+        void run() throws X;
+    }
+}
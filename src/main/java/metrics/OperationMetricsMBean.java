@@ -0,0 +1,20 @@
+package metrics;
+
+/**
+ * JMX view of an {@link OperationMetrics}; latencies are in microseconds
+ */
+public interface OperationMetricsMBean {
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,156 @@
+package repository;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking calls in the background and hands back their results as
+ * {@link CompletableFuture}s. At most {@code maxConcurrency} calls run at the same time; the
+ * others wait for a permit, so a burst of lookups cannot open more database connections than
+ * the cap allows.
+ * <p>
+ * By default every call gets its own virtual thread, so waiting for a permit or for the
+ * database costs no platform thread. On runtimes without virtual threads the calls queue for
+ * a pool of {@code maxConcurrency} daemon platform threads instead, which needs no permits,
+ * so no thread is parked waiting for one.
+ */
+public class AsyncExecutor implements AutoCloseable {
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+    private static final Method VIRTUAL_THREAD_EXECUTOR = virtualThreadExecutorFactory();
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    // null if the executor itself runs at most maxConcurrency calls at a time
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    /**
+     * @param maxConcurrency maximum number of calls running at the same time
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public AsyncExecutor(int maxConcurrency) {
+        this(newTaskExecutor(maxConcurrency), true, maxConcurrency, VIRTUAL_THREAD_EXECUTOR != null);
+    }
+
+    /**
+     * @param executor runs the calls; it is not shut down by {@link #close()}
+     * @param maxConcurrency maximum number of calls running at the same time
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public AsyncExecutor(ExecutorService executor, int maxConcurrency) {
+        this(executor, false, maxConcurrency, true);
+    }
+
+    private AsyncExecutor(ExecutorService executor, boolean ownsExecutor, int maxConcurrency, boolean needsPermits) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = needsPermits ? new Semaphore(maxConcurrency, true) : null;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @param maxConcurrency threads of the pool used if the runtime has no virtual threads
+     * @return an executor starting a virtual thread per task, or a pool of
+     * {@code maxConcurrency} daemon threads, which queues further tasks, if the runtime has no
+     * virtual threads
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public static ExecutorService newTaskExecutor(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("Failed to create virtual thread executor", e);
+            }
+        }
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "async-repository-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static Method virtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param call the blocking call
+     * @return completes with the result of the call, or exceptionally with what it threw
+     * @throws java.util.concurrent.RejectedExecutionException if this executor is closed
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (permits != null) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                    return;
+                }
+            }
+            try {
+                future.complete(call.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        });
+        return future;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Stops accepting calls and waits up to a minute for the submitted ones to finish, if this
+     * executor created its threads. Calls still running after that are left to finish on their
+     * own daemon threads.
+     */
+    @Override
+    public void close() {
+        if (!ownsExecutor) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Gave up waiting for asynchronous calls to finish after "
+                        + CLOSE_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package repository;
+
+import domain.Entity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous view of a repository: every call runs on an {@link AsyncExecutor} and its
+ * result is delivered through a {@link CompletableFuture}. Exceptions thrown by the repository,
+ * such as {@link exceptions.ValidationException}, complete the future exceptionally.
+ * The wrapped repository must be safe to call from several threads.
+ * @param <ID> type of the entity ids
+ * @param <E> type of the entities
+ */
+public class AsyncRepository<ID extends Comparable<ID>, E extends Entity<ID>> {
+    private final Repository<ID, E> repository;
+    private final AsyncExecutor executor;
+
+    /**
+     * @param repository the repository to call
+     * @param executor runs the calls and caps how many run at the same time
+     */
+    public AsyncRepository(Repository<ID, E> repository, AsyncExecutor executor) {
+        if (repository == null) {
+            throw new IllegalArgumentException("repository must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Optional<E>> findOne(ID id) {
+        return executor.submit(() -> repository.findOne(id));
+    }
+
+    /**
+     * @see Repository#findMany(Collection)
+     */
+    public CompletableFuture<List<E>> findMany(Collection<ID> ids) {
+        return executor.submit(() -> repository.findMany(ids));
+    }
+
+    public CompletableFuture<Iterable<E>> findAll() {
+        return executor.submit(repository::findAll);
+    }
+
+    /**
+     * @see Repository#findPage(Comparable, int)
+     */
+    public CompletableFuture<List<E>> findPage(ID afterId, int limit) {
+        return executor.submit(() -> repository.findPage(afterId, limit));
+    }
+
+    public CompletableFuture<Optional<E>> save(E entity) {
+        return executor.submit(() -> repository.save(entity));
+    }
+
+    public CompletableFuture<Optional<E>> update(E entity) {
+        return executor.submit(() -> repository.update(entity));
+    }
+
+    public CompletableFuture<Optional<E>> delete(ID id) {
+        return executor.submit(() -> repository.delete(id));
+    }
+
+    public CompletableFuture<List<E>> saveAll(Iterable<E> entities) {
+        return executor.submit(() -> repository.saveAll(entities));
+    }
+
+    public CompletableFuture<List<E>> deleteAll(Iterable<ID> ids) {
+        return executor.submit(() -> repository.deleteAll(ids));
+    }
+}
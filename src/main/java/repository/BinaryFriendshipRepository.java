@@ -0,0 +1,72 @@
+package repository;
+
+import domain.Friendship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Friendship repository for users kept in a {@link BinaryUserRepository}. The binary file
+ * stores friendships as edges between users, so every change is applied to the friend lists
+ * of the stored users and appended to the journal of the user repository.
+ * <p>
+ * The file has no friendship ids; friendships loaded from it get new ones. A change which
+ * cannot be journaled is undone here as well and the exception is rethrown.
+ */
+public class BinaryFriendshipRepository extends InMemoryFriendshipRepository {
+    private final BinaryUserRepository users;
+
+    public BinaryFriendshipRepository(BinaryUserRepository users) {
+        this.users = users;
+        for (Friendship friendship : InMemoryFriendshipRepository.fromFriendLists(users.findAll()).findAll()) {
+            super.save(friendship);
+        }
+    }
+
+    @Override
+    public Optional<Friendship> save(Friendship friendship) {
+        Optional<Friendship> existing = super.save(friendship);
+        if (existing.isEmpty()) {
+            try {
+                users.addFriendship(friendship.getUserId1(), friendship.getUserId2());
+            } catch (RuntimeException e) {
+                super.delete(friendship.getUserId1(), friendship.getUserId2());
+                throw e;
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public Optional<Friendship> delete(String userId1, String userId2) {
+        Optional<Friendship> removed = super.delete(userId1, userId2);
+        if (removed.isPresent()) {
+            try {
+                users.removeFriendships(userId1, List.of(userId2));
+            } catch (RuntimeException e) {
+                super.save(removed.get());
+                throw e;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Friendship> deleteAllOf(String userId) {
+        List<Friendship> removed = super.deleteAllOf(userId);
+        if (!removed.isEmpty()) {
+            List<String> friendIds = new ArrayList<>(removed.size());
+            for (Friendship friendship : removed) {
+                friendIds.add(friendship.getOtherUserId(userId));
+            }
+            try {
+                users.removeFriendships(userId, friendIds);
+            } catch (RuntimeException e) {
+                removed.forEach(super::save);
+                throw e;
+            }
+        }
+        return removed;
+    }
+}
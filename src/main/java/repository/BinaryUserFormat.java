@@ -0,0 +1,315 @@
+package repository;
+
+import domain.User;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary file format for users and their friendships, read and written through NIO
+ * channels. All numbers are big-endian; strings are UTF-8 prefixed with their length in bytes.
+ * <pre>
+ * magic            4 bytes "SNUB"
+ * version          u16, currently 1
+ * user count       i32
+ * id dictionary    one string per user; a user is referred to by its position here
+ * names            first and last name of every user, in dictionary order
+ * edge count       i32
+ * edges            two i32 dictionary positions per friendship, each friendship once
+ * checksum         i32 CRC32 of everything before it
+ * </pre>
+ * String lengths are u16, so a field can hold at most 65535 bytes.
+ */
+public final class BinaryUserFormat {
+    /**
+     * The version written by {@link #write(Path, Collection)}
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'S', 'N', 'U', 'B'};
+    private static final int BUFFER_SIZE = 64 << 10;
+    private static final int MAX_STRING_BYTES = 0xffff;
+
+    private BinaryUserFormat() {
+    }
+
+    /**
+     * Writes the users and the friendships between them to a temporary file which then
+     * replaces {@code file}, so readers never see a half-written file. Friends which are not
+     * among the users are left out.
+     * @param file the file to write
+     * @param users the users to write
+     * @throws IllegalArgumentException if an id or name is longer than 65535 bytes
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Collection<User> users) throws IOException {
+        Map<String, Integer> positions = new HashMap<>(users.size() * 2);
+        for (User user : users) {
+            positions.put(user.getId(), positions.size());
+        }
+        List<int[]> edges = new ArrayList<>();
+        int position = 0;
+        for (User user : users) {
+            for (User friend : user.getFriends()) {
+                Integer friendPosition = positions.get(friend.getId());
+                // each friendship is listed by both users; keep it once
+                if (friendPosition != null && friendPosition > position) {
+                    edges.add(new int[]{position, friendPosition});
+                }
+            }
+            position++;
+        }
+
+        Path temporary = Paths.get(file + ".tmp");
+        try (Writer writer = new Writer(FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            writer.bytes(MAGIC);
+            writer.u16(VERSION);
+            writer.i32(users.size());
+            for (User user : users) {
+                writer.string(user.getId());
+            }
+            for (User user : users) {
+                writer.string(user.getFirstName());
+                writer.string(user.getLastName());
+            }
+            writer.i32(edges.size());
+            for (int[] edge : edges) {
+                writer.i32(edge[0]);
+                writer.i32(edge[1]);
+            }
+            writer.checksum();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @param file the file to read
+     * @return the users in file order, with their friend lists filled in
+     * @throws IOException if the file cannot be read, is not in this format, has an unknown
+     * version or is corrupt
+     */
+    public static List<User> read(Path file) throws IOException {
+        try (Reader reader = new Reader(FileChannel.open(file, StandardOpenOption.READ))) {
+            byte[] magic = reader.bytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a binary user file");
+            }
+            int version = reader.u16();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary user file version " + version + " in " + file);
+            }
+            int userCount = reader.count();
+            String[] ids = new String[userCount];
+            for (int i = 0; i < userCount; i++) {
+                ids[i] = reader.string();
+            }
+            List<User> users = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                users.add(new User(ids[i], reader.string(), reader.string()));
+            }
+            int edgeCount = reader.count();
+            for (int i = 0; i < edgeCount; i++) {
+                User user1 = users.get(reader.index(userCount));
+                User user2 = users.get(reader.index(userCount));
+                user1.getFriends().add(user2);
+                user2.getFriends().add(user1);
+            }
+            reader.verifyChecksum(file);
+            return users;
+        }
+    }
+
+    /**
+     * Buffered writer over a channel which keeps a running CRC32 of everything written
+     */
+    private static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32 crc;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.crc = new CRC32();
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void u16(int value) throws IOException {
+            ensure(Short.BYTES);
+            buffer.putShort((short) value);
+        }
+
+        void i32(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void string(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES) {
+                throw new IllegalArgumentException("strings must not be longer than " + MAX_STRING_BYTES + " bytes");
+            }
+            u16(bytes.length);
+            bytes(bytes);
+        }
+
+        void checksum() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Buffered reader over a channel which keeps a running CRC32 of everything consumed
+     */
+    private static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final CRC32 crc;
+        private final long size;
+        // buffer position up to which the consumed bytes are in the checksum
+        private int checked;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.buffer.flip();
+            this.crc = new CRC32();
+            this.size = channel.size();
+        }
+
+        byte[] bytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            for (int offset = 0; offset < length; ) {
+                require(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return bytes;
+        }
+
+        int u16() throws IOException {
+            require(Short.BYTES);
+            return buffer.getShort() & 0xffff;
+        }
+
+        int i32() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        /**
+         * @return a count which must fit in the rest of the file
+         */
+        int count() throws IOException {
+            int count = i32();
+            if (count < 0 || count > size) {
+                throw new IOException("Corrupt binary user file: bad count " + count);
+            }
+            return count;
+        }
+
+        int index(int userCount) throws IOException {
+            int index = i32();
+            if (index < 0 || index >= userCount) {
+                throw new IOException("Corrupt binary user file: bad user index " + index);
+            }
+            return index;
+        }
+
+        String string() throws IOException {
+            return new String(bytes(u16()), StandardCharsets.UTF_8);
+        }
+
+        void verifyChecksum(Path file) throws IOException {
+            updateChecksum();
+            require(Integer.BYTES);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                throw new IOException("Corrupt binary user file " + file + ": checksum mismatch");
+            }
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            updateChecksum();
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Corrupt binary user file: unexpected end of file");
+                }
+            }
+            buffer.flip();
+            checked = 0;
+        }
+
+        private void updateChecksum() {
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.limit(buffer.position()).position(checked);
+            crc.update(consumed);
+            checked = buffer.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
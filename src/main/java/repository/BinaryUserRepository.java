@@ -0,0 +1,359 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import validator.Validator;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * User repository stored in a {@link BinaryUserFormat} file. Unlike the CSV file, the binary
+ * file also holds the friendships.
+ * <p>
+ * The binary file is a snapshot. Every change to a user or a friend list is appended to a
+ * {@link Journal} next to it, so a write costs one record and one fsync rather than a rewrite
+ * of every user; loading reads the snapshot and then replays the journal. {@link #flush()}
+ * folds the journal into a fresh snapshot, which also happens by itself once the journal
+ * holds more records than there are users. A change which cannot be written to the journal is
+ * undone in memory and the exception is rethrown.
+ */
+public class BinaryUserRepository implements Repository<String, User>, AutoCloseable {
+    private static final String PUT = "P";
+    private static final String DELETE = "D";
+    private static final String FRIEND = "F";
+    private static final String UNFRIEND = "U";
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+
+    private final Path file;
+    private final Validator<User> validator;
+    private final Map<String, User> users;
+    private final Journal journal;
+    private long journalRecords;
+
+    /**
+     * @param filename the binary file; a missing file starts an empty repository. The journal
+     *                 is kept in {@code filename + ".journal"}.
+     * @param validator validates saved and updated users
+     * @throws RuntimeException if the file exists but cannot be read, or the journal cannot be
+     * opened
+     */
+    public BinaryUserRepository(String filename, Validator<User> validator) {
+        this.file = Paths.get(filename);
+        this.validator = validator;
+        this.users = new LinkedHashMap<>();
+        loadData();
+        try {
+            // records of an interrupted compaction, written after the snapshot was taken
+            Journal.replay(compactingPath(), this::apply);
+            this.journal = new Journal(journalPath(), this::replayRecord);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open journal for " + file, e);
+        }
+    }
+
+    private void loadData() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        FileIoEvent event = new FileIoEvent("load", file.toString());
+        try {
+            BinaryUserFormat.read(file).forEach(user -> users.put(user.getId(), user));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load users from " + file, e);
+        }
+        event.records = users.size();
+        event.commitWithSizeOf(file);
+    }
+
+    private void replayRecord(String record) {
+        apply(record);
+        journalRecords++;
+    }
+
+    private void apply(String record) {
+        String[] parts = record.split(",");
+        for (int i = 1; i < parts.length; i++) {
+            parts[i] = URLDecoder.decode(parts[i], StandardCharsets.UTF_8);
+        }
+        if (parts[0].equals(PUT) && parts.length == 4) {
+            users.put(parts[1], new User(parts[1], parts[2], parts[3]));
+        } else if (parts[0].equals(DELETE) && parts.length == 2) {
+            users.remove(parts[1]);
+        } else if (parts[0].equals(FRIEND) && parts.length == 3) {
+            User user1 = users.get(parts[1]);
+            User user2 = users.get(parts[2]);
+            // the snapshot may already have it, if a compaction was interrupted
+            if (user1 != null && user2 != null && user1.getFriends().stream().noneMatch(f -> f.getId().equals(parts[2]))) {
+                user1.getFriends().add(user2);
+                user2.getFriends().add(user1);
+            }
+        } else if (parts[0].equals(UNFRIEND) && parts.length == 3) {
+            removeFromFriendList(parts[1], parts[2]);
+            removeFromFriendList(parts[2], parts[1]);
+        }
+    }
+
+    /**
+     * Writes the users and their current friendships to a fresh snapshot and empties the
+     * journal. The journal is first moved aside; the snapshot replaces the old one atomically
+     * and only then is the old journal deleted, so a crash at any point leaves files that load
+     * to the same users. Friend lists changed directly on the stored users reach the file only
+     * this way.
+     * @throws RuntimeException if the file cannot be written
+     */
+    public void flush() {
+        FileIoEvent event = new FileIoEvent("write", file.toString());
+        event.records = users.size();
+        try {
+            // a leftover journal from a crashed compaction is already part of users
+            if (!Files.exists(compactingPath())) {
+                journal.rotate(compactingPath());
+            }
+            BinaryUserFormat.write(file, users.values());
+            Files.delete(compactingPath());
+            journalRecords = 0;
+            event.commitWithSizeOf(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save users to " + file, e);
+        }
+    }
+
+    /**
+     * @return the journal the changes are appended to
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    /**
+     * Adds the users to each other's friend lists and journals the change; does nothing if one
+     * of the users does not exist
+     * @throws RuntimeException if the change cannot be written
+     */
+    void addFriendship(String userId1, String userId2) {
+        User user1 = users.get(userId1);
+        User user2 = users.get(userId2);
+        if (user1 == null || user2 == null) {
+            return;
+        }
+        user1.getFriends().add(user2);
+        user2.getFriends().add(user1);
+        persist(List.of(record(FRIEND, userId1, userId2)), () -> {
+            user1.getFriends().remove(user2);
+            user2.getFriends().remove(user1);
+        });
+    }
+
+    /**
+     * Takes the user and each of the friends off each other's friend lists and journals the
+     * changes together
+     * @throws RuntimeException if the changes cannot be written
+     */
+    void removeFriendships(String userId, Collection<String> friendIds) {
+        Map<User, List<User>> removed = new HashMap<>();
+        List<String> records = new ArrayList<>(friendIds.size());
+        for (String friendId : friendIds) {
+            collectRemoved(userId, friendId, removed);
+            collectRemoved(friendId, userId, removed);
+            records.add(record(UNFRIEND, userId, friendId));
+        }
+        removeFromFriendList(userId, friendIds);
+        for (String friendId : friendIds) {
+            removeFromFriendList(friendId, List.of(userId));
+        }
+        persist(records, () -> removed.forEach((user, friends) -> user.getFriends().addAll(friends)));
+    }
+
+    private void collectRemoved(String userId, String friendId, Map<User, List<User>> removed) {
+        User user = users.get(userId);
+        if (user != null) {
+            for (User friend : user.getFriends()) {
+                if (friend.getId().equals(friendId)) {
+                    removed.computeIfAbsent(user, key -> new ArrayList<>()).add(friend);
+                }
+            }
+        }
+    }
+
+    private void removeFromFriendList(String userId, String friendId) {
+        removeFromFriendList(userId, List.of(friendId));
+    }
+
+    private void removeFromFriendList(String userId, Collection<String> friendIds) {
+        User user = users.get(userId);
+        if (user != null) {
+            user.getFriends().removeIf(friend -> friendIds.contains(friend.getId()));
+        }
+    }
+
+    /**
+     * Appends the records of changes already applied in memory and waits until they are
+     * durable, folding the journal into a fresh snapshot once it outgrows the users
+     * @param rollback undoes the changes in memory if they cannot be appended
+     */
+    private void persist(List<String> records, Runnable rollback) {
+        long sequence;
+        try {
+            sequence = journal.append(records);
+        } catch (RuntimeException e) {
+            rollback.run();
+            throw e;
+        }
+        journal.sync(sequence);
+        journalRecords += records.size();
+        if (journalRecords > Math.max(MIN_COMPACTION_RECORDS, users.size())) {
+            flush();
+        }
+    }
+
+    /**
+     * @return the fields joined by commas, each URL-encoded so that it holds neither a comma
+     * nor a line break
+     */
+    private static String record(String type, String... fields) {
+        StringBuilder record = new StringBuilder(type);
+        for (String field : fields) {
+            record.append(',').append(URLEncoder.encode(field, StandardCharsets.UTF_8));
+        }
+        return record.toString();
+    }
+
+    private static String putRecord(User user) {
+        return record(PUT, user.getId(), user.getFirstName(), user.getLastName());
+    }
+
+    private Path journalPath() {
+        return Paths.get(file + ".journal");
+    }
+
+    private Path compactingPath() {
+        return Paths.get(file + ".journal.compacting");
+    }
+
+    @Override
+    public Optional<User> findOne(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        return Optional.ofNullable(users.get(id));
+    }
+
+    @Override
+    public Iterable<User> findAll() {
+        return new ArrayList<>(users.values());
+    }
+
+    @Override
+    public Optional<User> save(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        validator.validate(entity);
+        Optional<User> existingUser = Optional.ofNullable(users.putIfAbsent(entity.getId(), entity));
+        if (existingUser.isEmpty()) {
+            persist(List.of(putRecord(entity)), () -> users.remove(entity.getId()));
+        }
+        return existingUser;
+    }
+
+    @Override
+    public Optional<User> delete(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        Optional<User> removedUser = Optional.ofNullable(users.remove(id));
+        removedUser.ifPresent(user -> persist(List.of(record(DELETE, id)), () -> users.put(id, user)));
+        return removedUser;
+    }
+
+    @Override
+    public Optional<User> update(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        validator.validate(entity);
+
+        if (users.containsKey(entity.getId())) {
+            User previous = users.put(entity.getId(), entity);
+            persist(List.of(putRecord(entity)), () -> users.put(entity.getId(), previous));
+            return Optional.empty();
+        }
+        return Optional.of(entity);
+    }
+
+    @Override
+    public List<User> saveAll(Iterable<User> entities) throws ValidationException {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        List<User> batch = new ArrayList<>();
+        for (User entity : entities) {
+            if (entity == null) {
+                throw new IllegalArgumentException("entity must not be null");
+            }
+            validator.validate(entity);
+            batch.add(entity);
+        }
+
+        List<User> existing = new ArrayList<>();
+        List<User> added = new ArrayList<>();
+        for (User entity : batch) {
+            User previous = users.putIfAbsent(entity.getId(), entity);
+            if (previous != null) {
+                existing.add(previous);
+            } else {
+                added.add(entity);
+            }
+        }
+        if (!added.isEmpty()) {
+            List<String> records = new ArrayList<>(added.size());
+            for (User user : added) {
+                records.add(putRecord(user));
+            }
+            persist(records, () -> added.forEach(user -> users.remove(user.getId())));
+        }
+        return existing;
+    }
+
+    @Override
+    public List<User> deleteAll(Iterable<String> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids must not be null");
+        }
+        List<String> batch = new ArrayList<>();
+        for (String id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("id must not be null");
+            }
+            batch.add(id);
+        }
+
+        List<User> removed = new ArrayList<>();
+        for (String id : batch) {
+            User user = users.remove(id);
+            if (user != null) {
+                removed.add(user);
+            }
+        }
+        if (!removed.isEmpty()) {
+            List<String> records = new ArrayList<>(removed.size());
+            for (User user : removed) {
+                records.add(record(DELETE, user.getId()));
+            }
+            persist(records, () -> removed.forEach(user -> users.put(user.getId(), user)));
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,132 @@
+package repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only store of short strings, kept as UTF-8 in byte pages instead of one
+ * {@link String} object each. A string is addressed by the offset returned when it was added
+ * and is stored as a big-endian u16 length followed by its bytes. Strings added together
+ * are kept on one page, so the second is found right after the first. Strings are never
+ * removed; the space of replaced strings is only reclaimed with the pool.
+ */
+final class BytePool {
+    static final int MAX_STRING_BYTES = 0xffff;
+
+    private static final int PAGE_SHIFT = 18;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int FIRST_PAGE_SIZE = 1 << 10;
+
+    private byte[][] pages;
+    private long size;
+
+    BytePool() {
+        this.pages = new byte[][]{new byte[FIRST_PAGE_SIZE]};
+    }
+
+    /**
+     * @param strings UTF-8 bytes of the strings, as returned by {@link #encode(String)}; at
+     *                most two, so they fit on one page
+     * @return offset of the first string
+     */
+    long add(byte[]... strings) {
+        int recordLength = 0;
+        for (byte[] string : strings) {
+            recordLength += Short.BYTES + string.length;
+        }
+        if ((size & PAGE_MASK) + recordLength > PAGE_SIZE) {
+            size = (size | PAGE_MASK) + 1;
+        }
+        byte[] page = writablePage(recordLength);
+        long offset = size;
+        int position = (int) (size & PAGE_MASK);
+        for (byte[] string : strings) {
+            page[position] = (byte) (string.length >>> 8);
+            page[position + 1] = (byte) string.length;
+            System.arraycopy(string, 0, page, position + Short.BYTES, string.length);
+            position += Short.BYTES + string.length;
+        }
+        size += recordLength;
+        return offset;
+    }
+
+    String get(long offset) {
+        byte[] page = pages[(int) (offset >>> PAGE_SHIFT)];
+        int position = (int) (offset & PAGE_MASK);
+        return new String(page, position + Short.BYTES, length(page, position), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return offset of the string added together with and right after the one at {@code offset}
+     */
+    long next(long offset) {
+        byte[] page = pages[(int) (offset >>> PAGE_SHIFT)];
+        return offset + Short.BYTES + length(page, (int) (offset & PAGE_MASK));
+    }
+
+    boolean matches(long offset, byte[] bytes) {
+        byte[] page = pages[(int) (offset >>> PAGE_SHIFT)];
+        int position = (int) (offset & PAGE_MASK) + Short.BYTES;
+        return length(page, position - Short.BYTES) == bytes.length
+                && Arrays.equals(page, position, position + bytes.length, bytes, 0, bytes.length);
+    }
+
+    int hash(long offset) {
+        byte[] page = pages[(int) (offset >>> PAGE_SHIFT)];
+        int position = (int) (offset & PAGE_MASK);
+        return hash(page, position + Short.BYTES, length(page, position));
+    }
+
+    /**
+     * @return bytes allocated for the pages
+     */
+    long getCapacity() {
+        long capacity = 0;
+        for (byte[] page : pages) {
+            capacity += page == null ? 0 : page.length;
+        }
+        return capacity;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string is longer than 65535 bytes in UTF-8
+     */
+    static byte[] encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("strings must not be longer than " + MAX_STRING_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    static int hash(byte[] bytes, int from, int length) {
+        int hash = 1;
+        for (int i = from; i < from + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int length(byte[] page, int position) {
+        return (page[position] & 0xff) << 8 | (page[position + 1] & 0xff);
+    }
+
+    private byte[] writablePage(int recordLength) {
+        int index = (int) (size >>> PAGE_SHIFT);
+        if (index >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(index + 1, pages.length * 2));
+        }
+        byte[] page = pages[index];
+        int needed = (int) (size & PAGE_MASK) + recordLength;
+        if (page == null) {
+            page = new byte[PAGE_SIZE];
+            pages[index] = page;
+        } else if (page.length < needed) {
+            // only the first page starts small and grows, so small stores stay small
+            page = Arrays.copyOf(page, Math.min(PAGE_SIZE, Math.max(needed, page.length * 2)));
+            pages[index] = page;
+        }
+        return page;
+    }
+}
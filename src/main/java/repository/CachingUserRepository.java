@@ -0,0 +1,443 @@
+package repository;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of another user repository, for backends where
+ * {@link #findOne(String)} is expensive, such as {@link DatabaseUserRepository}.
+ * <p>
+ * Found users are kept in least-recently-used order within a weight budget and expire after
+ * a time to live. Writes go to the wrapped repository and drop the cached users they touch;
+ * friendship changes reach the cache through {@link #invalidating(FriendshipRepository)},
+ * since cached users carry their friend lists. Users missing from the wrapped repository
+ * are not cached. Bulk reads are passed through without filling the cache.
+ * <p>
+ * Cached users are shared between callers and must not be modified.
+ */
+public class CachingUserRepository implements Repository<String, User> {
+    private final Repository<String, User> delegate;
+    private final long maxWeight;
+    private final ToIntFunction<User> weigher;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries;
+    private long weight;
+    // bumped by every invalidation, so a load which raced with a write is not cached
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param delegate the repository to cache
+     * @param maxEntries maximum number of cached users
+     * @param ttl how long a user stays cached after it was loaded
+     */
+    public CachingUserRepository(Repository<String, User> delegate, int maxEntries, Duration ttl) {
+        this(delegate, maxEntries, user -> 1, ttl);
+    }
+
+    /**
+     * @param delegate the repository to cache
+     * @param maxWeight maximum total weight of the cached users
+     * @param weigher weight of a user, e.g. an estimate of its size in bytes
+     * @param ttl how long a user stays cached after it was loaded
+     * @throws IllegalArgumentException if maxWeight or ttl is not positive
+     */
+    public CachingUserRepository(Repository<String, User> delegate, long maxWeight, ToIntFunction<User> weigher,
+                                 Duration ttl) {
+        this(delegate, maxWeight, weigher, ttl, System::nanoTime);
+    }
+
+    CachingUserRepository(Repository<String, User> delegate, long maxWeight, ToIntFunction<User> weigher,
+                          Duration ttl, LongSupplier clock) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.delegate = delegate;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * The wrapped repository is queried outside the cache lock, so concurrent misses on
+     * different users do not wait for each other
+     */
+    @Override
+    public Optional<User> findOne(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.loadedAt < ttlNanos) {
+                    hits++;
+                    return Optional.of(entry.user);
+                }
+                remove(id);
+                expirations++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        Optional<User> user = delegate.findOne(id);
+        user.ifPresent(found -> put(id, found, loadGeneration));
+        return user;
+    }
+
+    /**
+     * Serves the cached users and looks the others up with one call to the wrapped
+     * repository's {@link Repository#findMany(Collection)}
+     */
+    @Override
+    public List<User> findMany(Collection<String> ids) {
+        List<String> distinct = Repository.distinctIds(ids);
+        Map<String, User> found = new HashMap<>(distinct.size() * 2);
+        List<String> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            for (String id : distinct) {
+                Entry entry = entries.get(id);
+                if (entry != null && now - entry.loadedAt < ttlNanos) {
+                    hits++;
+                    found.put(id, entry.user);
+                    continue;
+                }
+                if (entry != null) {
+                    remove(id);
+                    expirations++;
+                }
+                misses++;
+                missing.add(id);
+            }
+            loadGeneration = generation;
+        }
+
+        if (!missing.isEmpty()) {
+            for (User user : delegate.findMany(missing)) {
+                found.put(user.getId(), user);
+                put(user.getId(), user, loadGeneration);
+            }
+        }
+        List<User> result = new ArrayList<>(found.size());
+        for (String id : distinct) {
+            User user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterable<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<User> findPage(String afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public Optional<User> save(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        try {
+            return delegate.save(entity);
+        } finally {
+            invalidate(entity.getId());
+        }
+    }
+
+    @Override
+    public Optional<User> delete(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        try {
+            return delegate.delete(id);
+        } finally {
+            invalidateWithFriends(id);
+        }
+    }
+
+    @Override
+    public Optional<User> update(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        try {
+            return delegate.update(entity);
+        } finally {
+            // friends of the user carry its old names in their friend lists
+            invalidateWithFriends(entity.getId());
+        }
+    }
+
+    /**
+     * The entities are copied first, so a one-shot {@link Iterable} is read once and the
+     * same users are written and dropped from the cache
+     */
+    @Override
+    public List<User> saveAll(Iterable<User> entities) throws ValidationException {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        List<User> batch = new ArrayList<>();
+        entities.forEach(batch::add);
+        try {
+            return delegate.saveAll(batch);
+        } finally {
+            for (User entity : batch) {
+                if (entity != null) {
+                    invalidate(entity.getId());
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<User> deleteAll(Iterable<String> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids must not be null");
+        }
+        List<String> batch = new ArrayList<>();
+        ids.forEach(batch::add);
+        try {
+            return delegate.deleteAll(batch);
+        } finally {
+            for (String id : batch) {
+                if (id != null) {
+                    invalidateWithFriends(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a cached user, e.g. after it was changed directly in the wrapped repository
+     * @param id the user id
+     */
+    public synchronized void invalidate(String id) {
+        generation++;
+        remove(id);
+    }
+
+    /**
+     * Drops every cached user
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @param friendships the friendships of the users in this repository
+     * @return a view of {@code friendships} whose writes drop the cached users they touch
+     */
+    public FriendshipRepository invalidating(FriendshipRepository friendships) {
+        return new InvalidatingFriendshipRepository(friendships);
+    }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    /**
+     * @return users dropped to stay within the weight budget
+     */
+    public synchronized long getEvictions() { return evictions; }
+
+    /**
+     * @return users dropped because their time to live had passed
+     */
+    public synchronized long getExpirations() { return expirations; }
+
+    /**
+     * @return hits divided by lookups, or 0 before the first lookup
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return number of cached users
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void put(String id, User user, long loadGeneration) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        int userWeight = weigher.applyAsInt(user);
+        if (userWeight > maxWeight) {
+            return;
+        }
+        remove(id);
+        entries.put(id, new Entry(user, userWeight, clock.getAsLong()));
+        weight += userWeight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(String id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    /**
+     * Drops a user and the cached users whose friend lists mention it
+     */
+    private synchronized void invalidateWithFriends(String id) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            for (User friend : entry.user.getFriends()) {
+                remove(friend.getId());
+            }
+        } else {
+            // the friends are unknown, so any cached user may list this one
+            List<String> listing = new ArrayList<>();
+            for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+                for (User friend : cached.getValue().user.getFriends()) {
+                    if (friend.getId().equals(id)) {
+                        listing.add(cached.getKey());
+                    }
+                }
+            }
+            listing.forEach(this::remove);
+        }
+        invalidate(id);
+    }
+
+    private static final class Entry {
+        private final User user;
+        private final int weight;
+        private final long loadedAt;
+
+        Entry(User user, int weight, long loadedAt) {
+            this.user = user;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Passes friendship writes on and drops both users from the cache afterwards
+     */
+    private final class InvalidatingFriendshipRepository implements FriendshipRepository {
+        private final FriendshipRepository friendships;
+
+        InvalidatingFriendshipRepository(FriendshipRepository friendships) {
+            this.friendships = friendships;
+        }
+
+        @Override
+        public boolean exists(String userId1, String userId2) {
+            return friendships.exists(userId1, userId2);
+        }
+
+        @Override
+        public Optional<Friendship> findOne(String userId1, String userId2) {
+            return friendships.findOne(userId1, userId2);
+        }
+
+        @Override
+        public Set<String> findFriendIds(String userId) {
+            return friendships.findFriendIds(userId);
+        }
+
+        @Override
+        public Iterable<Friendship> findAll() {
+            return friendships.findAll();
+        }
+
+        @Override
+        public long count() {
+            return friendships.count();
+        }
+
+        @Override
+        public Optional<Friendship> save(Friendship friendship) {
+            try {
+                return friendships.save(friendship);
+            } finally {
+                if (friendship != null) {
+                    invalidate(friendship.getUserId1());
+                    invalidate(friendship.getUserId2());
+                }
+            }
+        }
+
+        @Override
+        public Optional<Friendship> delete(String userId1, String userId2) {
+            try {
+                return friendships.delete(userId1, userId2);
+            } finally {
+                if (userId1 != null && userId2 != null) {
+                    invalidate(userId1);
+                    invalidate(userId2);
+                }
+            }
+        }
+
+        @Override
+        public List<Friendship> deleteAllOf(String userId) {
+            List<Friendship> removed = friendships.deleteAllOf(userId);
+            for (Friendship friendship : removed) {
+                invalidate(friendship.getUserId1());
+                invalidate(friendship.getUserId2());
+            }
+            invalidate(userId);
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package repository;
+
+import domain.Friendship;
+
+import java.util.*;
+
+/**
+ * In-memory friendship repository laid out for very large graphs. User ids are interned to
+ * dense ints and every user keeps its friends in a growable int array, sorted so a pair is
+ * found by binary search in O(log degree) rather than through a hash map per user. Friendship
+ * ids live in a {@link BytePool}. {@link Friendship} objects and friend id strings are created
+ * on demand by the read methods.
+ * <p>
+ * Ids of removed friendships stay in the pool until the repository is dropped. Not thread-safe.
+ */
+public class CompactFriendshipRepository implements FriendshipRepository {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final IdDictionary users;
+    private final BytePool friendshipIds;
+    // per user int: friend ints ascending, and the friendship int at the same position
+    private int[][] friends;
+    private int[][] friendships;
+    private int[] degrees;
+    // per friendship int: offset of its id and the int of its first user; -1 if free
+    private long[] idOffsets;
+    private int[] firstUsers;
+    private int[] freeFriendships;
+    private int freeCount;
+    private int friendshipSlots;
+
+    public CompactFriendshipRepository() {
+        this.users = new IdDictionary();
+        this.friendshipIds = new BytePool();
+        this.friends = new int[INITIAL_CAPACITY][];
+        this.friendships = new int[INITIAL_CAPACITY][];
+        this.degrees = new int[INITIAL_CAPACITY];
+        this.idOffsets = new long[INITIAL_CAPACITY];
+        this.firstUsers = new int[INITIAL_CAPACITY];
+        this.freeFriendships = new int[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public boolean exists(String userId1, String userId2) {
+        return position(userId1, userId2) >= 0;
+    }
+
+    @Override
+    public Optional<Friendship> findOne(String userId1, String userId2) {
+        int user1 = users.find(requireId(userId1));
+        int user2 = users.find(requireId(userId2));
+        if (user1 < 0 || user2 < 0) {
+            return Optional.empty();
+        }
+        int position = search(user1, user2);
+        return position < 0 ? Optional.empty() : Optional.of(friendship(friendships[user1][position], user1, user2));
+    }
+
+    /**
+     * @return read-only view which decodes the friend ids while it is iterated
+     */
+    @Override
+    public Set<String> findFriendIds(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        int user = users.find(userId);
+        return user < 0 ? Collections.emptySet() : new FriendIds(user);
+    }
+
+    @Override
+    public Iterable<Friendship> findAll() {
+        List<Friendship> all = new ArrayList<>();
+        for (int user = 0; user < users.size(); user++) {
+            int degree = degrees[user];
+            for (int i = degree - 1; i >= 0 && friends[user][i] >= user; i--) {
+                // each friendship is listed under both users; keep it once
+                all.add(friendship(friendships[user][i], user, friends[user][i]));
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public Optional<Friendship> save(Friendship friendship) {
+        if (friendship == null) {
+            throw new IllegalArgumentException("friendship must not be null");
+        }
+        int user1 = intern(friendship.getUserId1());
+        int user2 = intern(friendship.getUserId2());
+        int position = search(user1, user2);
+        if (position >= 0) {
+            return Optional.of(friendship(friendships[user1][position], user1, user2));
+        }
+        int slot = allocate(friendship.getId(), user1);
+        insert(user1, -position - 1, user2, slot);
+        if (user1 != user2) {
+            insert(user2, -search(user2, user1) - 1, user1, slot);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Friendship> delete(String userId1, String userId2) {
+        int user1 = users.find(requireId(userId1));
+        int user2 = users.find(requireId(userId2));
+        if (user1 < 0 || user2 < 0) {
+            return Optional.empty();
+        }
+        int position = search(user1, user2);
+        if (position < 0) {
+            return Optional.empty();
+        }
+        int slot = friendships[user1][position];
+        Friendship removed = friendship(slot, user1, user2);
+        remove(user1, position);
+        if (user1 != user2) {
+            remove(user2, search(user2, user1));
+        }
+        release(slot);
+        return Optional.of(removed);
+    }
+
+    @Override
+    public List<Friendship> deleteAllOf(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        int user = users.find(userId);
+        if (user < 0) {
+            return new ArrayList<>();
+        }
+        List<Friendship> removed = new ArrayList<>(degrees[user]);
+        for (int i = 0; i < degrees[user]; i++) {
+            int friend = friends[user][i];
+            int slot = friendships[user][i];
+            removed.add(friendship(slot, user, friend));
+            if (friend != user) {
+                remove(friend, search(friend, user));
+            }
+            release(slot);
+        }
+        friends[user] = null;
+        friendships[user] = null;
+        degrees[user] = 0;
+        return removed;
+    }
+
+    /**
+     * @return approximate heap bytes held by the repository
+     */
+    public long getMemoryBytes() {
+        long bytes = users.getMemoryBytes() + friendshipIds.getCapacity()
+                + 8L * idOffsets.length + 4L * (firstUsers.length + freeFriendships.length + degrees.length)
+                + 8L * friends.length;
+        for (int user = 0; user < users.size(); user++) {
+            if (friends[user] != null) {
+                bytes += 2 * (16 + 4L * friends[user].length);
+            }
+        }
+        return bytes;
+    }
+
+    private static String requireId(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("user ids must not be null");
+        }
+        return id;
+    }
+
+    private int position(String userId1, String userId2) {
+        int user1 = users.find(requireId(userId1));
+        int user2 = users.find(requireId(userId2));
+        return user1 < 0 || user2 < 0 ? -1 : search(user1, user2);
+    }
+
+    /**
+     * @return position of {@code friend} in the friends of {@code user}, or
+     * {@code -(insertion point) - 1} like {@link Arrays#binarySearch(int[], int, int, int)}
+     */
+    private int search(int user, int friend) {
+        int[] list = friends[user];
+        return list == null ? -1 : Arrays.binarySearch(list, 0, degrees[user], friend);
+    }
+
+    private int intern(String id) {
+        int user = users.intern(requireId(id));
+        if (user == degrees.length) {
+            int capacity = degrees.length * 2;
+            degrees = Arrays.copyOf(degrees, capacity);
+            friends = Arrays.copyOf(friends, capacity);
+            friendships = Arrays.copyOf(friendships, capacity);
+        }
+        return user;
+    }
+
+    private void insert(int user, int position, int friend, int slot) {
+        int degree = degrees[user];
+        if (friends[user] == null) {
+            friends[user] = NO_FRIENDS;
+            friendships[user] = NO_FRIENDS;
+        }
+        if (degree == friends[user].length) {
+            int capacity = Math.max(4, degree + (degree >> 1));
+            friends[user] = Arrays.copyOf(friends[user], capacity);
+            friendships[user] = Arrays.copyOf(friendships[user], capacity);
+        }
+        System.arraycopy(friends[user], position, friends[user], position + 1, degree - position);
+        System.arraycopy(friendships[user], position, friendships[user], position + 1, degree - position);
+        friends[user][position] = friend;
+        friendships[user][position] = slot;
+        degrees[user] = degree + 1;
+    }
+
+    private void remove(int user, int position) {
+        int degree = degrees[user] - 1;
+        System.arraycopy(friends[user], position + 1, friends[user], position, degree - position);
+        System.arraycopy(friendships[user], position + 1, friendships[user], position, degree - position);
+        degrees[user] = degree;
+        if (degree == 0) {
+            friends[user] = null;
+            friendships[user] = null;
+        }
+    }
+
+    private int allocate(String id, int firstUser) {
+        long offset = friendshipIds.add(BytePool.encode(id));
+        int slot;
+        if (freeCount > 0) {
+            slot = freeFriendships[--freeCount];
+        } else {
+            slot = friendshipSlots++;
+            if (slot == idOffsets.length) {
+                idOffsets = Arrays.copyOf(idOffsets, slot * 2);
+                firstUsers = Arrays.copyOf(firstUsers, slot * 2);
+            }
+        }
+        idOffsets[slot] = offset;
+        firstUsers[slot] = firstUser;
+        return slot;
+    }
+
+    private void release(int slot) {
+        idOffsets[slot] = -1;
+        if (freeCount == freeFriendships.length) {
+            freeFriendships = Arrays.copyOf(freeFriendships, freeCount * 2);
+        }
+        freeFriendships[freeCount++] = slot;
+    }
+
+    /**
+     * @return the friendship between the two users, with them in the order it was saved in
+     */
+    private Friendship friendship(int slot, int user, int friend) {
+        String id = friendshipIds.get(idOffsets[slot]);
+        return firstUsers[slot] == user
+                ? new Friendship(id, users.get(user), users.get(friend))
+                : new Friendship(id, users.get(friend), users.get(user));
+    }
+
+    /**
+     * Live view of the friend ids of one user
+     */
+    private final class FriendIds extends AbstractSet<String> {
+        private final int user;
+
+        FriendIds(int user) {
+            this.user = user;
+        }
+
+        @Override
+        public int size() {
+            return degrees[user];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String id)) {
+                return false;
+            }
+            int friend = users.find(id);
+            return friend >= 0 && search(user, friend) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < degrees[user];
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return users.get(friends[user][next++]);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import validator.Validator;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory user repository laid out for very large user counts. Ids are interned to dense
+ * ints and names are kept as UTF-8 in pooled byte pages, so a stored user costs a few
+ * array slots and its name bytes instead of a {@link User}, three {@link String}s and a
+ * hash map entry. {@link User} objects are created on demand by the read methods; changing
+ * one does not change the stored user, use {@link #update(User)}.
+ * <p>
+ * Names replaced by {@link #update(User)} and ids of deleted users stay in the pools until
+ * the repository is dropped. Not thread-safe.
+ */
+public class CompactUserRepository implements Repository<String, User> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Validator<User> validator;
+    private final IdDictionary ids;
+    private final BytePool names;
+    // offset of the first name per id int, followed by the last name; -1 if no such user
+    private long[] nameOffsets;
+    private int count;
+
+    public CompactUserRepository(Validator<User> validator) {
+        this.validator = validator;
+        this.ids = new IdDictionary();
+        this.names = new BytePool();
+        this.nameOffsets = new long[INITIAL_CAPACITY];
+        Arrays.fill(nameOffsets, -1);
+    }
+
+    @Override
+    public Optional<User> findOne(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        int slot = ids.find(id);
+        return slot < 0 ? Optional.empty() : Optional.ofNullable(user(slot));
+    }
+
+    @Override
+    public Iterable<User> findAll() {
+        List<User> users = new ArrayList<>(count);
+        for (int slot = 0; slot < ids.size(); slot++) {
+            User user = user(slot);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Creates the {@link User} objects one at a time as the stream is consumed; the repository
+     * must not be changed meanwhile
+     */
+    @Override
+    public Stream<User> streamAll() {
+        return IntStream.range(0, ids.size()).mapToObj(this::user).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Optional<User> save(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        validator.validate(entity);
+        int slot = ids.intern(entity.getId());
+        if (slot == nameOffsets.length) {
+            int capacity = nameOffsets.length;
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity * 2);
+            Arrays.fill(nameOffsets, capacity, nameOffsets.length, -1);
+        }
+        if (nameOffsets[slot] >= 0) {
+            return Optional.of(user(slot));
+        }
+        nameOffsets[slot] = storeNames(entity);
+        count++;
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<User> delete(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        int slot = ids.find(id);
+        if (slot < 0 || nameOffsets[slot] < 0) {
+            return Optional.empty();
+        }
+        User user = user(slot);
+        nameOffsets[slot] = -1;
+        count--;
+        return Optional.of(user);
+    }
+
+    @Override
+    public Optional<User> update(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        validator.validate(entity);
+
+        int slot = ids.find(entity.getId());
+        if (slot < 0 || nameOffsets[slot] < 0) {
+            return Optional.of(entity);
+        }
+        nameOffsets[slot] = storeNames(entity);
+        return Optional.empty();
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return approximate heap bytes held by the repository, excluding the validator
+     */
+    public long getMemoryBytes() {
+        return ids.getMemoryBytes() + names.getCapacity() + 8L * nameOffsets.length;
+    }
+
+    private long storeNames(User user) {
+        return names.add(BytePool.encode(user.getFirstName()), BytePool.encode(user.getLastName()));
+    }
+
+    private User user(int slot) {
+        long offset = nameOffsets[slot];
+        if (offset < 0) {
+            return null;
+        }
+        return new User(ids.get(slot), names.get(offset), names.get(names.next(offset)));
+    }
+}
@@ -0,0 +1,157 @@
+package repository;
+
+import domain.Friendship;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe in-memory implementation of the friendship repository.
+ * <p>
+ * Like {@link InMemoryFriendshipRepository} every user maps to the friendships it takes part
+ * in, here in concurrent maps so lookups never block. Writes lock the stripes of both users,
+ * always in stripe order, so the two directions of a friendship are added and removed
+ * together and concurrent writers on unrelated users rarely contend. A reader may briefly see
+ * a friendship from one side only while it is being written.
+ */
+public class ConcurrentFriendshipRepository implements FriendshipRepository {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Map<String, Map<String, Friendship>> adjacency;
+    private final Object[] stripes;
+
+    public ConcurrentFriendshipRepository() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes number of locks the users are spread over
+     * @throws IllegalArgumentException if stripes is not positive
+     */
+    public ConcurrentFriendshipRepository(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        this.adjacency = new ConcurrentHashMap<>();
+        this.stripes = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Object();
+        }
+    }
+
+    @Override
+    public boolean exists(String userId1, String userId2) {
+        return findOne(userId1, userId2).isPresent();
+    }
+
+    @Override
+    public Optional<Friendship> findOne(String userId1, String userId2) {
+        if (userId1 == null || userId2 == null) {
+            throw new IllegalArgumentException("user ids must not be null");
+        }
+        Map<String, Friendship> friends = adjacency.get(userId1);
+        return friends == null ? Optional.empty() : Optional.ofNullable(friends.get(userId2));
+    }
+
+    @Override
+    public Set<String> findFriendIds(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        Map<String, Friendship> friends = adjacency.get(userId);
+        return friends == null ? Collections.emptySet() : Collections.unmodifiableSet(friends.keySet());
+    }
+
+    @Override
+    public Iterable<Friendship> findAll() {
+        List<Friendship> friendships = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Friendship>> entry : adjacency.entrySet()) {
+            for (Friendship friendship : entry.getValue().values()) {
+                // each friendship is listed under both users; keep it once
+                if (friendship.getOtherUserId(entry.getKey()).compareTo(entry.getKey()) >= 0) {
+                    friendships.add(friendship);
+                }
+            }
+        }
+        return friendships;
+    }
+
+    @Override
+    public Optional<Friendship> save(Friendship friendship) {
+        if (friendship == null) {
+            throw new IllegalArgumentException("friendship must not be null");
+        }
+        String userId1 = friendship.getUserId1();
+        String userId2 = friendship.getUserId2();
+        int stripe1 = stripe(userId1);
+        int stripe2 = stripe(userId2);
+        synchronized (stripes[Math.min(stripe1, stripe2)]) {
+            synchronized (stripes[Math.max(stripe1, stripe2)]) {
+                Optional<Friendship> existing = findOne(userId1, userId2);
+                if (existing.isPresent()) {
+                    return existing;
+                }
+                adjacency.computeIfAbsent(userId1, id -> new ConcurrentHashMap<>()).put(userId2, friendship);
+                adjacency.computeIfAbsent(userId2, id -> new ConcurrentHashMap<>()).put(userId1, friendship);
+                return Optional.empty();
+            }
+        }
+    }
+
+    @Override
+    public Optional<Friendship> delete(String userId1, String userId2) {
+        if (userId1 == null || userId2 == null) {
+            throw new IllegalArgumentException("user ids must not be null");
+        }
+        int stripe1 = stripe(userId1);
+        int stripe2 = stripe(userId2);
+        synchronized (stripes[Math.min(stripe1, stripe2)]) {
+            synchronized (stripes[Math.max(stripe1, stripe2)]) {
+                Optional<Friendship> existing = findOne(userId1, userId2);
+                existing.ifPresent(friendship -> {
+                    unlink(userId1, userId2);
+                    unlink(userId2, userId1);
+                });
+                return existing;
+            }
+        }
+    }
+
+    /**
+     * Removes the friendships one by one until none is left, so friendships added while the
+     * user is being cleared are removed as well
+     */
+    @Override
+    public List<Friendship> deleteAllOf(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        List<Friendship> removed = new ArrayList<>();
+        Set<String> friendIds = findFriendIds(userId);
+        while (!friendIds.isEmpty()) {
+            for (String friendId : new ArrayList<>(friendIds)) {
+                delete(userId, friendId).ifPresent(removed::add);
+            }
+            friendIds = findFriendIds(userId);
+        }
+        return removed;
+    }
+
+    /**
+     * Must be called holding the stripe of {@code userId}, which guards its friend map
+     */
+    private void unlink(String userId, String friendId) {
+        Map<String, Friendship> friends = adjacency.get(userId);
+        if (friends != null) {
+            friends.remove(friendId);
+            if (friends.isEmpty()) {
+                adjacency.remove(userId);
+            }
+        }
+    }
+
+    private int stripe(String userId) {
+        int hash = userId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
@@ -0,0 +1,103 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import validator.Validator;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe in-memory implementation of the user repository, backed by a
+ * {@link ConcurrentHashMap}. Every single-entity operation is atomic; {@link #findAll()}
+ * returns a copy which may or may not include writes made while it is taken.
+ */
+public class ConcurrentUserRepository implements Repository<String, User> {
+    private final Map<String, User> users;
+    private final Validator<User> validator;
+
+    public ConcurrentUserRepository(Validator<User> validator) {
+        this.users = new ConcurrentHashMap<>();
+        this.validator = validator;
+    }
+
+    @Override
+    public Optional<User> findOne(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        return Optional.ofNullable(users.get(id));
+    }
+
+    @Override
+    public Iterable<User> findAll() {
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * Streams the stored users without copying them; writes made while the stream is
+     * consumed may or may not be seen
+     */
+    @Override
+    public Stream<User> streamAll() {
+        return users.values().stream();
+    }
+
+    @Override
+    public Optional<User> save(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        validator.validate(entity);
+        return Optional.ofNullable(users.putIfAbsent(entity.getId(), entity));
+    }
+
+    @Override
+    public Optional<User> delete(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null");
+        }
+        return Optional.ofNullable(users.remove(id));
+    }
+
+    @Override
+    public Optional<User> update(User entity) throws ValidationException {
+        if (entity == null) {
+            throw new IllegalArgumentException("entity must not be null");
+        }
+        validator.validate(entity);
+
+        if (users.replace(entity.getId(), entity) != null) {
+            return Optional.empty();
+        }
+        return Optional.of(entity);
+    }
+
+    /**
+     * Validates every entity before saving any; each entity is then saved atomically, but the
+     * batch as a whole is not
+     */
+    @Override
+    public List<User> saveAll(Iterable<User> entities) throws ValidationException {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        List<User> batch = new ArrayList<>();
+        for (User entity : entities) {
+            if (entity == null) {
+                throw new IllegalArgumentException("entity must not be null");
+            }
+            validator.validate(entity);
+            batch.add(entity);
+        }
+
+        List<User> existing = new ArrayList<>();
+        for (User entity : batch) {
+            User previous = users.putIfAbsent(entity.getId(), entity);
+            if (previous != null) {
+                existing.add(previous);
+            }
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,176 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded pool of JDBC connections. At most {@code maxSize} connections are checked out at
+ * the same time; callers beyond that block until one is returned. Idle connections are kept
+ * most-recently-used first and closed once they have been idle longer than the idle timeout.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle;
+    private volatile boolean closed;
+
+    /**
+     * @param url JDBC url of the database
+     * @param maxSize maximum number of connections open at the same time, must be positive
+     * @param idleTimeoutMillis how long an unused connection is kept open; 0 keeps it forever
+     * @throws IllegalArgumentException if the size or the timeout are out of range
+     */
+    public ConnectionPool(String url, int maxSize, long idleTimeoutMillis) {
+        this(() -> DriverManager.getConnection(url), maxSize, idleTimeoutMillis);
+    }
+
+    /**
+     * @param factory opens and configures the physical connections
+     * @param maxSize maximum number of connections open at the same time, must be positive
+     * @param idleTimeoutMillis how long an unused connection is kept open; 0 keeps it forever
+     * @throws IllegalArgumentException if the size or the timeout are out of range
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long idleTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("pool size must be positive");
+        }
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("idle timeout must not be negative");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.idle = new ArrayDeque<>();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of open connections currently waiting in the pool
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none is idle
+     * @return a connection which goes back to the pool when closed
+     * @throws SQLException if the pool is closed or a new connection cannot be opened
+     */
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            PooledConnection connection = pollIdle();
+            if (connection == null) {
+                connection = new PooledConnection(factory.open(), this);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection connection) throws SQLException {
+        try {
+            if (closed || connection.getConnection().isClosed()) {
+                connection.closePhysically();
+                return;
+            }
+            if (!connection.getConnection().getAutoCommit()) {
+                connection.getConnection().rollback();
+                connection.getConnection().setAutoCommit(true);
+            }
+            connection.setLastReleased(System.currentTimeMillis());
+            List<PooledConnection> expired;
+            synchronized (idle) {
+                idle.addFirst(connection);
+                expired = pollExpired();
+            }
+            closeAll(expired);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledConnection pollIdle() throws SQLException {
+        List<PooledConnection> expired;
+        PooledConnection connection;
+        synchronized (idle) {
+            expired = pollExpired();
+            connection = idle.pollFirst();
+        }
+        closeAll(expired);
+        return connection;
+    }
+
+    private List<PooledConnection> pollExpired() {
+        List<PooledConnection> expired = new ArrayList<>();
+        if (idleTimeoutMillis == 0) {
+            return expired;
+        }
+        long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+        while (!idle.isEmpty() && idle.peekLast().getLastReleased() < deadline) {
+            expired.add(idle.pollLast());
+        }
+        return expired;
+    }
+
+    private void closeAll(List<PooledConnection> connections) throws SQLException {
+        SQLException failure = null;
+        for (PooledConnection connection : connections) {
+            try {
+                connection.closePhysically();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Closes every idle connection; connections still checked out are closed when returned
+     * @throws SQLException if closing a connection fails
+     */
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+        List<PooledConnection> connections;
+        synchronized (idle) {
+            connections = new ArrayList<>(idle);
+            idle.clear();
+        }
+        closeAll(connections);
+    }
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+}
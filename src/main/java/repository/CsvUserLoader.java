@@ -0,0 +1,312 @@
+package repository;
+
+import domain.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads users from {@code id,firstName,lastName} lines, as written by {@link FileUserRepository}.
+ * <p>
+ * The file is split into line-aligned chunks which are memory-mapped and parsed in parallel.
+ * Lines are scanned byte by byte for separators, so no regex or intermediate line Strings are
+ * involved; only the three fields of each user are decoded. Fields are trimmed and blank lines
+ * skipped, like {@link String#trim()} would. Trailing commas are ignored, as
+ * {@link String#split(String)} drops trailing empty fields. Lines without exactly three fields
+ * are reported with their byte offset.
+ */
+public class CsvUserLoader {
+    private static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+    private static final int ALIGN_BLOCK = 4096;
+    private static final int WINDOW_SIZE = 1 << 20;
+
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Loader using one thread per processor and 64 MiB chunks
+     */
+    public CsvUserLoader() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param threads number of parsing threads
+     * @param chunkSize approximate number of bytes parsed by one task
+     * @throws IllegalArgumentException if a parameter is not positive
+     */
+    public CsvUserLoader(int threads, int chunkSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param file the file to load
+     * @return the users in file order, and the lines which could not be parsed
+     * @throws IOException if the file cannot be read
+     */
+    public Result load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            List<Callable<Result>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(() -> parse(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), start));
+            }
+            return merge(run(tasks), channel.size());
+        }
+    }
+
+    /**
+     * @return chunk boundaries, each just after a line break, from 0 to the file size
+     */
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer block = ByteBuffer.allocate(ALIGN_BLOCK);
+        long position = chunkSize;
+        while (position < size) {
+            position = nextLineStart(channel, position, block);
+            if (position < size) {
+                bounds.add(position);
+            }
+            position += chunkSize;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer block) throws IOException {
+        while (true) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private List<Result> run(List<Callable<Result>> tasks) throws IOException {
+        List<Result> results = new ArrayList<>();
+        if (tasks.size() == 1 || threads == 1) {
+            for (Callable<Result> task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+        try {
+            for (Future<Result> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading users", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException("Failed to load users", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Result call(Callable<Result> task) throws IOException {
+        try {
+            return task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load users", e);
+        }
+    }
+
+    private static Result merge(List<Result> results, long bytes) {
+        List<User> users = new ArrayList<>();
+        List<ParseError> errors = new ArrayList<>();
+        for (Result result : results) {
+            users.addAll(result.users);
+            errors.addAll(result.errors);
+        }
+        return new Result(users, errors, bytes);
+    }
+
+    /**
+     * Parses the lines of one chunk. The chunk is copied into a window array piece by piece,
+     * so the scan runs over a plain byte array; a line cut by the end of the window is moved to
+     * its front before the next piece is copied.
+     * @param buffer the chunk, starting at a line start
+     * @param base file offset of the chunk
+     */
+    private static Result parse(ByteBuffer buffer, long base) {
+        List<User> users = new ArrayList<>();
+        List<ParseError> errors = new ArrayList<>();
+        byte[] window = new byte[WINDOW_SIZE];
+        long windowBase = base;
+        int filled = 0;
+        int lineStart = 0;
+        boolean last = false;
+        while (!last) {
+            if (lineStart > 0) {
+                System.arraycopy(window, lineStart, window, 0, filled - lineStart);
+                windowBase += lineStart;
+                filled -= lineStart;
+                lineStart = 0;
+            }
+            if (filled == window.length) {
+                window = Arrays.copyOf(window, window.length * 2);
+            }
+            int read = Math.min(window.length - filled, buffer.remaining());
+            buffer.get(window, filled, read);
+            filled += read;
+            last = !buffer.hasRemaining();
+
+            while (lineStart < filled) {
+                int lineEnd = lineStart;
+                while (lineEnd < filled && window[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                if (lineEnd == filled && !last) {
+                    break;
+                }
+                parseLine(window, lineStart, lineEnd, windowBase + lineStart, users, errors);
+                lineStart = lineEnd + 1;
+            }
+        }
+        return new Result(users, errors, buffer.limit());
+    }
+
+    private static void parseLine(byte[] line, int start, int end, long offset, List<User> users, List<ParseError> errors) {
+        if (skipBlank(line, start, end) == end) {
+            return;
+        }
+        if (line[end - 1] == '\r') {
+            end--;
+        }
+        while (end > start && line[end - 1] == ',') {
+            end--;
+        }
+        int firstComma = -1;
+        int secondComma = -1;
+        int commaCount = 0;
+        for (int i = start; i < end; i++) {
+            if (line[i] == ',') {
+                if (commaCount == 0) {
+                    firstComma = i;
+                } else if (commaCount == 1) {
+                    secondComma = i;
+                }
+                commaCount++;
+            }
+        }
+        if (commaCount != 2) {
+            errors.add(new ParseError(offset, "expected 3 fields, found " + (commaCount + 1)));
+            return;
+        }
+        users.add(new User(field(line, start, firstComma),
+                field(line, firstComma + 1, secondComma),
+                field(line, secondComma + 1, end)));
+    }
+
+    private static int skipBlank(byte[] line, int from, int to) {
+        while (from < to && (line[from] & 0xff) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static String field(byte[] line, int from, int to) {
+        from = skipBlank(line, from, to);
+        while (to > from && (line[to - 1] & 0xff) <= ' ') {
+            to--;
+        }
+        return new String(line, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A line which could not be parsed
+     */
+    public static final class ParseError {
+        private final long offset;
+        private final String message;
+
+        ParseError(long offset, String message) {
+            this.offset = offset;
+            this.message = message;
+        }
+
+        /**
+         * @return byte offset of the start of the line in the file
+         */
+        public long getOffset() { return offset; }
+
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "byte " + offset + ": " + message;
+        }
+    }
+
+    /**
+     * The users and errors found in a file
+     */
+    public static final class Result {
+        private final List<User> users;
+        private final List<ParseError> errors;
+        private final long bytes;
+
+        Result(List<User> users, List<ParseError> errors, long bytes) {
+            this.users = users;
+            this.errors = errors;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the parsed users in file order; later lines for the same id come later
+         */
+        public List<User> getUsers() { return users; }
+
+        /**
+         * @return the lines which could not be parsed, ordered by offset
+         */
+        public List<ParseError> getErrors() { return errors; }
+
+        /**
+         * @return size of the file in bytes
+         */
+        public long getBytes() { return bytes; }
+    }
+}
@@ -0,0 +1,35 @@
+package repository;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one call to {@link DatabaseUserRepository}, from borrowing the
+ * connection to returning it. The event begins when it is created; {@link #commit()} ends it
+ * and records it if the event is enabled and above its threshold.
+ */
+@Name("socialnetwork.DatabaseCall")
+@Label("Database Call")
+@Category({"Social Network", "Repository"})
+@Description("A call to the SQLite user repository")
+class DatabaseCallEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("SQL")
+    @Description("The main statement of the call; lookups of existing users and friends come on top")
+    String sql;
+
+    @Label("Rows")
+    @Description("Rows read or written")
+    long rows;
+
+    DatabaseCallEvent(String operation, String sql) {
+        this.operation = operation;
+        this.sql = sql;
+        begin();
+    }
+}
@@ -0,0 +1,56 @@
+package repository;
+
+import domain.Friendship;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Friendship repository backed by the friendships table of a {@link DatabaseUserRepository}.
+ * The friendships are loaded once and kept in memory for constant-time lookups; changes are
+ * written to the database first and applied in memory once they succeed.
+ */
+public class DatabaseFriendshipRepository extends InMemoryFriendshipRepository {
+    private final DatabaseUserRepository database;
+
+    public DatabaseFriendshipRepository(DatabaseUserRepository database) {
+        this.database = database;
+        for (Friendship friendship : database.findAllFriendships()) {
+            super.save(friendship);
+        }
+    }
+
+    @Override
+    public Optional<Friendship> save(Friendship friendship) {
+        if (friendship == null) {
+            throw new IllegalArgumentException("friendship must not be null");
+        }
+        Optional<Friendship> existing = findOne(friendship.getUserId1(), friendship.getUserId2());
+        if (existing.isPresent()) {
+            return existing;
+        }
+        database.saveFriendship(friendship.getId(), friendship.getUserId1(), friendship.getUserId2());
+        return super.save(friendship);
+    }
+
+    @Override
+    public Optional<Friendship> delete(String userId1, String userId2) {
+        if (!exists(userId1, userId2)) {
+            return Optional.empty();
+        }
+        database.deleteFriendship(userId1, userId2);
+        return super.delete(userId1, userId2);
+    }
+
+    @Override
+    public List<Friendship> deleteAllOf(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        if (findFriendIds(userId).isEmpty()) {
+            return super.deleteAllOf(userId);
+        }
+        database.deleteFriendshipsOf(userId);
+        return super.deleteAllOf(userId);
+    }
+}
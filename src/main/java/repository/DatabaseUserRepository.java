@@ -1,26 +1,202 @@
 package repository;
 
+import domain.Friendship;
 import domain.User;
 import exceptions.ValidationException;
 import validator.Validator;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * SQLite implementation of the user repository, which also stores the friendships
+ */
+public class DatabaseUserRepository implements Repository<String, User>, AutoCloseable {
+    private static final String FIND_USER_SQL = "SELECT * FROM users WHERE id = ?";
+    private static final String FIND_ALL_SQL = "SELECT id, first_name, last_name FROM users";
+    private static final String COUNT_USERS_SQL = "SELECT COUNT(*) FROM users";
+    private static final String FIND_FIRST_PAGE_SQL = "SELECT id, first_name, last_name FROM users ORDER BY id LIMIT ?";
+    private static final String FIND_PAGE_SQL =
+            "SELECT id, first_name, last_name FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_ALL_FRIENDSHIPS_SQL = "SELECT user1_id, user2_id FROM friendships";
+    private static final String FIND_ALL_FRIENDSHIPS_WITH_IDS_SQL = "SELECT id, user1_id, user2_id FROM friendships";
+    static final String FIND_FRIENDS_SQL = """
+            SELECT u.id, u.first_name, u.last_name FROM friendships f
+            JOIN users u ON u.id = f.user2_id WHERE f.user1_id = ?
+            UNION ALL
+            SELECT u.id, u.first_name, u.last_name FROM friendships f
+            JOIN users u ON u.id = f.user1_id WHERE f.user2_id = ?
+        """;
+    private static final String FIND_USERS_IN_SQL = "SELECT id, first_name, last_name FROM users WHERE id IN (%s)";
+    // the ids are bound once to numbered parameters, which both branches refer to
+    private static final String FIND_FRIENDS_IN_SQL = """
+            SELECT f.user1_id, u.id, u.first_name, u.last_name FROM friendships f
+            JOIN users u ON u.id = f.user2_id WHERE f.user1_id IN (%1$s)
+            UNION ALL
+            SELECT f.user2_id, u.id, u.first_name, u.last_name FROM friendships f
+            JOIN users u ON u.id = f.user1_id WHERE f.user2_id IN (%1$s)
+        """;
+    private static final String INSERT_USER_SQL = "INSERT INTO users (id, first_name, last_name) VALUES (?, ?, ?)";
+    private static final String INSERT_USER_IF_ABSENT_SQL =
+            "INSERT OR IGNORE INTO users (id, first_name, last_name) VALUES (?, ?, ?)";
+    private static final String DELETE_USER_SQL = "DELETE FROM users WHERE id = ?";
+    private static final String UPDATE_USER_SQL = "UPDATE users SET first_name = ?, last_name = ? WHERE id = ?";
+    // Pairs are stored canonically (user1_id < user2_id), so one index probe finds an edge
+    private static final String INSERT_FRIENDSHIP_SQL =
+            "INSERT INTO friendships (id, user1_id, user2_id) VALUES (?, MIN(?, ?), MAX(?, ?))";
+    static final String DELETE_FRIENDSHIP_SQL =
+            "DELETE FROM friendships WHERE user1_id = MIN(?, ?) AND user2_id = MAX(?, ?)";
+    private static final String DELETE_FRIENDSHIPS_OF_USER_SQL =
+            "DELETE FROM friendships WHERE user1_id = ? OR user2_id = ?";
+
+    /**
+     * Schema migrations, applied in order; the number of applied migrations is kept in
+     * {@code PRAGMA user_version}
+     */
+    private static final String[][] MIGRATIONS = {
+        {
+            // 1: canonical friendship pairs and covering indexes for both endpoints
+            "UPDATE friendships SET user1_id = user2_id, user2_id = user1_id WHERE user1_id > user2_id",
+            "DELETE FROM friendships WHERE rowid NOT IN "
+                + "(SELECT MIN(rowid) FROM friendships GROUP BY user1_id, user2_id)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_friendships_user1_user2 ON friendships (user1_id, user2_id)",
+            "CREATE INDEX IF NOT EXISTS idx_friendships_user2_user1 ON friendships (user2_id, user1_id)"
+        }
+    };
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 500;
+    // SQLite builds before 3.32 allow at most 999 parameters per statement; the friends query
+    // binds each id once, so a chunk of ids needs as many parameters as it has ids
+    private static final int MAX_IN_PARAMETERS = 512;
 
-public class DatabaseUserRepository implements Repository<String, User> {
     private final String url;
     private final Validator<User> validator;
+    private final ConnectionPool pool;
+    private final SqliteProfile profile;
+    private final int batchSize;
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder queriesExecuted = new LongAdder();
 
+    /**
+     * Creates a repository which opens a new connection for every operation
+     * @param dbFile path of the SQLite database file
+     * @param validator validator applied to saved and updated users
+     */
     public DatabaseUserRepository(String dbFile, Validator<User> validator) {
         this.url = "jdbc:sqlite:" + dbFile;
         this.validator = validator;
+        this.pool = null;
+        this.profile = SqliteProfile.defaults();
+        this.batchSize = DEFAULT_BATCH_SIZE;
         initDatabase();
     }
 
+    /**
+     * Creates a repository which borrows its connections from a bounded pool and reuses
+     * the prepared statements of each pooled connection
+     * @param dbFile path of the SQLite database file
+     * @param validator validator applied to saved and updated users
+     * @param poolSize maximum number of open connections
+     * @param idleTimeoutMillis how long an idle connection is kept open; 0 keeps it forever
+     */
+    public DatabaseUserRepository(String dbFile, Validator<User> validator, int poolSize, long idleTimeoutMillis) {
+        this(dbFile, validator, poolSize, idleTimeoutMillis, SqliteProfile.defaults());
+    }
+
+    /**
+     * Creates a pooled repository whose connections are configured with the given profile
+     * @param dbFile path of the SQLite database file
+     * @param validator validator applied to saved and updated users
+     * @param poolSize maximum number of open connections
+     * @param idleTimeoutMillis how long an idle connection is kept open; 0 keeps it forever
+     * @param profile settings applied to every new connection, e.g. {@link SqliteProfile#performance()}
+     */
+    public DatabaseUserRepository(String dbFile, Validator<User> validator, int poolSize, long idleTimeoutMillis,
+                                  SqliteProfile profile) {
+        this(dbFile, validator, poolSize, idleTimeoutMillis, profile, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a pooled repository with a custom chunk size for the bulk operations
+     * @param dbFile path of the SQLite database file
+     * @param validator validator applied to saved and updated users
+     * @param poolSize maximum number of open connections
+     * @param idleTimeoutMillis how long an idle connection is kept open; 0 keeps it forever
+     * @param profile settings applied to every new connection, e.g. {@link SqliteProfile#performance()}
+     * @param batchSize number of rows sent to SQLite per {@code executeBatch} in the bulk operations
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public DatabaseUserRepository(String dbFile, Validator<User> validator, int poolSize, long idleTimeoutMillis,
+                                  SqliteProfile profile, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.url = "jdbc:sqlite:" + dbFile;
+        this.validator = validator;
+        this.profile = profile;
+        this.batchSize = batchSize;
+        this.pool = new ConnectionPool(this::openConnection, poolSize, idleTimeoutMillis);
+        initDatabase();
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        connectionsOpened.increment();
+        try {
+            profile.apply(connection);
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private PooledConnection connect() throws SQLException {
+        PooledConnection connection;
+        if (pool != null) {
+            connection = pool.acquire();
+        } else {
+            connection = PooledConnection.unpooled(DriverManager.getConnection(url));
+            connectionsOpened.increment();
+        }
+        // every query and batch of this repository goes through prepare
+        connection.countPreparesIn(queriesExecuted);
+        return connection;
+    }
+
+    /**
+     * @return physical connections opened so far, including the one which set up the schema
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    /**
+     * @return queries and statement batches run so far, not counting the schema setup
+     */
+    public long getQueriesExecuted() {
+        return queriesExecuted.sum();
+    }
+
     private void initDatabase() {
-        try (Connection connection = DriverManager.getConnection(url)) {
+        try (PooledConnection pooled = PooledConnection.unpooled(openConnection())) {
+            Connection connection = pooled.getConnection();
             // Create users table
             String createUsersTable = """
                 CREATE TABLE IF NOT EXISTS users (
@@ -46,13 +222,14 @@ public class DatabaseUserRepository implements Repository<String, User> {
                 stmt.execute(createUsersTable);
                 stmt.execute(createFriendshipsTable);
             }
+            migrateSchema(connection);
 
             // Verificăm dacă tabela users este goală
-            try (Statement stmt = connection.createStatement()) {
-                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users");
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
                 if (rs.next() && rs.getInt(1) == 0) {
                     // Dacă e goală, populăm cu datele inițiale
-                    populateInitialData(connection);
+                    populateInitialData(pooled);
                 }
             }
 
@@ -61,7 +238,31 @@ public class DatabaseUserRepository implements Repository<String, User> {
         }
     }
 
-    private void populateInitialData(Connection connection) throws SQLException {
+    private void migrateSchema(Connection connection) throws SQLException {
+        int version;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+
+        for (int next = version; next < MIGRATIONS.length; next++) {
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                for (String sql : MIGRATIONS[next]) {
+                    stmt.execute(sql);
+                }
+                stmt.execute("PRAGMA user_version = " + (next + 1));
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void populateInitialData(PooledConnection connection) throws SQLException {
         String[][] initialUsers = {
             {"1", "John", "Doe"},
             {"2", "Jane", "Smith"},
@@ -86,15 +287,16 @@ public class DatabaseUserRepository implements Repository<String, User> {
             {"21", "Mihai", "Bujor"}
         };
 
-        String insertUserSQL = "INSERT INTO users (id, first_name, last_name) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(insertUserSQL)) {
+        inTransaction(connection, () -> {
+            PreparedStatement pstmt = connection.prepare(INSERT_USER_SQL);
             for (String[] user : initialUsers) {
                 pstmt.setString(1, user[0]);
                 pstmt.setString(2, user[1]);
                 pstmt.setString(3, user[2]);
-                pstmt.executeUpdate();
+                pstmt.addBatch();
             }
-        }
+            pstmt.executeBatch();
+        });
 
         System.out.println("Database has been populated with initial data successfully!");
     }
@@ -105,14 +307,23 @@ public class DatabaseUserRepository implements Repository<String, User> {
             throw new IllegalArgumentException("id must not be null");
         }
 
-        String sql = "SELECT * FROM users WHERE id = ?";
-        
-        try (Connection connection = DriverManager.getConnection(url);
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
-            statement.setString(1, id);
-            ResultSet resultSet = statement.executeQuery();
-            
+        DatabaseCallEvent event = new DatabaseCallEvent("findOne", FIND_USER_SQL);
+        try (PooledConnection connection = connect()) {
+            Optional<User> user = findOne(id, connection);
+            event.rows = user.map(found -> 1 + found.getFriends().size()).orElse(0);
+            return user;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find user", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private Optional<User> findOne(String id, PooledConnection connection) throws SQLException {
+        PreparedStatement statement = connection.prepare(FIND_USER_SQL);
+        statement.setString(1, id);
+
+        try (ResultSet resultSet = statement.executeQuery()) {
             if (resultSet.next()) {
                 User user = new User(
                     resultSet.getString("id"),
@@ -123,24 +334,15 @@ public class DatabaseUserRepository implements Repository<String, User> {
                 return Optional.of(user);
             }
             return Optional.empty();
-            
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to find user", e);
         }
     }
 
-    private void loadFriends(User user, Connection connection) throws SQLException {
-        String sql = """
-            SELECT u.* FROM users u
-            JOIN friendships f ON (f.user2_id = u.id AND f.user1_id = ?)
-            OR (f.user1_id = u.id AND f.user2_id = ?)
-        """;
-        
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, user.getId());
-            statement.setString(2, user.getId());
-            ResultSet resultSet = statement.executeQuery();
-            
+    private void loadFriends(User user, PooledConnection connection) throws SQLException {
+        PreparedStatement statement = connection.prepare(FIND_FRIENDS_SQL);
+        statement.setString(1, user.getId());
+        statement.setString(2, user.getId());
+
+        try (ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
                 User friend = new User(
                     resultSet.getString("id"),
@@ -152,28 +354,202 @@ public class DatabaseUserRepository implements Repository<String, User> {
         }
     }
 
+    /**
+     * Loads the users with one {@code IN} query per {@value #MAX_IN_PARAMETERS} ids, and their
+     * friend lists with one more. Id lists are padded to a power of two by repeating the last
+     * id, so only a few statement shapes end up in the per-connection statement cache.
+     */
+    @Override
+    public List<User> findMany(Collection<String> ids) {
+        List<String> distinct = Repository.distinctIds(ids);
+
+        DatabaseCallEvent event = new DatabaseCallEvent("findMany", FIND_USERS_IN_SQL);
+        try (PooledConnection connection = connect()) {
+            Map<String, User> found = findMany(distinct, connection);
+            List<User> result = new ArrayList<>(found.size());
+            for (String id : distinct) {
+                User user = found.get(id);
+                if (user != null) {
+                    result.add(user);
+                    event.rows += 1 + user.getFriends().size();
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find users", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * @param distinct ids without duplicates
+     * @return the users found with their friends, by id
+     */
+    private Map<String, User> findMany(List<String> distinct, PooledConnection connection) throws SQLException {
+        Map<String, User> found = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += MAX_IN_PARAMETERS) {
+            List<String> chunk = distinct.subList(from, Math.min(from + MAX_IN_PARAMETERS, distinct.size()));
+            int parameters = Math.min(Integer.highestOneBit(chunk.size() * 2 - 1), MAX_IN_PARAMETERS);
+            String placeholders = String.join(", ", Collections.nCopies(parameters, "?"));
+            StringJoiner numbered = new StringJoiner(", ");
+            for (int i = 1; i <= parameters; i++) {
+                numbered.add("?" + i);
+            }
+
+            PreparedStatement users = connection.prepare(String.format(FIND_USERS_IN_SQL, placeholders));
+            bindPadded(users, 1, chunk, parameters);
+            try (ResultSet resultSet = users.executeQuery()) {
+                while (resultSet.next()) {
+                    User user = new User(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3));
+                    found.put(user.getId(), user);
+                }
+            }
+
+            PreparedStatement friends = connection.prepare(String.format(FIND_FRIENDS_IN_SQL, numbered));
+            bindPadded(friends, 1, chunk, parameters);
+            try (ResultSet resultSet = friends.executeQuery()) {
+                while (resultSet.next()) {
+                    User user = found.get(resultSet.getString(1));
+                    if (user != null) {
+                        user.getFriends().add(new User(resultSet.getString(2), resultSet.getString(3),
+                                resultSet.getString(4)));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static void bindPadded(PreparedStatement statement, int first, List<String> ids, int parameters)
+            throws SQLException {
+        for (int i = 0; i < parameters; i++) {
+            statement.setString(first + i, ids.get(Math.min(i, ids.size() - 1)));
+        }
+    }
+
+    /**
+     * Loads the whole graph with one scan of the users table and one scan of the friendships
+     * table. Every user appears once and the friend lists reference the same instances that
+     * are returned, instead of separate copies.
+     */
     @Override
     public Iterable<User> findAll() {
-        List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users";
-        
-        try (Connection connection = DriverManager.getConnection(url);
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
-            
-            while (resultSet.next()) {
-                User user = new User(
-                    resultSet.getString("id"),
-                    resultSet.getString("first_name"),
-                    resultSet.getString("last_name")
-                );
-                loadFriends(user, connection);
-                users.add(user);
+        Map<String, User> users = new LinkedHashMap<>();
+
+        DatabaseCallEvent event = new DatabaseCallEvent("findAll", FIND_ALL_SQL);
+        try (PooledConnection connection = connect()) {
+            try (ResultSet resultSet = connection.prepare(FIND_ALL_SQL).executeQuery()) {
+                while (resultSet.next()) {
+                    event.rows++;
+                    User user = new User(
+                        resultSet.getString(1),
+                        resultSet.getString(2),
+                        resultSet.getString(3)
+                    );
+                    users.put(user.getId(), user);
+                }
             }
-            return users;
-            
+
+            try (ResultSet resultSet = connection.prepare(FIND_ALL_FRIENDSHIPS_SQL).executeQuery()) {
+                while (resultSet.next()) {
+                    event.rows++;
+                    User user1 = users.get(resultSet.getString(1));
+                    User user2 = users.get(resultSet.getString(2));
+                    if (user1 != null && user2 != null) {
+                        user1.getFriends().add(user2);
+                        user2.getFriends().add(user1);
+                    }
+                }
+            }
+            return new ArrayList<>(users.values());
+
         } catch (SQLException e) {
             throw new RuntimeException("Failed to find all users", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Streams the users table with a single query whose rows are fetched
+     * {@value #STREAM_FETCH_SIZE} at a time as the stream is consumed. The users come without
+     * their friend lists. The stream holds a connection until it is closed or fully consumed,
+     * so close it, and do not call this repository from inside it when the pool has a single
+     * connection.
+     */
+    @Override
+    public Stream<User> streamAll() {
+        // the event lasts until the stream is closed, so it covers the lazy reads
+        DatabaseCallEvent event = new DatabaseCallEvent("streamAll", FIND_ALL_SQL);
+        PooledConnection connection = null;
+        try {
+            connection = connect();
+            PreparedStatement statement = connection.prepare(FIND_ALL_SQL);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            UserCursor cursor = new UserCursor(connection, statement.executeQuery(), event);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(cursor::close);
+        } catch (SQLException e) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+            event.commit();
+            throw new RuntimeException("Failed to stream users", e);
+        }
+    }
+
+    @Override
+    public long count() {
+        DatabaseCallEvent event = new DatabaseCallEvent("count", COUNT_USERS_SQL);
+        try (PooledConnection connection = connect();
+             ResultSet resultSet = connection.prepare(COUNT_USERS_SQL).executeQuery()) {
+            event.rows = 1;
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count users", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads one page through the primary key index. The users come without their friend lists.
+     */
+    @Override
+    public List<User> findPage(String afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        DatabaseCallEvent event = new DatabaseCallEvent("findPage", FIND_PAGE_SQL);
+        try (PooledConnection connection = connect()) {
+            PreparedStatement statement;
+            if (afterId == null) {
+                statement = connection.prepare(FIND_FIRST_PAGE_SQL);
+                statement.setInt(1, limit);
+            } else {
+                statement = connection.prepare(FIND_PAGE_SQL);
+                statement.setString(1, afterId);
+                statement.setInt(2, limit);
+            }
+            List<User> page = new ArrayList<>(Math.min(limit, STREAM_FETCH_SIZE));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    page.add(new User(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3)));
+                }
+            }
+            event.rows = page.size();
+            return page;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find page of users", e);
+        } finally {
+            event.commit();
         }
     }
 
@@ -184,26 +560,26 @@ public class DatabaseUserRepository implements Repository<String, User> {
         }
         validator.validate(entity);
 
-        String sql = "INSERT INTO users (id, first_name, last_name) VALUES (?, ?, ?)";
-        
-        try (Connection connection = DriverManager.getConnection(url)) {
+        DatabaseCallEvent event = new DatabaseCallEvent("save", INSERT_USER_SQL);
+        try (PooledConnection connection = connect()) {
             // Check if user exists
-            Optional<User> existing = findOne(entity.getId());
+            Optional<User> existing = findOne(entity.getId(), connection);
             if (existing.isPresent()) {
                 return existing;
             }
 
             // Save new user
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, entity.getId());
-                statement.setString(2, entity.getFirstName());
-                statement.setString(3, entity.getLastName());
-                statement.executeUpdate();
-                return Optional.empty();
-            }
-            
+            PreparedStatement statement = connection.prepare(INSERT_USER_SQL);
+            statement.setString(1, entity.getId());
+            statement.setString(2, entity.getFirstName());
+            statement.setString(3, entity.getLastName());
+            event.rows = statement.executeUpdate();
+            return Optional.empty();
+
         } catch (SQLException e) {
             throw new RuntimeException("Failed to save user", e);
+        } finally {
+            event.commit();
         }
     }
 
@@ -213,22 +589,22 @@ public class DatabaseUserRepository implements Repository<String, User> {
             throw new IllegalArgumentException("id must not be null");
         }
 
-        Optional<User> user = findOne(id);
-        if (user.isEmpty()) {
-            return Optional.empty();
-        }
+        DatabaseCallEvent event = new DatabaseCallEvent("delete", DELETE_USER_SQL);
+        try (PooledConnection connection = connect()) {
+            Optional<User> user = findOne(id, connection);
+            if (user.isEmpty()) {
+                return Optional.empty();
+            }
 
-        String sql = "DELETE FROM users WHERE id = ?";
-        
-        try (Connection connection = DriverManager.getConnection(url);
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
+            PreparedStatement statement = connection.prepare(DELETE_USER_SQL);
             statement.setString(1, id);
-            statement.executeUpdate();
+            event.rows = statement.executeUpdate();
             return user;
-            
+
         } catch (SQLException e) {
             throw new RuntimeException("Failed to delete user", e);
+        } finally {
+            event.commit();
         }
     }
 
@@ -239,56 +615,349 @@ public class DatabaseUserRepository implements Repository<String, User> {
         }
         validator.validate(entity);
 
-        String sql = "UPDATE users SET first_name = ?, last_name = ? WHERE id = ?";
-        
-        try (Connection connection = DriverManager.getConnection(url);
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
+        DatabaseCallEvent event = new DatabaseCallEvent("update", UPDATE_USER_SQL);
+        try (PooledConnection connection = connect()) {
+            PreparedStatement statement = connection.prepare(UPDATE_USER_SQL);
             statement.setString(1, entity.getFirstName());
             statement.setString(2, entity.getLastName());
             statement.setString(3, entity.getId());
-            
+
             int rowsUpdated = statement.executeUpdate();
+            event.rows = rowsUpdated;
             if (rowsUpdated == 0) {
                 return Optional.of(entity);
             }
             return Optional.empty();
-            
+
         } catch (SQLException e) {
             throw new RuntimeException("Failed to update user", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Inserts all users in a single transaction, sending them to SQLite in chunks of the
+     * configured batch size. If any user is invalid nothing is written.
+     */
+    @Override
+    public List<User> saveAll(Iterable<User> entities) throws ValidationException {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        List<User> batch = new ArrayList<>();
+        for (User entity : entities) {
+            if (entity == null) {
+                throw new IllegalArgumentException("entity must not be null");
+            }
+            validator.validate(entity);
+            batch.add(entity);
+        }
+
+        DatabaseCallEvent event = new DatabaseCallEvent("saveAll", INSERT_USER_IF_ABSENT_SQL);
+        try (PooledConnection connection = connect()) {
+            List<String> skipped = new ArrayList<>();
+            inTransaction(connection, () -> {
+                PreparedStatement statement = connection.prepare(INSERT_USER_IF_ABSENT_SQL);
+                statement.clearBatch();
+                for (int start = 0; start < batch.size(); start += batchSize) {
+                    int end = Math.min(start + batchSize, batch.size());
+                    for (User entity : batch.subList(start, end)) {
+                        statement.setString(1, entity.getId());
+                        statement.setString(2, entity.getFirstName());
+                        statement.setString(3, entity.getLastName());
+                        statement.addBatch();
+                    }
+                    int[] counts = statement.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            skipped.add(batch.get(start + i).getId());
+                        }
+                    }
+                }
+            });
+
+            event.rows = batch.size() - skipped.size();
+            List<User> existing = new ArrayList<>();
+            for (String id : skipped) {
+                findOne(id, connection).ifPresent(existing::add);
+            }
+            return existing;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save users", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Deletes all users in a single transaction, in chunks of the configured batch size. The
+     * users are loaded beforehand with the bulk queries of {@link #findMany(Collection)}.
+     */
+    @Override
+    public List<User> deleteAll(Iterable<String> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids must not be null");
+        }
+        List<String> batch = new ArrayList<>();
+        for (String id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("id must not be null");
+            }
+            batch.add(id);
+        }
+
+        List<String> distinct = Repository.distinctIds(batch);
+
+        DatabaseCallEvent event = new DatabaseCallEvent("deleteAll", DELETE_USER_SQL);
+        try (PooledConnection connection = connect()) {
+            List<User> removed = new ArrayList<>();
+            inTransaction(connection, () -> {
+                Map<String, User> found = findMany(distinct, connection);
+                PreparedStatement statement = connection.prepare(DELETE_USER_SQL);
+                statement.clearBatch();
+                int pending = 0;
+                for (String id : distinct) {
+                    User user = found.get(id);
+                    if (user == null) {
+                        continue;
+                    }
+                    removed.add(user);
+                    statement.setString(1, id);
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                statement.executeBatch();
+            });
+            event.rows = removed.size();
+            return removed;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete users", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Inserts all friendships in a single transaction, in chunks of the configured batch size
+     * @param friendships friendships whose users are already stored
+     * @throws IllegalArgumentException if the given friendships or one of them is null.
+     */
+    public void saveFriendships(Iterable<Friendship> friendships) {
+        if (friendships == null) {
+            throw new IllegalArgumentException("friendships must not be null");
+        }
+
+        DatabaseCallEvent event = new DatabaseCallEvent("saveFriendships", INSERT_FRIENDSHIP_SQL);
+        try (PooledConnection connection = connect()) {
+            inTransaction(connection, () -> {
+                PreparedStatement statement = connection.prepare(INSERT_FRIENDSHIP_SQL);
+                statement.clearBatch();
+                int pending = 0;
+                for (Friendship friendship : friendships) {
+                    if (friendship == null) {
+                        throw new IllegalArgumentException("friendship must not be null");
+                    }
+                    String userId1 = friendship.getUserId1();
+                    String userId2 = friendship.getUserId2();
+                    statement.setString(1, friendship.getId());
+                    statement.setString(2, userId1);
+                    statement.setString(3, userId2);
+                    statement.setString(4, userId1);
+                    statement.setString(5, userId2);
+                    statement.addBatch();
+                    event.rows++;
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                statement.executeBatch();
+            });
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save friendships", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private void inTransaction(PooledConnection pooled, SqlWork work) throws SQLException {
+        Connection connection = pooled.getConnection();
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
         }
     }
 
     public void saveFriendship(String id, String userId1, String userId2) {
-        String sql = "INSERT INTO friendships (id, user1_id, user2_id) VALUES (?, ?, ?)";
-        
-        try (Connection connection = DriverManager.getConnection(url);
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
+        DatabaseCallEvent event = new DatabaseCallEvent("saveFriendship", INSERT_FRIENDSHIP_SQL);
+        try (PooledConnection connection = connect()) {
+            PreparedStatement statement = connection.prepare(INSERT_FRIENDSHIP_SQL);
             statement.setString(1, id);
             statement.setString(2, userId1);
             statement.setString(3, userId2);
-            statement.executeUpdate();
-            
+            statement.setString(4, userId1);
+            statement.setString(5, userId2);
+            event.rows = statement.executeUpdate();
+
         } catch (SQLException e) {
             throw new RuntimeException("Failed to save friendship", e);
+        } finally {
+            event.commit();
         }
     }
 
     public void deleteFriendship(String userId1, String userId2) {
-        String sql = "DELETE FROM friendships WHERE (user1_id = ? AND user2_id = ?) OR (user1_id = ? AND user2_id = ?)";
-        
-        try (Connection connection = DriverManager.getConnection(url);
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
+        DatabaseCallEvent event = new DatabaseCallEvent("deleteFriendship", DELETE_FRIENDSHIP_SQL);
+        try (PooledConnection connection = connect()) {
+            PreparedStatement statement = connection.prepare(DELETE_FRIENDSHIP_SQL);
             statement.setString(1, userId1);
             statement.setString(2, userId2);
-            statement.setString(3, userId2);
-            statement.setString(4, userId1);
-            statement.executeUpdate();
-            
+            statement.setString(3, userId1);
+            statement.setString(4, userId2);
+            event.rows = statement.executeUpdate();
+
         } catch (SQLException e) {
             throw new RuntimeException("Failed to delete friendship", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Removes every friendship of a user
+     * @param userId the user id
+     */
+    public void deleteFriendshipsOf(String userId) {
+        DatabaseCallEvent event = new DatabaseCallEvent("deleteFriendshipsOf", DELETE_FRIENDSHIPS_OF_USER_SQL);
+        try (PooledConnection connection = connect()) {
+            PreparedStatement statement = connection.prepare(DELETE_FRIENDSHIPS_OF_USER_SQL);
+            statement.setString(1, userId);
+            statement.setString(2, userId);
+            event.rows = statement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete friendships", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * @return every stored friendship, with the user ids in canonical order
+     */
+    public List<Friendship> findAllFriendships() {
+        List<Friendship> friendships = new ArrayList<>();
+        DatabaseCallEvent event = new DatabaseCallEvent("findAllFriendships", FIND_ALL_FRIENDSHIPS_WITH_IDS_SQL);
+        try (PooledConnection connection = connect()) {
+            try (ResultSet resultSet = connection.prepare(FIND_ALL_FRIENDSHIPS_WITH_IDS_SQL).executeQuery()) {
+                while (resultSet.next()) {
+                    friendships.add(new Friendship(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3)));
+                }
+            }
+            event.rows = friendships.size();
+            return friendships;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find all friendships", e);
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Closes the pooled connections, if the repository uses a pool
+     */
+    @Override
+    public void close() {
+        if (pool == null) {
+            return;
+        }
+        try {
+            pool.close();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to close connection pool", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Iterates over the rows of a users query; releases the result set and the connection
+     * when closed or when the last row has been read
+     */
+    private static final class UserCursor implements Iterator<User> {
+        private final PooledConnection connection;
+        private final ResultSet resultSet;
+        private final DatabaseCallEvent event;
+        private User next;
+        private boolean closed;
+
+        UserCursor(PooledConnection connection, ResultSet resultSet, DatabaseCallEvent event) {
+            this.connection = connection;
+            this.resultSet = resultSet;
+            this.event = event;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !closed) {
+                try {
+                    if (resultSet.next()) {
+                        next = new User(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3));
+                        event.rows++;
+                    } else {
+                        close();
+                    }
+                } catch (SQLException e) {
+                    close();
+                    throw new RuntimeException("Failed to stream users", e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            User user = next;
+            next = null;
+            return user;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                try {
+                    resultSet.close();
+                } finally {
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to close user stream", e);
+            } finally {
+                event.commit();
+            }
         }
     }
-}
\ No newline at end of file
+}
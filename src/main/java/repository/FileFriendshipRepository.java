@@ -0,0 +1,194 @@
+package repository;
+
+import domain.Friendship;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * File-based implementation of the friendship repository. Friendships are kept in memory for
+ * constant-time lookups. The file is a snapshot of {@code id,userId1,userId2} lines and every
+ * change is appended to a {@link Journal} next to it, so a write costs one record instead of a
+ * rewrite of every friendship; loading replays the snapshot and then the journal. Once the
+ * journal holds more records than there are friendships, it is folded into a fresh snapshot,
+ * which keeps the cost of writes constant on average.
+ * <p>
+ * A change which cannot be written to the journal is undone in memory and the exception is
+ * rethrown, so the repository never reports a change the file does not have.
+ */
+public class FileFriendshipRepository extends InMemoryFriendshipRepository implements AutoCloseable {
+    private static final String PUT = "P";
+    private static final String DELETE = "D";
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+
+    private final String filename;
+    private final Journal journal;
+    private long journalRecords;
+
+    /**
+     * @param filename the snapshot file; the journal is kept in {@code filename + ".journal"}
+     * @throws RuntimeException if the journal cannot be opened
+     */
+    public FileFriendshipRepository(String filename) {
+        this.filename = filename;
+        loadData();
+        try {
+            // records of an interrupted compaction, written after the snapshot was taken
+            Journal.replay(compactingPath(), this::apply);
+            this.journal = new Journal(journalPath(), this::replayRecord);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open journal for " + filename, e);
+        }
+    }
+
+    private void loadData() {
+        if (!new File(filename).exists()) {
+            return;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length == 3) {
+                    super.save(new Friendship(parts[0].trim(), parts[1].trim(), parts[2].trim()));
+                } else {
+                    System.err.println("Error parsing line: " + line);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void replayRecord(String record) {
+        apply(record);
+        journalRecords++;
+    }
+
+    private void apply(String record) {
+        String[] parts = record.split(",");
+        if (parts[0].equals(PUT) && parts.length == 4) {
+            super.save(new Friendship(parts[1], parts[2], parts[3]));
+        } else if (parts[0].equals(DELETE) && parts.length == 3) {
+            super.delete(parts[1], parts[2]);
+        }
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot. The journal is first moved aside; the snapshot
+     * replaces the old one atomically and only then is the old journal deleted. A crash at any
+     * point leaves files that load to the same friendships, because replaying a record over a
+     * snapshot which already has it has no further effect.
+     * @throws RuntimeException if the snapshot cannot be written
+     */
+    public void compact() {
+        FileIoEvent event = new FileIoEvent("compact", filename);
+        try {
+            // a leftover journal from a crashed compaction is already part of the friendships
+            if (!Files.exists(compactingPath())) {
+                journal.rotate(compactingPath());
+            }
+            Path temporary = Paths.get(filename + ".tmp");
+            try (BufferedWriter bw = Files.newBufferedWriter(temporary)) {
+                for (Friendship friendship : findAll()) {
+                    bw.write(friendship.getId() + "," + friendship.getUserId1() + "," + friendship.getUserId2());
+                    bw.newLine();
+                    event.records++;
+                }
+            }
+            try (FileOutputStream out = new FileOutputStream(temporary.toFile(), true)) {
+                out.getFD().sync();
+            }
+            Files.move(temporary, Paths.get(filename), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(compactingPath());
+            journalRecords = 0;
+            event.commitWithSizeOf(Paths.get(filename));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact journal of " + filename, e);
+        }
+    }
+
+    /**
+     * @return the journal the changes are appended to
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    @Override
+    public Optional<Friendship> save(Friendship friendship) {
+        Optional<Friendship> existing = super.save(friendship);
+        if (existing.isEmpty()) {
+            persist(List.of(PUT + "," + friendship.getId() + "," + friendship.getUserId1() + "," + friendship.getUserId2()),
+                    () -> super.delete(friendship.getUserId1(), friendship.getUserId2()));
+        }
+        return existing;
+    }
+
+    @Override
+    public Optional<Friendship> delete(String userId1, String userId2) {
+        Optional<Friendship> removed = super.delete(userId1, userId2);
+        removed.ifPresent(friendship -> persist(List.of(deleteRecord(friendship)), () -> super.save(friendship)));
+        return removed;
+    }
+
+    @Override
+    public List<Friendship> deleteAllOf(String userId) {
+        List<Friendship> removed = super.deleteAllOf(userId);
+        if (!removed.isEmpty()) {
+            List<String> records = new ArrayList<>(removed.size());
+            for (Friendship friendship : removed) {
+                records.add(deleteRecord(friendship));
+            }
+            persist(records, () -> removed.forEach(super::save));
+        }
+        return removed;
+    }
+
+    /**
+     * Appends the records of changes already applied in memory and waits until they are
+     * durable, compacting the journal once it outgrows the snapshot
+     * @param rollback undoes the changes in memory if they cannot be appended
+     */
+    private void persist(List<String> records, Runnable rollback) {
+        long sequence;
+        try {
+            sequence = journal.append(records);
+        } catch (RuntimeException e) {
+            rollback.run();
+            throw e;
+        }
+        journal.sync(sequence);
+        journalRecords += records.size();
+        if (journalRecords > Math.max(MIN_COMPACTION_RECORDS, count())) {
+            compact();
+        }
+    }
+
+    private static String deleteRecord(Friendship friendship) {
+        return DELETE + "," + friendship.getUserId1() + "," + friendship.getUserId2();
+    }
+
+    private Path journalPath() {
+        return Paths.get(filename + ".journal");
+    }
+
+    private Path compactingPath() {
+        return Paths.get(filename + ".journal.compacting");
+    }
+}
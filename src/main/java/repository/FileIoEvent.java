@@ -0,0 +1,59 @@
+package repository;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Flight recorder event for reading or writing the file of a file based repository. The event
+ * begins when it is created; {@link #commit()} ends it and records it if the event is enabled
+ * and above its threshold.
+ */
+@Name("socialnetwork.FileIo")
+@Label("Repository File I/O")
+@Category({"Social Network", "Repository"})
+@Description("A file based repository reading or writing its file")
+class FileIoEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Records")
+    @Description("Users or journal records read or written")
+    long records;
+
+    FileIoEvent(String operation, String path) {
+        this.operation = operation;
+        this.path = path;
+        begin();
+    }
+
+    /**
+     * Commits the event with the size of the file as its byte count; the size is only looked
+     * up if the event is recorded
+     */
+    void commitWithSizeOf(Path file) {
+        end();
+        if (shouldCommit()) {
+            try {
+                bytes = Files.size(file);
+            } catch (IOException e) {
+                bytes = -1;
+            }
+            commit();
+        }
+    }
+}
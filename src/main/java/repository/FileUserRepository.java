@@ -4,34 +4,93 @@ import domain.User;
 import exceptions.ValidationException;
 import validator.Validator;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
- * File-based implementation of the user repository
+ * File-based implementation of the user repository.
+ * <p>
+ * By default every write rewrites the whole file. In journal mode the file is a snapshot and
+ * every write is appended to a {@link Journal} next to it instead; loading replays the
+ * snapshot and then the journal. A background job periodically compacts the journal into a
+ * fresh snapshot.
  */
-public class FileUserRepository implements Repository<String, User> {
+public class FileUserRepository implements Repository<String, User>, AutoCloseable {
+    private static final String PUT = "P";
+    private static final String DELETE = "D";
+
     private final String filename;
     private final Validator<User> validator;
     private final Map<String, User> users;
+    private final Object compactionLock;
+    private final Journal journal;
+    private final ScheduledExecutorService compactor;
 
     public FileUserRepository(String filename, Validator<User> validator) {
         this.filename = filename;
         this.validator = validator;
         this.users = new HashMap<>();
+        this.compactionLock = new Object();
+        this.journal = null;
+        this.compactor = null;
         loadData();
     }
 
+    /**
+     * Creates a repository in journal mode. The journal is kept in {@code filename + ".journal"}.
+     * @param filename the snapshot file
+     * @param validator validates saved and updated users
+     * @param compactionIntervalMillis how often the journal is folded into the snapshot;
+     *                                 0 disables background compaction
+     * @throws RuntimeException if the journal cannot be opened
+     */
+    public FileUserRepository(String filename, Validator<User> validator, long compactionIntervalMillis) {
+        this.filename = filename;
+        this.validator = validator;
+        this.users = new HashMap<>();
+        this.compactionLock = new Object();
+        if (Files.exists(Paths.get(filename))) {
+            loadData();
+        }
+        try {
+            // records of an interrupted compaction, written after the snapshot was taken
+            Journal.replay(compactingPath(), this::apply);
+            this.journal = new Journal(journalPath(), this::apply);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open journal for " + filename, e);
+        }
+        if (compactionIntervalMillis > 0) {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.scheduleWithFixedDelay(this::compactInBackground,
+                    compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.compactor = null;
+        }
+    }
+
     private void loadData() {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            br.lines()
-                .filter(line -> !line.trim().isEmpty())
-                .map(this::parseLine)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .forEach(user -> users.put(user.getId(), user));
+        FileIoEvent event = new FileIoEvent("load", filename);
+        try {
+            CsvUserLoader.Result result = new CsvUserLoader().load(Paths.get(filename));
+            result.getUsers().forEach(user -> users.put(user.getId(), user));
+            result.getErrors().forEach(error -> System.err.println("Error parsing " + filename + " at " + error));
+            event.bytes = result.getBytes();
+            event.records = result.getUsers().size();
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            event.commit();
         }
     }
 
@@ -48,6 +107,8 @@ public class FileUserRepository implements Repository<String, User> {
     }
 
     private void saveData() {
+        FileIoEvent event = new FileIoEvent("rewrite", filename);
+        event.records = users.size();
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
             users.values().stream()
                 .map(this::formatUser)
@@ -62,6 +123,143 @@ public class FileUserRepository implements Repository<String, User> {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        event.commitWithSizeOf(Paths.get(filename));
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot. The journal is first moved aside, so writes
+     * continue while the snapshot is written; the snapshot replaces the old one atomically and
+     * only then is the old journal deleted. A crash at any point leaves files that load to the
+     * same users, because replaying a record twice has no further effect.
+     * @throws IllegalStateException if the repository is not in journal mode
+     * @throws RuntimeException if the snapshot cannot be written
+     */
+    public void compact() {
+        if (journal == null) {
+            throw new IllegalStateException("compaction needs journal mode");
+        }
+        synchronized (compactionLock) {
+            try {
+                List<User> snapshot;
+                synchronized (this) {
+                    // a leftover journal from a crashed compaction is already part of users
+                    if (!Files.exists(compactingPath())) {
+                        journal.rotate(compactingPath());
+                    }
+                    snapshot = new ArrayList<>(users.values());
+                }
+                Path temporary = Paths.get(filename + ".tmp");
+                FileIoEvent event = new FileIoEvent("compact", filename);
+                event.records = snapshot.size();
+                try (BufferedWriter bw = Files.newBufferedWriter(temporary)) {
+                    for (User user : snapshot) {
+                        bw.write(formatUser(user));
+                        bw.newLine();
+                    }
+                }
+                try (FileOutputStream out = new FileOutputStream(temporary.toFile(), true)) {
+                    out.getFD().sync();
+                }
+                Files.move(temporary, Paths.get(filename), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                Files.delete(compactingPath());
+                event.commitWithSizeOf(Paths.get(filename));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to compact journal of " + filename, e);
+            }
+        }
+    }
+
+    /**
+     * @return the journal, or null if the repository rewrites the file on every write
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+        if (journal != null) {
+            synchronized (compactionLock) {
+                journal.close();
+            }
+        }
+    }
+
+    private void compactInBackground() {
+        try {
+            if (journal.size() > 0 || Files.exists(compactingPath())) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void apply(String record) {
+        String[] parts = record.split(",", 2);
+        if (parts[0].equals(PUT)) {
+            parseLine(parts[1]).ifPresent(user -> users.put(user.getId(), user));
+        } else if (parts[0].equals(DELETE)) {
+            users.remove(parts[1]);
+        }
+    }
+
+    /**
+     * Persists writes already applied to {@link #users}; must be called while holding the lock.
+     * The records are appended together, so either all of them reach the journal or none do.
+     * @param records the journal records of the writes
+     * @param rollback undoes the writes in {@link #users} if they cannot be persisted
+     * @return the sequence number to wait for with {@link #commit(long)}
+     */
+    private long persist(List<String> records, Runnable rollback) {
+        if (journal == null) {
+            saveData();
+            return 0;
+        }
+        try {
+            return journal.append(records);
+        } catch (RuntimeException e) {
+            rollback.run();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until the writes are durable; called after releasing the lock so that concurrent
+     * writers share one fsync
+     */
+    private void commit(long sequence) {
+        if (journal != null && sequence > 0) {
+            journal.sync(sequence);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a field of the user contains a line break, which
+     * would split it across two lines of the file
+     */
+    private String putRecord(User user) {
+        String line = formatUser(user);
+        if (line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("user must not contain line breaks");
+        }
+        return PUT + "," + line;
+    }
+
+    private static String deleteRecord(String id) {
+        return DELETE + "," + id;
+    }
+
+    private Path journalPath() {
+        return Paths.get(filename + ".journal");
+    }
+
+    private Path compactingPath() {
+        return Paths.get(filename + ".journal.compacting");
     }
 
     private String formatUser(User user) {
@@ -76,11 +274,13 @@ public class FileUserRepository implements Repository<String, User> {
         if (id == null) {
             throw new IllegalArgumentException("id must not be null");
         }
-        return Optional.ofNullable(users.get(id));
+        synchronized (this) {
+            return Optional.ofNullable(users.get(id));
+        }
     }
 
     @Override
-    public Iterable<User> findAll() {
+    public synchronized Iterable<User> findAll() {
         return new ArrayList<>(users.values());
     }
 
@@ -90,11 +290,17 @@ public class FileUserRepository implements Repository<String, User> {
             throw new IllegalArgumentException("entity must not be null");
         }
         validator.validate(entity);
-        Optional<User> existingUser = Optional.ofNullable(users.putIfAbsent(entity.getId(), entity));
-        if (existingUser.isEmpty()) {
-            saveData();
+        String record = putRecord(entity);
+        long sequence;
+        synchronized (this) {
+            Optional<User> existingUser = Optional.ofNullable(users.putIfAbsent(entity.getId(), entity));
+            if (existingUser.isPresent()) {
+                return existingUser;
+            }
+            sequence = persist(List.of(record), () -> users.remove(entity.getId()));
         }
-        return existingUser;
+        commit(sequence);
+        return Optional.empty();
     }
 
     @Override
@@ -102,10 +308,16 @@ public class FileUserRepository implements Repository<String, User> {
         if (id == null) {
             throw new IllegalArgumentException("id must not be null");
         }
-        Optional<User> removedUser = Optional.ofNullable(users.remove(id));
-        if (removedUser.isPresent()) {
-            saveData();
+        Optional<User> removedUser;
+        long sequence = 0;
+        synchronized (this) {
+            removedUser = Optional.ofNullable(users.remove(id));
+            if (removedUser.isPresent()) {
+                User user = removedUser.get();
+                sequence = persist(List.of(deleteRecord(id)), () -> users.put(id, user));
+            }
         }
+        commit(sequence);
         return removedUser;
     }
 
@@ -115,12 +327,88 @@ public class FileUserRepository implements Repository<String, User> {
             throw new IllegalArgumentException("entity must not be null");
         }
         validator.validate(entity);
-        
-        if (users.containsKey(entity.getId())) {
-            users.put(entity.getId(), entity);
-            saveData();
-            return Optional.empty();
+        String record = putRecord(entity);
+
+        long sequence;
+        synchronized (this) {
+            if (!users.containsKey(entity.getId())) {
+                return Optional.of(entity);
+            }
+            User previous = users.put(entity.getId(), entity);
+            sequence = persist(List.of(record), () -> users.put(entity.getId(), previous));
+        }
+        commit(sequence);
+        return Optional.empty();
+    }
+
+    @Override
+    public List<User> saveAll(Iterable<User> entities) throws ValidationException {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        List<User> batch = new ArrayList<>();
+        List<String> batchRecords = new ArrayList<>();
+        for (User entity : entities) {
+            if (entity == null) {
+                throw new IllegalArgumentException("entity must not be null");
+            }
+            validator.validate(entity);
+            batch.add(entity);
+            batchRecords.add(putRecord(entity));
+        }
+
+        List<User> existing = new ArrayList<>();
+        long sequence = 0;
+        synchronized (this) {
+            List<String> records = new ArrayList<>();
+            List<String> added = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                User entity = batch.get(i);
+                User previous = users.putIfAbsent(entity.getId(), entity);
+                if (previous != null) {
+                    existing.add(previous);
+                } else {
+                    records.add(batchRecords.get(i));
+                    added.add(entity.getId());
+                }
+            }
+            if (!records.isEmpty()) {
+                sequence = persist(records, () -> added.forEach(users::remove));
+            }
+        }
+        commit(sequence);
+        return existing;
+    }
+
+    @Override
+    public List<User> deleteAll(Iterable<String> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids must not be null");
+        }
+        List<String> batch = new ArrayList<>();
+        for (String id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("id must not be null");
+            }
+            batch.add(id);
+        }
+
+        List<User> removed = new ArrayList<>();
+        long sequence = 0;
+        synchronized (this) {
+            List<String> records = new ArrayList<>();
+            for (String id : batch) {
+                User user = users.remove(id);
+                if (user != null) {
+                    removed.add(user);
+                    records.add(deleteRecord(id));
+                }
+            }
+            if (!records.isEmpty()) {
+                sequence = persist(records, () -> removed.forEach(user -> users.put(user.getId(), user)));
+            }
         }
-        return Optional.of(entity);
+        commit(sequence);
+        return removed;
     }
 }
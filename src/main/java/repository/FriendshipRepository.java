@@ -0,0 +1,77 @@
+package repository;
+
+import domain.Friendship;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Stores the friendships between users. A friendship is undirected: the order of the two user
+ * ids does not matter in any of the lookups.
+ */
+public interface FriendshipRepository {
+    /**
+     * Answers in constant time, independent of the number of friends
+     * @param userId1 first user id, must not be null
+     * @param userId2 second user id, must not be null
+     * @return true if the users are friends
+     * @throws IllegalArgumentException if an id is null
+     */
+    boolean exists(String userId1, String userId2);
+
+    /**
+     * @param userId1 first user id, must not be null
+     * @param userId2 second user id, must not be null
+     * @return the friendship between the users, if any
+     * @throws IllegalArgumentException if an id is null
+     */
+    Optional<Friendship> findOne(String userId1, String userId2);
+
+    /**
+     * @param userId the user id, must not be null
+     * @return read-only view of the ids of the user's friends; empty for unknown users
+     * @throws IllegalArgumentException if the id is null
+     */
+    Set<String> findFriendIds(String userId);
+
+    /**
+     * @return all friendships, each once
+     */
+    Iterable<Friendship> findAll();
+
+    /**
+     * The default counts the friendships of {@link #findAll()}.
+     * @return number of friendships, each counted once
+     */
+    default long count() {
+        long count = 0;
+        for (Friendship ignored : findAll()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param friendship the friendship to store, must not be null
+     * @return empty if it was saved, otherwise the friendship which already connects the users
+     * @throws IllegalArgumentException if the friendship or one of its ids is null
+     */
+    Optional<Friendship> save(Friendship friendship);
+
+    /**
+     * @param userId1 first user id, must not be null
+     * @param userId2 second user id, must not be null
+     * @return the removed friendship, or empty if the users were not friends
+     * @throws IllegalArgumentException if an id is null
+     */
+    Optional<Friendship> delete(String userId1, String userId2);
+
+    /**
+     * Removes every friendship of a user, e.g. when the user is removed
+     * @param userId the user id, must not be null
+     * @return the removed friendships
+     * @throws IllegalArgumentException if the id is null
+     */
+    List<Friendship> deleteAllOf(String userId);
+}
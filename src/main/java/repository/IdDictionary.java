@@ -0,0 +1,90 @@
+package repository;
+
+import java.util.Arrays;
+
+/**
+ * Maps string ids to dense ints 0, 1, 2, ... in the order they are first seen. The ids are
+ * kept in a {@link BytePool} and found through an open-addressing table of ints, so no
+ * {@link String} or boxed object is held per id. Ids are never removed, so an id keeps its
+ * int for the lifetime of the dictionary.
+ */
+final class IdDictionary {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BytePool pool;
+    private long[] offsets;
+    // slot + 1 of the id hashed to each position, 0 if free; at most half full
+    private int[] table;
+    private int size;
+
+    IdDictionary() {
+        this.pool = new BytePool();
+        this.offsets = new long[INITIAL_CAPACITY];
+        this.table = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * @return the int of the id, assigned if the id is new
+     * @throws IllegalArgumentException if the id is longer than 65535 bytes in UTF-8
+     */
+    int intern(String id) {
+        byte[] bytes = BytePool.encode(id);
+        int position = probe(bytes);
+        if (table[position] != 0) {
+            return table[position] - 1;
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            rehash(table.length * 2);
+            position = probe(bytes);
+        }
+        offsets[size] = pool.add(bytes);
+        table[position] = ++size;
+        return size - 1;
+    }
+
+    /**
+     * @return the int of the id, or -1 if the id was never interned
+     */
+    int find(String id) {
+        byte[] bytes = BytePool.encode(id);
+        return table[probe(bytes)] - 1;
+    }
+
+    String get(int slot) {
+        return pool.get(offsets[slot]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return approximate heap bytes held by the dictionary
+     */
+    long getMemoryBytes() {
+        return pool.getCapacity() + 8L * offsets.length + 4L * table.length;
+    }
+
+    private int probe(byte[] bytes) {
+        int mask = table.length - 1;
+        int position = BytePool.hash(bytes, 0, bytes.length) & mask;
+        while (table[position] != 0 && !pool.matches(offsets[table[position] - 1], bytes)) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int position = pool.hash(offsets[slot]) & mask;
+            while (rehashed[position] != 0) {
+                position = (position + 1) & mask;
+            }
+            rehashed[position] = slot + 1;
+        }
+        table = rehashed;
+    }
+}
@@ -0,0 +1,133 @@
+package repository;
+
+import domain.Friendship;
+import domain.User;
+
+import java.util.*;
+
+/**
+ * In-memory implementation of the friendship repository. Every user maps to a hash map from
+ * friend id to friendship, so edge checks and adjacency lookups take constant time.
+ */
+public class InMemoryFriendshipRepository implements FriendshipRepository {
+    private final Map<String, Map<String, Friendship>> adjacency;
+    private long count;
+
+    public InMemoryFriendshipRepository() {
+        this.adjacency = new HashMap<>();
+    }
+
+    /**
+     * Builds a repository from friendships kept in {@link User#getFriends()} lists, as loaded
+     * by repositories which store them with the users
+     * @param users the users whose friend lists are copied
+     * @return a repository with one friendship per pair of friends
+     */
+    public static InMemoryFriendshipRepository fromFriendLists(Iterable<User> users) {
+        InMemoryFriendshipRepository repository = new InMemoryFriendshipRepository();
+        for (User user : users) {
+            for (User friend : user.getFriends()) {
+                if (!repository.exists(user.getId(), friend.getId())) {
+                    repository.save(new Friendship(UUID.randomUUID().toString(), user, friend));
+                }
+            }
+        }
+        return repository;
+    }
+
+    @Override
+    public boolean exists(String userId1, String userId2) {
+        return findOne(userId1, userId2).isPresent();
+    }
+
+    @Override
+    public Optional<Friendship> findOne(String userId1, String userId2) {
+        if (userId1 == null || userId2 == null) {
+            throw new IllegalArgumentException("user ids must not be null");
+        }
+        Map<String, Friendship> friends = adjacency.get(userId1);
+        return friends == null ? Optional.empty() : Optional.ofNullable(friends.get(userId2));
+    }
+
+    @Override
+    public Set<String> findFriendIds(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        Map<String, Friendship> friends = adjacency.get(userId);
+        return friends == null ? Collections.emptySet() : Collections.unmodifiableSet(friends.keySet());
+    }
+
+    @Override
+    public Iterable<Friendship> findAll() {
+        List<Friendship> friendships = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Friendship>> entry : adjacency.entrySet()) {
+            for (Friendship friendship : entry.getValue().values()) {
+                // each friendship is listed under both users; keep it once
+                if (friendship.getOtherUserId(entry.getKey()).compareTo(entry.getKey()) >= 0) {
+                    friendships.add(friendship);
+                }
+            }
+        }
+        return friendships;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public Optional<Friendship> save(Friendship friendship) {
+        if (friendship == null) {
+            throw new IllegalArgumentException("friendship must not be null");
+        }
+        String userId1 = friendship.getUserId1();
+        String userId2 = friendship.getUserId2();
+        Optional<Friendship> existing = findOne(userId1, userId2);
+        if (existing.isPresent()) {
+            return existing;
+        }
+        adjacency.computeIfAbsent(userId1, id -> new HashMap<>()).put(userId2, friendship);
+        adjacency.computeIfAbsent(userId2, id -> new HashMap<>()).put(userId1, friendship);
+        count++;
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Friendship> delete(String userId1, String userId2) {
+        Optional<Friendship> existing = findOne(userId1, userId2);
+        existing.ifPresent(friendship -> {
+            unlink(userId1, userId2);
+            unlink(userId2, userId1);
+            count--;
+        });
+        return existing;
+    }
+
+    @Override
+    public List<Friendship> deleteAllOf(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId must not be null");
+        }
+        Map<String, Friendship> friends = adjacency.remove(userId);
+        if (friends == null) {
+            return new ArrayList<>();
+        }
+        for (String friendId : friends.keySet()) {
+            unlink(friendId, userId);
+        }
+        count -= friends.size();
+        return new ArrayList<>(friends.values());
+    }
+
+    private void unlink(String userId, String friendId) {
+        Map<String, Friendship> friends = adjacency.get(userId);
+        if (friends != null) {
+            friends.remove(friendId);
+            if (friends.isEmpty()) {
+                adjacency.remove(userId);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import domain.User;
 import exceptions.ValidationException;
 import validator.Validator;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * In-memory implementation of the user repository
@@ -30,6 +31,20 @@ public class InMemoryUserRepository implements Repository<String, User> {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    /**
+     * Streams the stored users without copying them; the repository must not be changed
+     * while the stream is consumed
+     */
+    @Override
+    public Stream<User> streamAll() {
+        return users.values().stream();
+    }
+
     @Override
     public Optional<User> save(User entity) throws ValidationException {
         if (entity == null) {
@@ -60,4 +75,31 @@ public class InMemoryUserRepository implements Repository<String, User> {
         }
         return Optional.of(entity);
     }
-}
\ No newline at end of file
+
+    /**
+     * Validates every entity before saving any, unlike the default
+     */
+    @Override
+    public List<User> saveAll(Iterable<User> entities) throws ValidationException {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        List<User> batch = new ArrayList<>();
+        for (User entity : entities) {
+            if (entity == null) {
+                throw new IllegalArgumentException("entity must not be null");
+            }
+            validator.validate(entity);
+            batch.add(entity);
+        }
+
+        List<User> existing = new ArrayList<>();
+        for (User entity : batch) {
+            User previous = users.putIfAbsent(entity.getId(), entity);
+            if (previous != null) {
+                existing.add(previous);
+            }
+        }
+        return existing;
+    }
+}
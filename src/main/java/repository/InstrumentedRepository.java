@@ -0,0 +1,111 @@
+package repository;
+
+import domain.Entity;
+import exceptions.ValidationException;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Records the count, errors and latency of every call to another repository in a
+ * {@link MetricsRegistry}, under {@code <name>.<method>}, e.g. {@code users.findOne}.
+ * For {@link #streamAll()} only opening the stream is timed, not consuming it.
+ * @param <ID> type of the entity ids
+ * @param <E> type of the entities
+ */
+public class InstrumentedRepository<ID extends Comparable<ID>, E extends Entity<ID>> implements Repository<ID, E> {
+    private final Repository<ID, E> delegate;
+    private final OperationMetrics findOne;
+    private final OperationMetrics findMany;
+    private final OperationMetrics findAll;
+    private final OperationMetrics streamAll;
+    private final OperationMetrics findPage;
+    private final OperationMetrics count;
+    private final OperationMetrics save;
+    private final OperationMetrics delete;
+    private final OperationMetrics update;
+    private final OperationMetrics saveAll;
+    private final OperationMetrics deleteAll;
+
+    /**
+     * @param delegate the repository to measure
+     * @param metrics where the measurements go
+     * @param name prefix of the operation names
+     */
+    public InstrumentedRepository(Repository<ID, E> delegate, MetricsRegistry metrics, String name) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        this.delegate = delegate;
+        this.findOne = metrics.operation(name + ".findOne");
+        this.findMany = metrics.operation(name + ".findMany");
+        this.findAll = metrics.operation(name + ".findAll");
+        this.streamAll = metrics.operation(name + ".streamAll");
+        this.findPage = metrics.operation(name + ".findPage");
+        this.count = metrics.operation(name + ".count");
+        this.save = metrics.operation(name + ".save");
+        this.delete = metrics.operation(name + ".delete");
+        this.update = metrics.operation(name + ".update");
+        this.saveAll = metrics.operation(name + ".saveAll");
+        this.deleteAll = metrics.operation(name + ".deleteAll");
+    }
+
+    @Override
+    public Optional<E> findOne(ID id) {
+        return findOne.time(() -> delegate.findOne(id));
+    }
+
+    @Override
+    public List<E> findMany(Collection<ID> ids) {
+        return findMany.time(() -> delegate.findMany(ids));
+    }
+
+    @Override
+    public Iterable<E> findAll() {
+        return findAll.time(delegate::findAll);
+    }
+
+    @Override
+    public Stream<E> streamAll() {
+        return streamAll.time(delegate::streamAll);
+    }
+
+    @Override
+    public List<E> findPage(ID afterId, int limit) {
+        return findPage.time(() -> delegate.findPage(afterId, limit));
+    }
+
+    @Override
+    public long count() {
+        return count.time(delegate::count);
+    }
+
+    @Override
+    public Optional<E> save(E entity) throws ValidationException {
+        return save.time(() -> delegate.save(entity));
+    }
+
+    @Override
+    public Optional<E> delete(ID id) {
+        return delete.time(() -> delegate.delete(id));
+    }
+
+    @Override
+    public Optional<E> update(E entity) throws ValidationException {
+        return update.time(() -> delegate.update(entity));
+    }
+
+    @Override
+    public List<E> saveAll(Iterable<E> entities) throws ValidationException {
+        return saveAll.time(() -> delegate.saveAll(entities));
+    }
+
+    @Override
+    public List<E> deleteAll(Iterable<ID> ids) {
+        return deleteAll.time(() -> delegate.deleteAll(ids));
+    }
+}
@@ -0,0 +1,249 @@
+package repository;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of text records. Every record is one line prefixed with the CRC32 of its
+ * contents, so a record torn by a crash is detected and dropped on replay.
+ * <p>
+ * Appending only writes the record; {@link #sync(long)} makes it durable. Syncs use group
+ * commit: a single fsync covers every record appended before it, so threads waiting for
+ * their records at the same time share one fsync.
+ */
+public class Journal implements AutoCloseable {
+    private static final int CRC_LENGTH = 8;
+
+    private final Path path;
+    private final Object syncLock;
+    private FileChannel channel;
+    private long written;
+    private long durable;
+    private long syncCount;
+
+    /**
+     * Opens a journal for appending, first cutting off a torn record at its end
+     * @param path the journal file, created if missing
+     * @param replay receives every intact record in order
+     * @throws IOException if the file cannot be read or opened
+     */
+    public Journal(Path path, Consumer<String> replay) throws IOException {
+        this.path = path;
+        this.syncLock = new Object();
+        long validLength = replay(path, replay);
+        this.channel = open(path);
+        if (channel.size() > validLength) {
+            channel.truncate(validLength);
+            channel.force(false);
+        }
+        channel.position(validLength);
+    }
+
+    /**
+     * Reads the intact records of a journal. Reading stops at the first record which is
+     * incomplete or fails its checksum, since only the tail of an append-only file can be torn.
+     * @param path the journal file; a missing file has no records
+     * @param replay receives every intact record in order
+     * @return the length in bytes of the intact prefix of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(Path path, Consumer<String> replay) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long validLength = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            for (int b = in.read(); b != -1; b = in.read()) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String record = decode(line.toByteArray());
+                if (record == null) {
+                    break;
+                }
+                replay.accept(record);
+                validLength += line.size() + 1;
+                line.reset();
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * Writes a record without waiting for it to reach the disk
+     * @param record the record; must not contain line breaks
+     * @return the sequence number to pass to {@link #sync(long)}
+     * @throws IllegalArgumentException if the record contains a line break
+     */
+    public long append(String record) {
+        return append(List.of(record));
+    }
+
+    /**
+     * Writes records without waiting for them to reach the disk. The records are written
+     * together: if the write fails, the journal is cut back to where it ended before, so a
+     * partly written record cannot hide the records appended after it from replay.
+     * @param records the records; none may contain line breaks
+     * @return the sequence number of the last record, to pass to {@link #sync(long)}
+     * @throws IllegalArgumentException if a record contains a line break; nothing is written
+     * @throws RuntimeException if the records cannot be written; nothing is kept
+     */
+    public synchronized long append(List<String> records) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (String record : records) {
+            if (record.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException("record must not contain line breaks");
+            }
+            bytes.writeBytes(encode(record));
+        }
+        FileIoEvent event = new FileIoEvent("journalAppend", path.toString());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long start = -1;
+        try {
+            start = channel.position();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            if (start >= 0) {
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+            }
+            throw new RuntimeException("Failed to append to journal " + path, e);
+        } finally {
+            event.bytes = buffer.position();
+            event.records = records.size();
+            event.commit();
+        }
+        written += records.size();
+        return written;
+    }
+
+    /**
+     * Waits until the record with the given sequence number and every record before it are on
+     * disk, issuing an fsync only if no other thread already covered them
+     * @param sequence sequence number returned by {@link #append(String)}
+     */
+    public void sync(long sequence) {
+        synchronized (syncLock) {
+            if (durable >= sequence) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = written;
+                current = channel;
+            }
+            FileIoEvent event = new FileIoEvent("journalSync", path.toString());
+            event.records = target - durable;
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to sync journal " + path, e);
+            } finally {
+                event.commit();
+            }
+            durable = target;
+            syncCount++;
+        }
+    }
+
+    /**
+     * Moves the records written so far to {@code target} and continues with an empty journal
+     * @param target the file the current records are moved to; must not exist
+     * @throws IOException if the journal cannot be moved or reopened
+     */
+    public void rotate(Path target) throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+                channel = open(path);
+                durable = written;
+            }
+        }
+    }
+
+    /**
+     * @return bytes appended since the journal was opened or last rotated
+     */
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * @return number of fsyncs issued by {@link #sync(long)}
+     */
+    public long getSyncCount() {
+        synchronized (syncLock) {
+            return syncCount;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static byte[] encode(String record) {
+        byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+        String prefix = String.format("%08x ", checksum(payload));
+        return (prefix + record + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the record, or null if the line is not an intact record
+     */
+    private static String decode(byte[] line) {
+        if (line.length <= CRC_LENGTH || line[CRC_LENGTH] != ' ') {
+            return null;
+        }
+        long expected;
+        try {
+            expected = Long.parseLong(new String(line, 0, CRC_LENGTH, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(line, CRC_LENGTH + 1, line.length - CRC_LENGTH - 1);
+        if (crc.getValue() != expected) {
+            return null;
+        }
+        return new String(line, CRC_LENGTH + 1, line.length - CRC_LENGTH - 1, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,89 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A JDBC connection handed out by a {@link ConnectionPool}, together with the prepared
+ * statements compiled on it. Closing it returns the connection to its pool; an unpooled
+ * connection is closed for real.
+ */
+public class PooledConnection implements AutoCloseable {
+    private final Connection connection;
+    private final ConnectionPool pool;
+    private final Map<String, PreparedStatement> statements;
+    private long lastReleased;
+    private LongAdder prepareCounter;
+
+    PooledConnection(Connection connection, ConnectionPool pool) {
+        this.connection = connection;
+        this.pool = pool;
+        this.statements = new HashMap<>();
+    }
+
+    /**
+     * Wraps a connection that is not owned by any pool
+     * @param connection the physical connection
+     * @return a handle which closes the connection when it is closed
+     */
+    public static PooledConnection unpooled(Connection connection) {
+        return new PooledConnection(connection, null);
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns the prepared statement for the given SQL, compiling it only the first time
+     * it is requested on this connection. The caller must not close the returned statement.
+     * @param sql the statement text
+     * @return the cached prepared statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        if (prepareCounter != null) {
+            prepareCounter.increment();
+        }
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * @param counter incremented by every later {@link #prepare(String)}, or null
+     */
+    void countPreparesIn(LongAdder counter) {
+        this.prepareCounter = counter;
+    }
+
+    long getLastReleased() { return lastReleased; }
+    void setLastReleased(long lastReleased) { this.lastReleased = lastReleased; }
+
+    @Override
+    public void close() throws SQLException {
+        if (pool == null) {
+            closePhysically();
+        } else {
+            pool.release(this);
+        }
+    }
+
+    void closePhysically() throws SQLException {
+        try {
+            for (PreparedStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+        } finally {
+            connection.close();
+        }
+    }
+}
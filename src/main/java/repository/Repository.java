@@ -2,14 +2,22 @@ package repository;
 
 import domain.Entity;
 import exceptions.ValidationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * CRUD operations repository interface
- * @param <ID> - type E must have an attribute of type ID
+ * @param <ID> - type E must have an attribute of type ID; ids are ordered for pagination
  * @param <E> - type of entities saved in repository
  */
-public interface Repository<ID, E extends Entity<ID>> {
+public interface Repository<ID extends Comparable<ID>, E extends Entity<ID>> {
     /**
      * @param id -the id of the entity to be returned
      * id must not be null
@@ -18,11 +26,78 @@ public interface Repository<ID, E extends Entity<ID>> {
      */
     Optional<E> findOne(ID id);
 
+    /**
+     * Looks up several entities at once. The default calls {@link #findOne(Comparable)} for
+     * every id; backends with a round trip per lookup override it with a bulk query.
+     * @param ids ids must not be null and must not contain null
+     * @return the entities found, in the order of their first id in {@code ids}; ids without
+     * an entity are skipped
+     * @throws IllegalArgumentException if the given ids or one of them is null.
+     */
+    default List<E> findMany(Collection<ID> ids) {
+        List<E> found = new ArrayList<>();
+        for (ID id : distinctIds(ids)) {
+            findOne(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
     /**
      * @return all entities
      */
     Iterable<E> findAll();
 
+    /**
+     * Streams all entities. Implementations backed by external storage read them lazily and
+     * hold resources until the stream is closed, so use it in a try-with-resources block.
+     * The default streams over {@link #findAll()}.
+     * @return all entities, in no particular order
+     */
+    default Stream<E> streamAll() {
+        return StreamSupport.stream(findAll().spliterator(), false);
+    }
+
+    /**
+     * The default counts the entities of {@link #streamAll()}.
+     * @return number of stored entities
+     */
+    default long count() {
+        try (Stream<E> entities = streamAll()) {
+            return entities.count();
+        }
+    }
+
+    /**
+     * Keyset pagination: a page starts right after the last id of the previous one, so pages
+     * stay stable while entities are added or removed elsewhere. The default selects the page
+     * from {@link #streamAll()}, keeping only {@code limit} entities in memory.
+     * @param afterId id of the last entity of the previous page, or null for the first page
+     * @param limit maximum number of entities in the page, must be positive
+     * @return the entities with ids greater than {@code afterId}, in ascending id order; fewer
+     * than {@code limit} only on the last page
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    default List<E> findPage(ID afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        Comparator<E> byId = Comparator.comparing(Entity::getId);
+        // the largest ids on top, so the head is the one to drop when the page overflows
+        PriorityQueue<E> page = new PriorityQueue<>(byId.reversed());
+        try (Stream<E> entities = streamAll()) {
+            entities.filter(entity -> afterId == null || entity.getId().compareTo(afterId) > 0)
+                    .forEach(entity -> {
+                        page.add(entity);
+                        if (page.size() > limit) {
+                            page.poll();
+                        }
+                    });
+        }
+        List<E> sorted = new ArrayList<>(page);
+        sorted.sort(byId);
+        return sorted;
+    }
+
     /**
      * @param entity entity must be not null
      * @return an {@code Optional} - null if the entity was saved,
@@ -51,4 +126,75 @@ public interface Repository<ID, E extends Entity<ID>> {
      * @throws ValidationException if the entity is not valid.
      */
     Optional<E> update(E entity) throws ValidationException;
-}
\ No newline at end of file
+
+    /**
+     * saves all the given entities. The default checks them for null, then saves them one at
+     * a time, so it is not all-or-nothing: an invalid entity fails the call after the entities
+     * before it were saved. {@link InMemoryUserRepository}, {@link ConcurrentUserRepository},
+     * {@link FileUserRepository} and {@link BinaryUserRepository} validate every entity before
+     * saving any, and {@link DatabaseUserRepository} saves them in one transaction;
+     * {@link CompactUserRepository} keeps the default.
+     * @param entities entities must not be null and must not contain null
+     * @return the entities already stored under the ids of the entities that were not saved
+     * @throws ValidationException if one of the entities is not valid
+     * @throws IllegalArgumentException if the given entities or one of them is null.
+     */
+    default List<E> saveAll(Iterable<E> entities) throws ValidationException {
+        List<E> existing = new ArrayList<>();
+        for (E entity : nonNull(entities, "entities", "entity")) {
+            save(entity).ifPresent(existing::add);
+        }
+        return existing;
+    }
+
+    /**
+     * removes the entities with the specified ids; the default checks the ids for null before
+     * deleting any
+     * @param ids ids must not be null and must not contain null
+     * @return the removed entities; ids without an entity are skipped
+     * @throws IllegalArgumentException if the given ids or one of them is null.
+     */
+    default List<E> deleteAll(Iterable<ID> ids) {
+        List<E> removed = new ArrayList<>();
+        for (ID id : nonNull(ids, "ids", "id")) {
+            delete(id).ifPresent(removed::add);
+        }
+        return removed;
+    }
+
+    /**
+     * @return the elements in a list of their own, read once
+     * @throws IllegalArgumentException if the given elements or one of them is null.
+     */
+    private static <T> List<T> nonNull(Iterable<T> elements, String name, String elementName) {
+        if (elements == null) {
+            throw new IllegalArgumentException(name + " must not be null");
+        }
+        List<T> list = new ArrayList<>();
+        for (T element : elements) {
+            if (element == null) {
+                throw new IllegalArgumentException(elementName + " must not be null");
+            }
+            list.add(element);
+        }
+        return list;
+    }
+
+    /**
+     * @return the ids without duplicates, in order of first occurrence
+     * @throws IllegalArgumentException if the given ids or one of them is null.
+     */
+    static <ID> List<ID> distinctIds(Collection<ID> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids must not be null");
+        }
+        LinkedHashSet<ID> distinct = new LinkedHashSet<>();
+        for (ID id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("id must not be null");
+            }
+            distinct.add(id);
+        }
+        return new ArrayList<>(distinct);
+    }
+}
@@ -0,0 +1,74 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection-level SQLite settings applied to every connection a pooled repository opens.
+ * A {@code null} setting is left at the SQLite default.
+ */
+public class SqliteProfile {
+    private static final SqliteProfile DEFAULTS = new SqliteProfile(null, null, null, null);
+    private static final SqliteProfile PERFORMANCE = new SqliteProfile("WAL", "NORMAL", 256L * 1024 * 1024, 64 * 1024);
+
+    private final String journalMode;
+    private final String synchronous;
+    private final Long mmapSizeBytes;
+    private final Integer cacheSizeKib;
+
+    /**
+     * @param journalMode value for {@code PRAGMA journal_mode}, e.g. WAL
+     * @param synchronous value for {@code PRAGMA synchronous}, e.g. NORMAL
+     * @param mmapSizeBytes value for {@code PRAGMA mmap_size}
+     * @param cacheSizeKib page cache size in KiB, applied as a negative {@code PRAGMA cache_size}
+     */
+    public SqliteProfile(String journalMode, String synchronous, Long mmapSizeBytes, Integer cacheSizeKib) {
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.cacheSizeKib = cacheSizeKib;
+    }
+
+    /**
+     * @return a profile which leaves every setting at the SQLite default
+     */
+    public static SqliteProfile defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @return WAL journal, synchronous=NORMAL, 256 MiB memory map and 64 MiB page cache.
+     * A crash may lose the last committed transactions, but never corrupts the database.
+     */
+    public static SqliteProfile performance() {
+        return PERFORMANCE;
+    }
+
+    public String getJournalMode() { return journalMode; }
+    public String getSynchronous() { return synchronous; }
+    public Long getMmapSizeBytes() { return mmapSizeBytes; }
+    public Integer getCacheSizeKib() { return cacheSizeKib; }
+
+    /**
+     * Applies the settings to a freshly opened connection
+     * @param connection the connection to configure
+     * @throws SQLException if a pragma is rejected
+     */
+    public void apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (journalMode != null) {
+                statement.execute("PRAGMA journal_mode = " + journalMode);
+            }
+            if (synchronous != null) {
+                statement.execute("PRAGMA synchronous = " + synchronous);
+            }
+            if (mmapSizeBytes != null) {
+                statement.execute("PRAGMA mmap_size = " + mmapSizeBytes);
+            }
+            if (cacheSizeKib != null) {
+                statement.execute("PRAGMA cache_size = " + (-cacheSizeKib));
+            }
+        }
+    }
+}
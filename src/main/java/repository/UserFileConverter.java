@@ -0,0 +1,74 @@
+package repository;
+
+import domain.User;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts user files between the CSV format of {@link FileUserRepository} and
+ * {@link BinaryUserFormat}.
+ * <p>
+ * Usage: {@code UserFileConverter to-binary users.txt users.bin} or
+ * {@code UserFileConverter to-csv users.bin users.txt}
+ */
+public final class UserFileConverter {
+    private UserFileConverter() {
+    }
+
+    /**
+     * Lines which cannot be parsed are skipped and reported on standard error. When an id
+     * occurs more than once the last line wins, as when {@link FileUserRepository} loads the file.
+     * @param csv the CSV file to read
+     * @param binary the binary file to write
+     * @return number of users written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int csvToBinary(Path csv, Path binary) throws IOException {
+        CsvUserLoader.Result result = new CsvUserLoader().load(csv);
+        result.getErrors().forEach(error -> System.err.println("Error parsing " + csv + " at " + error));
+        Map<String, User> users = new LinkedHashMap<>();
+        result.getUsers().forEach(user -> users.put(user.getId(), user));
+        BinaryUserFormat.write(binary, users.values());
+        return users.size();
+    }
+
+    /**
+     * The CSV format has no friendships, so they are not converted
+     * @param binary the binary file to read
+     * @param csv the CSV file to write
+     * @return number of users written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int binaryToCsv(Path binary, Path csv) throws IOException {
+        List<User> users = BinaryUserFormat.read(binary);
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            for (User user : users) {
+                writer.write(user.getId());
+                writer.write(',');
+                writer.write(user.getFirstName());
+                writer.write(',');
+                writer.write(user.getLastName());
+                writer.newLine();
+            }
+        }
+        return users.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("to-binary") || args[0].equals("to-csv"))) {
+            System.err.println("Usage: UserFileConverter to-binary|to-csv <source> <target>");
+            System.exit(2);
+        }
+        Path source = Paths.get(args[1]);
+        Path target = Paths.get(args[2]);
+        int count = args[0].equals("to-binary") ? csvToBinary(source, target) : binaryToCsv(source, target);
+        System.out.println("Converted " + count + " users from " + source + " to " + target);
+    }
+}
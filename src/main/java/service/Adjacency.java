@@ -0,0 +1,26 @@
+package service;
+
+/**
+ * Compressed sparse row adjacency of a {@link GraphSnapshot}: the neighbours of vertex
+ * {@code v} are the targets at positions {@code offset(v)..offset(v + 1)}. Written once while
+ * the snapshot is built and only read afterwards.
+ */
+interface Adjacency {
+    int offset(int vertex);
+
+    int target(int position);
+
+    void setOffset(int vertex, int offset);
+
+    void setTarget(int position, int target);
+
+    /**
+     * Sorts the targets at positions {@code from..to} ascending
+     */
+    void sortTargets(int from, int to);
+
+    /**
+     * @return bytes taken by the offsets and targets
+     */
+    long bytes();
+}
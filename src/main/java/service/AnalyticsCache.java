@@ -0,0 +1,57 @@
+package service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Remembers analytics results for one version of the friendship graph. The owner bumps the
+ * version on every write, which drops all results; reads between two writes are answered
+ * from the cache.
+ */
+public class AnalyticsCache {
+    private final Map<List<Object>, Object> results;
+    private long version;
+    private long hits;
+    private long misses;
+
+    public AnalyticsCache() {
+        this.results = new HashMap<>();
+    }
+
+    /**
+     * @param key identifies the computation and its parameters
+     * @param computation computes the result on a miss
+     * @return the cached result for the current graph version, computed if missing
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(List<Object> key, Supplier<T> computation) {
+        Object result = results.get(key);
+        if (result != null) {
+            hits++;
+            return (T) result;
+        }
+        misses++;
+        T computed = computation.get();
+        results.put(key, computed);
+        return computed;
+    }
+
+    /**
+     * Records a change of the graph; every cached result becomes stale
+     */
+    public void invalidate() {
+        version++;
+        results.clear();
+    }
+
+    /**
+     * @return number of writes seen so far
+     */
+    public long getVersion() { return version; }
+
+    public long getHits() { return hits; }
+
+    public long getMisses() { return misses; }
+}
@@ -0,0 +1,59 @@
+package service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one analytics run of {@link SocialNetworkService}, i.e. a cache
+ * miss. The event begins when it is created; {@link #commit()} ends it and records it if the
+ * event is enabled and above its threshold.
+ */
+@Name("socialnetwork.Analytics")
+@Label("Graph Analytics")
+@Category({"Social Network", "Analytics"})
+@Description("A snapshot build or a graph analysis run by the social network service")
+class AnalyticsEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Vertices")
+    @Description("Users in the graph")
+    long vertices;
+
+    @Label("Edges")
+    @Description("Friendships in the graph")
+    long edges;
+
+    @Label("Vertices Visited")
+    @Description("Vertices taken from a traversal queue, counted once per traversal")
+    long verticesVisited;
+
+    @Label("Edges Scanned")
+    @Description("Adjacency entries read; every friendship has one per direction")
+    long edgesScanned;
+
+    @Label("Communities")
+    long communities;
+
+    AnalyticsEvent(String operation, ExecutionMode mode) {
+        this.operation = operation;
+        this.mode = mode == null ? null : mode.name();
+        begin();
+    }
+
+    /**
+     * Records the size of a graph which was traversed once as a whole
+     */
+    void traversed(GraphSnapshot graph) {
+        vertices = graph.getVertexCount();
+        edges = graph.getEdgeCount();
+        verticesVisited = vertices;
+        edgesScanned = 2 * edges;
+    }
+}
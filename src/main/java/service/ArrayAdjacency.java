@@ -0,0 +1,46 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency in two int arrays on the heap
+ */
+final class ArrayAdjacency implements Adjacency {
+    private final int[] offsets;
+    private final int[] targets;
+
+    ArrayAdjacency(int vertices, int entries) {
+        this.offsets = new int[vertices + 1];
+        this.targets = new int[entries];
+    }
+
+    @Override
+    public int offset(int vertex) {
+        return offsets[vertex];
+    }
+
+    @Override
+    public int target(int position) {
+        return targets[position];
+    }
+
+    @Override
+    public void setOffset(int vertex, int offset) {
+        offsets[vertex] = offset;
+    }
+
+    @Override
+    public void setTarget(int position, int target) {
+        targets[position] = target;
+    }
+
+    @Override
+    public void sortTargets(int from, int to) {
+        Arrays.sort(targets, from, to);
+    }
+
+    @Override
+    public long bytes() {
+        return 4L * offsets.length + 4L * targets.length;
+    }
+}
@@ -0,0 +1,94 @@
+package service;
+
+import domain.User;
+import repository.AsyncExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous view of a {@link SocialNetworkService}: every call runs on an
+ * {@link AsyncExecutor} and its result is delivered through a {@link CompletableFuture}.
+ * Validation errors complete the future exceptionally with the
+ * {@link exceptions.ValidationException}.
+ */
+public class AsyncSocialNetworkService {
+    private final SocialNetworkService service;
+    private final AsyncExecutor executor;
+
+    /**
+     * @param service the service to call
+     * @param executor runs the calls and caps how many run at the same time
+     */
+    public AsyncSocialNetworkService(SocialNetworkService service, AsyncExecutor executor) {
+        if (service == null) {
+            throw new IllegalArgumentException("service must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.service = service;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> addUser(User user) {
+        return executor.submit(() -> {
+            service.addUser(user);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeUser(String userId) {
+        return executor.submit(() -> {
+            service.removeUser(userId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> addFriendship(String userId1, String userId2) {
+        return executor.submit(() -> {
+            service.addFriendship(userId1, userId2);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeFriendship(String userId1, String userId2) {
+        return executor.submit(() -> {
+            service.removeFriendship(userId1, userId2);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<User>> getFriends(String userId) {
+        return executor.submit(() -> service.getFriends(userId));
+    }
+
+    /**
+     * @see SocialNetworkService#getUsers(Collection)
+     */
+    public CompletableFuture<List<User>> getUsers(Collection<String> ids) {
+        return executor.submit(() -> service.getUsers(ids));
+    }
+
+    public CompletableFuture<List<User>> getUsers(String afterId, int limit) {
+        return executor.submit(() -> service.getUsers(afterId, limit));
+    }
+
+    public CompletableFuture<Integer> getNumberOfCommunities() {
+        return executor.submit(service::getNumberOfCommunities);
+    }
+
+    public CompletableFuture<List<User>> getMostSociableCommunity() {
+        return executor.submit(service::getMostSociableCommunity);
+    }
+
+    public CompletableFuture<List<FriendSuggestion>> getFriendSuggestions(String userId, int k) {
+        return executor.submit(() -> service.getFriendSuggestions(userId, k));
+    }
+
+    public CompletableFuture<Optional<List<User>>> findShortestPath(String fromId, String toId) {
+        return executor.submit(() -> service.findShortestPath(fromId, toId));
+    }
+}
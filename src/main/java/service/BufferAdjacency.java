@@ -0,0 +1,111 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Adjacency outside the Java heap, in direct or memory-mapped buffers, so the garbage
+ * collector never scans or copies it. A buffer holds at most 2 GiB, so the targets are split
+ * into chunks of 2<sup>28</sup> ints.
+ */
+final class BufferAdjacency implements Adjacency {
+    private static final int CHUNK_SHIFT = 28;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final IntBuffer offsets;
+    private final IntBuffer[] targets;
+    private final long bytes;
+
+    private BufferAdjacency(IntBuffer offsets, IntBuffer[] targets, long bytes) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return adjacency in direct buffers in native byte order, freed when it becomes unreachable
+     */
+    static BufferAdjacency allocateDirect(int vertices, int entries) {
+        IntBuffer offsets = direct(vertices + 1);
+        IntBuffer[] targets = new IntBuffer[chunks(entries)];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = direct(chunkLength(entries, i));
+        }
+        return new BufferAdjacency(offsets, targets, 4L * (vertices + 1) + 4L * entries);
+    }
+
+    /**
+     * Maps the offsets followed by the targets, stored as big-endian ints from {@code position}
+     * @param channel the file; must be large enough for a writable mapping
+     * @param mode {@link FileChannel.MapMode#READ_WRITE} to build, {@link FileChannel.MapMode#READ_ONLY} to read
+     */
+    static BufferAdjacency map(FileChannel channel, FileChannel.MapMode mode, long position,
+                               int vertices, int entries) throws IOException {
+        IntBuffer offsets = channel.map(mode, position, 4L * (vertices + 1)).asIntBuffer();
+        position += 4L * (vertices + 1);
+        IntBuffer[] targets = new IntBuffer[chunks(entries)];
+        for (int i = 0; i < targets.length; i++) {
+            long length = 4L * chunkLength(entries, i);
+            targets[i] = channel.map(mode, position, length).asIntBuffer();
+            position += length;
+        }
+        return new BufferAdjacency(offsets, targets, 4L * (vertices + 1) + 4L * entries);
+    }
+
+    @Override
+    public int offset(int vertex) {
+        return offsets.get(vertex);
+    }
+
+    @Override
+    public int target(int position) {
+        return targets[position >>> CHUNK_SHIFT].get(position & CHUNK_MASK);
+    }
+
+    @Override
+    public void setOffset(int vertex, int offset) {
+        offsets.put(vertex, offset);
+    }
+
+    @Override
+    public void setTarget(int position, int target) {
+        targets[position >>> CHUNK_SHIFT].put(position & CHUNK_MASK, target);
+    }
+
+    /**
+     * Copies the range to the heap, sorts it there and writes it back; ranges are single
+     * vertices' neighbours, so the copy stays small
+     */
+    @Override
+    public void sortTargets(int from, int to) {
+        int[] range = new int[to - from];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = target(from + i);
+        }
+        Arrays.sort(range);
+        for (int i = 0; i < range.length; i++) {
+            setTarget(from + i, range[i]);
+        }
+    }
+
+    @Override
+    public long bytes() {
+        return bytes;
+    }
+
+    private static IntBuffer direct(int ints) {
+        return ByteBuffer.allocateDirect(4 * ints).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static int chunks(int entries) {
+        return (int) ((entries + (long) CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkLength(int entries, int chunk) {
+        return (int) Math.min(1L << CHUNK_SHIFT, entries - ((long) chunk << CHUNK_SHIFT));
+    }
+}
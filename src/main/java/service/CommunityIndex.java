@@ -0,0 +1,283 @@
+package service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Incrementally maintained connected components of the friendship graph, kept in a
+ * union-find structure with path compression and union by rank.
+ * <p>
+ * Adding users and friendships only merges sets. Removing a friendship or a user may split
+ * a component, which union-find cannot express, so the component is marked dirty instead and
+ * rebuilt from the current friendships the next time the count is read. Only the members of
+ * dirty components are visited; the rest of the graph is left untouched.
+ */
+public class CommunityIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Function<String, ? extends Iterable<String>> neighbours;
+    private final Map<String, Integer> slots;
+    private final Deque<Integer> freeSlots;
+    private final Set<Integer> dirtyRoots;
+    private String[] ids;
+    private int[] parent;
+    private int[] rank;
+    // next[i] links the members of a set into a circular list, so a set can be enumerated
+    private int[] next;
+    private int used;
+    private int count;
+
+    /**
+     * @param neighbours returns the ids of the current friends of a user, used when a dirty
+     *                   component is rebuilt
+     */
+    public CommunityIndex(Function<String, ? extends Iterable<String>> neighbours) {
+        this.neighbours = neighbours;
+        this.slots = new HashMap<>();
+        this.freeSlots = new ArrayDeque<>();
+        this.dirtyRoots = new HashSet<>();
+        this.ids = new String[INITIAL_CAPACITY];
+        this.parent = new int[INITIAL_CAPACITY];
+        this.rank = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a user as a community of its own; does nothing if the user is already known
+     * @param id the user id
+     */
+    public void addUser(String id) {
+        if (slots.containsKey(id)) {
+            return;
+        }
+        int created = freeSlots.isEmpty() ? used++ : freeSlots.pop();
+        if (created == ids.length) {
+            grow();
+        }
+        ids[created] = id;
+        parent[created] = created;
+        rank[created] = 0;
+        next[created] = created;
+        slots.put(id, created);
+        count++;
+    }
+
+    /**
+     * Adds users which are not known yet as a single community, e.g. a connected component
+     * found by a full traversal
+     * @param members ids of the users of the community
+     * @throws IllegalArgumentException if one of the users is already known
+     */
+    public void addCommunity(List<String> members) {
+        int[] created = new int[members.size()];
+        for (int i = 0; i < created.length; i++) {
+            String id = members.get(i);
+            if (slots.containsKey(id)) {
+                throw new IllegalArgumentException("User " + id + " already belongs to a community");
+            }
+            addUser(id);
+            created[i] = slots.get(id);
+        }
+        if (created.length > 0) {
+            count -= created.length;
+            link(created);
+        }
+    }
+
+    /**
+     * Merges the communities of two friends; ignored if one of the users is unknown
+     * @param id1 first user id
+     * @param id2 second user id
+     */
+    public void addFriendship(String id1, String id2) {
+        Integer slot1 = slots.get(id1);
+        Integer slot2 = slots.get(id2);
+        if (slot1 == null || slot2 == null) {
+            return;
+        }
+        int root1 = find(slot1);
+        int root2 = find(slot2);
+        if (root1 == root2) {
+            return;
+        }
+        boolean dirty = dirtyRoots.remove(root1) | dirtyRoots.remove(root2);
+        int root = union(root1, root2);
+        if (dirty) {
+            dirtyRoots.add(root);
+        }
+    }
+
+    /**
+     * Records that a friendship is gone; the community it belonged to is rebuilt lazily
+     * @param id1 first user id
+     * @param id2 second user id
+     */
+    public void removeFriendship(String id1, String id2) {
+        Integer slot1 = slots.get(id1);
+        Integer slot2 = slots.get(id2);
+        if (slot1 == null || slot2 == null) {
+            return;
+        }
+        int root = find(slot1);
+        if (root == find(slot2)) {
+            dirtyRoots.add(root);
+        }
+    }
+
+    /**
+     * Removes a user; the community it belonged to is rebuilt lazily without it
+     * @param id the user id
+     */
+    public void removeUser(String id) {
+        Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        ids[slot] = null;
+        dirtyRoots.add(find(slot));
+    }
+
+    /**
+     * @return the number of communities, after rebuilding the dirty ones
+     */
+    public int getCount() {
+        if (!dirtyRoots.isEmpty()) {
+            rebuildDirty();
+        }
+        return count;
+    }
+
+    /**
+     * @param id1 first user id
+     * @param id2 second user id
+     * @return true if both users are known and belong to the same community
+     */
+    public boolean sameCommunity(String id1, String id2) {
+        Integer slot1 = slots.get(id1);
+        Integer slot2 = slots.get(id2);
+        if (slot1 == null || slot2 == null) {
+            return false;
+        }
+        if (!dirtyRoots.isEmpty()) {
+            rebuildDirty();
+        }
+        return find(slot1) == find(slot2);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        rank = Arrays.copyOf(rank, capacity);
+        next = Arrays.copyOf(next, capacity);
+    }
+
+    private int find(int slot) {
+        int root = slot;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[slot] != root) {
+            int up = parent[slot];
+            parent[slot] = root;
+            slot = up;
+        }
+        return root;
+    }
+
+    private int union(int root1, int root2) {
+        if (rank[root1] < rank[root2]) {
+            int swap = root1;
+            root1 = root2;
+            root2 = swap;
+        }
+        parent[root2] = root1;
+        if (rank[root1] == rank[root2]) {
+            rank[root1]++;
+        }
+        int swap = next[root1];
+        next[root1] = next[root2];
+        next[root2] = swap;
+        count--;
+        return root1;
+    }
+
+    private void rebuildDirty() {
+        List<Integer> roots = new ArrayList<>(dirtyRoots);
+        dirtyRoots.clear();
+        for (int root : roots) {
+            rebuild(root);
+        }
+    }
+
+    private void rebuild(int root) {
+        List<Integer> members = new ArrayList<>();
+        int member = root;
+        do {
+            members.add(member);
+            member = next[member];
+        } while (member != root);
+        count--;
+
+        List<Integer> live = new ArrayList<>();
+        Map<String, Integer> local = new HashMap<>();
+        for (int slot : members) {
+            if (ids[slot] == null) {
+                freeSlots.push(slot);
+            } else {
+                local.put(ids[slot], live.size());
+                live.add(slot);
+            }
+        }
+
+        String[] localIds = new String[live.size()];
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < localIds.length; i++) {
+            localIds[i] = ids[live.get(i)];
+            for (String friendId : neighbours.apply(localIds[i])) {
+                Integer friend = local.get(friendId);
+                // each friendship is listed by both users; keep it once
+                if (friend != null && friend > i) {
+                    edges.add(new int[]{i, friend});
+                }
+            }
+        }
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = edges.get(i)[0];
+            to[i] = edges.get(i)[1];
+        }
+
+        for (int[] component : GraphTraversal.components(GraphSnapshot.fromEdges(localIds, from, to))) {
+            int[] componentSlots = new int[component.length];
+            for (int i = 0; i < component.length; i++) {
+                componentSlots[i] = live.get(component[i]);
+            }
+            link(componentSlots);
+        }
+    }
+
+    /**
+     * Makes the given slots one set: the first slot becomes the root of a star and all
+     * slots are chained into the set's circular member list
+     */
+    private void link(int[] members) {
+        int root = members[0];
+        for (int i = 0; i < members.length; i++) {
+            parent[members[i]] = root;
+            rank[members[i]] = 0;
+            next[members[i]] = members[(i + 1) % members.length];
+        }
+        rank[root] = members.length > 1 ? 1 : 0;
+        count++;
+    }
+}
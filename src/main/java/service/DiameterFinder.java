@@ -0,0 +1,196 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Finds the longest shortest path (the diameter) of the components of a {@link GraphSnapshot}.
+ * <p>
+ * Components up to a size threshold are solved exactly with a breadth-first search from every
+ * member. Larger ones start with a double sweep, which gives a lower bound and a central vertex,
+ * and then run iFUB: the eccentricities of the vertices farthest from the centre are computed
+ * level by level until the lower bound exceeds what the remaining levels could still reach.
+ * If the deadline passes first, the best path found so far is returned together with an upper
+ * bound on the diameter.
+ */
+public class DiameterFinder {
+    private final GraphSnapshot graph;
+    private final int[] distance;
+    private final int[] parent;
+    private final int[] queue;
+    private long verticesVisited;
+    private long edgesScanned;
+
+    /**
+     * @param graph the graph whose components are measured
+     */
+    public DiameterFinder(GraphSnapshot graph) {
+        this.graph = graph;
+        int vertices = graph.getVertexCount();
+        this.distance = new int[vertices];
+        this.parent = new int[vertices];
+        this.queue = new int[vertices];
+        Arrays.fill(distance, -1);
+    }
+
+    /**
+     * @param component the vertices of one connected component
+     * @param exactThreshold components with at most this many vertices are solved by brute force
+     * @param deadlineNanos {@link System#nanoTime()} value after which iFUB stops refining
+     * @return the longest shortest path found and the bounds on the diameter
+     */
+    public Diameter find(int[] component, int exactThreshold, long deadlineNanos) {
+        if (component.length <= exactThreshold) {
+            return bruteForce(component);
+        }
+        return iFub(component, deadlineNanos);
+    }
+
+    private Diameter bruteForce(int[] component) {
+        int[] best = {component[0]};
+        for (int source : component) {
+            int farthest = bfs(source);
+            if (distance[farthest] > best.length - 1) {
+                best = path(farthest);
+            }
+            reset(component.length);
+        }
+        return new Diameter(best, best.length - 1, true);
+    }
+
+    private Diameter iFub(int[] component, long deadlineNanos) {
+        int start = component[0];
+        for (int vertex : component) {
+            if (graph.getDegree(vertex) > graph.getDegree(start)) {
+                start = vertex;
+            }
+        }
+
+        // double sweep: the farthest vertex from the farthest vertex gives a long path
+        int first = bfs(start);
+        reset(component.length);
+        int second = bfs(first);
+        int[] best = path(second);
+        reset(component.length);
+
+        // BFS levels around the middle of that path bound every eccentricity
+        int centre = best[best.length / 2];
+        bfs(centre);
+        int eccentricity = distance[queue[component.length - 1]];
+        int[] byLevel = new int[component.length];
+        int[] levelStart = new int[eccentricity + 2];
+        for (int i = 0; i < component.length; i++) {
+            levelStart[distance[queue[i]] + 1]++;
+        }
+        for (int level = 0; level <= eccentricity; level++) {
+            levelStart[level + 1] += levelStart[level];
+        }
+        System.arraycopy(queue, 0, byLevel, 0, component.length);
+        reset(component.length);
+
+        int lower = best.length - 1;
+        int upper = 2 * eccentricity;
+        for (int level = eccentricity; level > 0 && lower < upper; level--) {
+            for (int i = levelStart[level]; i < levelStart[level + 1]; i++) {
+                if (System.nanoTime() > deadlineNanos) {
+                    return new Diameter(best, upper, false);
+                }
+                int farthest = bfs(byLevel[i]);
+                if (distance[farthest] > lower) {
+                    best = path(farthest);
+                    lower = best.length - 1;
+                }
+                reset(component.length);
+            }
+            upper = Math.max(lower, 2 * (level - 1));
+        }
+        return new Diameter(best, lower, lower == upper);
+    }
+
+    /**
+     * @return the last vertex reached, one of the farthest from the source
+     */
+    private int bfs(int source) {
+        Adjacency adjacency = graph.adjacency();
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        parent[source] = -1;
+        queue[tail++] = source;
+        while (head < tail) {
+            int vertex = queue[head++];
+            int first = adjacency.offset(vertex);
+            int end = adjacency.offset(vertex + 1);
+            edgesScanned += end - first;
+            for (int edge = first; edge < end; edge++) {
+                int neighbour = adjacency.target(edge);
+                if (distance[neighbour] < 0) {
+                    distance[neighbour] = distance[vertex] + 1;
+                    parent[neighbour] = vertex;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        verticesVisited += tail;
+        return queue[tail - 1];
+    }
+
+    /**
+     * @return vertices dequeued by all searches of this finder so far
+     */
+    public long getVerticesVisited() {
+        return verticesVisited;
+    }
+
+    /**
+     * @return adjacency entries read by all searches of this finder so far
+     */
+    public long getEdgesScanned() {
+        return edgesScanned;
+    }
+
+    private int[] path(int end) {
+        int[] path = new int[distance[end] + 1];
+        for (int vertex = end, i = 0; vertex >= 0; vertex = parent[vertex], i++) {
+            path[i] = vertex;
+        }
+        return path;
+    }
+
+    private void reset(int visited) {
+        for (int i = 0; i < visited; i++) {
+            distance[queue[i]] = -1;
+        }
+    }
+
+    /**
+     * The longest shortest path found in a component, with an upper bound on its diameter
+     */
+    public static final class Diameter {
+        private final int[] path;
+        private final int upperBound;
+        private final boolean exact;
+
+        Diameter(int[] path, int upperBound, boolean exact) {
+            this.path = path;
+            this.upperBound = upperBound;
+            this.exact = exact;
+        }
+
+        /**
+         * @return the vertices of the path, from one end to the other
+         */
+        public int[] getPath() { return path.clone(); }
+
+        /**
+         * @return number of friendships on the path, a lower bound on the diameter
+         */
+        public int getLength() { return path.length - 1; }
+
+        public int getUpperBound() { return upperBound; }
+
+        /**
+         * @return true if the path is known to be the longest shortest path of the component
+         */
+        public boolean isExact() { return exact; }
+    }
+}
@@ -0,0 +1,16 @@
+package service;
+
+/**
+ * How the graph analytics of {@link SocialNetworkService} are computed
+ */
+public enum ExecutionMode {
+    /**
+     * On the calling thread
+     */
+    SEQUENTIAL,
+
+    /**
+     * On a {@link java.util.concurrent.ForkJoinPool}, splitting the vertices between its workers
+     */
+    PARALLEL
+}
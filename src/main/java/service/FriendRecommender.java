@@ -0,0 +1,276 @@
+package service;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ranks the non-friends of a vertex of a {@link GraphSnapshot} by the number of friends they
+ * share with it, for "people you may know" suggestions.
+ * <p>
+ * The candidates of a vertex are its friends of friends. The finder walks the sorted neighbour
+ * lists of the friends and counts every candidate in a dense array, so a candidate reached
+ * through m friends ends with m, the size of the intersection of the two neighbour lists.
+ * Friends and the vertex itself are recognised by a stamp array instead of a lookup, and only
+ * the counters which were touched are cleared afterwards, so a query costs the sum of the
+ * degrees of the friends rather than the size of the graph. The best k candidates are kept in a
+ * bounded heap: more mutual friends first, ties going to the smaller id.
+ * <p>
+ * A recommender reuses its arrays between queries and is not thread-safe;
+ * {@link #recommendAll(GraphSnapshot, int, ForkJoinPool)} gives every worker one of its own.
+ */
+public class FriendRecommender {
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private final GraphSnapshot graph;
+    private final int[] mutual;
+    private final int[] stamps;
+    private final int[] touched;
+    private int stamp;
+    private long edgesScanned;
+
+    /**
+     * @param graph the graph whose vertices are ranked
+     */
+    public FriendRecommender(GraphSnapshot graph) {
+        this.graph = graph;
+        int vertices = graph.getVertexCount();
+        this.mutual = new int[vertices];
+        this.stamps = new int[vertices];
+        this.touched = new int[vertices];
+    }
+
+    /**
+     * @param vertex the vertex to find friends for
+     * @param k maximum number of candidates returned
+     * @return the best candidates, at most k, best first
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public Ranking recommend(int vertex, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        Adjacency adjacency = graph.adjacency();
+        // a fresh stamp marks the vertex and its friends without clearing the previous marks
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        int first = adjacency.offset(vertex);
+        int end = adjacency.offset(vertex + 1);
+        stamps[vertex] = stamp;
+        for (int edge = first; edge < end; edge++) {
+            stamps[adjacency.target(edge)] = stamp;
+        }
+        edgesScanned += end - first;
+
+        int candidates = 0;
+        for (int edge = first; edge < end; edge++) {
+            int friend = adjacency.target(edge);
+            int friendFirst = adjacency.offset(friend);
+            int friendEnd = adjacency.offset(friend + 1);
+            edgesScanned += friendEnd - friendFirst;
+            for (int friendEdge = friendFirst; friendEdge < friendEnd; friendEdge++) {
+                int candidate = adjacency.target(friendEdge);
+                if (stamps[candidate] != stamp && mutual[candidate]++ == 0) {
+                    touched[candidates++] = candidate;
+                }
+            }
+        }
+
+        Ranking ranking = top(candidates, Math.min(k, candidates));
+        for (int i = 0; i < candidates; i++) {
+            mutual[touched[i]] = 0;
+        }
+        return ranking;
+    }
+
+    /**
+     * Selects the best {@code size} touched candidates with a heap whose root is the worst
+     * one kept, then empties the heap from the back into best-first order
+     */
+    private Ranking top(int candidates, int size) {
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int i = 0; i < candidates; i++) {
+            int candidate = touched[i];
+            if (heapSize < size) {
+                heap[heapSize] = candidate;
+                siftUp(heap, heapSize++);
+            } else if (better(candidate, heap[0])) {
+                heap[0] = candidate;
+                siftDown(heap, heapSize);
+            }
+        }
+        int[] vertices = new int[size];
+        int[] counts = new int[size];
+        while (heapSize > 0) {
+            int worst = heap[0];
+            vertices[--heapSize] = worst;
+            counts[heapSize] = mutual[worst];
+            heap[0] = heap[heapSize];
+            siftDown(heap, heapSize);
+        }
+        return new Ranking(vertices, counts);
+    }
+
+    private boolean better(int candidate, int other) {
+        if (mutual[candidate] != mutual[other]) {
+            return mutual[candidate] > mutual[other];
+        }
+        return graph.getId(candidate).compareTo(graph.getId(other)) < 0;
+    }
+
+    private void siftUp(int[] heap, int position) {
+        int candidate = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!better(heap[parent], candidate)) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = candidate;
+    }
+
+    private void siftDown(int[] heap, int size) {
+        if (size == 0) {
+            return;
+        }
+        int candidate = heap[0];
+        int position = 0;
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && better(heap[child], heap[child + 1])) {
+                child++;
+            }
+            if (!better(candidate, heap[child])) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = candidate;
+    }
+
+    /**
+     * @return adjacency entries read by all queries of this recommender so far
+     */
+    public long getEdgesScanned() {
+        return edgesScanned;
+    }
+
+    /**
+     * @param graph the graph whose vertices are ranked
+     * @param k maximum number of candidates per vertex
+     * @return the ranking of every vertex, indexed by vertex
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public static Ranking[] recommendAll(GraphSnapshot graph, int k) {
+        FriendRecommender recommender = new FriendRecommender(graph);
+        Ranking[] rankings = new Ranking[graph.getVertexCount()];
+        for (int vertex = 0; vertex < rankings.length; vertex++) {
+            rankings[vertex] = recommender.recommend(vertex, k);
+        }
+        return rankings;
+    }
+
+    /**
+     * Ranks disjoint vertex ranges on the workers of the pool. Recommenders are handed from
+     * one range to the next, so the pool allocates about one per worker.
+     * @param graph the graph whose vertices are ranked
+     * @param k maximum number of candidates per vertex
+     * @param pool the pool running the computation
+     * @return the ranking of every vertex, indexed by vertex; the same as the sequential one
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public static Ranking[] recommendAll(GraphSnapshot graph, int k, ForkJoinPool pool) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        Ranking[] rankings = new Ranking[graph.getVertexCount()];
+        pool.invoke(new RankRange(graph, k, rankings, new ConcurrentLinkedQueue<>(), 0, rankings.length));
+        return rankings;
+    }
+
+    /**
+     * @return adjacency entries read by ranking every vertex of the graph: each vertex reads
+     * its own list and the lists of its friends, so every list is read once by its owner and
+     * once per friend
+     */
+    static long edgesScannedByAll(GraphSnapshot graph) {
+        long scanned = 0;
+        for (int vertex = 0; vertex < graph.getVertexCount(); vertex++) {
+            long degree = graph.getDegree(vertex);
+            scanned += degree + degree * degree;
+        }
+        return scanned;
+    }
+
+    private static final class RankRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GraphSnapshot graph;
+        private final int k;
+        private final Ranking[] rankings;
+        private final Queue<FriendRecommender> idle;
+        private final int from;
+        private final int to;
+
+        RankRange(GraphSnapshot graph, int k, Ranking[] rankings, Queue<FriendRecommender> idle, int from, int to) {
+            this.graph = graph;
+            this.k = k;
+            this.rankings = rankings;
+            this.idle = idle;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                FriendRecommender recommender = idle.poll();
+                if (recommender == null) {
+                    recommender = new FriendRecommender(graph);
+                }
+                for (int vertex = from; vertex < to; vertex++) {
+                    rankings[vertex] = recommender.recommend(vertex, k);
+                }
+                idle.add(recommender);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RankRange(graph, k, rankings, idle, from, middle),
+                    new RankRange(graph, k, rankings, idle, middle, to));
+        }
+    }
+
+    /**
+     * The candidates of one vertex, best first
+     */
+    public static final class Ranking {
+        private final int[] vertices;
+        private final int[] mutualFriends;
+
+        Ranking(int[] vertices, int[] mutualFriends) {
+            this.vertices = vertices;
+            this.mutualFriends = mutualFriends;
+        }
+
+        public int size() { return vertices.length; }
+
+        /**
+         * @param rank position in the ranking, 0 for the best candidate
+         */
+        public int getVertex(int rank) { return vertices[rank]; }
+
+        /**
+         * @param rank position in the ranking, 0 for the best candidate
+         * @return number of friends the candidate shares with the ranked vertex
+         */
+        public int getMutualFriends(int rank) { return mutualFriends[rank]; }
+    }
+}
@@ -0,0 +1,25 @@
+package service;
+
+import domain.User;
+
+/**
+ * A user suggested as a friend, with the number of friends they already share
+ */
+public class FriendSuggestion {
+    private final User user;
+    private final int mutualFriends;
+
+    public FriendSuggestion(User user, int mutualFriends) {
+        this.user = user;
+        this.mutualFriends = mutualFriends;
+    }
+
+    public User getUser() { return user; }
+
+    public int getMutualFriends() { return mutualFriends; }
+
+    @Override
+    public String toString() {
+        return user + " (" + mutualFriends + " mutual friends)";
+    }
+}
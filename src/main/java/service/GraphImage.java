@@ -0,0 +1,249 @@
+package service;
+
+import domain.Friendship;
+import domain.User;
+import repository.FriendshipRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * File image of a {@link GraphSnapshot} whose adjacency is memory-mapped. All numbers are
+ * big-endian.
+ * <pre>
+ * magic            4 bytes "SNGI"
+ * version          u16, currently 3
+ * padding          2 bytes
+ * vertex count     i32
+ * target count     i32
+ * friendships      i64 friendships in the repository the image was built from
+ * fingerprint      i64 sum of the hashes of the edges, see {@link #fingerprint(GraphSnapshot)}
+ * offsets          vertex count + 1 i32
+ * targets          target count i32
+ * ids              one per vertex, as written by {@link DataOutputStream#writeUTF(String)}
+ * </pre>
+ * The image is built in a temporary file and moved over the old one once complete, so a
+ * crash never leaves a half-written image behind.
+ */
+final class GraphImage {
+    static final int VERSION = 3;
+
+    private static final byte[] MAGIC = {'S', 'N', 'G', 'I'};
+    private static final int FINGERPRINT_OFFSET = 24;
+    private static final int HEADER_SIZE = 32;
+
+    private GraphImage() {
+    }
+
+    /**
+     * Maps an image written by {@link Writer}. The number of friendships is checked first; the
+     * fingerprint then takes one pass over them, which catches a friendship replaced by another
+     * as well.
+     * @param friendships the friendships the image should hold
+     * @return the snapshot, without {@link User} objects
+     * @throws IOException if the file cannot be read or is not a complete image
+     * @throws StaleImageException if the image was built from other friendships
+     */
+    static GraphSnapshot read(Path file, FriendshipRepository friendships) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException(file + " is not a graph image");
+                }
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a graph image");
+            }
+            int version = header.getShort() & 0xffff;
+            if (version != VERSION) {
+                throw new IOException("Unsupported graph image version " + version + " in " + file);
+            }
+            header.getShort();
+            int vertices = header.getInt();
+            int entries = header.getInt();
+            long builtFrom = header.getLong();
+            long count = friendships.count();
+            if (builtFrom != count) {
+                throw new StaleImageException("Stale graph image " + file + ": built from " + builtFrom
+                        + " friendships, the repository holds " + count);
+            }
+            long fingerprint = header.getLong();
+            long idsStart = HEADER_SIZE + 4L * (vertices + 1) + 4L * entries;
+            if (vertices < 0 || entries < 0 || idsStart > channel.size()) {
+                throw new IOException("Corrupt graph image " + file + ": truncated adjacency");
+            }
+
+            Adjacency adjacency = BufferAdjacency.map(channel, FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE, vertices, entries);
+            String[] ids = new String[vertices];
+            channel.position(idsStart);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            for (int i = 0; i < vertices; i++) {
+                ids[i] = in.readUTF();
+            }
+            GraphSnapshot graph = new GraphSnapshot(ids, new User[vertices], adjacency);
+            if (fingerprint(graph, friendships) != fingerprint) {
+                throw new StaleImageException("Stale graph image " + file + ": its friendships differ from the repository");
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * The fingerprint does not depend on the order of the vertices or of the edges, so an
+     * image can be checked against a repository in whatever order it lists its friendships
+     * @return the sum of the hashes of the edges of the graph
+     */
+    static long fingerprint(GraphSnapshot graph) {
+        Adjacency adjacency = graph.adjacency();
+        long fingerprint = 0;
+        for (int vertex = 0; vertex < graph.getVertexCount(); vertex++) {
+            for (int edge = adjacency.offset(vertex); edge < adjacency.offset(vertex + 1); edge++) {
+                int target = adjacency.target(edge);
+                if (vertex < target) {
+                    fingerprint += edgeHash(graph.getId(vertex), graph.getId(target));
+                }
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return the fingerprint the graph would have if it held exactly the friendships between
+     * its vertices
+     */
+    static long fingerprint(GraphSnapshot graph, FriendshipRepository friendships) {
+        long fingerprint = 0;
+        for (Friendship friendship : friendships.findAll()) {
+            String id1 = friendship.getUserId1();
+            String id2 = friendship.getUserId2();
+            if (!id1.equals(id2) && graph.indexOf(id1) >= 0 && graph.indexOf(id2) >= 0) {
+                fingerprint += edgeHash(id1, id2);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return a hash of the unordered pair, spread over all 64 bits by the finalizer of
+     * SplitMix64 so that sums of different edge sets rarely collide
+     */
+    private static long edgeHash(String id1, String id2) {
+        if (id1.compareTo(id2) > 0) {
+            String swap = id1;
+            id1 = id2;
+            id2 = swap;
+        }
+        long hash = ((long) id1.hashCode() << 32) ^ (id2.hashCode() & 0xffffffffL);
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Writes one image: the snapshot is built with {@link #allocate(int, int)} as its
+     * allocator, so the adjacency goes straight to the mapped file, then {@link #finish}
+     * adds the ids and puts the file in place
+     */
+    static final class Writer implements GraphSnapshot.Allocator {
+        private final Path file;
+        private final Path temporary;
+        private final long friendships;
+        private FileChannel channel;
+        private long idsStart;
+
+        /**
+         * @param friendships number of friendships in the repository the snapshot is built from
+         */
+        Writer(Path file, long friendships) {
+            this.file = file;
+            this.temporary = Paths.get(file + ".tmp");
+            this.friendships = friendships;
+        }
+
+        @Override
+        public Adjacency allocate(int vertices, int entries) {
+            try {
+                channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                // the fingerprint is filled in by finish, once the edges are known
+                header.put(MAGIC).putShort((short) VERSION).putShort((short) 0).putInt(vertices).putInt(entries)
+                        .putLong(friendships).putLong(0);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                idsStart = HEADER_SIZE + 4L * (vertices + 1) + 4L * entries;
+                return BufferAdjacency.map(channel, FileChannel.MapMode.READ_WRITE, HEADER_SIZE, vertices, entries);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to create graph image " + file, e);
+            }
+        }
+
+        /**
+         * Appends the ids of the built snapshot, fills in its fingerprint, syncs the file and
+         * moves it into place
+         */
+        void finish(GraphSnapshot graph) throws IOException {
+            try {
+                ByteBuffer fingerprint = ByteBuffer.allocate(Long.BYTES).putLong(fingerprint(graph));
+                fingerprint.flip();
+                while (fingerprint.hasRemaining()) {
+                    channel.write(fingerprint, FINGERPRINT_OFFSET + fingerprint.position());
+                }
+                channel.position(idsStart);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                for (int i = 0; i < graph.getVertexCount(); i++) {
+                    out.writeUTF(graph.getId(i));
+                }
+                out.flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /**
+         * Drops the temporary file of an image which could not be finished
+         */
+        void abort() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * An intact image which no longer matches the repositories
+     */
+    static final class StaleImageException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StaleImageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package service;
+
+import domain.User;
+import repository.FriendshipRepository;
+import repository.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable, compact copy of the friendship graph for analytics. Users are numbered
+ * {@code 0..n-1} and the adjacency is stored in compressed sparse row form: the neighbours of
+ * vertex {@code v} are {@code targets[offsets[v]..offsets[v + 1])}, sorted ascending. Every
+ * friendship is stored once in each direction, so an edge costs two ints. Where the adjacency
+ * lives, on the heap, in direct memory or in a mapped file, is chosen by a {@link GraphStorage}.
+ */
+public final class GraphSnapshot {
+    private final String[] ids;
+    private final User[] users;
+    private final Map<String, Integer> indices;
+    private final Adjacency adjacency;
+
+    GraphSnapshot(String[] ids, User[] users, Adjacency adjacency) {
+        this.ids = ids;
+        this.users = users;
+        this.indices = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            indices.put(ids[i], i);
+        }
+        this.adjacency = adjacency;
+    }
+
+    /**
+     * Allocates the adjacency of a snapshot being built
+     */
+    interface Allocator {
+        Adjacency allocate(int vertices, int entries);
+    }
+
+    /**
+     * @param repository the repository to copy
+     * @return a snapshot of all users in the repository and their friendships
+     */
+    public static GraphSnapshot of(Repository<String, User> repository) {
+        return of(repository.findAll());
+    }
+
+    /**
+     * Friends which are not among the given users are dropped
+     * @param users the users to copy
+     * @return a snapshot of the users and the friendships between them
+     */
+    public static GraphSnapshot of(Iterable<User> users) {
+        return build(users, user -> {
+            List<String> friendIds = new ArrayList<>(user.getFriends().size());
+            for (User friend : user.getFriends()) {
+                friendIds.add(friend.getId());
+            }
+            return friendIds;
+        });
+    }
+
+    /**
+     * Friends which are not among the given users are dropped
+     * @param users the users to copy
+     * @param friendships the friendships between the users
+     * @return a snapshot of the users and the friendships between them
+     */
+    public static GraphSnapshot of(Iterable<User> users, FriendshipRepository friendships) {
+        return GraphStorage.heap().snapshot(users, friendships);
+    }
+
+    static GraphSnapshot build(Iterable<User> users, FriendshipRepository friendships, Allocator allocator) {
+        // copied, since the ids are iterated twice and a concurrent repository may change in between
+        return build(users, user -> new ArrayList<>(friendships.findFriendIds(user.getId())), allocator);
+    }
+
+    private static GraphSnapshot build(Iterable<User> users, Function<User, Collection<String>> friendIds) {
+        return build(users, friendIds, ArrayAdjacency::new);
+    }
+
+    private static GraphSnapshot build(Iterable<User> users, Function<User, Collection<String>> friendIds,
+                                       Allocator allocator) {
+        List<User> list = new ArrayList<>();
+        users.forEach(list::add);
+
+        String[] ids = new String[list.size()];
+        Map<String, Integer> indices = new HashMap<>(list.size() * 2);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = list.get(i).getId();
+            indices.put(ids[i], i);
+        }
+
+        int[] offsets = new int[ids.length + 1];
+        List<Collection<String>> friends = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Collection<String> friendsOfUser = friendIds.apply(list.get(i));
+            friends.add(friendsOfUser);
+            int degree = 0;
+            for (String friendId : friendsOfUser) {
+                if (indices.containsKey(friendId)) {
+                    degree++;
+                }
+            }
+            if ((long) offsets[i] + degree > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("graph has more than " + Integer.MAX_VALUE / 2 + " friendships");
+            }
+            offsets[i + 1] = offsets[i] + degree;
+        }
+
+        Adjacency adjacency = allocator.allocate(ids.length, offsets[ids.length]);
+        for (int i = 0; i <= ids.length; i++) {
+            adjacency.setOffset(i, offsets[i]);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            int position = offsets[i];
+            for (String friendId : friends.get(i)) {
+                Integer friendIndex = indices.get(friendId);
+                if (friendIndex != null) {
+                    adjacency.setTarget(position++, friendIndex);
+                }
+            }
+            adjacency.sortTargets(offsets[i], offsets[i + 1]);
+        }
+        return new GraphSnapshot(ids, list.toArray(new User[0]), adjacency);
+    }
+
+    /**
+     * Builds a snapshot without {@link User} objects from an undirected edge list
+     * @param ids id of every vertex
+     * @param from first endpoint of every edge
+     * @param to second endpoint of every edge
+     * @return a snapshot whose {@link #getUser(int)} returns null
+     * @throws IllegalArgumentException if the endpoint arrays differ in length
+     */
+    public static GraphSnapshot fromEdges(String[] ids, int[] from, int[] to) {
+        if (from.length != to.length) {
+            throw new IllegalArgumentException("every edge needs two endpoints");
+        }
+        int[] offsets = new int[ids.length + 1];
+        for (int i = 0; i < from.length; i++) {
+            offsets[from[i] + 1]++;
+            offsets[to[i] + 1]++;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        Adjacency adjacency = new ArrayAdjacency(ids.length, offsets[ids.length]);
+        for (int i = 0; i <= ids.length; i++) {
+            adjacency.setOffset(i, offsets[i]);
+        }
+        int[] position = Arrays.copyOf(offsets, ids.length);
+        for (int i = 0; i < from.length; i++) {
+            adjacency.setTarget(position[from[i]]++, to[i]);
+            adjacency.setTarget(position[to[i]]++, from[i]);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            adjacency.sortTargets(offsets[i], offsets[i + 1]);
+        }
+        return new GraphSnapshot(ids.clone(), new User[ids.length], adjacency);
+    }
+
+    public int getVertexCount() {
+        return ids.length;
+    }
+
+    /**
+     * @return number of friendships, each counted once
+     */
+    public long getEdgeCount() {
+        return adjacency.offset(ids.length) / 2;
+    }
+
+    /**
+     * @param id a user id
+     * @return the vertex of the user, or -1 if the user is not in the snapshot
+     */
+    public int indexOf(String id) {
+        Integer index = indices.get(id);
+        return index == null ? -1 : index;
+    }
+
+    public String getId(int vertex) {
+        return ids[vertex];
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the user the vertex was built from, or null for snapshots built from edges or
+     * restored from a {@link GraphStorage#mapped mapped image}
+     */
+    public User getUser(int vertex) {
+        return users[vertex];
+    }
+
+    public int getDegree(int vertex) {
+        return adjacency.offset(vertex + 1) - adjacency.offset(vertex);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return a copy of the sorted neighbours of the vertex
+     */
+    public int[] getNeighbours(int vertex) {
+        int from = adjacency.offset(vertex);
+        int[] neighbours = new int[adjacency.offset(vertex + 1) - from];
+        for (int i = 0; i < neighbours.length; i++) {
+            neighbours[i] = adjacency.target(from + i);
+        }
+        return neighbours;
+    }
+
+    /**
+     * @return bytes taken by the adjacency arrays
+     */
+    public long getAdjacencyBytes() {
+        return adjacency.bytes();
+    }
+
+    Adjacency adjacency() {
+        return adjacency;
+    }
+}
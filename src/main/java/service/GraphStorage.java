@@ -0,0 +1,153 @@
+package service;
+
+import domain.User;
+import repository.FriendshipRepository;
+import repository.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Where the adjacency of the {@link GraphSnapshot}s built for analytics is kept.
+ * <p>
+ * On the heap it is two int arrays. Off the heap, in direct buffers or in a memory-mapped
+ * file, it is invisible to the garbage collector, which keeps pauses short for graphs with
+ * hundreds of millions of friendships; the ids and {@link User}s of the vertices stay on the
+ * heap either way. A mapped image also survives a restart:
+ * {@link #restore(Repository, FriendshipRepository)} maps the image left by the previous run
+ * instead of rebuilding it, as long as it still matches the repositories.
+ */
+public final class GraphStorage {
+    private enum Kind { HEAP, DIRECT, MAPPED }
+
+    private static final GraphStorage HEAP = new GraphStorage(Kind.HEAP, null);
+    private static final GraphStorage DIRECT = new GraphStorage(Kind.DIRECT, null);
+
+    private final Kind kind;
+    private final Path file;
+
+    private GraphStorage(Kind kind, Path file) {
+        this.kind = kind;
+        this.file = file;
+    }
+
+    /**
+     * @return storage in int arrays on the heap
+     */
+    public static GraphStorage heap() {
+        return HEAP;
+    }
+
+    /**
+     * The memory of a snapshot is released when the snapshot becomes unreachable; the total is
+     * capped by {@code -XX:MaxDirectMemorySize}
+     * @return storage in direct buffers outside the heap
+     */
+    public static GraphStorage direct() {
+        return DIRECT;
+    }
+
+    /**
+     * Every snapshot is written to the file, replacing the previous image, and read back
+     * through the page cache
+     * @param file the image file
+     * @return storage in a memory-mapped image file
+     * @throws IllegalArgumentException if file is null
+     */
+    public static GraphStorage mapped(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file must not be null");
+        }
+        return new GraphStorage(Kind.MAPPED, file);
+    }
+
+    /**
+     * @param users the users to copy
+     * @param friendships the friendships between the users
+     * @return a snapshot of the users and the friendships between them, stored in this storage
+     */
+    public GraphSnapshot snapshot(Iterable<User> users, FriendshipRepository friendships) {
+        return switch (kind) {
+            case HEAP -> GraphSnapshot.build(users, friendships, ArrayAdjacency::new);
+            case DIRECT -> GraphSnapshot.build(users, friendships, BufferAdjacency::allocateDirect);
+            case MAPPED -> writeImage(users, friendships, friendships.count());
+        };
+    }
+
+    /**
+     * Checks the image against the repositories before using it: it must have been built from
+     * as many friendships as the friendship repository holds, its edges must have the
+     * fingerprint of the stored friendships and its vertices must be exactly the stored users,
+     * which takes one pass over the friendships and one over the ids of the users. An image which fails the check is
+     * deleted; an unreadable one is reported and ignored.
+     * @param users the users the image should hold
+     * @param friendships the friendships the image should hold
+     * @return the image left by a previous run, if this is mapped storage and the image exists
+     * and matches the repositories
+     */
+    public Optional<GraphSnapshot> restore(Repository<String, User> users, FriendshipRepository friendships) {
+        if (kind != Kind.MAPPED || !Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            GraphSnapshot graph = GraphImage.read(file, friendships);
+            if (!hasVerticesOf(graph, users)) {
+                throw new GraphImage.StaleImageException("Stale graph image " + file + ": its users differ from the repository");
+            }
+            return Optional.of(graph);
+        } catch (GraphImage.StaleImageException e) {
+            System.err.println("Dropping graph image " + file + ": " + e.getMessage());
+            discard();
+            return Optional.empty();
+        } catch (IOException e) {
+            System.err.println("Ignoring graph image " + file + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static boolean hasVerticesOf(GraphSnapshot graph, Repository<String, User> users) {
+        long count = 0;
+        try (Stream<User> stored = users.streamAll()) {
+            for (User user : (Iterable<User>) stored::iterator) {
+                if (graph.indexOf(user.getId()) < 0) {
+                    return false;
+                }
+                count++;
+            }
+        }
+        return count == graph.getVertexCount();
+    }
+
+    /**
+     * Deletes the image, if this is mapped storage, so that a restart rebuilds the graph
+     * instead of mapping one which misses later writes. Snapshots already mapped stay readable.
+     */
+    public void discard() {
+        if (kind != Kind.MAPPED) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete graph image " + file + ": " + e.getMessage());
+        }
+    }
+
+    private GraphSnapshot writeImage(Iterable<User> users, FriendshipRepository friendships, long friendshipCount) {
+        GraphImage.Writer writer = new GraphImage.Writer(file, friendshipCount);
+        try {
+            GraphSnapshot graph = GraphSnapshot.build(users, friendships, writer);
+            writer.finish(graph);
+            return graph;
+        } catch (IOException e) {
+            writer.abort();
+            throw new RuntimeException("Failed to write graph image " + file, e);
+        } catch (RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Breadth-first traversal over a {@link GraphSnapshot}. The queue is a plain array and the
+ * visited set a {@link BitSet}, so the traversal neither recurses nor allocates per
+ * visited vertex.
+ */
+public final class GraphTraversal {
+    private GraphTraversal() {
+    }
+
+    /**
+     * Visits every vertex reachable from {@code start} that is not yet marked in
+     * {@code visited}, marking it and writing it into {@code queue}
+     * @param graph the graph to traverse
+     * @param start the first vertex
+     * @param visited vertices already visited; updated in place
+     * @param queue scratch array with room for every vertex of the graph
+     * @return the number of vertices written at the start of {@code queue}
+     */
+    public static int traverse(GraphSnapshot graph, int start, BitSet visited, int[] queue) {
+        Adjacency adjacency = graph.adjacency();
+        int head = 0;
+        int tail = 0;
+        visited.set(start);
+        queue[tail++] = start;
+        while (head < tail) {
+            int vertex = queue[head++];
+            for (int edge = adjacency.offset(vertex), end = adjacency.offset(vertex + 1); edge < end; edge++) {
+                int neighbour = adjacency.target(edge);
+                if (!visited.get(neighbour)) {
+                    visited.set(neighbour);
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * @param graph the graph to traverse
+     * @return the number of connected components
+     */
+    public static int countComponents(GraphSnapshot graph) {
+        int vertices = graph.getVertexCount();
+        BitSet visited = new BitSet(vertices);
+        int[] queue = new int[vertices];
+        int count = 0;
+        for (int start = visited.nextClearBit(0); start < vertices; start = visited.nextClearBit(start + 1)) {
+            traverse(graph, start, visited, queue);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param graph the graph to traverse
+     * @return the vertices of every connected component, ordered by their smallest vertex
+     */
+    public static List<int[]> components(GraphSnapshot graph) {
+        int vertices = graph.getVertexCount();
+        BitSet visited = new BitSet(vertices);
+        int[] queue = new int[vertices];
+        List<int[]> components = new ArrayList<>();
+        for (int start = visited.nextClearBit(0); start < vertices; start = visited.nextClearBit(start + 1)) {
+            int size = traverse(graph, start, visited, queue);
+            int[] members = new int[size];
+            System.arraycopy(queue, 0, members, 0, size);
+            components.add(members);
+        }
+        return components;
+    }
+}
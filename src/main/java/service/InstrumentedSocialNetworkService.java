@@ -0,0 +1,151 @@
+package service;
+
+import domain.User;
+import exceptions.ValidationException;
+import metrics.MetricsRegistry;
+import metrics.OperationMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Records the count, errors and latency of every call to a {@link SocialNetworkService} in a
+ * {@link MetricsRegistry}, under {@code service.<method>}; overloads share one name. The hits
+ * and misses of the analytics cache are published as gauges.
+ */
+public class InstrumentedSocialNetworkService {
+    private final SocialNetworkService service;
+    private final OperationMetrics addUser;
+    private final OperationMetrics removeUser;
+    private final OperationMetrics addFriendship;
+    private final OperationMetrics removeFriendship;
+    private final OperationMetrics getFriends;
+    private final OperationMetrics getNumberOfCommunities;
+    private final OperationMetrics getCommunities;
+    private final OperationMetrics getMostSociableCommunity;
+    private final OperationMetrics findMostSociableCommunity;
+    private final OperationMetrics getFriendSuggestions;
+    private final OperationMetrics precomputeFriendSuggestions;
+    private final OperationMetrics findShortestPath;
+    private final OperationMetrics getAllUsers;
+    private final OperationMetrics getUsers;
+
+    /**
+     * @param service the service to measure
+     * @param metrics where the measurements go
+     */
+    public InstrumentedSocialNetworkService(SocialNetworkService service, MetricsRegistry metrics) {
+        if (service == null) {
+            throw new IllegalArgumentException("service must not be null");
+        }
+        this.service = service;
+        this.addUser = metrics.operation("service.addUser");
+        this.removeUser = metrics.operation("service.removeUser");
+        this.addFriendship = metrics.operation("service.addFriendship");
+        this.removeFriendship = metrics.operation("service.removeFriendship");
+        this.getFriends = metrics.operation("service.getFriends");
+        this.getNumberOfCommunities = metrics.operation("service.getNumberOfCommunities");
+        this.getCommunities = metrics.operation("service.getCommunities");
+        this.getMostSociableCommunity = metrics.operation("service.getMostSociableCommunity");
+        this.findMostSociableCommunity = metrics.operation("service.findMostSociableCommunity");
+        this.getFriendSuggestions = metrics.operation("service.getFriendSuggestions");
+        this.precomputeFriendSuggestions = metrics.operation("service.precomputeFriendSuggestions");
+        this.findShortestPath = metrics.operation("service.findShortestPath");
+        this.getAllUsers = metrics.operation("service.getAllUsers");
+        this.getUsers = metrics.operation("service.getUsers");
+        AnalyticsCache cache = service.getAnalyticsCache();
+        metrics.gauge("service.analyticsCache.hits", cache::getHits);
+        metrics.gauge("service.analyticsCache.misses", cache::getMisses);
+    }
+
+    public void addUser(User user) throws ValidationException {
+        addUser.run(() -> service.addUser(user));
+    }
+
+    public void removeUser(String userId) {
+        removeUser.run(() -> service.removeUser(userId));
+    }
+
+    public void addFriendship(String userId1, String userId2) throws ValidationException {
+        addFriendship.run(() -> service.addFriendship(userId1, userId2));
+    }
+
+    public void removeFriendship(String userId1, String userId2) {
+        removeFriendship.run(() -> service.removeFriendship(userId1, userId2));
+    }
+
+    public List<User> getFriends(String userId) {
+        return getFriends.time(() -> service.getFriends(userId));
+    }
+
+    public int getNumberOfCommunities() {
+        return getNumberOfCommunities.time(service::getNumberOfCommunities);
+    }
+
+    public int getNumberOfCommunities(ExecutionMode mode) {
+        return getNumberOfCommunities.time(() -> service.getNumberOfCommunities(mode));
+    }
+
+    public List<List<User>> getCommunities() {
+        return getCommunities.time(service::getCommunities);
+    }
+
+    public List<List<User>> getCommunities(ExecutionMode mode) {
+        return getCommunities.time(() -> service.getCommunities(mode));
+    }
+
+    public List<User> getMostSociableCommunity() {
+        return getMostSociableCommunity.time(service::getMostSociableCommunity);
+    }
+
+    public List<User> getMostSociableCommunity(ExecutionMode mode) {
+        return getMostSociableCommunity.time(() -> service.getMostSociableCommunity(mode));
+    }
+
+    public Optional<SociableCommunity> findMostSociableCommunity(Duration timeBudget) {
+        return findMostSociableCommunity.time(() -> service.findMostSociableCommunity(timeBudget));
+    }
+
+    public Optional<SociableCommunity> findMostSociableCommunity(ExecutionMode mode, Duration timeBudget) {
+        return findMostSociableCommunity.time(() -> service.findMostSociableCommunity(mode, timeBudget));
+    }
+
+    public List<FriendSuggestion> getFriendSuggestions(String userId, int k) {
+        return getFriendSuggestions.time(() -> service.getFriendSuggestions(userId, k));
+    }
+
+    public Map<String, List<FriendSuggestion>> precomputeFriendSuggestions(int k) {
+        return precomputeFriendSuggestions.time(() -> service.precomputeFriendSuggestions(k));
+    }
+
+    public Map<String, List<FriendSuggestion>> precomputeFriendSuggestions(ExecutionMode mode, int k) {
+        return precomputeFriendSuggestions.time(() -> service.precomputeFriendSuggestions(mode, k));
+    }
+
+    public Optional<List<User>> findShortestPath(String fromId, String toId) {
+        return findShortestPath.time(() -> service.findShortestPath(fromId, toId));
+    }
+
+    public Optional<List<User>> findShortestPath(String fromId, String toId, int maxDepth) {
+        return findShortestPath.time(() -> service.findShortestPath(fromId, toId, maxDepth));
+    }
+
+    public AnalyticsCache getAnalyticsCache() {
+        return service.getAnalyticsCache();
+    }
+
+    public Iterable<User> getAllUsers() {
+        return getAllUsers.time(service::getAllUsers);
+    }
+
+    public List<User> getUsers(String afterId, int limit) {
+        return getUsers.time(() -> service.getUsers(afterId, limit));
+    }
+
+    public List<User> getUsers(Collection<String> ids) {
+        return getUsers.time(() -> service.getUsers(ids));
+    }
+}
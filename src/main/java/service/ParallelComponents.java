@@ -0,0 +1,219 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Connected components of a {@link GraphSnapshot} computed on a {@link ForkJoinPool}.
+ * <p>
+ * In the style of Shiloach–Vishkin, every vertex starts as its own tree and the workers
+ * scan disjoint vertex ranges, hooking the root of the larger endpoint of each edge under
+ * the root of the smaller one with a compare-and-set. Trees only ever hang under smaller
+ * roots, so the final root of every component is its smallest vertex, whatever the
+ * interleaving of the workers: the result is the same as the sequential traversal.
+ */
+public final class ParallelComponents {
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    private ParallelComponents() {
+    }
+
+    /**
+     * @param graph the graph to split into components
+     * @param pool the pool running the computation
+     * @return for every vertex, the smallest vertex of its component
+     */
+    public static int[] labels(GraphSnapshot graph, ForkJoinPool pool) {
+        int vertices = graph.getVertexCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(vertices);
+        pool.invoke(new Initialise(parent, 0, vertices));
+        pool.invoke(new Hook(graph, parent, 0, vertices));
+
+        int[] labels = new int[vertices];
+        pool.invoke(new Compress(parent, labels, 0, vertices));
+        return labels;
+    }
+
+    /**
+     * @param graph the graph to split into components
+     * @param pool the pool running the computation
+     * @return the number of connected components
+     */
+    public static int count(GraphSnapshot graph, ForkJoinPool pool) {
+        int[] labels = labels(graph, pool);
+        int count = 0;
+        for (int vertex = 0; vertex < labels.length; vertex++) {
+            if (labels[vertex] == vertex) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param graph the graph to split into components
+     * @param pool the pool running the computation
+     * @return the vertices of every component in ascending order, the components ordered by
+     * their smallest vertex
+     */
+    public static List<int[]> components(GraphSnapshot graph, ForkJoinPool pool) {
+        return group(labels(graph, pool));
+    }
+
+    static List<int[]> group(int[] labels) {
+        int[] sizes = new int[labels.length];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        int[][] members = new int[labels.length][];
+        List<int[]> components = new ArrayList<>();
+        for (int vertex = 0; vertex < labels.length; vertex++) {
+            if (labels[vertex] == vertex) {
+                members[vertex] = new int[sizes[vertex]];
+                components.add(members[vertex]);
+                sizes[vertex] = 0;
+            }
+        }
+        for (int vertex = 0; vertex < labels.length; vertex++) {
+            int label = labels[vertex];
+            members[label][sizes[label]++] = vertex;
+        }
+        return components;
+    }
+
+    private static int find(AtomicIntegerArray parent, int vertex) {
+        int up = parent.get(vertex);
+        while (up != vertex) {
+            // path halving; a vertex only ever moves closer to its root, so racing writes are benign
+            int grandparent = parent.get(up);
+            parent.lazySet(vertex, grandparent);
+            vertex = grandparent;
+            up = parent.get(vertex);
+        }
+        return vertex;
+    }
+
+    private abstract static class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int from;
+        final int to;
+
+        RangeAction(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                computeRange();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(split(from, middle), split(middle, to));
+        }
+
+        abstract RangeAction split(int from, int to);
+
+        abstract void computeRange();
+    }
+
+    private static final class Initialise extends RangeAction {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicIntegerArray parent;
+
+        Initialise(AtomicIntegerArray parent, int from, int to) {
+            super(from, to);
+            this.parent = parent;
+        }
+
+        @Override
+        RangeAction split(int from, int to) {
+            return new Initialise(parent, from, to);
+        }
+
+        @Override
+        void computeRange() {
+            for (int vertex = from; vertex < to; vertex++) {
+                parent.set(vertex, vertex);
+            }
+        }
+    }
+
+    private static final class Hook extends RangeAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GraphSnapshot graph;
+        private final AtomicIntegerArray parent;
+
+        Hook(GraphSnapshot graph, AtomicIntegerArray parent, int from, int to) {
+            super(from, to);
+            this.graph = graph;
+            this.parent = parent;
+        }
+
+        @Override
+        RangeAction split(int from, int to) {
+            return new Hook(graph, parent, from, to);
+        }
+
+        @Override
+        void computeRange() {
+            Adjacency adjacency = graph.adjacency();
+            for (int vertex = from; vertex < to; vertex++) {
+                for (int edge = adjacency.offset(vertex), end = adjacency.offset(vertex + 1); edge < end; edge++) {
+                    int neighbour = adjacency.target(edge);
+                    // every edge is stored in both directions; handle it once
+                    if (neighbour > vertex) {
+                        union(vertex, neighbour);
+                    }
+                }
+            }
+        }
+
+        private void union(int vertex1, int vertex2) {
+            while (true) {
+                int root1 = find(parent, vertex1);
+                int root2 = find(parent, vertex2);
+                if (root1 == root2) {
+                    return;
+                }
+                int high = Math.max(root1, root2);
+                int low = Math.min(root1, root2);
+                if (parent.compareAndSet(high, high, low)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Compress extends RangeAction {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicIntegerArray parent;
+        private final int[] labels;
+
+        Compress(AtomicIntegerArray parent, int[] labels, int from, int to) {
+            super(from, to);
+            this.parent = parent;
+            this.labels = labels;
+        }
+
+        @Override
+        RangeAction split(int from, int to) {
+            return new Compress(parent, labels, from, to);
+        }
+
+        @Override
+        void computeRange() {
+            for (int vertex = from; vertex < to; vertex++) {
+                labels[vertex] = find(parent, vertex);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Finds a shortest path between two vertices of a {@link GraphSnapshot} with a bidirectional
+ * breadth-first search.
+ * <p>
+ * One search grows from each end, a whole level at a time, always on the side whose frontier
+ * has fewer adjacency entries to read; the searches stop as soon as one reaches a vertex the
+ * other has already seen. Growing the cheaper side keeps hubs out of the search for as long as
+ * possible: a user with 100k friends at one end is only expanded once the frontier of the other
+ * end would cost as much, and a path to a friend of the hub is found from the friend's side
+ * without reading the hub's list at all. Both sides keep their queues and parents in int arrays
+ * and mark what they have seen with a stamp, so nothing is cleared between searches.
+ * <p>
+ * A finder reuses its arrays between searches and is not thread-safe.
+ */
+public class ShortestPathFinder {
+    private final GraphSnapshot graph;
+    private final Side forward;
+    private final Side backward;
+    private int stamp;
+    private long verticesVisited;
+    private long edgesScanned;
+
+    /**
+     * @param graph the graph to search
+     */
+    public ShortestPathFinder(GraphSnapshot graph) {
+        this.graph = graph;
+        this.forward = new Side(graph.getVertexCount());
+        this.backward = new Side(graph.getVertexCount());
+    }
+
+    /**
+     * @param source the first vertex of the path
+     * @param target the last vertex of the path
+     * @param maxDepth the longest path looked for, in friendships
+     * @return the vertices of a shortest path from source to target, or null if there is none
+     * of at most {@code maxDepth} friendships
+     * @throws IllegalArgumentException if maxDepth is negative
+     */
+    public int[] find(int source, int target, int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative");
+        }
+        if (source == target) {
+            return new int[]{source};
+        }
+        if (++stamp == 0) {
+            forward.clear();
+            backward.clear();
+            stamp = 1;
+        }
+        forward.start(source);
+        backward.start(target);
+        try {
+            for (int depth = 0; depth < maxDepth && forward.hasFrontier() && backward.hasFrontier(); depth++) {
+                int meeting = forward.frontierEdges <= backward.frontierEdges
+                        ? forward.expand(backward)
+                        : backward.expand(forward);
+                if (meeting >= 0) {
+                    return path(meeting);
+                }
+            }
+            return null;
+        } finally {
+            verticesVisited += forward.tail + backward.tail;
+        }
+    }
+
+    private int[] path(int meeting) {
+        int forwardLength = 0;
+        for (int vertex = meeting; vertex >= 0; vertex = forward.parent[vertex]) {
+            forwardLength++;
+        }
+        int backwardLength = 0;
+        for (int vertex = backward.parent[meeting]; vertex >= 0; vertex = backward.parent[vertex]) {
+            backwardLength++;
+        }
+        int[] path = new int[forwardLength + backwardLength];
+        int i = forwardLength;
+        for (int vertex = meeting; vertex >= 0; vertex = forward.parent[vertex]) {
+            path[--i] = vertex;
+        }
+        i = forwardLength;
+        for (int vertex = backward.parent[meeting]; vertex >= 0; vertex = backward.parent[vertex]) {
+            path[i++] = vertex;
+        }
+        return path;
+    }
+
+    public GraphSnapshot getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return vertices reached by all searches of this finder so far
+     */
+    public long getVerticesVisited() {
+        return verticesVisited;
+    }
+
+    /**
+     * @return adjacency entries read by all searches of this finder so far
+     */
+    public long getEdgesScanned() {
+        return edgesScanned;
+    }
+
+    /**
+     * The search from one end: the vertices it has seen, in the order they were reached, and
+     * the parent through which each was reached
+     */
+    private final class Side {
+        private final int[] stamps;
+        private final int[] parent;
+        private final int[] queue;
+        private int head;
+        private int tail;
+        // adjacency entries of the vertices in queue[head..tail)
+        private long frontierEdges;
+
+        Side(int vertices) {
+            this.stamps = new int[vertices];
+            this.parent = new int[vertices];
+            this.queue = new int[vertices];
+        }
+
+        void clear() {
+            Arrays.fill(stamps, 0);
+        }
+
+        void start(int vertex) {
+            stamps[vertex] = stamp;
+            parent[vertex] = -1;
+            queue[0] = vertex;
+            head = 0;
+            tail = 1;
+            frontierEdges = graph.getDegree(vertex);
+        }
+
+        boolean hasFrontier() {
+            return head < tail;
+        }
+
+        boolean seen(int vertex) {
+            return stamps[vertex] == stamp;
+        }
+
+        /**
+         * Reaches the next level from the current frontier
+         * @param other the search from the other end
+         * @return the first vertex reached which the other search has seen, or -1
+         */
+        int expand(Side other) {
+            Adjacency adjacency = graph.adjacency();
+            int levelEnd = tail;
+            long nextEdges = 0;
+            while (head < levelEnd) {
+                int vertex = queue[head++];
+                int first = adjacency.offset(vertex);
+                int end = adjacency.offset(vertex + 1);
+                for (int edge = first; edge < end; edge++) {
+                    int neighbour = adjacency.target(edge);
+                    if (seen(neighbour)) {
+                        continue;
+                    }
+                    stamps[neighbour] = stamp;
+                    parent[neighbour] = vertex;
+                    queue[tail++] = neighbour;
+                    if (other.seen(neighbour)) {
+                        edgesScanned += edge + 1 - first;
+                        return neighbour;
+                    }
+                    nextEdges += adjacency.offset(neighbour + 1) - adjacency.offset(neighbour);
+                }
+                edgesScanned += end - first;
+            }
+            frontierEdges = nextEdges;
+            return -1;
+        }
+    }
+}
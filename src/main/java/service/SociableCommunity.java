@@ -0,0 +1,44 @@
+package service;
+
+import domain.User;
+
+import java.util.List;
+
+/**
+ * A community together with the longest shortest path between two of its members
+ */
+public class SociableCommunity {
+    private final List<User> members;
+    private final List<User> path;
+    private final int upperBound;
+    private final boolean exact;
+
+    public SociableCommunity(List<User> members, List<User> path, int upperBound, boolean exact) {
+        this.members = List.copyOf(members);
+        this.path = List.copyOf(path);
+        this.upperBound = upperBound;
+        this.exact = exact;
+    }
+
+    public List<User> getMembers() { return members; }
+
+    /**
+     * @return the users on the path, from one end to the other
+     */
+    public List<User> getPath() { return path; }
+
+    /**
+     * @return number of friendships on the path
+     */
+    public int getLength() { return path.size() - 1; }
+
+    /**
+     * @return the longest the path could be; equal to the length when the result is exact
+     */
+    public int getUpperBound() { return upperBound; }
+
+    /**
+     * @return false if the time budget ran out before the path was proven to be the longest
+     */
+    public boolean isExact() { return exact; }
+}
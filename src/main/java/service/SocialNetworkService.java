@@ -2,18 +2,92 @@ package service;
 
 import domain.User;
 import domain.Friendship;
-import repository.DatabaseUserRepository;
+import repository.FriendshipRepository;
 import repository.Repository;
 import exceptions.ValidationException;
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * Social network operations over a user and a friendship repository.
+ * <p>
+ * The service is safe to share between threads when both repositories are, e.g.
+ * {@link repository.ConcurrentUserRepository} and {@link repository.ConcurrentFriendshipRepository}.
+ * Writes go to the repositories without a service-wide lock; the derived community index and
+ * analytics cache are guarded by a lock of their own and brought in line with the repositories
+ * after every write.
+ */
 public class SocialNetworkService {
+    private static final int EXACT_DIAMETER_THRESHOLD = 256;
+    private static final Duration DEFAULT_TIME_BUDGET = Duration.ofSeconds(1);
+    private static final int DEFAULT_MAX_DEPTH = 6;
+    private static final int RECENT_PATHS = 1024;
+
     private final Repository<String, User> userRepository;
+    private final FriendshipRepository friendshipRepository;
+    private final ExecutionMode analyticsMode;
+    private final GraphStorage graphStorage;
+    private final ForkJoinPool analyticsPool;
+    private final AnalyticsCache analyticsCache;
+    // guards communityIndex, analyticsCache, suggestionTable, graphQueries and recentPaths
+    private final Object analyticsLock;
+    private CommunityIndex communityIndex;
+    // friend suggestions of every user, valid while the analytics cache is at their version
+    private SuggestionTable suggestionTable;
+    // snapshot of the graph, valid while the analytics cache is at its version; restored from
+    // the image left by a previous run or taken by the first analytics which needed it
+    private GraphQueries graphQueries;
+    // shortest paths of recent queries in graphQueries, keyed by their ends in id order
+    private final Map<List<Object>, int[]> recentPaths;
+    // whether the image on disk, if any, matches the repositories; the first write after it
+    // was restored or written deletes it, so that a restart cannot map a stale image
+    private boolean imageCurrent;
+
+    public SocialNetworkService(Repository<String, User> userRepository, FriendshipRepository friendshipRepository) {
+        this(userRepository, friendshipRepository, ExecutionMode.SEQUENTIAL);
+    }
+
+    /**
+     * @param userRepository the users
+     * @param friendshipRepository the friendships between the users
+     * @param analyticsMode how the community analytics are computed when no mode is given;
+     *                      the parallel mode runs on the common {@link ForkJoinPool}
+     */
+    public SocialNetworkService(Repository<String, User> userRepository, FriendshipRepository friendshipRepository,
+                                ExecutionMode analyticsMode) {
+        this(userRepository, friendshipRepository, analyticsMode, GraphStorage.heap());
+    }
 
-    public SocialNetworkService(Repository<String, User> userRepository) {
+    /**
+     * @param userRepository the users
+     * @param friendshipRepository the friendships between the users
+     * @param analyticsMode how the community analytics are computed when no mode is given
+     * @param graphStorage where the graph snapshots of the analytics are kept; an image restored
+     *                     from mapped storage is used until the first write through this service
+     */
+    public SocialNetworkService(Repository<String, User> userRepository, FriendshipRepository friendshipRepository,
+                                ExecutionMode analyticsMode, GraphStorage graphStorage) {
         this.userRepository = userRepository;
+        this.friendshipRepository = friendshipRepository;
+        this.analyticsMode = analyticsMode;
+        this.graphStorage = graphStorage;
+        this.analyticsPool = ForkJoinPool.commonPool();
+        this.analyticsCache = new AnalyticsCache();
+        this.analyticsLock = new Object();
+        this.recentPaths = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, int[]> eldest) {
+                return size() > RECENT_PATHS;
+            }
+        };
+        this.graphQueries = graphStorage.restore(userRepository, friendshipRepository)
+                .map(graph -> new GraphQueries(analyticsCache.getVersion(), graph))
+                .orElse(null);
+        this.imageCurrent = graphQueries != null;
     }
 
     public void addUser(User user) throws ValidationException {
@@ -21,126 +95,686 @@ public class SocialNetworkService {
                 .ifPresent(u -> {
                     throw new IllegalArgumentException("User already exists!");
                 });
+        synchronized (analyticsLock) {
+            // a concurrent removeUser may already have taken the user out again
+            if (communityIndex != null && userRepository.findOne(user.getId()).isPresent()) {
+                communityIndex.addUser(user.getId());
+            }
+            graphChanged();
+        }
     }
 
     public void removeUser(String userId) {
-        userRepository.delete(userId);
+        userRepository.delete(userId)
+                .ifPresent(u -> {
+                    friendshipRepository.deleteAllOf(userId);
+                    synchronized (analyticsLock) {
+                        if (communityIndex != null) {
+                            communityIndex.removeUser(userId);
+                        }
+                        graphChanged();
+                    }
+                });
     }
 
     public void addFriendship(String userId1, String userId2) throws ValidationException {
-        User user1 = userRepository.findOne(userId1)
-                .orElseThrow(() -> new ValidationException("First user doesn't exist!"));
-        User user2 = userRepository.findOne(userId2)
-                .orElseThrow(() -> new ValidationException("Second user doesn't exist!"));
+        if (userRepository.findOne(userId1).isEmpty()) {
+            throw new ValidationException("First user doesn't exist!");
+        }
+        if (userRepository.findOne(userId2).isEmpty()) {
+            throw new ValidationException("Second user doesn't exist!");
+        }
 
-        if (user1.getFriends().contains(user2)) {
+        if (friendshipRepository.save(new Friendship(UUID.randomUUID().toString(), userId1, userId2)).isPresent()) {
             throw new ValidationException("Users are already friends!");
         }
+        // a user removed since the checks above has already had its friendships deleted
+        if (userRepository.findOne(userId1).isEmpty() || userRepository.findOne(userId2).isEmpty()) {
+            friendshipRepository.delete(userId1, userId2);
+        }
+        friendshipChanged(userId1, userId2);
+    }
 
-        String friendshipId = UUID.randomUUID().toString();
-        
-        if (userRepository instanceof DatabaseUserRepository dbRepo) {
-            dbRepo.saveFriendship(friendshipId, userId1, userId2);
+    public void removeFriendship(String userId1, String userId2) {
+        friendshipRepository.delete(userId1, userId2)
+                .ifPresent(friendship -> friendshipChanged(userId1, userId2));
+    }
+
+    /**
+     * Updates the community index from the current state of the friendship rather than from
+     * the write that changed it, so concurrent writes on the same pair which reach this point
+     * in a different order than they reached the repository still leave the index right
+     */
+    private void friendshipChanged(String userId1, String userId2) {
+        synchronized (analyticsLock) {
+            if (communityIndex != null) {
+                if (friendshipRepository.exists(userId1, userId2)) {
+                    communityIndex.addFriendship(userId1, userId2);
+                } else {
+                    communityIndex.removeFriendship(userId1, userId2);
+                }
+            }
+            graphChanged();
         }
+    }
 
-        user1.getFriends().add(user2);
-        user2.getFriends().add(user1);
+    /**
+     * @param userId the user id
+     * @return the friends of the user; empty if the user does not exist
+     */
+    public List<User> getFriends(String userId) {
+        return userRepository.findMany(friendshipRepository.findFriendIds(userId));
     }
 
-    public void removeFriendship(String userId1, String userId2) {
-        Optional<User> user1 = userRepository.findOne(userId1);
-        Optional<User> user2 = userRepository.findOne(userId2);
+    /**
+     * @return the number of connected components of the friendship graph, computed in the
+     * configured analytics mode
+     */
+    public int getNumberOfCommunities() {
+        return getNumberOfCommunities(analyticsMode);
+    }
 
-        if (user1.isPresent() && user2.isPresent()) {
-            User u1 = user1.get();
-            User u2 = user2.get();
+    /**
+     * In sequential mode the communities are built from the repository on the first call and
+     * then kept up to date by the mutating methods of this service, so later calls do not
+     * reload the graph. The parallel mode recomputes them from a fresh snapshot. Either way the
+     * result is cached until the next write through this service.
+     * @param mode how to compute the communities
+     * @return the number of connected components of the friendship graph
+     */
+    public int getNumberOfCommunities(ExecutionMode mode) {
+        synchronized (analyticsLock) {
+            return analyticsCache.get(List.of("count", mode), () -> countCommunities(mode));
+        }
+    }
 
-            if (userRepository instanceof DatabaseUserRepository dbRepo) {
-                dbRepo.deleteFriendship(userId1, userId2);
-            }
+    private int countCommunities(ExecutionMode mode) {
+        if (mode == ExecutionMode.PARALLEL) {
+            GraphSnapshot graph = snapshot();
+            AnalyticsEvent event = new AnalyticsEvent("countCommunities", mode);
+            int count = ParallelComponents.count(graph, analyticsPool);
+            event.traversed(graph);
+            event.communities = count;
+            event.commit();
+            return count;
+        }
+        if (communityIndex == null) {
+            communityIndex = buildCommunityIndex();
+        }
+        return communityIndex.getCount();
+    }
 
-            u1.getFriends().remove(u2);
-            u2.getFriends().remove(u1);
+    /**
+     * @return the members of every community, computed in the configured analytics mode
+     */
+    public List<List<User>> getCommunities() {
+        return getCommunities(analyticsMode);
+    }
+
+    /**
+     * Both modes return the same lists: the members of a community keep the order of
+     * {@link Repository#streamAll()} and the communities are ordered by their first member.
+     * The lists are cached until the next write through this service, so they are read-only.
+     * @param mode how to compute the communities
+     * @return the members of every community
+     */
+    public List<List<User>> getCommunities(ExecutionMode mode) {
+        synchronized (analyticsLock) {
+            return analyticsCache.get(List.of("communities", mode), () -> retryOnStaleImage(() -> findCommunities(mode)));
         }
     }
 
-    public int getNumberOfCommunities() {
-        Set<User> visited = new HashSet<>();
-        int communities = 0;
+    private List<List<User>> findCommunities(ExecutionMode mode) {
+        GraphSnapshot graph = snapshot();
+        AnalyticsEvent event = new AnalyticsEvent("findCommunities", mode);
+        List<List<User>> communities = new ArrayList<>();
+        for (int[] community : components(graph, mode)) {
+            communities.add(Collections.unmodifiableList(users(graph, community)));
+        }
+        event.traversed(graph);
+        event.communities = communities.size();
+        event.commit();
+        return Collections.unmodifiableList(communities);
+    }
+
+    /**
+     * @return components ordered by their smallest vertex, each with its vertices ascending
+     */
+    private List<int[]> components(GraphSnapshot graph, ExecutionMode mode) {
+        if (mode == ExecutionMode.PARALLEL) {
+            return ParallelComponents.components(graph, analyticsPool);
+        }
+        List<int[]> components = GraphTraversal.components(graph);
+        for (int[] community : components) {
+            Arrays.sort(community);
+        }
+        return components;
+    }
+
+    /**
+     * Must be called holding analyticsLock
+     */
+    private void graphChanged() {
+        graphQueries = null;
+        if (imageCurrent) {
+            graphStorage.discard();
+            imageCurrent = false;
+        }
+        analyticsCache.invalidate();
+    }
+
+    /**
+     * Must be called holding analyticsLock
+     * @return the snapshot of the graph at the current version, taken now if there is none yet
+     */
+    private GraphSnapshot snapshot() {
+        if (graphQueries == null || graphQueries.version != analyticsCache.getVersion()) {
+            graphQueries = new GraphQueries(analyticsCache.getVersion(), takeSnapshot());
+            recentPaths.clear();
+        }
+        return graphQueries.graph;
+    }
+
+    private GraphSnapshot takeSnapshot() {
+        AnalyticsEvent event = new AnalyticsEvent("snapshot", null);
+        try (Stream<User> users = userRepository.streamAll()) {
+            GraphSnapshot graph = graphStorage.snapshot(users::iterator, friendshipRepository);
+            event.vertices = graph.getVertexCount();
+            event.edges = graph.getEdgeCount();
+            imageCurrent = true;
+            return graph;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * @throws MissingUserException if the graph is a restored image and one of the users no
+     * longer exists
+     */
+    private List<User> users(GraphSnapshot graph, int[] vertices) {
+        List<User> users = new ArrayList<>(vertices.length);
+        for (int vertex : vertices) {
+            User user = graph.getUser(vertex);
+            if (user == null) {
+                // restored images hold ids only
+                user = userRepository.findOne(graph.getId(vertex)).orElseThrow(() -> new MissingUserException(graph));
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Runs a query which may find out that the restored image it uses has a user who was
+     * removed behind the service's back. The image is then dropped like after a write, and
+     * the query runs again on a fresh snapshot, which holds every one of its users.
+     */
+    private <T> T retryOnStaleImage(Supplier<T> query) {
+        try {
+            return query.get();
+        } catch (MissingUserException e) {
+            synchronized (analyticsLock) {
+                if (graphQueries != null && graphQueries.graph == e.graph) {
+                    // built from the same image
+                    communityIndex = null;
+                    graphChanged();
+                }
+            }
+            return query.get();
+        }
+    }
 
-        for (User user : userRepository.findAll()) {
-            if (!visited.contains(user)) {
-                communities++;
-                dfs(user, visited);
+    private CommunityIndex buildCommunityIndex() {
+        CommunityIndex index = new CommunityIndex(this::friendIds);
+        GraphSnapshot graph = snapshot();
+        AnalyticsEvent event = new AnalyticsEvent("buildCommunityIndex", ExecutionMode.SEQUENTIAL);
+        for (int[] community : GraphTraversal.components(graph)) {
+            List<String> members = new ArrayList<>(community.length);
+            for (int vertex : community) {
+                members.add(graph.getId(vertex));
             }
+            index.addCommunity(members);
         }
+        event.traversed(graph);
+        event.communities = index.getCount();
+        event.commit();
+        return index;
+    }
 
-        return communities;
+    private Set<String> friendIds(String userId) {
+        return friendshipRepository.findFriendIds(userId);
     }
 
+    /**
+     * @return the members of the community with the longest path, see
+     * {@link #findMostSociableCommunity(ExecutionMode, Duration)}
+     */
     public List<User> getMostSociableCommunity() {
-        List<User> allUsers = StreamSupport.stream(userRepository.findAll().spliterator(), false)
-                .collect(Collectors.toList());
-        
-        // Map to store communities
-        Map<User, Set<User>> communities = new HashMap<>();
-        Set<User> visited = new HashSet<>();
-
-        // Find all communities
-        for (User user : allUsers) {
-            if (!visited.contains(user)) {
-                Set<User> community = new HashSet<>();
-                dfs(user, community);
-                visited.addAll(community);
-                communities.put(user, community);
-            }
-        }
-
-        // Find the most sociable community
-        int maxSocialScore = -1;
-        Set<User> mostSociableCommunity = new HashSet<>();
-
-        for (Map.Entry<User, Set<User>> entry : communities.entrySet()) {
-            Set<User> community = entry.getValue();
-            if (community.size() < 2) continue; // Skip isolated users
-
-            // Calculate social score based on number of friendships within community
-            int socialScore = calculateCommunityScore(community);
-            
-            if (socialScore > maxSocialScore) {
-                maxSocialScore = socialScore;
+        return getMostSociableCommunity(analyticsMode);
+    }
+
+    /**
+     * @param mode how to compute the communities
+     * @return the members of the community with the longest path, or an empty list if no
+     * community has more than one member
+     */
+    public List<User> getMostSociableCommunity(ExecutionMode mode) {
+        return findMostSociableCommunity(mode, DEFAULT_TIME_BUDGET)
+                .map(SociableCommunity::getMembers)
+                .orElse(Collections.emptyList());
+    }
+
+    /**
+     * @param timeBudget how long to spend refining the paths of large communities
+     * @return the community with the longest path, computed in the configured analytics mode
+     */
+    public Optional<SociableCommunity> findMostSociableCommunity(Duration timeBudget) {
+        return findMostSociableCommunity(analyticsMode, timeBudget);
+    }
+
+    /**
+     * The most sociable community is the one with the longest path, i.e. the largest distance
+     * between two of its members. Small communities are measured exactly. Large ones are
+     * refined with iFUB until the time budget runs out; the result then holds the longest path
+     * found and an upper bound, and is marked as not exact. The result is cached per time budget
+     * until the next write through this service.
+     * @param mode how to compute the communities
+     * @param timeBudget how long to spend refining the paths of large communities
+     * @return the community with the longest path, or empty if no community has more than
+     * one member
+     */
+    public Optional<SociableCommunity> findMostSociableCommunity(ExecutionMode mode, Duration timeBudget) {
+        synchronized (analyticsLock) {
+            return analyticsCache.get(List.of("mostSociable", mode, timeBudget),
+                    () -> retryOnStaleImage(() -> computeMostSociableCommunity(mode, timeBudget)));
+        }
+    }
+
+    private Optional<SociableCommunity> computeMostSociableCommunity(ExecutionMode mode, Duration timeBudget) {
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        GraphSnapshot graph = snapshot();
+        AnalyticsEvent event = new AnalyticsEvent("findMostSociableCommunity", mode);
+        DiameterFinder finder = new DiameterFinder(graph);
+
+        int[] mostSociableCommunity = null;
+        DiameterFinder.Diameter longest = null;
+        for (int[] community : components(graph, mode)) {
+            event.communities++;
+            if (community.length < 2) continue; // Skip isolated users
+
+            DiameterFinder.Diameter diameter = finder.find(community, EXACT_DIAMETER_THRESHOLD, deadline);
+            if (longest == null || diameter.getLength() > longest.getLength()) {
+                longest = diameter;
                 mostSociableCommunity = community;
             }
         }
 
-        return new ArrayList<>(mostSociableCommunity);
+        // the component search plus every breadth-first search of the diameters
+        event.traversed(graph);
+        event.verticesVisited += finder.getVerticesVisited();
+        event.edgesScanned += finder.getEdgesScanned();
+        event.commit();
+        if (longest == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new SociableCommunity(users(graph, mostSociableCommunity),
+                users(graph, longest.getPath()), longest.getUpperBound(), longest.isExact()));
+    }
+
+    /**
+     * Suggests the users who are not yet friends with the given one but share the most friends
+     * with them. While no write happened since {@link #precomputeFriendSuggestions(int)} ran
+     * with at least {@code k} suggestions per user, the answer is read from there. Otherwise a
+     * {@link FriendRecommender} ranks the user on the snapshot of the graph kept for the
+     * analytics, outside the analytics lock; only when none has been taken since the last
+     * write are the mutual friends counted over the friend lists of the user's friends in the
+     * repositories. Either way the cost is the sum of the friends' numbers of friends.
+     * @param userId the user id
+     * @param k maximum number of suggestions
+     * @return the suggestions, most mutual friends first and ties in id order; empty if the
+     * user does not exist or has no friends of friends
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public List<FriendSuggestion> getFriendSuggestions(String userId, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return retryOnStaleImage(() -> suggestFriends(userId, k));
+    }
+
+    private List<FriendSuggestion> suggestFriends(String userId, int k) {
+        GraphQueries queries;
+        synchronized (analyticsLock) {
+            if (suggestionTable != null && suggestionTable.version == analyticsCache.getVersion()
+                    && suggestionTable.k >= k) {
+                List<FriendSuggestion> suggestions = suggestionTable.byUser.getOrDefault(userId, Collections.emptyList());
+                return suggestions.subList(0, Math.min(k, suggestions.size()));
+            }
+            queries = graphQueries != null && graphQueries.version == analyticsCache.getVersion()
+                    ? graphQueries : null;
+        }
+        if (queries == null) {
+            return countFriendSuggestions(userId, k);
+        }
+        return recommendFriends(queries, userId, k);
+    }
+
+    private List<FriendSuggestion> recommendFriends(GraphQueries queries, String userId, int k) {
+        GraphSnapshot graph = queries.graph;
+        int vertex = graph.indexOf(userId);
+        if (vertex < 0) {
+            return Collections.emptyList();
+        }
+        FriendRecommender recommender = queries.idleRecommenders.poll();
+        if (recommender == null) {
+            recommender = new FriendRecommender(graph);
+        }
+        AnalyticsEvent event = new AnalyticsEvent("recommendFriends", ExecutionMode.SEQUENTIAL);
+        long edgesScanned = recommender.getEdgesScanned();
+        FriendRecommender.Ranking ranking;
+        try {
+            ranking = recommender.recommend(vertex, k);
+            event.edgesScanned = recommender.getEdgesScanned() - edgesScanned;
+        } finally {
+            queries.idleRecommenders.offer(recommender);
+        }
+        event.vertices = graph.getVertexCount();
+        event.edges = graph.getEdgeCount();
+        event.verticesVisited = graph.getDegree(vertex) + 1;
+        event.commit();
+        return suggestions(graph, ranking);
+    }
+
+    private List<FriendSuggestion> suggestions(GraphSnapshot graph, FriendRecommender.Ranking ranking) {
+        int[] candidates = new int[ranking.size()];
+        for (int rank = 0; rank < candidates.length; rank++) {
+            candidates[rank] = ranking.getVertex(rank);
+        }
+        List<User> users = users(graph, candidates);
+        List<FriendSuggestion> suggestions = new ArrayList<>(candidates.length);
+        for (int rank = 0; rank < candidates.length; rank++) {
+            suggestions.add(new FriendSuggestion(users.get(rank), ranking.getMutualFriends(rank)));
+        }
+        return suggestions;
     }
 
-    private int calculateCommunityScore(Set<User> community) {
-        int totalConnections = 0;
-        
-        for (User user : community) {
-            for (User friend : user.getFriends()) {
-                if (community.contains(friend)) {
-                    totalConnections++;
+    private List<FriendSuggestion> countFriendSuggestions(String userId, int k) {
+        Set<String> friends = friendshipRepository.findFriendIds(userId);
+        Map<String, Integer> mutualFriends = new HashMap<>();
+        for (String friend : friends) {
+            for (String candidate : friendshipRepository.findFriendIds(friend)) {
+                if (!candidate.equals(userId) && !friends.contains(candidate)) {
+                    mutualFriends.merge(candidate, 1, Integer::sum);
                 }
             }
         }
-        
-        // Each connection is counted twice (once for each user), so divide by 2
-        return totalConnections / 2;
+
+        Comparator<Map.Entry<String, Integer>> ranking = Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<String, Integer>> best = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<String, Integer> candidate : mutualFriends.entrySet()) {
+            best.add(candidate);
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+
+        Map<String, User> users = new HashMap<>();
+        for (User user : userRepository.findMany(ids(ranked))) {
+            users.put(user.getId(), user);
+        }
+        List<FriendSuggestion> suggestions = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, Integer> candidate : ranked) {
+            User user = users.get(candidate.getKey());
+            // a candidate removed meanwhile is left out
+            if (user != null) {
+                suggestions.add(new FriendSuggestion(user, candidate.getValue()));
+            }
+        }
+        return suggestions;
+    }
+
+    private static List<String> ids(List<Map.Entry<String, Integer>> entries) {
+        List<String> ids = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Integer> entry : entries) {
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * @param k maximum number of suggestions per user
+     * @return the friend suggestions of every user, computed in the configured analytics mode;
+     * see {@link #precomputeFriendSuggestions(ExecutionMode, int)}
+     */
+    public Map<String, List<FriendSuggestion>> precomputeFriendSuggestions(int k) {
+        return precomputeFriendSuggestions(analyticsMode, k);
+    }
+
+    /**
+     * Computes the suggestions of every user at once from a snapshot of the graph, with the
+     * mutual friends counted by a {@link FriendRecommender}. They answer
+     * {@link #getFriendSuggestions(String, int)} until the next write through this service.
+     * The ranking runs outside the analytics lock; suggestions which a concurrent write made
+     * stale are returned but not kept.
+     * @param mode how to compute the suggestions; the parallel mode ranks the users on the
+     *             analytics pool
+     * @param k maximum number of suggestions per user
+     * @return read-only suggestions by user id, as {@link #getFriendSuggestions(String, int)}
+     * would return them
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public Map<String, List<FriendSuggestion>> precomputeFriendSuggestions(ExecutionMode mode, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return retryOnStaleImage(() -> precompute(mode, k));
+    }
+
+    private Map<String, List<FriendSuggestion>> precompute(ExecutionMode mode, int k) {
+        long version;
+        GraphSnapshot graph;
+        synchronized (analyticsLock) {
+            version = analyticsCache.getVersion();
+            if (suggestionTable != null && suggestionTable.version == version && suggestionTable.k == k) {
+                return suggestionTable.byUser;
+            }
+            graph = snapshot();
+        }
+        Map<String, List<FriendSuggestion>> byUser = rankAll(graph, mode, k);
+        synchronized (analyticsLock) {
+            if (analyticsCache.getVersion() == version) {
+                suggestionTable = new SuggestionTable(version, k, byUser);
+            }
+        }
+        return byUser;
+    }
+
+    private Map<String, List<FriendSuggestion>> rankAll(GraphSnapshot graph, ExecutionMode mode, int k) {
+        AnalyticsEvent event = new AnalyticsEvent("precomputeFriendSuggestions", mode);
+        FriendRecommender.Ranking[] rankings = mode == ExecutionMode.PARALLEL
+                ? FriendRecommender.recommendAll(graph, k, analyticsPool)
+                : FriendRecommender.recommendAll(graph, k);
+        Map<String, List<FriendSuggestion>> byUser = new HashMap<>(rankings.length * 2);
+        for (int vertex = 0; vertex < rankings.length; vertex++) {
+            byUser.put(graph.getId(vertex), Collections.unmodifiableList(suggestions(graph, rankings[vertex])));
+        }
+        event.vertices = graph.getVertexCount();
+        event.edges = graph.getEdgeCount();
+        event.verticesVisited = graph.getVertexCount();
+        event.edgesScanned = FriendRecommender.edgesScannedByAll(graph);
+        event.commit();
+        return Collections.unmodifiableMap(byUser);
     }
 
-    private void dfs(User user, Set<User> community) {
-        community.add(user);
-        for (User friend : user.getFriends()) {
-            if (!community.contains(friend)) {
-                dfs(friend, community);
+    /**
+     * @return a shortest chain of friendships between the two users of at most six
+     * friendships, see {@link #findShortestPath(String, String, int)}
+     */
+    public Optional<List<User>> findShortestPath(String fromId, String toId) {
+        return findShortestPath(fromId, toId, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Finds how two users are connected with a {@link ShortestPathFinder} over a snapshot of
+     * the graph. The snapshot is kept until the next write through this service, and so are
+     * the answers to the last 1024 pairs asked about, in either direction. The search itself
+     * runs outside the analytics lock, on a finder of its own, so concurrent queries and
+     * writes do not wait for it.
+     * @param fromId the user the path starts at
+     * @param toId the user the path ends at
+     * @param maxDepth the longest path looked for, in friendships
+     * @return the users on a shortest path, from {@code fromId} to {@code toId}; empty if a user
+     * does not exist or the two are more than {@code maxDepth} friendships apart
+     * @throws IllegalArgumentException if an id is null or maxDepth is negative
+     */
+    public Optional<List<User>> findShortestPath(String fromId, String toId, int maxDepth) {
+        if (fromId == null || toId == null) {
+            throw new IllegalArgumentException("ids must not be null");
+        }
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative");
+        }
+        return retryOnStaleImage(() -> searchShortestPath(fromId, toId, maxDepth));
+    }
+
+    private Optional<List<User>> searchShortestPath(String fromId, String toId, int maxDepth) {
+        boolean reversed = fromId.compareTo(toId) > 0;
+        List<Object> key = reversed ? List.of(toId, fromId, maxDepth) : List.of(fromId, toId, maxDepth);
+        GraphQueries queries;
+        int[] path;
+        synchronized (analyticsLock) {
+            snapshot();
+            queries = graphQueries;
+            path = recentPaths.get(key);
+        }
+        GraphSnapshot graph = queries.graph;
+        if (path == null) {
+            ShortestPathFinder finder = queries.idleFinders.poll();
+            if (finder == null) {
+                finder = new ShortestPathFinder(graph);
             }
+            try {
+                path = shortestPath(finder, graph.indexOf(reversed ? toId : fromId),
+                        graph.indexOf(reversed ? fromId : toId), maxDepth);
+            } finally {
+                queries.idleFinders.offer(finder);
+            }
+            synchronized (analyticsLock) {
+                if (graphQueries == queries) {
+                    recentPaths.put(key, path);
+                }
+            }
+        }
+        if (path.length == 0) {
+            return Optional.empty();
+        }
+        List<User> users = users(graph, path);
+        if (reversed) {
+            Collections.reverse(users);
         }
+        return Optional.of(users);
+    }
+
+    /**
+     * @return the vertices of the path, or an empty array if there is none
+     */
+    private int[] shortestPath(ShortestPathFinder finder, int source, int target, int maxDepth) {
+        if (source < 0 || target < 0) {
+            return new int[0];
+        }
+        AnalyticsEvent event = new AnalyticsEvent("findShortestPath", ExecutionMode.SEQUENTIAL);
+        long verticesVisited = finder.getVerticesVisited();
+        long edgesScanned = finder.getEdgesScanned();
+        int[] path = finder.find(source, target, maxDepth);
+        event.vertices = finder.getGraph().getVertexCount();
+        event.edges = finder.getGraph().getEdgeCount();
+        event.verticesVisited = finder.getVerticesVisited() - verticesVisited;
+        event.edgesScanned = finder.getEdgesScanned() - edgesScanned;
+        event.commit();
+        return path == null ? new int[0] : path;
+    }
+
+    /**
+     * Analytics results are kept until the next write through this service; writes made
+     * directly on the repository are not seen
+     * @return hit and miss counters of the analytics cache
+     */
+    public AnalyticsCache getAnalyticsCache() {
+        return analyticsCache;
     }
 
     public Iterable<User> getAllUsers() {
         return userRepository.findAll();
     }
-}
\ No newline at end of file
+
+    /**
+     * @param afterId id of the last user of the previous page, or null for the first page
+     * @param limit maximum number of users in the page
+     * @return the users with ids greater than {@code afterId}, in ascending id order
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    public List<User> getUsers(String afterId, int limit) {
+        return userRepository.findPage(afterId, limit);
+    }
+
+    /**
+     * @param ids the user ids
+     * @return the existing users among {@code ids}, in the order of their ids
+     * @throws IllegalArgumentException if the given ids or one of them is null
+     */
+    public List<User> getUsers(Collection<String> ids) {
+        return userRepository.findMany(ids);
+    }
+
+    /**
+     * A snapshot of the graph, the analytics cache version it was taken at, and the path finders
+     * and friend recommenders not in use by a query on it; they are not thread-safe, so each
+     * query takes one of its own
+     */
+    private static final class GraphQueries {
+        private final long version;
+        private final GraphSnapshot graph;
+        private final Queue<ShortestPathFinder> idleFinders;
+        private final Queue<FriendRecommender> idleRecommenders;
+
+        GraphQueries(long version, GraphSnapshot graph) {
+            this.version = version;
+            this.graph = graph;
+            this.idleFinders = new ConcurrentLinkedQueue<>();
+            this.idleRecommenders = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * A restored image lacks a user whom a query needs
+     */
+    private static final class MissingUserException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient GraphSnapshot graph;
+
+        MissingUserException(GraphSnapshot graph) {
+            super("a user of the restored graph image no longer exists");
+            this.graph = graph;
+        }
+    }
+
+    /**
+     * Precomputed friend suggestions and the graph version and size they were computed for
+     */
+    private static final class SuggestionTable {
+        private final long version;
+        private final int k;
+        private final Map<String, List<FriendSuggestion>> byUser;
+
+        SuggestionTable(long version, int k, Map<String, List<FriendSuggestion>> byUser) {
+            this.version = version;
+            this.k = k;
+            this.byUser = byUser;
+        }
+    }
+}
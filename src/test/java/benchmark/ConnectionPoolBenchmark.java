@@ -0,0 +1,74 @@
+package benchmark;
+
+import repository.DatabaseUserRepository;
+import validator.UserValidator;
+
+import java.io.File;
+
+/**
+ * Measures findOne and saveFriendship throughput of {@link DatabaseUserRepository}
+ * with a new connection per call versus a pooled connection with cached statements.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmark.ConnectionPoolBenchmark}
+ */
+public class ConnectionPoolBenchmark {
+    private static final String DB_FILE = "benchmark_pool.db";
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long MEASURE_MILLIS = 3_000;
+
+    public static void main(String[] args) {
+        double[] unpooled = run(false);
+        double[] pooled = run(true);
+        System.out.printf("%-10s findOne: %10.0f ops/s   saveFriendship: %10.0f ops/s%n",
+                "unpooled", unpooled[0], unpooled[1]);
+        System.out.printf("%-10s findOne: %10.0f ops/s   saveFriendship: %10.0f ops/s%n",
+                "pooled", pooled[0], pooled[1]);
+    }
+
+    /**
+     * Each mode gets a fresh database, so the friendships inserted by one run do not slow
+     * down the friend lookups of the other
+     */
+    private static double[] run(boolean pooled) {
+        new File(DB_FILE).delete();
+        DatabaseUserRepository repository = pooled
+                ? new DatabaseUserRepository(DB_FILE, new UserValidator(), 4, 60_000)
+                : new DatabaseUserRepository(DB_FILE, new UserValidator());
+        try {
+            String label = pooled ? "pooled" : "unpooled";
+            double findOne = measure(repository, Operation.FIND_ONE, label);
+            double saveFriendship = measure(repository, Operation.SAVE_FRIENDSHIP, label);
+            return new double[]{findOne, saveFriendship};
+        } finally {
+            repository.close();
+            new File(DB_FILE).delete();
+        }
+    }
+
+    private static double measure(DatabaseUserRepository repository, Operation operation, String label) {
+        int[] counter = {0};
+        loop(repository, operation, label + "-warmup", WARMUP_MILLIS, counter);
+        counter[0] = 0;
+        long start = System.nanoTime();
+        loop(repository, operation, label, MEASURE_MILLIS, counter);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return counter[0] / seconds;
+    }
+
+    private static void loop(DatabaseUserRepository repository, Operation operation, String prefix,
+                             long millis, int[] counter) {
+        long deadline = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < deadline) {
+            int i = counter[0]++;
+            String userId = String.valueOf(i % 21 + 1);
+            if (operation == Operation.FIND_ONE) {
+                repository.findOne(userId);
+            } else {
+                repository.saveFriendship(prefix + "-" + i, userId, String.valueOf((i + 1) % 21 + 1));
+            }
+        }
+    }
+
+    private enum Operation { FIND_ONE, SAVE_FRIENDSHIP }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import domain.User;
+import repository.CsvUserLoader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the load throughput of the old line-by-line loader ({@link BufferedReader},
+ * {@code String.split} and {@code trim}) with the memory-mapped {@link CsvUserLoader}, in MB/s.
+ * <p>
+ * Arguments (optional): number of users (default 5000000), parsing threads (default one per
+ * processor). The file is generated in the temporary directory and deleted afterwards. Both
+ * loaders keep every user, so give the JVM enough heap that GC does not dominate.
+ * <p>
+ * Run with:
+ * {@code MAVEN_OPTS=-Xmx4g mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmark.CsvLoadBenchmark}
+ */
+public class CsvLoadBenchmark {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Path file = Files.createTempFile("users", ".csv");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                for (int i = 0; i < userCount; i++) {
+                    writer.write(i + ",First" + i + ",Last" + i);
+                    writer.newLine();
+                }
+            }
+            double megabytes = Files.size(file) / 1e6;
+            System.out.printf("%d users, %.1f MB%n", userCount, megabytes);
+
+            report("BufferedReader + split", megabytes, time(() -> loadLineByLine(file)));
+            report("mmap, 1 thread", megabytes, time(() -> new CsvUserLoader(1, 64 << 20).load(file).getUsers().size()));
+            report("mmap, " + threads + " thread(s)", megabytes,
+                    time(() -> new CsvUserLoader(threads, 16 << 20).load(file).getUsers().size()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static int loadLineByLine(Path file) throws IOException {
+        List<User> users = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length == 3) {
+                    users.add(new User(parts[0].trim(), parts[1].trim(), parts[2].trim()));
+                }
+            }
+        }
+        return users.size();
+    }
+
+    private static void report(String loader, double megabytes, double seconds) {
+        System.out.printf("%-24s %8.1f MB/s%n", loader, megabytes / seconds);
+    }
+
+    private static double time(Load load) throws IOException {
+        load.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            load.run();
+        }
+        return (System.nanoTime() - start) / 1e9 / ROUNDS;
+    }
+
+    @FunctionalInterface
+    private interface Load {
+        int run() throws IOException;
+    }
+}
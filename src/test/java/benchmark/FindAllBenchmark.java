@@ -0,0 +1,127 @@
+package benchmark;
+
+import domain.User;
+import repository.DatabaseUserRepository;
+import validator.UserValidator;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Compares the bulk {@link DatabaseUserRepository#findAll()} against the previous
+ * one-friends-query-per-user loading on a generated SQLite graph.
+ * <p>
+ * Arguments (all optional): number of users (default 100000), number of friendships
+ * (default 1000000), number of users sampled for the per-user path (default 50).
+ * The per-user cost is measured on the sample and extrapolated to the whole table.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmark.FindAllBenchmark}
+ */
+public class FindAllBenchmark {
+    private static final String DB_FILE = "benchmark_graph.db";
+    private static final String FRIENDS_PER_USER_SQL = """
+            SELECT u.* FROM users u
+            JOIN friendships f ON (f.user2_id = u.id AND f.user1_id = ?)
+            OR (f.user1_id = u.id AND f.user2_id = ?)
+        """;
+
+    public static void main(String[] args) throws SQLException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int sample = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        new File(DB_FILE).delete();
+        try {
+            long start = System.nanoTime();
+            generate(userCount, edgeCount);
+            System.out.printf("generated %d users / %d friendships in %.1f s%n",
+                    userCount, edgeCount, (System.nanoTime() - start) / 1e9);
+
+            double perUserMillis = measurePerUserLoading(sample);
+            System.out.printf("per-user friends query: %.2f ms/user, extrapolated findAll %.1f s%n",
+                    perUserMillis, perUserMillis * userCount / 1000);
+
+            try (DatabaseUserRepository repository = new DatabaseUserRepository(DB_FILE, new UserValidator(), 1, 0)) {
+                repository.findAll();
+                start = System.nanoTime();
+                long friendReferences = 0;
+                for (User user : repository.findAll()) {
+                    friendReferences += user.getFriends().size();
+                }
+                System.out.printf("bulk findAll: %.2f s (%d friend references)%n",
+                        (System.nanoTime() - start) / 1e9, friendReferences);
+            }
+        } finally {
+            new File(DB_FILE).delete();
+        }
+    }
+
+    static void generate(int userCount, int edgeCount) throws SQLException {
+        new DatabaseUserRepository(DB_FILE, new UserValidator()).close();
+        Random random = new Random(42);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + DB_FILE)) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM friendships");
+                statement.execute("DELETE FROM users");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO users (id, first_name, last_name) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < userCount; i++) {
+                    insert.setString(1, "u" + i);
+                    insert.setString(2, "First" + i);
+                    insert.setString(3, "Last" + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT OR IGNORE INTO friendships (id, user1_id, user2_id) VALUES (?, MIN(?, ?), MAX(?, ?))")) {
+                for (int i = 0; i < edgeCount; i++) {
+                    int a = random.nextInt(userCount);
+                    int b = random.nextInt(userCount);
+                    if (a == b) {
+                        b = (b + 1) % userCount;
+                    }
+                    insert.setString(1, "f" + i);
+                    insert.setString(2, "u" + a);
+                    insert.setString(3, "u" + b);
+                    insert.setString(4, "u" + a);
+                    insert.setString(5, "u" + b);
+                    insert.addBatch();
+                    if (i % 10_000 == 9_999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private static double measurePerUserLoading(int sample) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + DB_FILE);
+             PreparedStatement statement = connection.prepareStatement(FRIENDS_PER_USER_SQL)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < sample; i++) {
+                statement.setString(1, "u" + i);
+                statement.setString(2, "u" + i);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        new User(resultSet.getString("id"), resultSet.getString("first_name"),
+                                resultSet.getString("last_name"));
+                    }
+                }
+            }
+            return (System.nanoTime() - start) / 1e6 / sample;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random friendship graphs for the benchmarks. Self-loops are skipped, so the average degree
+ * is slightly below the requested one; duplicate pairs are kept and left to the caller.
+ */
+final class GraphGenerator {
+    private GraphGenerator() {
+    }
+
+    /**
+     * @param users number of vertices
+     * @param averageDegree average number of friends per user
+     * @param distribution {@code uniform} for endpoints picked uniformly at random, or
+     * {@code powerlaw} for preferential attachment, where the second endpoint of every edge is
+     * picked in proportion to the degrees so far, giving a few very popular users
+     * @param seed random seed, so runs with the same parameters get the same graph
+     * @return the edges as pairs of vertex indices
+     * @throws IllegalArgumentException if the distribution is unknown
+     */
+    static List<int[]> edges(int users, int averageDegree, String distribution, long seed) {
+        boolean powerLaw = switch (distribution) {
+            case "uniform" -> false;
+            case "powerlaw" -> true;
+            default -> throw new IllegalArgumentException("Unknown degree distribution " + distribution);
+        };
+        Random random = new Random(seed);
+        long edgeCount = (long) users * averageDegree / 2;
+        List<int[]> edges = new ArrayList<>((int) edgeCount);
+        int[] endpoints = new int[(int) edgeCount * 2];
+        int endpointCount = 0;
+        for (long edge = 0; edge < edgeCount; edge++) {
+            int a = random.nextInt(users);
+            int b = powerLaw && endpointCount > 0 ? endpoints[random.nextInt(endpointCount)] : random.nextInt(users);
+            if (a != b) {
+                edges.add(new int[]{a, b});
+                endpoints[endpointCount++] = a;
+                endpoints[endpointCount++] = b;
+            }
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,138 @@
+package benchmark;
+
+import domain.User;
+import repository.FriendshipRepository;
+import repository.InMemoryFriendshipRepository;
+import service.GraphSnapshot;
+import service.GraphStorage;
+import service.GraphTraversal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Reports the heap cost per friendship and the traversal throughput of the {@link User}
+ * object graph next to a {@link GraphSnapshot} built from it, with the adjacency on the heap,
+ * in direct buffers and in a memory-mapped file.
+ * <p>
+ * Arguments (optional): number of users (default 200000), average degree (default 10).
+ * Heap sizes are measured as the used-heap difference after a GC, so they are approximate.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmark.GraphMemoryBenchmark}
+ */
+public class GraphMemoryBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int averageDegree = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        long before = usedHeap();
+        List<User> users = generate(userCount, averageDegree);
+        long objectGraphBytes = usedHeap() - before;
+        long edges = 0;
+        for (User user : users) {
+            edges += user.getFriends().size();
+        }
+        edges /= 2;
+
+        before = usedHeap();
+        GraphSnapshot graph = GraphSnapshot.of(users);
+        long snapshotBytes = usedHeap() - before;
+
+        System.out.printf("%d users, %d friendships%n", userCount, edges);
+        System.out.printf("object graph: %8.1f bytes/friendship (%d MB, users and names included)%n",
+                (double) objectGraphBytes / edges, objectGraphBytes >> 20);
+        System.out.printf("snapshot:     %8.1f bytes/friendship (%d MB, %d MB of it CSR arrays)%n",
+                (double) snapshotBytes / edges, snapshotBytes >> 20, graph.getAdjacencyBytes() >> 20);
+
+        long edgeScans = 2 * edges;
+        double objectSeconds = time(() -> countObjectGraph(users));
+        double snapshotSeconds = time(() -> GraphTraversal.countComponents(graph));
+        System.out.printf("object graph traversal: %8.1f M edges/s%n", edgeScans / objectSeconds / 1e6);
+        System.out.printf("snapshot traversal:     %8.1f M edges/s%n", edgeScans / snapshotSeconds / 1e6);
+
+        FriendshipRepository friendships = InMemoryFriendshipRepository.fromFriendLists(users);
+        Path image = Files.createTempFile("graph", ".img");
+        try {
+            offHeap("direct", GraphStorage.direct(), users, friendships, edgeScans);
+            offHeap("mapped", GraphStorage.mapped(image), users, friendships, edgeScans);
+        } finally {
+            Files.deleteIfExists(image);
+        }
+    }
+
+    private static void offHeap(String name, GraphStorage storage, List<User> users,
+                                FriendshipRepository friendships, long edgeScans) {
+        long before = usedHeap();
+        GraphSnapshot graph = storage.snapshot(users, friendships);
+        long heapBytes = usedHeap() - before;
+        double seconds = time(() -> GraphTraversal.countComponents(graph));
+        System.out.printf("%s snapshot: %d MB on heap, %d MB off heap, traversal %8.1f M edges/s%n",
+                name, heapBytes >> 20, graph.getAdjacencyBytes() >> 20, edgeScans / seconds / 1e6);
+    }
+
+    private static List<User> generate(int userCount, int averageDegree) {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            users.add(new User("u" + i, "First" + i, "Last" + i));
+        }
+        for (long edge = 0; edge < (long) userCount * averageDegree / 2; edge++) {
+            User a = users.get(random.nextInt(userCount));
+            User b = users.get(random.nextInt(userCount));
+            if (a != b) {
+                a.getFriends().add(b);
+                b.getFriends().add(a);
+            }
+        }
+        return users;
+    }
+
+    private static int countObjectGraph(List<User> users) {
+        Set<User> visited = new HashSet<>();
+        Deque<User> queue = new ArrayDeque<>();
+        int count = 0;
+        for (User start : users) {
+            if (!visited.add(start)) {
+                continue;
+            }
+            count++;
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                for (User friend : queue.poll().getFriends()) {
+                    if (visited.add(friend)) {
+                        queue.add(friend);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double time(Runnable traversal) {
+        traversal.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            traversal.run();
+        }
+        return (System.nanoTime() - start) / 1e9 / ROUNDS;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,96 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import service.GraphSnapshot;
+import service.GraphTraversal;
+import service.ParallelComponents;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of {@link ParallelComponents} at 1, 2, 4 and 8 worker threads against the
+ * sequential {@link GraphTraversal} on a random multi-million-edge graph.
+ * <p>
+ * Run with (JMH forks need the test classpath, hence exec:exec):
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath benchmark.ParallelComponentsBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ParallelComponentsBenchmark {
+    @Param({"1000000"})
+    public int vertices;
+
+    @Param({"5000000"})
+    public int edges;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private GraphSnapshot graph;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] ids = new String[vertices];
+        for (int i = 0; i < vertices; i++) {
+            ids[i] = String.valueOf(i);
+        }
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        for (int i = 0; i < edges; i++) {
+            from[i] = random.nextInt(vertices);
+            to[i] = random.nextInt(vertices);
+        }
+        graph = GraphSnapshot.fromEdges(ids, from, to);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int parallel() {
+        return ParallelComponents.count(graph, pool);
+    }
+
+    @Benchmark
+    public int sequential() {
+        return GraphTraversal.countComponents(graph);
+    }
+
+    /**
+     * @param args optional JMH command line options, e.g. {@code -wi 1 -i 3 -p threads=1,4}
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ParallelComponentsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,157 @@
+package benchmark;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import repository.FriendshipRepository;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryUserRepository;
+import repository.Repository;
+import service.ExecutionMode;
+import service.FriendSuggestion;
+import service.SocialNetworkService;
+import validator.UserValidator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "People you may know" suggestions of {@link SocialNetworkService} on power-law graphs of
+ * {@code users} users with {@code averageDegree} friends on average, where a few hubs have
+ * most of the friendships and friends of friends add up quickly.
+ * <p>
+ * {@link #nestedContains} is the naive ranking, which checks every friend of a friend against
+ * the friend list of the user; {@link #getFriendSuggestions} counts them in a map instead.
+ * {@link #precomputeFriendSuggestions} ranks every user at once from a snapshot, in the given
+ * {@code mode}, and {@link #getPrecomputedSuggestions} reads the result back.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Djmh.include=RecommendationBenchmark}, which writes
+ * JSON results to {@code target/jmh-result.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendationBenchmark {
+    private static final int K = 10;
+
+    @Param({"10000", "100000"})
+    public int users;
+
+    @Param({"8", "32"})
+    public int averageDegree;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public ExecutionMode mode;
+
+    private SocialNetworkService service;
+    private SocialNetworkService precomputed;
+    private String[] ids;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ValidationException {
+        Repository<String, User> userRepository = new InMemoryUserRepository(new UserValidator());
+        FriendshipRepository friendshipRepository = new InMemoryFriendshipRepository();
+        List<User> generated = new ArrayList<>(users);
+        ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = "u" + i;
+            generated.add(new User(ids[i], "First" + i, "Last" + i));
+        }
+        userRepository.saveAll(generated);
+        long friendships = 0;
+        for (int[] edge : GraphGenerator.edges(users, averageDegree, "powerlaw", 42)) {
+            friendshipRepository.save(new Friendship("f" + friendships++, ids[edge[0]], ids[edge[1]]));
+        }
+        service = new SocialNetworkService(userRepository, friendshipRepository, mode);
+        precomputed = new SocialNetworkService(userRepository, friendshipRepository, mode);
+        precomputed.precomputeFriendSuggestions(K);
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public List<User> nestedContains() {
+        String userId = ids[random.nextInt(ids.length)];
+        List<User> friends = service.getFriends(userId);
+        List<User> candidates = new ArrayList<>();
+        List<Integer> mutualFriends = new ArrayList<>();
+        for (User friend : friends) {
+            for (User candidate : service.getFriends(friend.getId())) {
+                if (candidate.getId().equals(userId) || friends.contains(candidate)) {
+                    continue;
+                }
+                int index = candidates.indexOf(candidate);
+                if (index < 0) {
+                    candidates.add(candidate);
+                    mutualFriends.add(1);
+                } else {
+                    mutualFriends.set(index, mutualFriends.get(index) + 1);
+                }
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingInt(i -> -mutualFriends.get(i))
+                .thenComparing(i -> candidates.get(i).getId()));
+        List<User> best = new ArrayList<>();
+        for (int i = 0; i < Math.min(K, order.size()); i++) {
+            best.add(candidates.get(order.get(i)));
+        }
+        return best;
+    }
+
+    @Benchmark
+    public List<FriendSuggestion> getFriendSuggestions() {
+        return service.getFriendSuggestions(ids[random.nextInt(ids.length)], K);
+    }
+
+    @Benchmark
+    public List<FriendSuggestion> getPrecomputedSuggestions() {
+        return precomputed.getFriendSuggestions(ids[random.nextInt(ids.length)], K);
+    }
+
+    /**
+     * Drops the previous result first, so every call takes a snapshot and ranks every user
+     */
+    @Benchmark
+    public Map<String, List<FriendSuggestion>> precomputeFriendSuggestions() {
+        service.getAnalyticsCache().invalidate();
+        return service.precomputeFriendSuggestions(K);
+    }
+
+    /**
+     * @param args optional JMH command line options, e.g. {@code -wi 1 -i 3 -p users=1000}
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(RecommendationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,162 @@
+package benchmark;
+
+import domain.User;
+import exceptions.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import repository.BinaryUserRepository;
+import repository.CompactUserRepository;
+import repository.ConcurrentUserRepository;
+import repository.DatabaseUserRepository;
+import repository.FileUserRepository;
+import repository.InMemoryUserRepository;
+import repository.Repository;
+import validator.UserValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The CRUD operations of every user repository on a store of {@code users} users. The store is
+ * rebuilt before every iteration, outside the measurement, so writes of one iteration do not
+ * leak into the next. The file based backends write to a temporary directory.
+ * <p>
+ * A delete needs a user to delete, so {@link #deleteAndSave} deletes a random user and saves
+ * it back; subtract {@link #save} to estimate the delete alone.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Djmh.include=RepositoryBenchmark}, which writes JSON
+ * results to {@code target/jmh-result.json}; narrow the matrix with e.g.
+ * {@code -Djmh.args="-p backend=memory,database -p users=1000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    @Param({"memory", "concurrent", "compact", "file", "journal", "binary", "database"})
+    public String backend;
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    private Path directory;
+    private Repository<String, User> repository;
+    private String[] ids;
+    private Random random;
+    private long saved;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException, ValidationException {
+        directory = Files.createTempDirectory("repository-benchmark");
+        repository = create(backend, directory);
+        List<User> generated = new ArrayList<>(users);
+        ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = "u" + i;
+            generated.add(new User(ids[i], "First" + i, "Last" + i));
+        }
+        repository.saveAll(generated);
+        random = new Random(42);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        if (repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static Repository<String, User> create(String backend, Path directory) throws IOException {
+        UserValidator validator = new UserValidator();
+        return switch (backend) {
+            case "memory" -> new InMemoryUserRepository(validator);
+            case "concurrent" -> new ConcurrentUserRepository(validator);
+            case "compact" -> new CompactUserRepository(validator);
+            // without a journal the file must exist before the first load
+            case "file" -> new FileUserRepository(Files.createFile(directory.resolve("users.csv")).toString(), validator);
+            case "journal" -> new FileUserRepository(directory.resolve("users.csv").toString(), validator, 0);
+            case "binary" -> new BinaryUserRepository(directory.resolve("users.bin").toString(), validator);
+            case "database" -> new DatabaseUserRepository(directory.resolve("users.db").toString(), validator, 2, 60_000);
+            default -> throw new IllegalArgumentException("Unknown backend " + backend);
+        };
+    }
+
+    private String randomId() {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    @Benchmark
+    public Optional<User> findOne() {
+        return repository.findOne(randomId());
+    }
+
+    @Benchmark
+    public void findAll(Blackhole blackhole) {
+        for (User user : repository.findAll()) {
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    public Optional<User> save() throws ValidationException {
+        saved++;
+        return repository.save(new User("new" + saved, "First", "Last"));
+    }
+
+    @Benchmark
+    public Optional<User> update() throws ValidationException {
+        return repository.update(new User(randomId(), "Updated", "Name"));
+    }
+
+    @Benchmark
+    public Optional<User> deleteAndSave() throws ValidationException {
+        Optional<User> deleted = repository.delete(randomId());
+        if (deleted.isPresent()) {
+            User user = deleted.get();
+            repository.save(new User(user.getId(), user.getFirstName(), user.getLastName()));
+        }
+        return deleted;
+    }
+
+    /**
+     * @param args optional JMH command line options, e.g. {@code -wi 1 -i 3 -p backend=memory}
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(RepositoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,131 @@
+package benchmark;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import repository.FriendshipRepository;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryUserRepository;
+import repository.Repository;
+import service.ExecutionMode;
+import service.SocialNetworkService;
+import validator.UserValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The write and analytics paths of {@link SocialNetworkService} on generated graphs of
+ * {@code users} users with {@code averageDegree} friends on average, whose degrees follow the
+ * {@code distribution} of {@link GraphGenerator}.
+ * <p>
+ * The analytics results are cached until the next write, so the analytics benchmarks drop
+ * the cache first and measure what a read right after a write costs. In sequential mode
+ * the community index survives that and only the answer is rebuilt from it. The service is
+ * rebuilt before every iteration, so the friendships added by {@link #addFriendship} do not
+ * pile up across iterations.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Djmh.include=ServiceBenchmark}, which writes JSON
+ * results to {@code target/jmh-result.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    @Param({"10000", "100000"})
+    public int users;
+
+    @Param({"4", "16"})
+    public int averageDegree;
+
+    @Param({"uniform", "powerlaw"})
+    public String distribution;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public ExecutionMode mode;
+
+    private SocialNetworkService service;
+    private String[] ids;
+    private Random random;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws ValidationException {
+        Repository<String, User> userRepository = new InMemoryUserRepository(new UserValidator());
+        FriendshipRepository friendshipRepository = new InMemoryFriendshipRepository();
+        List<User> generated = new ArrayList<>(users);
+        ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = "u" + i;
+            generated.add(new User(ids[i], "First" + i, "Last" + i));
+        }
+        userRepository.saveAll(generated);
+        long friendships = 0;
+        for (int[] edge : GraphGenerator.edges(users, averageDegree, distribution, 42)) {
+            friendshipRepository.save(new Friendship("f" + friendships++, ids[edge[0]], ids[edge[1]]));
+        }
+        service = new SocialNetworkService(userRepository, friendshipRepository, mode);
+        // builds the community index, as a running service would have done long ago
+        service.getNumberOfCommunities();
+        random = new Random(42);
+    }
+
+    /**
+     * Adds a random friendship; pairs which are already friends fail validation and are
+     * measured as such
+     */
+    @Benchmark
+    public boolean addFriendship() {
+        String id1 = ids[random.nextInt(ids.length)];
+        String id2 = ids[random.nextInt(ids.length)];
+        try {
+            service.addFriendship(id1, id2);
+            return true;
+        } catch (ValidationException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public int getNumberOfCommunities() {
+        service.getAnalyticsCache().invalidate();
+        return service.getNumberOfCommunities();
+    }
+
+    @Benchmark
+    public List<User> getMostSociableCommunity() {
+        service.getAnalyticsCache().invalidate();
+        return service.getMostSociableCommunity();
+    }
+
+    /**
+     * @param args optional JMH command line options, e.g. {@code -wi 1 -i 3 -p users=1000}
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import repository.FriendshipRepository;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryUserRepository;
+import repository.Repository;
+import service.SocialNetworkService;
+import validator.UserValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Degrees-of-separation queries of {@link SocialNetworkService} on generated graphs of
+ * {@code users} users with {@code averageDegree} friends on average, whose degrees follow the
+ * {@code distribution} of {@link GraphGenerator}; the power-law graphs have hubs with a large
+ * share of all friendships.
+ * <p>
+ * {@link #findShortestPath} asks about random pairs, which almost never repeat, so every call
+ * runs a bidirectional search; {@link #findRecentShortestPath} cycles through a few pairs which
+ * stay in the cache of recent results. The snapshot is taken in the setup.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Djmh.include=ShortestPathBenchmark}, which writes JSON
+ * results to {@code target/jmh-result.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortestPathBenchmark {
+    private static final int RECENT_PAIRS = 64;
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    @Param({"8"})
+    public int averageDegree;
+
+    @Param({"uniform", "powerlaw"})
+    public String distribution;
+
+    private SocialNetworkService service;
+    private String[] ids;
+    private Random random;
+    private int recent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ValidationException {
+        Repository<String, User> userRepository = new InMemoryUserRepository(new UserValidator());
+        FriendshipRepository friendshipRepository = new InMemoryFriendshipRepository();
+        List<User> generated = new ArrayList<>(users);
+        ids = new String[users];
+        for (int i = 0; i < users; i++) {
+            ids[i] = "u" + i;
+            generated.add(new User(ids[i], "First" + i, "Last" + i));
+        }
+        userRepository.saveAll(generated);
+        long friendships = 0;
+        for (int[] edge : GraphGenerator.edges(users, averageDegree, distribution, 42)) {
+            friendshipRepository.save(new Friendship("f" + friendships++, ids[edge[0]], ids[edge[1]]));
+        }
+        service = new SocialNetworkService(userRepository, friendshipRepository);
+        service.findShortestPath(ids[0], ids[1]);
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public Optional<List<User>> findShortestPath() {
+        return service.findShortestPath(ids[random.nextInt(ids.length)], ids[random.nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public Optional<List<User>> findRecentShortestPath() {
+        int pair = recent++ % RECENT_PAIRS;
+        return service.findShortestPath(ids[pair], ids[ids.length - 1 - pair]);
+    }
+
+    /**
+     * @param args optional JMH command line options, e.g. {@code -wi 1 -i 3 -p users=1000}
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ShortestPathBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
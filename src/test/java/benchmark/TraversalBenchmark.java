@@ -0,0 +1,109 @@
+package benchmark;
+
+import domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import service.GraphSnapshot;
+import service.GraphTraversal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the communities of a random graph with the previous recursive, {@code HashSet}
+ * based DFS over {@link User} objects and with {@link GraphTraversal} over a {@link GraphSnapshot}.
+ * The graph is kept small enough for the recursive version not to overflow the stack.
+ * <p>
+ * Run with (JMH forks need the test classpath, hence exec:exec):
+ * {@code mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath benchmark.TraversalBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraversalBenchmark {
+    @Param({"1000", "5000"})
+    public int users;
+
+    @Param({"2", "8"})
+    public int averageDegree;
+
+    private List<User> userGraph;
+    private GraphSnapshot graph;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        userGraph = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userGraph.add(new User("u" + i, "First" + i, "Last" + i));
+        }
+        for (int edge = 0; edge < users * averageDegree / 2; edge++) {
+            int a = random.nextInt(users);
+            int b = random.nextInt(users);
+            if (a != b) {
+                userGraph.get(a).getFriends().add(userGraph.get(b));
+                userGraph.get(b).getFriends().add(userGraph.get(a));
+            }
+        }
+        graph = GraphSnapshot.of(userGraph);
+    }
+
+    @Benchmark
+    public int recursiveDfs() {
+        Set<User> visited = new HashSet<>();
+        int communities = 0;
+        for (User user : userGraph) {
+            if (!visited.contains(user)) {
+                communities++;
+                dfs(user, visited);
+            }
+        }
+        return communities;
+    }
+
+    @Benchmark
+    public int bitSetTraversal() {
+        return GraphTraversal.countComponents(graph);
+    }
+
+    private static void dfs(User user, Set<User> community) {
+        community.add(user);
+        for (User friend : user.getFriends()) {
+            if (!community.contains(friend)) {
+                dfs(friend, community);
+            }
+        }
+    }
+
+    /**
+     * @param args optional JMH command line options, e.g. {@code -wi 1 -i 3 -p threads=1,4}
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(TraversalBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
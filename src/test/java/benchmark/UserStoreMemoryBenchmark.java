@@ -0,0 +1,90 @@
+package benchmark;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import repository.CompactFriendshipRepository;
+import repository.CompactUserRepository;
+import repository.FriendshipRepository;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryUserRepository;
+import repository.Repository;
+import validator.UserValidator;
+
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Reports the heap cost per user of the {@link InMemoryUserRepository} and
+ * {@link InMemoryFriendshipRepository} next to their compact counterparts, and the lookup
+ * throughput of both.
+ * <p>
+ * Arguments (optional): number of users (default 1000000), average degree (default 10).
+ * Heap sizes are measured as the used-heap difference after a GC, so they are approximate;
+ * give the JVM enough heap for both layouts, e.g. {@code MAVEN_OPTS=-Xmx4g}.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmark.UserStoreMemoryBenchmark}
+ */
+public class UserStoreMemoryBenchmark {
+    private static final int LOOKUPS = 2_000_000;
+
+    // keeps the lookup results alive so they are not optimised away
+    private static int found;
+
+    public static void main(String[] args) throws ValidationException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int averageDegree = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        System.out.printf("%d users, average degree %d%n", userCount, averageDegree);
+
+        measure("hash maps", new InMemoryUserRepository(new UserValidator()),
+                new InMemoryFriendshipRepository(), userCount, averageDegree);
+        measure("compact  ", new CompactUserRepository(new UserValidator()),
+                new CompactFriendshipRepository(), userCount, averageDegree);
+    }
+
+    private static void measure(String name, Repository<String, User> users, FriendshipRepository friendships,
+                                int userCount, int averageDegree) throws ValidationException {
+        long before = usedHeap();
+        for (int i = 0; i < userCount; i++) {
+            users.save(new User("u" + i, "First" + i, "Last" + i));
+        }
+        long userBytes = usedHeap() - before;
+
+        Random random = new Random(42);
+        before = usedHeap();
+        for (long edge = 0; edge < (long) userCount * averageDegree / 2; edge++) {
+            String id1 = "u" + random.nextInt(userCount);
+            String id2 = "u" + random.nextInt(userCount);
+            friendships.save(new Friendship("f" + edge, id1, id2));
+        }
+        long friendshipBytes = usedHeap() - before;
+
+        double userLookups = throughput(() -> users.findOne("u" + random.nextInt(userCount)).isPresent());
+        double edgeLookups = throughput(() -> friendships.exists("u" + random.nextInt(userCount),
+                "u" + random.nextInt(userCount)));
+
+        System.out.printf("%s: users %6.1f bytes/user, with friendships %6.1f bytes/user (%d MB), "
+                        + "findOne %5.1f M/s, exists %5.1f M/s%n",
+                name, (double) userBytes / userCount, (double) (userBytes + friendshipBytes) / userCount,
+                (userBytes + friendshipBytes) >> 20, userLookups / 1e6, edgeLookups / 1e6);
+    }
+
+    private static double throughput(BooleanSupplier lookup) {
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (lookup.getAsBoolean()) {
+                found++;
+            }
+        }
+        return LOOKUPS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,47 @@
+package metrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBuckets_ShouldBoundValuesWithinOneSixteenth() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.bucket(value));
+            assertTrue(value + " above its bucket", upper >= value);
+            assertTrue(value + " bucket too wide", upper - value <= value / 16);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles_ShouldBeCloseToExactValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_000, histogram.getPercentile(50), 5_000_000 / 16.0);
+        assertEquals(9_900_000, histogram.getPercentile(99), 9_900_000 / 16.0);
+        assertEquals(9_990_000, histogram.getPercentile(99.9), 9_990_000 / 16.0);
+        assertEquals(10_000_000, histogram.getPercentile(100));
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void testPercentile_Empty_ShouldBeZero() {
+        assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentile_OutOfRange_ShouldThrow() {
+        new LatencyHistogram().getPercentile(101);
+    }
+}
@@ -0,0 +1,78 @@
+package metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+    private MetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @After
+    public void cleanup() {
+        registry.unregisterMBeans();
+    }
+
+    @Test
+    public void testTime_ShouldCountCallsAndErrors() {
+        OperationMetrics operation = registry.operation("users.findOne");
+        assertEquals("result", operation.time(() -> "result"));
+        try {
+            operation.run(() -> {
+                throw new IllegalStateException("boom");
+            });
+            fail("expected the call to fail");
+        } catch (IllegalStateException expected) {
+            // rethrown unchanged
+        }
+
+        assertSame(operation, registry.operation("users.findOne"));
+        assertEquals(2, operation.getCount());
+        assertEquals(1, operation.getErrors());
+    }
+
+    @Test
+    public void testRegisterMBeans_ShouldPublishExistingAndLaterMetrics() throws Exception {
+        registry.operation("users.findOne").time(() -> 1);
+        registry.registerMBeans("metrics-test");
+        long[] value = {7};
+        registry.gauge("database.queriesExecuted", () -> value[0]);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName operation = new ObjectName("metrics-test:type=Operation,name=" + ObjectName.quote("users.findOne"));
+        ObjectName gauge = new ObjectName("metrics-test:type=Gauge,name=" + ObjectName.quote("database.queriesExecuted"));
+        assertEquals(1L, server.getAttribute(operation, "Count"));
+        value[0] = 8;
+        assertEquals(8L, server.getAttribute(gauge, "Value"));
+
+        registry.unregisterMBeans();
+        assertFalse(server.isRegistered(operation));
+        assertFalse(server.isRegistered(gauge));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRegisterMBeans_Twice_ShouldThrow() {
+        registry.registerMBeans("metrics-test");
+        registry.registerMBeans("metrics-test");
+    }
+
+    @Test
+    public void testReporter_ShouldReportWithoutFailing() {
+        registry.operation("users.save").time(() -> 1);
+        registry.gauge("database.connectionsOpened", () -> 1);
+        try (MetricsReporter reporter = new MetricsReporter(registry, Duration.ofHours(1))) {
+            reporter.report();
+        }
+    }
+}
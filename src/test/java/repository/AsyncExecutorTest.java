@@ -0,0 +1,78 @@
+package repository;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncExecutorTest {
+    @Test(timeout = 10_000)
+    public void testSubmit_ShouldNotExceedMaxConcurrency() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        try (AsyncExecutor executor = new AsyncExecutor(3)) {
+            for (int i = 0; i < 50; i++) {
+                int value = i;
+                futures.add(executor.submit(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(2);
+                    running.decrementAndGet();
+                    return value;
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        }
+
+        assertTrue(peak.get() <= 3);
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, (int) futures.get(i).get());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testSubmit_ShouldNotStartMoreThreadsThanMaxConcurrency() throws Exception {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Thread>> futures = new ArrayList<>();
+        try (AsyncExecutor executor = new AsyncExecutor(2)) {
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(() -> {
+                    Thread.sleep(2);
+                    return Thread.currentThread();
+                }));
+            }
+            for (CompletableFuture<Thread> future : futures) {
+                threads.add(future.get());
+            }
+        }
+
+        // virtual threads are started per call; the pool of platform threads is bounded instead
+        if (threads.iterator().next().getName().startsWith("async-repository")) {
+            assertTrue(threads.size() <= 2);
+        }
+    }
+
+    @Test
+    public void testSubmit_FailingCall_ShouldCompleteExceptionally() throws InterruptedException {
+        try (AsyncExecutor executor = new AsyncExecutor(1)) {
+            executor.submit(() -> {
+                throw new IllegalStateException("boom");
+            }).get();
+            fail("expected the call to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_NoConcurrency_ShouldThrow() {
+        new AsyncExecutor(0);
+    }
+}
@@ -0,0 +1,52 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class AsyncRepositoryTest {
+    private AsyncExecutor executor;
+    private AsyncRepository<String, User> repository;
+
+    @Before
+    public void setUp() {
+        executor = new AsyncExecutor(4);
+        repository = new AsyncRepository<>(new ConcurrentUserRepository(new UserValidator()), executor);
+    }
+
+    @After
+    public void cleanup() {
+        executor.close();
+    }
+
+    @Test
+    public void testCalls_ShouldReachTheRepository() throws Exception {
+        repository.save(new User("1", "John", "Doe")).get();
+        repository.save(new User("2", "Jane", "Doe")).get();
+
+        assertEquals("John", repository.findOne("1").get().get().getFirstName());
+        List<User> found = repository.findMany(List.of("2", "3", "1")).get();
+        assertEquals("2", found.get(0).getId());
+        assertEquals("1", found.get(1).getId());
+        assertTrue(repository.delete("1").get().isPresent());
+        assertTrue(repository.findOne("1").get().isEmpty());
+    }
+
+    @Test
+    public void testSave_InvalidUser_ShouldFailWithValidationException() throws InterruptedException {
+        try {
+            repository.save(new User("", "", "")).get();
+            fail("expected ValidationException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ValidationException);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package repository;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BinaryFriendshipRepositoryTest {
+    private static final String TEST_FILE = "test_friendships.bin";
+
+    @After
+    public void cleanup() {
+        new File(TEST_FILE).delete();
+        new File(TEST_FILE + ".journal").delete();
+        new File(TEST_FILE + ".journal.compacting").delete();
+    }
+
+    @Test
+    public void testChanges_ShouldBeStoredInTheUserFile() throws ValidationException {
+        BinaryUserRepository users = new BinaryUserRepository(TEST_FILE, new UserValidator());
+        users.saveAll(List.of(new User("1", "John", "Doe"), new User("2", "Jane", "Smith"),
+                new User("3", "Bob", "Wilson")));
+        FriendshipRepository friendships = new BinaryFriendshipRepository(users);
+        friendships.save(new Friendship("f1", "1", "2"));
+        friendships.save(new Friendship("f2", "2", "3"));
+        friendships.save(new Friendship("f3", "1", "3"));
+        friendships.delete("3", "1");
+
+        BinaryUserRepository reloadedUsers = new BinaryUserRepository(TEST_FILE, new UserValidator());
+        FriendshipRepository reloaded = new BinaryFriendshipRepository(reloadedUsers);
+
+        assertEquals(Set.of("1", "3"), reloaded.findFriendIds("2"));
+        assertFalse(reloaded.exists("1", "3"));
+
+        reloaded.deleteAllOf("2");
+        assertTrue(new BinaryFriendshipRepository(new BinaryUserRepository(TEST_FILE, new UserValidator()))
+                .findFriendIds("2").isEmpty());
+    }
+
+    @Test
+    public void testChanges_ShouldSurviveFlushAndReplay() throws ValidationException {
+        BinaryUserRepository users = new BinaryUserRepository(TEST_FILE, new UserValidator());
+        users.saveAll(List.of(new User("1", "John", "Doe"), new User("2", "Jane", "Smith"),
+                new User("3", "Bob", "Wilson")));
+        FriendshipRepository friendships = new BinaryFriendshipRepository(users);
+        friendships.save(new Friendship("f1", "1", "2"));
+        users.flush();
+        // journaled on top of the snapshot
+        friendships.save(new Friendship("f2", "2", "3"));
+        friendships.delete("1", "2");
+
+        BinaryUserRepository reloadedUsers = new BinaryUserRepository(TEST_FILE, new UserValidator());
+
+        assertEquals(List.of("3"), reloadedUsers.findOne("2").get().getFriends().stream().map(User::getId).toList());
+        assertEquals(Set.of("2"), new BinaryFriendshipRepository(reloadedUsers).findFriendIds("3"));
+    }
+
+    @Test
+    public void testFailedAppend_ShouldRollBackAndThrow() throws Exception {
+        BinaryUserRepository users = new BinaryUserRepository(TEST_FILE, new UserValidator());
+        users.saveAll(List.of(new User("1", "John", "Doe"), new User("2", "Jane", "Smith"),
+                new User("3", "Bob", "Wilson")));
+        FriendshipRepository friendships = new BinaryFriendshipRepository(users);
+        friendships.save(new Friendship("f1", "1", "2"));
+        users.close();
+
+        assertThrows(RuntimeException.class, () -> friendships.save(new Friendship("f2", "2", "3")));
+        assertThrows(RuntimeException.class, () -> friendships.deleteAllOf("1"));
+
+        assertEquals(Set.of("1"), friendships.findFriendIds("2"));
+        assertEquals(1, users.findOne("2").get().getFriends().size());
+        assertEquals(1, users.findOne("1").get().getFriends().size());
+        assertEquals(1, new BinaryFriendshipRepository(new BinaryUserRepository(TEST_FILE, new UserValidator())).count());
+    }
+}
@@ -0,0 +1,120 @@
+package repository;
+
+import domain.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryUserFormatTest {
+    private static final Path TEST_FILE = Paths.get("test_users.bin");
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(TEST_FILE);
+    }
+
+    @Test
+    public void testWriteAndRead_ShouldKeepUsersAndFriendships() throws IOException {
+        User john = new User("1", "John", "Doe");
+        User jane = new User("2", "Jäne", "Smïth");
+        User bob = new User("3", "Bob", "Wilson");
+        john.getFriends().add(jane);
+        jane.getFriends().add(john);
+        jane.getFriends().add(bob);
+        bob.getFriends().add(jane);
+
+        BinaryUserFormat.write(TEST_FILE, List.of(john, jane, bob));
+        List<User> users = BinaryUserFormat.read(TEST_FILE);
+
+        assertEquals(3, users.size());
+        assertEquals("Jäne", users.get(1).getFirstName());
+        assertEquals("Smïth", users.get(1).getLastName());
+        assertEquals(List.of(users.get(1)), users.get(0).getFriends());
+        assertEquals(2, users.get(1).getFriends().size());
+        assertSame(users.get(1), users.get(2).getFriends().get(0));
+    }
+
+    @Test
+    public void testWrite_FriendOutsideUsers_ShouldBeDropped() throws IOException {
+        User john = new User("1", "John", "Doe");
+        User removed = new User("2", "Jane", "Smith");
+        john.getFriends().add(removed);
+
+        BinaryUserFormat.write(TEST_FILE, List.of(john));
+
+        assertTrue(BinaryUserFormat.read(TEST_FILE).get(0).getFriends().isEmpty());
+    }
+
+    @Test
+    public void testWriteAndRead_LargerThanBuffer_ShouldRoundTrip() throws IOException {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            users.add(new User("user-" + i, "First" + i, "Last" + i));
+            if (i > 0) {
+                users.get(i).getFriends().add(users.get(i - 1));
+                users.get(i - 1).getFriends().add(users.get(i));
+            }
+        }
+
+        BinaryUserFormat.write(TEST_FILE, users);
+        List<User> read = BinaryUserFormat.read(TEST_FILE);
+
+        assertEquals(20_000, read.size());
+        assertEquals("Last19999", read.get(19_999).getLastName());
+        assertEquals(2, read.get(10_000).getFriends().size());
+    }
+
+    @Test
+    public void testRead_FlippedByte_ShouldFailChecksum() throws IOException {
+        BinaryUserFormat.write(TEST_FILE, List.of(new User("1", "John", "Doe")));
+        byte[] bytes = Files.readAllBytes(TEST_FILE);
+        // last byte of "Doe", just before the edge count and the checksum
+        bytes[bytes.length - 9] ^= 1;
+        Files.write(TEST_FILE, bytes);
+
+        try {
+            BinaryUserFormat.read(TEST_FILE);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void testRead_UnknownVersion_ShouldThrowIOException() throws IOException {
+        BinaryUserFormat.write(TEST_FILE, List.of(new User("1", "John", "Doe")));
+        byte[] bytes = Files.readAllBytes(TEST_FILE);
+        bytes[5] = 99;
+        Files.write(TEST_FILE, bytes);
+
+        try {
+            BinaryUserFormat.read(TEST_FILE);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("version 99"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_CsvFile_ShouldThrowIOException() throws IOException {
+        Files.writeString(TEST_FILE, "1,John,Doe\n");
+        BinaryUserFormat.read(TEST_FILE);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_TruncatedFile_ShouldThrowIOException() throws IOException {
+        BinaryUserFormat.write(TEST_FILE, List.of(new User("1", "John", "Doe")));
+        byte[] bytes = Files.readAllBytes(TEST_FILE);
+        Files.write(TEST_FILE, Arrays.copyOf(bytes, bytes.length - 8));
+        BinaryUserFormat.read(TEST_FILE);
+    }
+}
@@ -0,0 +1,143 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class BinaryUserRepositoryTest {
+    private static final String TEST_FILE = "test_users_repository.bin";
+    private BinaryUserRepository repository;
+    private User testUser;
+
+    @Before
+    public void setUp() {
+        repository = new BinaryUserRepository(TEST_FILE, new UserValidator());
+        testUser = new User("1", "John", "Doe");
+    }
+
+    @After
+    public void cleanup() {
+        new File(TEST_FILE).delete();
+        new File(TEST_FILE + ".journal").delete();
+        new File(TEST_FILE + ".journal.compacting").delete();
+    }
+
+    @Test
+    public void testSaveAndPersistence() throws ValidationException {
+        repository.save(testUser);
+
+        Optional<User> loaded = new BinaryUserRepository(TEST_FILE, new UserValidator()).findOne("1");
+
+        assertTrue(loaded.isPresent());
+        assertEquals("John", loaded.get().getFirstName());
+    }
+
+    @Test
+    public void testUpdateAndDeletePersistence() throws ValidationException {
+        repository.saveAll(List.of(testUser, new User("2", "Jane", "Smith")));
+        repository.update(new User("1", "John Updated", "Doe"));
+        repository.delete("2");
+
+        Repository<String, User> reloaded = new BinaryUserRepository(TEST_FILE, new UserValidator());
+
+        assertEquals("John Updated", reloaded.findOne("1").get().getFirstName());
+        assertTrue(reloaded.findOne("2").isEmpty());
+    }
+
+    @Test
+    public void testFlush_ShouldPersistFriendships() throws ValidationException {
+        User jane = new User("2", "Jane", "Smith");
+        repository.saveAll(List.of(testUser, jane));
+        testUser.getFriends().add(jane);
+        jane.getFriends().add(testUser);
+
+        repository.flush();
+
+        User reloaded = new BinaryUserRepository(TEST_FILE, new UserValidator()).findOne("1").get();
+        assertEquals(1, reloaded.getFriends().size());
+        assertEquals("2", reloaded.getFriends().get(0).getId());
+    }
+
+    @Test
+    public void testWrites_ShouldBeJournaledUntilFlush() throws ValidationException {
+        repository.save(testUser);
+        repository.save(new User("2", "Jane, \"J\"", "Smith\n+%"));
+        repository.update(new User("1", "John Updated", "Doe"));
+
+        assertFalse(new File(TEST_FILE).exists());
+        assertEquals("Smith\n+%", new BinaryUserRepository(TEST_FILE, new UserValidator()).findOne("2").get().getLastName());
+
+        repository.flush();
+
+        assertTrue(new File(TEST_FILE).exists());
+        assertEquals(0, new File(TEST_FILE + ".journal").length());
+        BinaryUserRepository reloaded = new BinaryUserRepository(TEST_FILE, new UserValidator());
+        assertEquals("John Updated", reloaded.findOne("1").get().getFirstName());
+        assertEquals("Jane, \"J\"", reloaded.findOne("2").get().getFirstName());
+    }
+
+    @Test
+    public void testManyWrites_ShouldCompactJournalAndSurviveReload() throws ValidationException {
+        for (int i = 0; i < 1500; i++) {
+            repository.save(new User("u" + i, "First", "Last"));
+        }
+        for (int i = 0; i < 1500; i += 2) {
+            repository.delete("u" + i);
+        }
+
+        assertTrue(new File(TEST_FILE).exists());
+        assertTrue(new File(TEST_FILE + ".journal").length() < new File(TEST_FILE).length());
+        BinaryUserRepository reloaded = new BinaryUserRepository(TEST_FILE, new UserValidator());
+        assertEquals(750, reloaded.count());
+        assertTrue(reloaded.findOne("u1499").isPresent());
+        assertTrue(reloaded.findOne("u1498").isEmpty());
+    }
+
+    @Test
+    public void testFailedAppend_ShouldRollBackAndThrow() throws Exception {
+        repository.save(testUser);
+        repository.close();
+
+        assertThrows(RuntimeException.class, () -> repository.save(new User("2", "Jane", "Smith")));
+        assertThrows(RuntimeException.class, () -> repository.update(new User("1", "John Updated", "Doe")));
+        assertThrows(RuntimeException.class, () -> repository.delete("1"));
+
+        assertTrue(repository.findOne("2").isEmpty());
+        assertEquals("John", repository.findOne("1").get().getFirstName());
+        assertEquals(1, new BinaryUserRepository(TEST_FILE, new UserValidator()).count());
+    }
+
+    @Test
+    public void testSave_DuplicateId_ShouldReturnExistingUser() throws ValidationException {
+        repository.save(testUser);
+
+        Optional<User> result = repository.save(new User("1", "Jane", "Smith"));
+
+        assertTrue(result.isPresent());
+        assertEquals("John", result.get().getFirstName());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testSave_InvalidUser_ShouldThrowValidationException() throws ValidationException {
+        repository.save(new User("", "", ""));
+    }
+
+    @Test
+    public void testDeleteAll_ShouldReturnRemovedUsers() throws ValidationException {
+        repository.saveAll(List.of(testUser, new User("2", "Jane", "Smith")));
+
+        List<User> removed = repository.deleteAll(List.of("1", "999"));
+
+        assertEquals(1, removed.size());
+        assertTrue(new BinaryUserRepository(TEST_FILE, new UserValidator()).findOne("1").isEmpty());
+    }
+}
@@ -0,0 +1,215 @@
+package repository;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class CachingUserRepositoryTest {
+    private static final String TEST_DB = "test_user_cache.db";
+    private CountingRepository delegate;
+    private long now;
+    private CachingUserRepository cache;
+
+    @Before
+    public void setUp() throws ValidationException {
+        delegate = new CountingRepository();
+        delegate.save(new User("1", "John", "Doe"));
+        delegate.save(new User("2", "Jane", "Doe"));
+        delegate.save(new User("3", "Jim", "Beam"));
+        cache = new CachingUserRepository(delegate, 2, user -> 1, Duration.ofSeconds(10), () -> now);
+    }
+
+    @After
+    public void cleanup() {
+        new File(TEST_DB).delete();
+    }
+
+    @Test
+    public void testFindOne_ShouldLoadOnlyOnce() {
+        User first = cache.findOne("1").get();
+        User second = cache.findOne("1").get();
+
+        assertSame(first, second);
+        assertEquals(1, delegate.lookups);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio(), 0);
+    }
+
+    @Test
+    public void testFindOne_MissingUser_ShouldNotBeCached() {
+        assertTrue(cache.findOne("9").isEmpty());
+        assertTrue(cache.findOne("9").isEmpty());
+
+        assertEquals(2, delegate.lookups);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFindOne_OverBudget_ShouldEvictLeastRecentlyUsed() {
+        cache.findOne("1");
+        cache.findOne("2");
+        cache.findOne("1");
+        cache.findOne("3");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        delegate.lookups = 0;
+        cache.findOne("1");
+        cache.findOne("2");
+        assertEquals(1, delegate.lookups);
+    }
+
+    @Test
+    public void testFindOne_Weigher_ShouldBoundTotalWeight() {
+        cache = new CachingUserRepository(delegate, 8, user -> user.getFirstName().length(), Duration.ofSeconds(10));
+
+        cache.findOne("1");
+        cache.findOne("2");
+        cache.findOne("3");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testFindOne_AfterTtl_ShouldReload() {
+        cache.findOne("1");
+        now += Duration.ofSeconds(10).toNanos();
+        cache.findOne("1");
+
+        assertEquals(2, delegate.lookups);
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testUpdate_ShouldInvalidate() throws ValidationException {
+        cache.findOne("1");
+
+        cache.update(new User("1", "Johnny", "Doe"));
+
+        assertEquals("Johnny", cache.findOne("1").get().getFirstName());
+    }
+
+    @Test
+    public void testDelete_ShouldInvalidate() {
+        cache.findOne("1");
+
+        cache.delete("1");
+
+        assertTrue(cache.findOne("1").isEmpty());
+    }
+
+    @Test
+    public void testFriendshipChanges_ShouldInvalidateBothUsers() {
+        new File(TEST_DB).delete();
+        DatabaseUserRepository database = new DatabaseUserRepository(TEST_DB, new UserValidator(), 2, 1000);
+        try {
+            database.save(new User("1", "John", "Doe"));
+            database.save(new User("2", "Jane", "Doe"));
+            CachingUserRepository users = new CachingUserRepository(database, 10, Duration.ofMinutes(1));
+            FriendshipRepository friendships = users.invalidating(new DatabaseFriendshipRepository(database));
+            assertTrue(users.findOne("1").get().getFriends().isEmpty());
+            assertTrue(users.findOne("2").get().getFriends().isEmpty());
+
+            friendships.save(new Friendship("f1", "1", "2"));
+            assertEquals(1, users.findOne("1").get().getFriends().size());
+            assertEquals(1, users.findOne("2").get().getFriends().size());
+
+            friendships.delete("2", "1");
+            assertTrue(users.findOne("1").get().getFriends().isEmpty());
+            assertTrue(users.findOne("2").get().getFriends().isEmpty());
+        } catch (ValidationException e) {
+            fail(e.getMessage());
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    public void testUpdate_ShouldInvalidateFriendsListingTheUser() throws ValidationException {
+        User john = delegate.findOne("1").get();
+        User jane = delegate.findOne("2").get();
+        john.getFriends().add(jane);
+        jane.getFriends().add(john);
+        cache.findOne("2");
+
+        cache.update(new User("1", "Johnny", "Doe"));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFindMany_ShouldLoadOnlyMissingUsers() {
+        cache.findOne("1");
+        delegate.lookups = 0;
+
+        List<User> found = cache.findMany(List.of("2", "1", "9"));
+
+        assertEquals(List.of("2", "1"), List.of(found.get(0).getId(), found.get(1).getId()));
+        assertEquals(2, delegate.lookups);
+        assertEquals(1, cache.getHits());
+        assertSame(found.get(0), cache.findOne("2").get());
+    }
+
+    @Test
+    public void testBulkWrites_OneShotIterable_ShouldInvalidateWrittenUsers() throws ValidationException {
+        cache.findOne("1");
+        cache.findOne("2");
+        Iterator<String> ids = List.of("1").iterator();
+        Iterator<User> users = List.of(new User("2", "Janet", "Doe")).iterator();
+
+        cache.deleteAll(() -> ids);
+        delegate.delete("2");
+        cache.saveAll(() -> users);
+
+        assertTrue(cache.findOne("1").isEmpty());
+        assertEquals("Janet", cache.findOne("2").get().getFirstName());
+    }
+
+    @Test
+    public void testCount_ShouldBeForwarded() {
+        FriendshipRepository friendships = cache.invalidating(new InMemoryFriendshipRepository() {
+            @Override
+            public Iterable<Friendship> findAll() {
+                throw new AssertionError("count should not list the friendships");
+            }
+        });
+        friendships.save(new Friendship("f1", "1", "2"));
+
+        assertEquals(3, cache.count());
+        assertEquals(1, friendships.count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ZeroTtl_ShouldThrow() {
+        new CachingUserRepository(delegate, 2, Duration.ZERO);
+    }
+
+    private static class CountingRepository extends InMemoryUserRepository {
+        private int lookups;
+
+        CountingRepository() {
+            super(new UserValidator());
+        }
+
+        @Override
+        public Optional<User> findOne(String id) {
+            lookups++;
+            return super.findOne(id);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package repository;
+
+import domain.Friendship;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CompactFriendshipRepositoryTest {
+    private CompactFriendshipRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = new CompactFriendshipRepository();
+    }
+
+    @Test
+    public void testSave_ShouldKeepIdAndOrder() {
+        assertTrue(repository.save(new Friendship("f1", "2", "1")).isEmpty());
+
+        Friendship found = repository.findOne("1", "2").get();
+
+        assertEquals("f1", found.getId());
+        assertEquals("2", found.getUserId1());
+        assertEquals("1", found.getUserId2());
+        assertEquals("f1", repository.save(new Friendship("f2", "1", "2")).get().getId());
+    }
+
+    @Test
+    public void testFindFriendIds_ShouldBeLiveView() {
+        Set<String> friendIds = repository.findFriendIds("1");
+        assertTrue(friendIds.isEmpty());
+        repository.save(new Friendship("f1", "1", "2"));
+        friendIds = repository.findFriendIds("1");
+
+        repository.save(new Friendship("f2", "1", "3"));
+
+        assertEquals(Set.of("2", "3"), new HashSet<>(friendIds));
+        assertTrue(friendIds.contains("3"));
+        assertFalse(friendIds.contains("4"));
+    }
+
+    @Test
+    public void testDeleteAllOf_ShouldRemoveBothDirections() {
+        repository.save(new Friendship("f1", "1", "2"));
+        repository.save(new Friendship("f2", "3", "1"));
+        repository.save(new Friendship("f3", "2", "3"));
+
+        List<Friendship> removed = repository.deleteAllOf("1");
+
+        assertEquals(2, removed.size());
+        assertTrue(repository.findFriendIds("1").isEmpty());
+        assertEquals(Set.of("3"), new HashSet<>(repository.findFriendIds("2")));
+        assertEquals(1, InMemoryFriendshipRepositoryTest.count(repository.findAll()));
+    }
+
+    @Test
+    public void testRandomOperations_ShouldMatchInMemoryRepository() {
+        FriendshipRepository expected = new InMemoryFriendshipRepository();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            String id1 = String.valueOf(random.nextInt(200));
+            String id2 = String.valueOf(random.nextInt(200));
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                Friendship friendship = new Friendship("f" + i, id1, id2);
+                assertEquals(expected.save(friendship).map(Friendship::getId),
+                        repository.save(friendship).map(Friendship::getId));
+            } else if (operation < 9) {
+                assertEquals(expected.delete(id1, id2).map(Friendship::getId),
+                        repository.delete(id1, id2).map(Friendship::getId));
+            } else {
+                assertEquals(ids(expected.deleteAllOf(id1)), ids(repository.deleteAllOf(id1)));
+            }
+        }
+        for (int user = 0; user < 200; user++) {
+            String id = String.valueOf(user);
+            assertEquals(expected.findFriendIds(id), new HashSet<>(repository.findFriendIds(id)));
+        }
+        assertEquals(ids(expected.findAll()), ids(repository.findAll()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExists_NullId_ShouldThrowIllegalArgumentException() {
+        repository.exists("1", null);
+    }
+
+    private static Set<String> ids(Iterable<Friendship> friendships) {
+        Set<String> ids = new HashSet<>();
+        friendships.forEach(friendship -> ids.add(friendship.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,128 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class CompactUserRepositoryTest {
+    private CompactUserRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = new CompactUserRepository(new UserValidator());
+    }
+
+    @Test
+    public void testSave_ShouldRoundTripIdAndNames() throws ValidationException {
+        assertTrue(repository.save(new User("1", "Ștefan", "Doe")).isEmpty());
+
+        User found = repository.findOne("1").get();
+
+        assertEquals("1", found.getId());
+        assertEquals("Ștefan", found.getFirstName());
+        assertEquals("Doe", found.getLastName());
+        assertTrue(repository.findOne("2").isEmpty());
+    }
+
+    @Test
+    public void testSave_DuplicateId_ShouldReturnStoredUser() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+
+        User existing = repository.save(new User("1", "Jane", "Smith")).get();
+
+        assertEquals("John", existing.getFirstName());
+        assertEquals(1, repository.count());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testSave_InvalidUser_ShouldThrowValidationException() throws ValidationException {
+        repository.save(new User("", "", ""));
+    }
+
+    @Test
+    public void testUpdate_ShouldReplaceNames() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+
+        assertTrue(repository.update(new User("1", "Johnny", "Walker")).isEmpty());
+        assertEquals("Walker", repository.findOne("1").get().getLastName());
+        assertTrue(repository.update(new User("2", "Jane", "Smith")).isPresent());
+    }
+
+    @Test
+    public void testDelete_ThenSaveAgain_ShouldStoreNewNames() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+
+        assertEquals("John", repository.delete("1").get().getFirstName());
+        assertTrue(repository.delete("1").isEmpty());
+        assertTrue(repository.findOne("1").isEmpty());
+
+        repository.save(new User("1", "Jane", "Smith"));
+        assertEquals("Jane", repository.findOne("1").get().getFirstName());
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    public void testManyUsers_ShouldSurviveGrowth() throws ValidationException {
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            repository.save(new User("user-" + i, "First" + i, "Last" + i));
+        }
+        for (int i = 0; i < count; i += 2) {
+            repository.delete("user-" + i);
+        }
+
+        assertEquals(count / 2, repository.count());
+        assertEquals("Last77777", repository.findOne("user-77777").get().getLastName());
+        assertTrue(repository.findOne("user-77776").isEmpty());
+        List<User> all = new ArrayList<>();
+        repository.findAll().forEach(all::add);
+        assertEquals(count / 2, all.size());
+        assertEquals("user-1", all.get(0).getId());
+    }
+
+    @Test
+    public void testStreamAll_ShouldSkipDeletedUsers() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+        repository.save(new User("2", "Jane", "Smith"));
+        repository.save(new User("3", "Bob", "Wilson"));
+        repository.delete("2");
+
+        assertEquals(List.of("1", "3"), repository.streamAll().map(User::getId).collect(Collectors.toList()));
+        assertEquals("3", repository.findPage("1", 5).get(0).getId());
+    }
+
+    @Test
+    public void testDefaultBulkWrites_NullElement_ShouldWriteNothing() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.saveAll(Arrays.asList(new User("2", "Jane", "Smith"), null)));
+        assertThrows(IllegalArgumentException.class, () -> repository.deleteAll(Arrays.asList("1", null)));
+
+        assertTrue(repository.findOne("2").isEmpty());
+        assertTrue(repository.findOne("1").isPresent());
+    }
+
+    @Test
+    public void testDefaultSaveAll_InvalidUser_ShouldKeepUsersSavedBeforeIt() {
+        // the default saves one user at a time, it is not all-or-nothing
+        assertThrows(ValidationException.class,
+                () -> repository.saveAll(List.of(new User("1", "John", "Doe"), new User("", "", ""))));
+
+        assertTrue(repository.findOne("1").isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindOne_NullId_ShouldThrowIllegalArgumentException() {
+        repository.findOne(null);
+    }
+}
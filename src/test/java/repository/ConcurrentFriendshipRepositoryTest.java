@@ -0,0 +1,117 @@
+package repository;
+
+import domain.Friendship;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentFriendshipRepositoryTest {
+    private static final int USERS = 32;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20_000;
+
+    private FriendshipRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = new ConcurrentFriendshipRepository();
+    }
+
+    @Test
+    public void testSave_ShouldBeVisibleFromBothUsers() {
+        assertTrue(repository.save(new Friendship("f1", "1", "2")).isEmpty());
+
+        assertTrue(repository.exists("2", "1"));
+        assertEquals(Set.of("1"), repository.findFriendIds("2"));
+        assertEquals("f1", repository.save(new Friendship("f2", "2", "1")).get().getId());
+    }
+
+    @Test
+    public void testDeleteAllOf_ShouldRemoveBothDirections() {
+        repository.save(new Friendship("f1", "1", "2"));
+        repository.save(new Friendship("f2", "1", "3"));
+        repository.save(new Friendship("f3", "2", "3"));
+
+        assertEquals(2, repository.deleteAllOf("1").size());
+
+        assertTrue(repository.findFriendIds("1").isEmpty());
+        assertEquals(Set.of("3"), repository.findFriendIds("2"));
+        assertEquals(1, InMemoryFriendshipRepositoryTest.count(repository.findAll()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_NoStripes_ShouldThrowIllegalArgumentException() {
+        new ConcurrentFriendshipRepository(0);
+    }
+
+    @Test
+    public void testConcurrentWrites_ShouldKeepTheGraphSymmetric() throws Exception {
+        // few stripes, so unrelated users share locks and lock ordering is exercised
+        repository = new ConcurrentFriendshipRepository(4);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    String id1 = String.valueOf(random.nextInt(USERS));
+                    String id2 = String.valueOf(random.nextInt(USERS));
+                    int operation = random.nextInt(10);
+                    if (operation < 6) {
+                        repository.save(new Friendship(seed + ":" + i, id1, id2));
+                    } else if (operation < 9) {
+                        repository.delete(id1, id2);
+                    } else {
+                        repository.deleteAllOf(id1);
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertSymmetric(repository);
+    }
+
+    static void assertSymmetric(FriendshipRepository repository) {
+        Map<String, Friendship> byPair = new HashMap<>();
+        for (Friendship friendship : repository.findAll()) {
+            String key = friendship.getUserId1() + "|" + friendship.getUserId2();
+            assertNull("friendship listed twice: " + key, byPair.put(key, friendship));
+        }
+        for (int i = 0; i < USERS; i++) {
+            String id = String.valueOf(i);
+            for (String friendId : repository.findFriendIds(id)) {
+                assertTrue(id + " -> " + friendId + " has no reverse edge",
+                        repository.findFriendIds(friendId).contains(id));
+                Optional<Friendship> forward = repository.findOne(id, friendId);
+                Optional<Friendship> backward = repository.findOne(friendId, id);
+                assertSame(forward.get(), backward.get());
+            }
+        }
+    }
+}
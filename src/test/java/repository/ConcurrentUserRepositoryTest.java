@@ -0,0 +1,93 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentUserRepositoryTest {
+    private Repository<String, User> repository;
+
+    @Before
+    public void setUp() {
+        repository = new ConcurrentUserRepository(new UserValidator());
+    }
+
+    @Test
+    public void testSave_DuplicateId_ShouldReturnExisting() throws ValidationException {
+        User user = new User("1", "John", "Doe");
+        assertTrue(repository.save(user).isEmpty());
+
+        Optional<User> existing = repository.save(new User("1", "Jane", "Smith"));
+
+        assertSame(user, existing.get());
+    }
+
+    @Test
+    public void testUpdate_ShouldReplaceOnlyExistingUsers() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+
+        assertTrue(repository.update(new User("1", "Johnny", "Doe")).isEmpty());
+        assertEquals("Johnny", repository.findOne("1").get().getFirstName());
+        assertTrue(repository.update(new User("2", "Jane", "Smith")).isPresent());
+        assertTrue(repository.findOne("2").isEmpty());
+    }
+
+    @Test
+    public void testDelete_ShouldRemoveUser() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+
+        assertTrue(repository.delete("1").isPresent());
+        assertTrue(repository.delete("1").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindOne_NullId_ShouldThrowIllegalArgumentException() {
+        repository.findOne(null);
+    }
+
+    @Test
+    public void testSave_ConcurrentSameId_ShouldSaveExactlyOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        try {
+            for (int round = 0; round < 200; round++) {
+                String id = "u" + round;
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        if (repository.save(new User(id, "John", "Doe")).isEmpty()) {
+                            saved.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(200, saved.get());
+    }
+}
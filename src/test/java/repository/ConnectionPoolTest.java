@@ -0,0 +1,89 @@
+package repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class ConnectionPoolTest {
+    private static final String TEST_DB = "test_pool.db";
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        new File(TEST_DB).delete();
+    }
+
+    @After
+    public void cleanup() throws SQLException {
+        if (pool != null) {
+            pool.close();
+        }
+        new File(TEST_DB).delete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ZeroSize_ShouldThrowIllegalArgumentException() {
+        new ConnectionPool("jdbc:sqlite:" + TEST_DB, 0, 0);
+    }
+
+    @Test
+    public void testAcquire_AfterRelease_ShouldReuseConnectionAndStatements() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + TEST_DB, 1, 0);
+
+        PooledConnection first = pool.acquire();
+        PreparedStatement statement = first.prepare("SELECT 1");
+        first.close();
+
+        PooledConnection second = pool.acquire();
+        assertSame(first, second);
+        assertSame(statement, second.prepare("SELECT 1"));
+        second.close();
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testAcquire_PoolExhausted_ShouldBlockUntilRelease() throws Exception {
+        pool = new ConnectionPool("jdbc:sqlite:" + TEST_DB, 1, 0);
+        PooledConnection held = pool.acquire();
+
+        CompletableFuture<PooledConnection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.acquire();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            waiting.get(200, TimeUnit.MILLISECONDS);
+            fail("acquire should block while the only connection is in use");
+        } catch (TimeoutException expected) {
+            // still waiting
+        }
+
+        held.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void testRelease_IdleTimeoutElapsed_ShouldCloseConnection() throws Exception {
+        pool = new ConnectionPool("jdbc:sqlite:" + TEST_DB, 2, 10);
+
+        PooledConnection first = pool.acquire();
+        first.close();
+        Thread.sleep(50);
+
+        PooledConnection second = pool.acquire();
+        assertNotSame(first, second);
+        assertTrue(first.getConnection().isClosed());
+        second.close();
+    }
+}
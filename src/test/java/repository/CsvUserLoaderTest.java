@@ -0,0 +1,106 @@
+package repository;
+
+import domain.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CsvUserLoaderTest {
+    private static final Path TEST_FILE = Paths.get("test_users.csv");
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(TEST_FILE);
+    }
+
+    @Test
+    public void testLoad_ShouldTrimFieldsAndSkipBlankLines() throws IOException {
+        Files.writeString(TEST_FILE, "1, John ,Doe\r\n\n   \n2,Jänë,Smith");
+
+        CsvUserLoader.Result result = new CsvUserLoader().load(TEST_FILE);
+
+        assertEquals(2, result.getUsers().size());
+        User john = result.getUsers().get(0);
+        assertEquals("1", john.getId());
+        assertEquals("John", john.getFirstName());
+        assertEquals("Doe", john.getLastName());
+        assertEquals("Jänë", result.getUsers().get(1).getFirstName());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test
+    public void testLoad_MalformedLines_ShouldReportByteOffsets() throws IOException {
+        String content = "1,John,Doe\nbroken line\n2,Jane,Smith\n3,too,many,fields\n";
+        Files.writeString(TEST_FILE, content);
+
+        CsvUserLoader.Result result = new CsvUserLoader().load(TEST_FILE);
+
+        assertEquals(2, result.getUsers().size());
+        List<CsvUserLoader.ParseError> errors = result.getErrors();
+        assertEquals(2, errors.size());
+        assertEquals(content.indexOf("broken"), errors.get(0).getOffset());
+        assertEquals(content.indexOf("3,too"), errors.get(1).getOffset());
+    }
+
+    @Test
+    public void testLoad_TrailingCommas_ShouldBeIgnoredLikeSplit() throws IOException {
+        String content = "1,John,Doe,\n2,Jane,Smith,,\r\n3,Bob,,\n4,Ann,Lee, \n";
+        Files.writeString(TEST_FILE, content);
+
+        CsvUserLoader.Result result = new CsvUserLoader().load(TEST_FILE);
+
+        assertEquals(2, result.getUsers().size());
+        assertEquals("Doe", result.getUsers().get(0).getLastName());
+        assertEquals("Smith", result.getUsers().get(1).getLastName());
+        List<CsvUserLoader.ParseError> errors = result.getErrors();
+        assertEquals(2, errors.size());
+        assertEquals(content.indexOf("3,Bob"), errors.get(0).getOffset());
+        assertEquals(content.indexOf("4,Ann"), errors.get(1).getOffset());
+    }
+
+    @Test
+    public void testLoad_SmallChunks_ShouldMatchSingleChunk() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            content.append(i).append(",First").append(i).append(",Last").append(i).append('\n');
+            if (i % 997 == 0) {
+                content.append("bad").append(i).append('\n');
+            }
+        }
+        Files.write(TEST_FILE, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        CsvUserLoader.Result single = new CsvUserLoader(1, Integer.MAX_VALUE).load(TEST_FILE);
+        CsvUserLoader.Result chunked = new CsvUserLoader(4, 100).load(TEST_FILE);
+
+        assertEquals(5_000, chunked.getUsers().size());
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(single.getUsers().get(i).getId(), chunked.getUsers().get(i).getId());
+            assertEquals(single.getUsers().get(i).getLastName(), chunked.getUsers().get(i).getLastName());
+        }
+        assertEquals(single.getErrors().size(), chunked.getErrors().size());
+        for (int i = 0; i < single.getErrors().size(); i++) {
+            assertEquals(single.getErrors().get(i).getOffset(), chunked.getErrors().get(i).getOffset());
+        }
+        assertEquals(Files.size(TEST_FILE), chunked.getBytes());
+    }
+
+    @Test
+    public void testLoad_EmptyFile_ShouldReturnNoUsers() throws IOException {
+        Files.writeString(TEST_FILE, "");
+
+        assertTrue(new CsvUserLoader().load(TEST_FILE).getUsers().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_NoThreads_ShouldThrowIllegalArgumentException() {
+        new CsvUserLoader(0, 1024);
+    }
+}
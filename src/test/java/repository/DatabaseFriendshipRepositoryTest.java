@@ -0,0 +1,58 @@
+package repository;
+
+import domain.Friendship;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.io.File;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DatabaseFriendshipRepositoryTest {
+    private static final String TEST_DB = "test_friendships.db";
+    private DatabaseUserRepository database;
+
+    @Before
+    public void setUp() {
+        new File(TEST_DB).delete();
+        database = new DatabaseUserRepository(TEST_DB, new UserValidator(), 2, 1000);
+    }
+
+    @After
+    public void cleanup() {
+        database.close();
+        new File(TEST_DB).delete();
+    }
+
+    @Test
+    public void testChanges_ShouldBeWrittenToTheDatabase() {
+        FriendshipRepository friendships = new DatabaseFriendshipRepository(database);
+        friendships.save(new Friendship("f1", "2", "1"));
+        friendships.save(new Friendship("f2", "1", "3"));
+        friendships.save(new Friendship("f3", "3", "4"));
+        friendships.delete("3", "1");
+        friendships.deleteAllOf("4");
+
+        FriendshipRepository reloaded = new DatabaseFriendshipRepository(database);
+
+        assertEquals("f1", reloaded.findOne("1", "2").get().getId());
+        assertEquals(Set.of("2"), reloaded.findFriendIds("1"));
+        assertTrue(reloaded.findFriendIds("4").isEmpty());
+        assertEquals(1, database.findOne("1").get().getFriends().size());
+    }
+
+    @Test
+    public void testSave_ExistingPair_ShouldNotTouchTheDatabase() {
+        FriendshipRepository friendships = new DatabaseFriendshipRepository(database);
+        friendships.save(new Friendship("f1", "1", "2"));
+
+        Optional<Friendship> existing = friendships.save(new Friendship("f2", "2", "1"));
+
+        assertEquals("f1", existing.get().getId());
+        assertEquals(1, database.findAllFriendships().size());
+    }
+}
@@ -0,0 +1,393 @@
+package repository;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DatabaseUserRepositoryTest {
+    private static final String TEST_DB = "test_social_network.db";
+    private DatabaseUserRepository repository;
+
+    @Before
+    public void setUp() {
+        new File(TEST_DB).delete();
+        repository = new DatabaseUserRepository(TEST_DB, new UserValidator(), 2, 1000);
+    }
+
+    @After
+    public void cleanup() {
+        repository.close();
+        new File(TEST_DB).delete();
+    }
+
+    @Test
+    public void testInitDatabase_EmptyDatabase_ShouldPopulateInitialUsers() {
+        assertTrue(repository.findOne("1").isPresent());
+        assertTrue(repository.findOne("21").isPresent());
+    }
+
+    @Test
+    public void testSave_ValidUser_ShouldSaveSuccessfully() throws ValidationException {
+        Optional<User> result = repository.save(new User("100", "John", "Doe"));
+        assertTrue(result.isEmpty());
+        assertEquals("John", repository.findOne("100").get().getFirstName());
+    }
+
+    @Test
+    public void testSave_DuplicateId_ShouldReturnExistingUser() throws ValidationException {
+        Optional<User> result = repository.save(new User("1", "Other", "Name"));
+        assertTrue(result.isPresent());
+        assertEquals("John", result.get().getFirstName());
+    }
+
+    @Test
+    public void testUpdate_ExistingUser_ShouldUpdateSuccessfully() throws ValidationException {
+        Optional<User> result = repository.update(new User("1", "John Updated", "Doe"));
+        assertTrue(result.isEmpty());
+        assertEquals("John Updated", repository.findOne("1").get().getFirstName());
+    }
+
+    @Test
+    public void testDelete_ExistingUser_ShouldDeleteAndReturnUser() {
+        Optional<User> deleted = repository.delete("1");
+        assertTrue(deleted.isPresent());
+        assertTrue(repository.findOne("1").isEmpty());
+    }
+
+    @Test
+    public void testSaveFriendship_ShouldLoadFriendsOnBothSides() {
+        repository.saveFriendship("f1", "1", "2");
+
+        assertTrue(repository.findOne("1").get().getFriends().contains(new User("2", "Jane", "Smith")));
+        assertTrue(repository.findOne("2").get().getFriends().contains(new User("1", "John", "Doe")));
+
+        repository.deleteFriendship("2", "1");
+        assertTrue(repository.findOne("1").get().getFriends().isEmpty());
+    }
+
+    @Test
+    public void testFindAll_WithFriendships_ShouldShareUserInstances() {
+        repository.saveFriendship("f1", "1", "2");
+        repository.saveFriendship("f2", "2", "3");
+
+        Map<String, User> users = new HashMap<>();
+        repository.findAll().forEach(user -> users.put(user.getId(), user));
+
+        assertEquals(21, users.size());
+        User user2 = users.get("2");
+        assertEquals(2, user2.getFriends().size());
+        assertSame(users.get("1"), user2.getFriends().get(0));
+        assertSame(user2, users.get("3").getFriends().get(0));
+        assertTrue(users.get("4").getFriends().isEmpty());
+    }
+
+    @Test
+    public void testPooledMode_ManyOperations_ShouldNotExceedPoolSize() throws ValidationException {
+        for (int i = 0; i < 50; i++) {
+            repository.save(new User("u" + i, "First" + i, "Last" + i));
+            assertTrue(repository.findOne("u" + i).isPresent());
+        }
+        assertEquals(71, count(repository.findAll()));
+    }
+
+    @Test
+    public void testUnpooledMode_ShouldSeeSameData() {
+        repository.saveFriendship("f1", "1", "2");
+        DatabaseUserRepository unpooled = new DatabaseUserRepository(TEST_DB, new UserValidator());
+        assertEquals(1, unpooled.findOne("1").get().getFriends().size());
+    }
+
+    @Test
+    public void testSaveFriendship_ReversedPair_ShouldBeStoredCanonically() throws SQLException {
+        repository.saveFriendship("f1", "2", "1");
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + TEST_DB);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT user1_id, user2_id FROM friendships")) {
+            assertTrue(resultSet.next());
+            assertEquals("1", resultSet.getString(1));
+            assertEquals("2", resultSet.getString(2));
+        }
+    }
+
+    @Test
+    public void testMigration_LegacySchema_ShouldCanonicalisePairsAndRecordVersion() throws SQLException {
+        repository.close();
+        new File(TEST_DB).delete();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + TEST_DB);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id TEXT PRIMARY KEY, first_name TEXT NOT NULL, last_name TEXT NOT NULL)");
+            statement.execute("CREATE TABLE friendships (id TEXT PRIMARY KEY, user1_id TEXT NOT NULL, user2_id TEXT NOT NULL)");
+            statement.execute("INSERT INTO users VALUES ('a', 'Ana', 'Stan'), ('b', 'Ion', 'Popa')");
+            statement.execute("INSERT INTO friendships VALUES ('f1', 'b', 'a'), ('f2', 'a', 'b')");
+        }
+
+        repository = new DatabaseUserRepository(TEST_DB, new UserValidator(), 1, 0);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + TEST_DB);
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT user1_id, user2_id FROM friendships")) {
+                assertTrue(resultSet.next());
+                assertEquals("a", resultSet.getString(1));
+                assertEquals("b", resultSet.getString(2));
+                assertFalse(resultSet.next());
+            }
+            try (ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+                assertEquals(1, resultSet.getInt(1));
+            }
+        }
+        assertEquals(1, repository.findOne("b").get().getFriends().size());
+    }
+
+    @Test
+    public void testQueryPlan_FriendshipQueries_ShouldUseIndexes() throws SQLException {
+        assertUsesIndexes(DatabaseUserRepository.FIND_FRIENDS_SQL, 2);
+        assertUsesIndexes(DatabaseUserRepository.DELETE_FRIENDSHIP_SQL, 4);
+    }
+
+    @Test
+    public void testPerformanceProfile_ShouldEnableWal() throws SQLException {
+        repository.close();
+        repository = new DatabaseUserRepository(TEST_DB, new UserValidator(), 1, 0, SqliteProfile.performance());
+        repository.saveFriendship("f1", "1", "2");
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + TEST_DB);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA journal_mode")) {
+            assertEquals("wal", resultSet.getString(1));
+        }
+        assertEquals(1, repository.findOne("1").get().getFriends().size());
+    }
+
+    @Test
+    public void testSaveAll_SmallBatchSize_ShouldSaveInChunksAndReturnExisting() throws ValidationException {
+        repository.close();
+        repository = new DatabaseUserRepository(TEST_DB, new UserValidator(), 1, 0, SqliteProfile.defaults(), 3);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            users.add(new User("b" + i, "First" + i, "Last" + i));
+        }
+        users.add(new User("1", "Other", "Name"));
+
+        List<User> existing = repository.saveAll(users);
+
+        assertEquals(1, existing.size());
+        assertEquals("John", existing.get(0).getFirstName());
+        assertEquals(31, count(repository.findAll()));
+    }
+
+    @Test
+    public void testSaveAll_InvalidUser_ShouldSaveNothing() {
+        try {
+            repository.saveAll(List.of(new User("100", "Jane", "Smith"), new User("", "", "")));
+            fail("expected ValidationException");
+        } catch (ValidationException expected) {
+            assertTrue(repository.findOne("100").isEmpty());
+        }
+    }
+
+    @Test
+    public void testDeleteAll_ShouldReturnRemovedUsers() {
+        List<User> removed = repository.deleteAll(List.of("1", "2", "999"));
+
+        assertEquals(2, removed.size());
+        assertEquals(19, count(repository.findAll()));
+    }
+
+    @Test
+    public void testDeleteAll_DuplicateIds_ShouldLoadUsersInBulkAndRemoveThemOnce() {
+        long queries = repository.getQueriesExecuted();
+
+        List<User> removed = repository.deleteAll(List.of("1", "2", "1", "999", "2"));
+
+        assertEquals(List.of("1", "2"), ids(removed));
+        // one query for the users, one for their friends and one batch of deletes
+        assertEquals(queries + 3, repository.getQueriesExecuted());
+        assertEquals(19, count(repository.findAll()));
+    }
+
+    @Test
+    public void testSaveFriendships_DuplicatePair_ShouldRollBackWholeBatch() {
+        User user1 = repository.findOne("1").get();
+        User user2 = repository.findOne("2").get();
+        User user3 = repository.findOne("3").get();
+        repository.saveFriendships(List.of(new Friendship("f1", user1, user2), new Friendship("f2", user2, user3)));
+        assertEquals(2, repository.findOne("2").get().getFriends().size());
+
+        try {
+            repository.saveFriendships(List.of(new Friendship("f3", user1, user3), new Friendship("f4", user2, user1)));
+            fail("expected the duplicate pair to be rejected");
+        } catch (RuntimeException expected) {
+            assertEquals(1, repository.findOne("3").get().getFriends().size());
+        }
+    }
+
+    @Test
+    public void testStreamAll_ShouldReturnEveryUser() {
+        try (Stream<User> users = repository.streamAll()) {
+            assertEquals(count(repository.findAll()), users.count());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testStreamAll_ClosedEarly_ShouldReleaseConnection() {
+        DatabaseUserRepository singleConnection = new DatabaseUserRepository(TEST_DB, new UserValidator(), 1, 1000);
+        try {
+            try (Stream<User> users = singleConnection.streamAll()) {
+                assertTrue(users.findFirst().isPresent());
+            }
+            // the pool has one connection, so this blocks forever if the stream kept it
+            assertTrue(singleConnection.findOne("1").isPresent());
+
+            singleConnection.streamAll().forEach(user -> { });
+            assertTrue(singleConnection.findOne("1").isPresent());
+        } finally {
+            singleConnection.close();
+        }
+    }
+
+    @Test
+    public void testFindPage_ShouldWalkAllUsersInIdOrder() {
+        Set<String> expected = new TreeSet<>();
+        repository.findAll().forEach(user -> expected.add(user.getId()));
+
+        List<String> walked = new ArrayList<>();
+        List<User> page = repository.findPage(null, 4);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 4);
+            page.forEach(user -> walked.add(user.getId()));
+            page = repository.findPage(page.get(page.size() - 1).getId(), 4);
+        }
+
+        assertEquals(new ArrayList<>(expected), walked);
+        assertEquals("Doe", repository.findPage(null, 1).get(0).getLastName());
+    }
+
+    @Test
+    public void testFindPage_ShouldMatchDefaultImplementation() throws ValidationException {
+        Repository<String, User> inMemory = new InMemoryUserRepository(new UserValidator());
+        inMemory.saveAll(repository.findAll());
+
+        assertEquals(ids(inMemory.findPage("15", 3)), ids(repository.findPage("15", 3)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindPage_NoLimit_ShouldThrowIllegalArgumentException() {
+        repository.findPage(null, 0);
+    }
+
+    @Test
+    public void testFindMany_ShouldMatchFindOne() {
+        User user1 = repository.findOne("1").get();
+        User user2 = repository.findOne("2").get();
+        User user3 = repository.findOne("3").get();
+        repository.saveFriendships(List.of(new Friendship("f1", user1, user2), new Friendship("f2", user2, user3)));
+
+        List<User> found = repository.findMany(List.of("3", "999", "2", "3", "1"));
+
+        assertEquals(List.of("3", "2", "1"), ids(found));
+        for (User user : found) {
+            User single = repository.findOne(user.getId()).get();
+            assertEquals(single.getFirstName(), user.getFirstName());
+            assertEquals(new TreeSet<>(ids(single.getFriends())), new TreeSet<>(ids(user.getFriends())));
+        }
+    }
+
+    @Test
+    public void testFindMany_MoreIdsThanOneQuery_ShouldFindAll() throws ValidationException {
+        List<User> users = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            users.add(new User("many" + i, "First", "Last"));
+            ids.add("many" + i);
+        }
+        repository.saveAll(users);
+        List<Friendship> chain = new ArrayList<>();
+        for (int i = 0; i + 1 < users.size(); i++) {
+            chain.add(new Friendship("chain" + i, users.get(i), users.get(i + 1)));
+        }
+        repository.saveFriendships(chain);
+
+        List<User> found = repository.findMany(ids);
+
+        assertEquals(ids, ids(found));
+        for (int i = 0; i < found.size(); i++) {
+            assertEquals(i == 0 || i == found.size() - 1 ? 1 : 2, found.get(i).getFriends().size());
+        }
+        assertTrue(repository.findMany(List.of()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindMany_NullId_ShouldThrowIllegalArgumentException() {
+        repository.findMany(Arrays.asList("1", null));
+    }
+
+    @Test
+    public void testCounters_ShouldCountConnectionsAndQueries() {
+        long connections = repository.getConnectionsOpened();
+        long queries = repository.getQueriesExecuted();
+
+        repository.findPage(null, 5);
+        repository.findPage(null, 5);
+
+        assertEquals(queries + 2, repository.getQueriesExecuted());
+        // the pool reuses the connection of the first call
+        assertTrue(repository.getConnectionsOpened() <= connections + 1);
+    }
+
+    private static List<String> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private static void assertUsesIndexes(String sql, int parameters) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + TEST_DB);
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 1; i <= parameters; i++) {
+                statement.setString(i, "1");
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int friendshipLookups = 0;
+                while (resultSet.next()) {
+                    String detail = resultSet.getString("detail");
+                    assertFalse("full scan in plan: " + detail, detail.startsWith("SCAN"));
+                    if (detail.contains("idx_friendships_")) {
+                        friendshipLookups++;
+                    }
+                }
+                assertTrue("friendships index not used by: " + sql, friendshipLookups > 0);
+            }
+        }
+    }
+
+    private static int count(Iterable<User> users) {
+        int count = 0;
+        for (User ignored : users) {
+            count++;
+        }
+        return count;
+    }
+}
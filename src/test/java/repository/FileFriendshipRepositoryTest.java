@@ -0,0 +1,101 @@
+package repository;
+
+import domain.Friendship;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FileFriendshipRepositoryTest {
+    private static final String TEST_FILE = "test_friendships.txt";
+
+    @After
+    public void cleanup() {
+        new File(TEST_FILE).delete();
+        new File(TEST_FILE + ".journal").delete();
+        new File(TEST_FILE + ".journal.compacting").delete();
+    }
+
+    @Test
+    public void testChanges_ShouldSurviveReload() {
+        FriendshipRepository repository = new FileFriendshipRepository(TEST_FILE);
+        repository.save(new Friendship("f1", "1", "2"));
+        repository.save(new Friendship("f2", "1", "3"));
+        repository.save(new Friendship("f3", "3", "4"));
+        repository.delete("1", "3");
+        repository.deleteAllOf("4");
+
+        FriendshipRepository reloaded = new FileFriendshipRepository(TEST_FILE);
+
+        assertEquals("f1", reloaded.findOne("2", "1").get().getId());
+        assertEquals(Set.of("2"), reloaded.findFriendIds("1"));
+        assertTrue(reloaded.findFriendIds("3").isEmpty());
+        assertEquals(1, InMemoryFriendshipRepositoryTest.count(reloaded.findAll()));
+    }
+
+    @Test
+    public void testMissingFile_ShouldStartEmpty() {
+        assertEquals(0, InMemoryFriendshipRepositoryTest.count(new FileFriendshipRepository(TEST_FILE).findAll()));
+    }
+
+    @Test
+    public void testSave_ShouldAppendToJournalWithoutRewritingSnapshot() throws IOException {
+        try (FileFriendshipRepository repository = new FileFriendshipRepository(TEST_FILE)) {
+            repository.save(new Friendship("f1", "1", "2"));
+            repository.compact();
+            long snapshotSize = Files.size(Paths.get(TEST_FILE));
+
+            repository.save(new Friendship("f2", "2", "3"));
+            repository.delete("1", "2");
+
+            assertEquals(snapshotSize, Files.size(Paths.get(TEST_FILE)));
+            assertTrue(repository.getJournal().size() > 0);
+        }
+
+        FriendshipRepository reloaded = new FileFriendshipRepository(TEST_FILE);
+        assertEquals(Set.of("3"), reloaded.findFriendIds("2"));
+        assertEquals(1, reloaded.count());
+    }
+
+    @Test
+    public void testManyChanges_ShouldCompactJournalAndSurviveReload() throws IOException {
+        try (FileFriendshipRepository repository = new FileFriendshipRepository(TEST_FILE)) {
+            for (int i = 0; i < 3_000; i++) {
+                repository.save(new Friendship("f" + i, "hub", "u" + i));
+                if (i % 2 == 1) {
+                    repository.delete("hub", "u" + (i - 1));
+                }
+            }
+            // the journal is folded into the snapshot once it holds more records than friendships
+            assertTrue(repository.getJournal().size() < Files.size(Paths.get(TEST_FILE)) * 4);
+        }
+
+        FriendshipRepository reloaded = new FileFriendshipRepository(TEST_FILE);
+        assertEquals(1_500, reloaded.count());
+        assertTrue(reloaded.exists("u2999", "hub"));
+        assertFalse(reloaded.exists("u2998", "hub"));
+    }
+
+    @Test
+    public void testFailedAppend_ShouldRollBackAndThrow() throws IOException {
+        FileFriendshipRepository repository = new FileFriendshipRepository(TEST_FILE);
+        repository.save(new Friendship("f1", "1", "2"));
+        repository.save(new Friendship("f2", "1", "3"));
+        repository.getJournal().close();
+
+        assertThrows(RuntimeException.class, () -> repository.save(new Friendship("f3", "3", "4")));
+        assertThrows(RuntimeException.class, () -> repository.delete("1", "2"));
+        assertThrows(RuntimeException.class, () -> repository.deleteAllOf("1"));
+
+        assertFalse(repository.exists("3", "4"));
+        assertEquals(Set.of("2", "3"), repository.findFriendIds("1"));
+        assertEquals(2, repository.count());
+        assertEquals(2, new FileFriendshipRepository(TEST_FILE).count());
+    }
+}
@@ -7,7 +7,15 @@ import org.junit.Before;
 import org.junit.Test;
 import validator.UserValidator;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -28,6 +36,9 @@ public class FileUserRepositoryTest {
     @After
     public void cleanup() {
         new File(TEST_FILE).delete();
+        new File(TEST_FILE + ".journal").delete();
+        new File(TEST_FILE + ".journal.compacting").delete();
+        new File(TEST_FILE + ".tmp").delete();
     }
 
     @Test
@@ -161,4 +172,270 @@ public class FileUserRepositoryTest {
         
         assertEquals(2, users.size());
     }
+
+    @Test
+    public void testSaveAll_NewAndDuplicateUsers_ShouldReturnExisting() throws ValidationException {
+        repository.save(testUser);
+        List<User> existing = repository.saveAll(List.of(
+                new User("1", "Other", "Name"),
+                new User("2", "Jane", "Smith"),
+                new User("3", "Bob", "Wilson")));
+
+        assertEquals(1, existing.size());
+        assertEquals("John", existing.get(0).getFirstName());
+        assertTrue(repository.findOne("2").isPresent());
+        assertTrue(repository.findOne("3").isPresent());
+    }
+
+    @Test
+    public void testSaveAll_InvalidUser_ShouldSaveNothing() {
+        try {
+            repository.saveAll(List.of(new User("2", "Jane", "Smith"), new User("", "", "")));
+            fail("expected ValidationException");
+        } catch (ValidationException expected) {
+            assertTrue(repository.findOne("2").isEmpty());
+        }
+    }
+
+    @Test
+    public void testSaveAllAndPersistence() throws ValidationException {
+        repository.saveAll(List.of(testUser, new User("2", "Jane", "Smith")));
+
+        Repository<String, User> newRepository = new FileUserRepository(TEST_FILE, new UserValidator());
+        assertTrue(newRepository.findOne("1").isPresent());
+        assertTrue(newRepository.findOne("2").isPresent());
+    }
+
+    @Test
+    public void testDeleteAll_ShouldReturnRemovedUsers() throws ValidationException {
+        repository.saveAll(List.of(testUser, new User("2", "Jane", "Smith")));
+        List<User> removed = repository.deleteAll(List.of("1", "2", "999"));
+
+        assertEquals(2, removed.size());
+        assertTrue(repository.findOne("1").isEmpty());
+        assertTrue(repository.findOne("2").isEmpty());
+    }
+
+    @Test
+    public void testJournalMode_WritesShouldSurviveReload() throws Exception {
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            journaled.save(testUser);
+            journaled.save(new User("2", "Jane", "Smith"));
+            journaled.update(new User("1", "John Updated", "Doe"));
+            journaled.delete("2");
+            journaled.saveAll(List.of(new User("3", "Bob", "Wilson"), new User("4", "Ann", "Lee")));
+            journaled.deleteAll(List.of("4"));
+        }
+
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertEquals("John Updated", reloaded.findOne("1").get().getFirstName());
+            assertTrue(reloaded.findOne("2").isEmpty());
+            assertTrue(reloaded.findOne("3").isPresent());
+            assertTrue(reloaded.findOne("4").isEmpty());
+        }
+    }
+
+    @Test
+    public void testJournalMode_SaveAll_ShouldSyncOnce() throws Exception {
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new User(String.valueOf(i), "First" + i, "Last" + i));
+        }
+
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            journaled.saveAll(batch);
+
+            assertEquals(1, journaled.getJournal().getSyncCount());
+        }
+    }
+
+    @Test
+    public void testJournalMode_ConcurrentWriters_ShouldKeepEveryWrite() throws Exception {
+        int threads = 8;
+        int usersPerThread = 200;
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            List<Thread> writers = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < usersPerThread; i++) {
+                            journaled.save(new User(thread + "-" + i, "First", "Last"));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }));
+            }
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertTrue(failures.isEmpty());
+            assertTrue(journaled.getJournal().getSyncCount() <= threads * usersPerThread);
+        }
+
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertEquals(threads * usersPerThread, count(reloaded));
+        }
+    }
+
+    @Test
+    public void testJournalMode_Compact_ShouldFoldJournalIntoSnapshot() throws Exception {
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            journaled.save(testUser);
+            journaled.save(new User("2", "Jane", "Smith"));
+            journaled.delete("2");
+
+            journaled.compact();
+
+            assertEquals(0, Files.size(Paths.get(TEST_FILE + ".journal")));
+            assertFalse(Files.exists(Paths.get(TEST_FILE + ".journal.compacting")));
+        }
+
+        // the snapshot alone is readable by the rewriting mode
+        Repository<String, User> snapshot = new FileUserRepository(TEST_FILE, new UserValidator());
+        assertTrue(snapshot.findOne("1").isPresent());
+        assertEquals(1, count(snapshot));
+    }
+
+    @Test
+    public void testJournalMode_BackgroundCompaction_ShouldEmptyJournal() throws Exception {
+        Path journalFile = Paths.get(TEST_FILE + ".journal");
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 20)) {
+            journaled.save(testUser);
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            // the journal is briefly missing while compaction moves it aside
+            while ((!Files.exists(journalFile) || Files.size(journalFile) > 0) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, Files.size(journalFile));
+        }
+        assertTrue(new FileUserRepository(TEST_FILE, new UserValidator()).findOne("1").isPresent());
+    }
+
+    @Test
+    public void testJournalMode_CrashDuringCompaction_ShouldReplayMovedJournal() throws Exception {
+        Path compacting = Paths.get(TEST_FILE + ".journal.compacting");
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            journaled.save(testUser);
+            journaled.save(new User("2", "Jane", "Smith"));
+            // the journal was moved aside but the snapshot was never written
+            journaled.getJournal().rotate(compacting);
+            journaled.delete("2");
+            journaled.save(new User("3", "Bob", "Wilson"));
+        }
+
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertTrue(reloaded.findOne("1").isPresent());
+            assertTrue(reloaded.findOne("2").isEmpty());
+            assertTrue(reloaded.findOne("3").isPresent());
+
+            reloaded.compact();
+            assertFalse(Files.exists(compacting));
+        }
+        assertEquals(2, count(new FileUserRepository(TEST_FILE, new UserValidator(), 0)));
+    }
+
+    @Test
+    public void testJournalMode_TornRecord_ShouldBeDroppedOnReload() throws Exception {
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            journaled.save(testUser);
+        }
+        Files.write(Paths.get(TEST_FILE + ".journal"), "1a2b3c4d P,2,Ja".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertTrue(reloaded.findOne("1").isPresent());
+            assertTrue(reloaded.findOne("2").isEmpty());
+            reloaded.save(new User("3", "Bob", "Wilson"));
+        }
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertEquals(2, count(reloaded));
+        }
+    }
+
+    @Test
+    public void testJournalMode_LineBreak_ShouldRejectWithoutChangingUsers() throws Exception {
+        try (FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            journaled.save(testUser);
+            assertThrows(IllegalArgumentException.class, () -> journaled.save(new User("2", "Jane", "Smith\nP,3,X,Y")));
+            assertThrows(IllegalArgumentException.class, () -> journaled.update(new User("1", "John\r", "Doe")));
+            assertThrows(IllegalArgumentException.class,
+                    () -> journaled.saveAll(List.of(new User("3", "Bob", "Wilson"), new User("4", "Ann\n", "Lee"))));
+
+            assertTrue(journaled.findOne("2").isEmpty());
+            assertEquals("John", journaled.findOne("1").get().getFirstName());
+            assertTrue(journaled.findOne("3").isEmpty());
+            journaled.save(new User("5", "Eve", "Adams"));
+        }
+
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertEquals(2, count(reloaded));
+            assertTrue(reloaded.findOne("5").isPresent());
+        }
+    }
+
+    @Test
+    public void testJournalMode_FailedAppend_ShouldRollBackUsers() throws Exception {
+        FileUserRepository journaled = new FileUserRepository(TEST_FILE, new UserValidator(), 0);
+        journaled.save(testUser);
+        journaled.getJournal().close();
+
+        assertThrows(RuntimeException.class, () -> journaled.save(new User("2", "Jane", "Smith")));
+        assertThrows(RuntimeException.class, () -> journaled.update(new User("1", "John Updated", "Doe")));
+        assertThrows(RuntimeException.class, () -> journaled.delete("1"));
+        assertThrows(RuntimeException.class,
+                () -> journaled.saveAll(List.of(new User("3", "Bob", "Wilson"), new User("4", "Ann", "Lee"))));
+        assertThrows(RuntimeException.class, () -> journaled.deleteAll(List.of("1", "1")));
+
+        assertEquals(1, count(journaled));
+        assertEquals("John", journaled.findOne("1").get().getFirstName());
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertEquals(1, count(reloaded));
+        }
+    }
+
+    @Test
+    public void testJournalMode_ProcessKilledMidAppend_ShouldKeepAcknowledgedWrites() throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process writer = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                JournalWriterProcess.class.getName(), TEST_FILE)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        int acknowledged = -1;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(writer.getInputStream()))) {
+            String line;
+            while (acknowledged < 500 && (line = out.readLine()) != null) {
+                acknowledged = Integer.parseInt(line.trim());
+            }
+            writer.destroyForcibly();
+            writer.waitFor();
+        }
+        assertTrue("writer stopped before 500 saves", acknowledged >= 500);
+
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            for (int i = 0; i <= acknowledged; i++) {
+                assertTrue("lost acknowledged user " + i, reloaded.findOne(String.valueOf(i)).isPresent());
+            }
+            // the journal is usable again after the torn tail was cut off
+            reloaded.save(new User("after-crash", "New", "User"));
+        }
+        try (FileUserRepository reloaded = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            assertTrue(reloaded.findOne("after-crash").isPresent());
+        }
+    }
+
+    private static int count(Repository<String, User> repository) {
+        int count = 0;
+        for (User ignored : repository.findAll()) {
+            count++;
+        }
+        return count;
+    }
 }
@@ -0,0 +1,107 @@
+package repository;
+
+import domain.Friendship;
+import domain.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class InMemoryFriendshipRepositoryTest {
+    private FriendshipRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = new InMemoryFriendshipRepository();
+    }
+
+    @Test
+    public void testSave_ShouldBeVisibleFromBothUsers() {
+        assertTrue(repository.save(new Friendship("f1", "1", "2")).isEmpty());
+
+        assertTrue(repository.exists("1", "2"));
+        assertTrue(repository.exists("2", "1"));
+        assertEquals(Set.of("2"), repository.findFriendIds("1"));
+        assertEquals(Set.of("1"), repository.findFriendIds("2"));
+        assertEquals("f1", repository.findOne("2", "1").get().getId());
+    }
+
+    @Test
+    public void testSave_ExistingPairInEitherOrder_ShouldReturnExisting() {
+        repository.save(new Friendship("f1", "1", "2"));
+
+        Optional<Friendship> existing = repository.save(new Friendship("f2", "2", "1"));
+
+        assertTrue(existing.isPresent());
+        assertEquals("f1", existing.get().getId());
+        assertEquals(1, count(repository.findAll()));
+    }
+
+    @Test
+    public void testDelete_ShouldRemoveBothDirections() {
+        repository.save(new Friendship("f1", "1", "2"));
+
+        assertEquals("f1", repository.delete("2", "1").get().getId());
+
+        assertFalse(repository.exists("1", "2"));
+        assertTrue(repository.findFriendIds("1").isEmpty());
+        assertTrue(repository.delete("1", "2").isEmpty());
+    }
+
+    @Test
+    public void testDeleteAllOf_ShouldRemoveEveryFriendshipOfUser() {
+        repository.save(new Friendship("f1", "1", "2"));
+        repository.save(new Friendship("f2", "3", "1"));
+        repository.save(new Friendship("f3", "2", "3"));
+
+        List<Friendship> removed = repository.deleteAllOf("1");
+
+        assertEquals(2, removed.size());
+        assertTrue(repository.findFriendIds("1").isEmpty());
+        assertEquals(Set.of("3"), repository.findFriendIds("2"));
+        assertEquals(1, count(repository.findAll()));
+    }
+
+    @Test
+    public void testFindAll_ShouldListEachFriendshipOnce() {
+        repository.save(new Friendship("f1", "1", "2"));
+        repository.save(new Friendship("f2", "3", "1"));
+
+        assertEquals(2, count(repository.findAll()));
+    }
+
+    @Test
+    public void testFromFriendLists_ShouldCopyEachPairOnce() {
+        User user1 = new User("1", "John", "Doe");
+        User user2 = new User("2", "Jane", "Smith");
+        user1.getFriends().add(user2);
+        user2.getFriends().add(user1);
+
+        FriendshipRepository copy = InMemoryFriendshipRepository.fromFriendLists(List.of(user1, user2));
+
+        assertTrue(copy.exists("1", "2"));
+        assertEquals(1, count(copy.findAll()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFindFriendIds_ShouldBeReadOnly() {
+        repository.save(new Friendship("f1", "1", "2"));
+        repository.findFriendIds("1").add("3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExists_NullId_ShouldThrowIllegalArgumentException() {
+        repository.exists(null, "1");
+    }
+
+    static int count(Iterable<Friendship> friendships) {
+        List<Friendship> list = new ArrayList<>();
+        friendships.forEach(list::add);
+        return list.size();
+    }
+}
@@ -35,6 +35,26 @@ public class InMemoryUserRepositoryTest {
         repository.save(invalidUser);
     }
 
+    @Test
+    public void testFindPage_ShouldReturnNextIdsInOrder() throws ValidationException {
+        for (String id : List.of("d", "a", "c", "e", "b")) {
+            repository.save(new User(id, "John", "Doe"));
+        }
+
+        assertEquals(List.of("a", "b"), ids(repository.findPage(null, 2)));
+        assertEquals(List.of("c", "d"), ids(repository.findPage("b", 2)));
+        assertEquals(List.of("e"), ids(repository.findPage("d", 2)));
+        assertTrue(repository.findPage("e", 2).isEmpty());
+    }
+
+    @Test
+    public void testStreamAll_ShouldReturnEveryUser() throws ValidationException {
+        repository.save(testUser);
+        repository.save(new User("2", "Jane", "Smith"));
+
+        assertEquals(2, repository.streamAll().count());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testSave_NullUser_ShouldThrowIllegalArgumentException() throws ValidationException {
         repository.save(null);
@@ -115,4 +135,44 @@ public class InMemoryUserRepositoryTest {
         
         assertEquals(2, users.size());
     }
+
+    @Test
+    public void testSaveAll_NewAndDuplicateUsers_ShouldReturnExisting() throws ValidationException {
+        repository.save(testUser);
+        List<User> existing = repository.saveAll(List.of(
+                new User("1", "Other", "Name"),
+                new User("2", "Jane", "Smith"),
+                new User("3", "Bob", "Wilson")));
+
+        assertEquals(1, existing.size());
+        assertEquals("John", existing.get(0).getFirstName());
+        assertTrue(repository.findOne("2").isPresent());
+        assertTrue(repository.findOne("3").isPresent());
+    }
+
+    @Test
+    public void testSaveAll_InvalidUser_ShouldSaveNothing() {
+        try {
+            repository.saveAll(List.of(new User("2", "Jane", "Smith"), new User("", "", "")));
+            fail("expected ValidationException");
+        } catch (ValidationException expected) {
+            assertTrue(repository.findOne("2").isEmpty());
+        }
+    }
+
+    @Test
+    public void testDeleteAll_ShouldReturnRemovedUsers() throws ValidationException {
+        repository.saveAll(List.of(testUser, new User("2", "Jane", "Smith")));
+        List<User> removed = repository.deleteAll(List.of("1", "2", "999"));
+
+        assertEquals(2, removed.size());
+        assertTrue(repository.findOne("1").isEmpty());
+        assertTrue(repository.findOne("2").isEmpty());
+    }
+
+    private static List<String> ids(List<User> users) {
+        List<String> ids = new ArrayList<>();
+        users.forEach(user -> ids.add(user.getId()));
+        return ids;
+    }
 }
@@ -0,0 +1,51 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedRepositoryTest {
+    private MetricsRegistry metrics;
+    private Repository<String, User> repository;
+
+    @Before
+    public void setUp() {
+        metrics = new MetricsRegistry();
+        repository = new InstrumentedRepository<>(new InMemoryUserRepository(new UserValidator()), metrics, "users");
+    }
+
+    @Test
+    public void testCalls_ShouldBeRecordedPerMethod() throws ValidationException {
+        repository.save(new User("1", "John", "Doe"));
+        repository.findOne("1");
+        repository.findOne("2");
+        repository.findMany(List.of("1"));
+        assertEquals(1, repository.count());
+        repository.delete("1");
+
+        assertEquals(1, metrics.operation("users.save").getCount());
+        assertEquals(2, metrics.operation("users.findOne").getCount());
+        assertEquals(1, metrics.operation("users.findMany").getCount());
+        assertEquals(1, metrics.operation("users.count").getCount());
+        assertEquals(1, metrics.operation("users.delete").getCount());
+        assertEquals(0, metrics.operation("users.update").getCount());
+    }
+
+    @Test
+    public void testSave_InvalidUser_ShouldCountErrorAndRethrow() {
+        try {
+            repository.save(new User("", "", ""));
+            fail("expected ValidationException");
+        } catch (ValidationException expected) {
+            assertEquals(1, metrics.operation("users.save").getCount());
+            assertEquals(1, metrics.operation("users.save").getErrors());
+        }
+    }
+}
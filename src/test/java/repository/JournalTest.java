@@ -0,0 +1,118 @@
+package repository;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JournalTest {
+    private static final Path TEST_JOURNAL = Paths.get("test_journal.log");
+    private static final Path ROTATED_JOURNAL = Paths.get("test_journal.log.rotated");
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(TEST_JOURNAL);
+        Files.deleteIfExists(ROTATED_JOURNAL);
+    }
+
+    @Test
+    public void testAppend_ShouldReplayRecordsInOrder() throws IOException {
+        try (Journal journal = new Journal(TEST_JOURNAL, record -> fail("journal should be empty"))) {
+            journal.sync(journal.append("first"));
+            journal.sync(journal.append("second, with ünicode"));
+        }
+
+        assertEquals(List.of("first", "second, with ünicode"), replay());
+    }
+
+    @Test
+    public void testOpen_TornTail_ShouldDropAndTruncateIt() throws IOException {
+        try (Journal journal = new Journal(TEST_JOURNAL, record -> { })) {
+            journal.sync(journal.append("kept"));
+        }
+        long intactLength = Files.size(TEST_JOURNAL);
+        Files.write(TEST_JOURNAL, "0badc0de half a rec".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        List<String> replayed = new ArrayList<>();
+        try (Journal journal = new Journal(TEST_JOURNAL, replayed::add)) {
+            assertEquals(intactLength, Files.size(TEST_JOURNAL));
+            journal.sync(journal.append("after the crash"));
+        }
+
+        assertEquals(List.of("kept"), replayed);
+        assertEquals(List.of("kept", "after the crash"), replay());
+    }
+
+    @Test
+    public void testReplay_ChecksumMismatch_ShouldStopAtCorruptRecord() throws IOException {
+        try (Journal journal = new Journal(TEST_JOURNAL, record -> { })) {
+            journal.append("one");
+            journal.append("two");
+            journal.sync(journal.append("three"));
+        }
+        String contents = Files.readString(TEST_JOURNAL).replace("two", "tw0");
+        Files.writeString(TEST_JOURNAL, contents);
+
+        assertEquals(List.of("one"), replay());
+    }
+
+    @Test
+    public void testSync_ShouldCoverEveryEarlierRecordWithOneFsync() throws IOException {
+        try (Journal journal = new Journal(TEST_JOURNAL, record -> { })) {
+            long first = journal.append("one");
+            long last = journal.append("two");
+
+            journal.sync(last);
+            journal.sync(first);
+
+            assertEquals(1, journal.getSyncCount());
+        }
+    }
+
+    @Test
+    public void testRotate_ShouldMoveRecordsAndContinueEmpty() throws IOException {
+        try (Journal journal = new Journal(TEST_JOURNAL, record -> { })) {
+            journal.sync(journal.append("old"));
+            journal.rotate(ROTATED_JOURNAL);
+            journal.sync(journal.append("new"));
+        }
+
+        List<String> rotated = new ArrayList<>();
+        Journal.replay(ROTATED_JOURNAL, rotated::add);
+        assertEquals(List.of("old"), rotated);
+        assertEquals(List.of("new"), replay());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppend_LineBreak_ShouldThrowIllegalArgumentException() throws IOException {
+        try (Journal journal = new Journal(TEST_JOURNAL, record -> { })) {
+            journal.append("two\nlines");
+        }
+    }
+
+    @Test
+    public void testAppend_BatchWithLineBreak_ShouldWriteNothing() throws IOException {
+        try (Journal journal = new Journal(TEST_JOURNAL, record -> { })) {
+            journal.sync(journal.append("kept"));
+            assertThrows(IllegalArgumentException.class, () -> journal.append(List.of("dropped", "two\nlines")));
+            journal.sync(journal.append(List.of("after", "failure")));
+        }
+
+        assertEquals(List.of("kept", "after", "failure"), replay());
+    }
+
+    private static List<String> replay() throws IOException {
+        List<String> records = new ArrayList<>();
+        Journal.replay(TEST_JOURNAL, records::add);
+        return records;
+    }
+}
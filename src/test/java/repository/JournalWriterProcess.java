@@ -0,0 +1,19 @@
+package repository;
+
+import domain.User;
+import validator.UserValidator;
+
+/**
+ * Saves users into a journaled {@link FileUserRepository} until it is killed, printing the
+ * number of every user once its save has returned. Started by the crash tests.
+ */
+public class JournalWriterProcess {
+    public static void main(String[] args) throws Exception {
+        FileUserRepository repository = new FileUserRepository(args[0], new UserValidator(), 0);
+        for (int i = 0; ; i++) {
+            repository.save(new User(String.valueOf(i), "First" + i, "Last" + i));
+            System.out.println(i);
+            System.out.flush();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package repository;
+
+import domain.User;
+import exceptions.ValidationException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import validator.UserValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class RepositoryEventsTest {
+    private static final String TEST_DB = "test_events.db";
+    private static final String TEST_FILE = "test_events.txt";
+    private Recording recording;
+
+    @Before
+    public void setUp() {
+        new File(TEST_DB).delete();
+        new File(TEST_FILE).delete();
+        recording = new Recording();
+        recording.enable("socialnetwork.DatabaseCall").withoutThreshold();
+        recording.enable("socialnetwork.FileIo").withoutThreshold();
+        recording.start();
+    }
+
+    @After
+    public void cleanup() {
+        recording.close();
+        new File(TEST_DB).delete();
+        new File(TEST_FILE).delete();
+    }
+
+    @Test
+    public void testDatabaseCalls_ShouldBeRecordedWithSqlAndRows() throws Exception {
+        DatabaseUserRepository repository = new DatabaseUserRepository(TEST_DB, new UserValidator(), 1, 1000);
+        try {
+            repository.findOne("1");
+            repository.findPage(null, 5);
+            try (Stream<User> users = repository.streamAll()) {
+                users.limit(3).forEach(user -> { });
+            }
+        } finally {
+            repository.close();
+        }
+
+        List<RecordedEvent> events = stop("socialnetwork.DatabaseCall");
+        RecordedEvent findOne = only(events, "findOne");
+        assertTrue(findOne.getString("sql").startsWith("SELECT * FROM users"));
+        assertTrue(findOne.getLong("rows") >= 1);
+        assertEquals(5, only(events, "findPage").getLong("rows"));
+        assertEquals(3, only(events, "streamAll").getLong("rows"));
+    }
+
+    @Test
+    public void testFileWrites_ShouldBeRecordedWithPathAndBytes() throws Exception {
+        new File(TEST_FILE).createNewFile();
+        FileUserRepository repository = new FileUserRepository(TEST_FILE, new UserValidator());
+        repository.save(new User("1", "John", "Doe"));
+
+        List<RecordedEvent> events = stop("socialnetwork.FileIo");
+        RecordedEvent rewrite = only(events, "rewrite");
+        assertEquals(TEST_FILE, rewrite.getString("path"));
+        assertEquals(1, rewrite.getLong("records"));
+        assertEquals(new File(TEST_FILE).length(), rewrite.getLong("bytes"));
+        assertEquals(1, events.stream().filter(event -> event.getString("operation").equals("load")).count());
+    }
+
+    @Test
+    public void testJournal_ShouldRecordAppendsAndSyncs() throws IOException, ValidationException {
+        try (FileUserRepository repository = new FileUserRepository(TEST_FILE, new UserValidator(), 0)) {
+            repository.save(new User("1", "John", "Doe"));
+        } finally {
+            Files.deleteIfExists(Path.of(TEST_FILE + ".journal"));
+        }
+
+        List<RecordedEvent> events = stop("socialnetwork.FileIo");
+        assertTrue(only(events, "journalAppend").getLong("bytes") > 0);
+        assertEquals(1, only(events, "journalSync").getLong("records"));
+    }
+
+    private List<RecordedEvent> stop(String eventName) throws IOException {
+        recording.stop();
+        Path dump = Files.createTempFile("events", ".jfr");
+        try {
+            recording.dump(dump);
+            return RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> event.getEventType().getName().equals(eventName))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String operation) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getString("operation").equals(operation))
+                .collect(Collectors.toList());
+        assertEquals(operation, 1, matching.size());
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,37 @@
+package repository;
+
+import domain.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserFileConverterTest {
+    private static final Path CSV_FILE = Paths.get("test_convert.txt");
+    private static final Path BINARY_FILE = Paths.get("test_convert.bin");
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(CSV_FILE);
+        Files.deleteIfExists(BINARY_FILE);
+    }
+
+    @Test
+    public void testCsvToBinaryAndBack_ShouldKeepUsers() throws IOException {
+        Files.writeString(CSV_FILE, "1,John,Doe\n2,Jane,Smith\nnot a user\n1,John,Updated\n");
+
+        assertEquals(2, UserFileConverter.csvToBinary(CSV_FILE, BINARY_FILE));
+        List<User> users = BinaryUserFormat.read(BINARY_FILE);
+        assertEquals("Updated", users.get(0).getLastName());
+
+        Files.delete(CSV_FILE);
+        assertEquals(2, UserFileConverter.binaryToCsv(BINARY_FILE, CSV_FILE));
+        assertEquals(List.of("1,John,Updated", "2,Jane,Smith"), Files.readAllLines(CSV_FILE));
+    }
+}
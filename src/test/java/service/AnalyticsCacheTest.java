@@ -0,0 +1,46 @@
+package service;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AnalyticsCacheTest {
+    @Test
+    public void testGet_RepeatedRead_ShouldComputeOnce() {
+        AnalyticsCache cache = new AnalyticsCache();
+        AtomicInteger computations = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(1), cache.get(List.of("count"), computations::incrementAndGet));
+        assertEquals(Integer.valueOf(1), cache.get(List.of("count"), computations::incrementAndGet));
+
+        assertEquals(1, computations.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate_ShouldRecomputeAndBumpVersion() {
+        AnalyticsCache cache = new AnalyticsCache();
+        AtomicInteger computations = new AtomicInteger();
+        cache.get(List.of("count"), computations::incrementAndGet);
+
+        cache.invalidate();
+
+        assertEquals(Integer.valueOf(2), cache.get(List.of("count"), computations::incrementAndGet));
+        assertEquals(1, cache.getVersion());
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testGet_DifferentKeys_ShouldBeCachedSeparately() {
+        AnalyticsCache cache = new AnalyticsCache();
+
+        assertEquals("a", cache.get(List.of("x", 1), () -> "a"));
+        assertEquals("b", cache.get(List.of("x", 2), () -> "b"));
+        assertEquals("a", cache.get(List.of("x", 1), () -> "c"));
+    }
+}
@@ -0,0 +1,72 @@
+package service;
+
+import domain.User;
+import exceptions.ValidationException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryUserRepository;
+import validator.UserValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class AnalyticsEventTest {
+    @Test
+    public void testAnalyticsRuns_ShouldBeRecordedWithGraphWork() throws ValidationException, IOException {
+        SocialNetworkService service = new SocialNetworkService(new InMemoryUserRepository(new UserValidator()),
+                new InMemoryFriendshipRepository());
+        for (int i = 0; i < 5; i++) {
+            service.addUser(new User(String.valueOf(i), "First", "Last"));
+        }
+        // a path 0-1-2 and a pair 3-4
+        service.addFriendship("0", "1");
+        service.addFriendship("1", "2");
+        service.addFriendship("3", "4");
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("socialnetwork.Analytics").withoutThreshold();
+            recording.start();
+            service.getMostSociableCommunity(ExecutionMode.SEQUENTIAL);
+            service.getNumberOfCommunities(ExecutionMode.PARALLEL);
+            recording.stop();
+            Path dump = Files.createTempFile("analytics", ".jfr");
+            try {
+                recording.dump(dump);
+                events = RecordingFile.readAllEvents(dump).stream()
+                        .filter(event -> event.getEventType().getName().equals("socialnetwork.Analytics"))
+                        .collect(Collectors.toList());
+            } finally {
+                Files.delete(dump);
+            }
+        }
+
+        // the second analytics runs on the snapshot taken by the first
+        RecordedEvent snapshot = only(events, "snapshot", 1);
+        assertEquals(5, snapshot.getLong("vertices"));
+        assertEquals(3, snapshot.getLong("edges"));
+        RecordedEvent sociable = only(events, "findMostSociableCommunity", 1);
+        assertEquals("SEQUENTIAL", sociable.getString("mode"));
+        assertEquals(2, sociable.getLong("communities"));
+        // one traversal of the graph, then a search over its component from every member
+        assertEquals(5 + 3 * 3 + 2 * 2, sociable.getLong("verticesVisited"));
+        assertEquals(6 + 3 * 4 + 2 * 2, sociable.getLong("edgesScanned"));
+        assertEquals(2, only(events, "countCommunities", 1).getLong("communities"));
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String operation, int expected) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getString("operation").equals(operation))
+                .collect(Collectors.toList());
+        assertEquals(operation, expected, matching.size());
+        return matching.get(0);
+    }
+}
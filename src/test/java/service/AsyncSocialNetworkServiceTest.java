@@ -0,0 +1,65 @@
+package service;
+
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.AsyncExecutor;
+import repository.ConcurrentFriendshipRepository;
+import repository.ConcurrentUserRepository;
+import validator.UserValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class AsyncSocialNetworkServiceTest {
+    private AsyncExecutor executor;
+    private AsyncSocialNetworkService service;
+
+    @Before
+    public void setUp() {
+        executor = new AsyncExecutor(4);
+        service = new AsyncSocialNetworkService(new SocialNetworkService(
+                new ConcurrentUserRepository(new UserValidator()), new ConcurrentFriendshipRepository()), executor);
+    }
+
+    @After
+    public void cleanup() {
+        executor.close();
+    }
+
+    @Test
+    public void testFanOut_ShouldSeeEveryWrite() throws Exception {
+        List<CompletableFuture<Void>> adds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            adds.add(service.addUser(new User(String.valueOf(i), "First", "Last")));
+        }
+        CompletableFuture.allOf(adds.toArray(new CompletableFuture<?>[0])).get();
+        List<CompletableFuture<Void>> friendships = new ArrayList<>();
+        for (int i = 1; i < 20; i++) {
+            friendships.add(service.addFriendship("0", String.valueOf(i)));
+        }
+        CompletableFuture.allOf(friendships.toArray(new CompletableFuture<?>[0])).get();
+
+        assertEquals(19, service.getFriends("0").get().size());
+        assertEquals(1, (int) service.getNumberOfCommunities().get());
+        assertEquals(List.of("5", "0"), service.getUsers(List.of("5", "99", "0")).get().stream()
+                .map(User::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testAddFriendship_UnknownUser_ShouldFailWithValidationException() throws InterruptedException {
+        try {
+            service.addFriendship("1", "2").get();
+            fail("expected ValidationException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ValidationException);
+        }
+    }
+}
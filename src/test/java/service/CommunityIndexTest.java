@@ -0,0 +1,184 @@
+package service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CommunityIndexTest {
+    private Map<String, Set<String>> graph;
+    private CommunityIndex index;
+
+    @Before
+    public void setUp() {
+        graph = new HashMap<>();
+        index = new CommunityIndex(id -> graph.getOrDefault(id, Set.of()));
+    }
+
+    @Test
+    public void testAddUsers_ShouldCountEachAsCommunity() {
+        addUser("1");
+        addUser("2");
+        addUser("2");
+        assertEquals(2, index.getCount());
+    }
+
+    @Test
+    public void testAddFriendship_ShouldMergeCommunities() {
+        addUser("1");
+        addUser("2");
+        addUser("3");
+        addFriendship("1", "2");
+        assertEquals(2, index.getCount());
+        assertTrue(index.sameCommunity("1", "2"));
+        assertFalse(index.sameCommunity("1", "3"));
+    }
+
+    @Test
+    public void testAddFriendship_UnknownUser_ShouldBeIgnored() {
+        addUser("1");
+        index.addFriendship("1", "999");
+        assertEquals(1, index.getCount());
+    }
+
+    @Test
+    public void testRemoveFriendship_BridgeEdge_ShouldSplitCommunity() {
+        for (int i = 1; i <= 4; i++) {
+            addUser(String.valueOf(i));
+        }
+        addFriendship("1", "2");
+        addFriendship("2", "3");
+        addFriendship("3", "4");
+        assertEquals(1, index.getCount());
+
+        removeFriendship("2", "3");
+        assertEquals(2, index.getCount());
+        assertTrue(index.sameCommunity("3", "4"));
+        assertFalse(index.sameCommunity("2", "3"));
+    }
+
+    @Test
+    public void testRemoveFriendship_CycleEdge_ShouldKeepCommunity() {
+        for (int i = 1; i <= 3; i++) {
+            addUser(String.valueOf(i));
+        }
+        addFriendship("1", "2");
+        addFriendship("2", "3");
+        addFriendship("3", "1");
+
+        removeFriendship("1", "2");
+        assertEquals(1, index.getCount());
+    }
+
+    @Test
+    public void testRemoveUser_CutVertex_ShouldSplitCommunity() {
+        for (int i = 1; i <= 3; i++) {
+            addUser(String.valueOf(i));
+        }
+        addFriendship("1", "2");
+        addFriendship("2", "3");
+
+        removeUser("2");
+        assertEquals(2, index.getCount());
+        assertFalse(index.sameCommunity("1", "3"));
+    }
+
+    @Test
+    public void testRemoveUser_Isolated_ShouldDropCommunity() {
+        addUser("1");
+        addUser("2");
+        removeUser("2");
+        assertEquals(1, index.getCount());
+
+        addUser("3");
+        assertEquals(2, index.getCount());
+    }
+
+    @Test
+    public void testRandomOperations_ShouldMatchFullTraversal() {
+        Random random = new Random(7);
+        List<String> users = new ArrayList<>();
+        for (int step = 0; step < 5_000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 3 || users.size() < 2) {
+                String id = "u" + step;
+                addUser(id);
+                users.add(id);
+            } else if (operation < 7) {
+                String id1 = users.get(random.nextInt(users.size()));
+                String id2 = users.get(random.nextInt(users.size()));
+                if (!id1.equals(id2)) {
+                    addFriendship(id1, id2);
+                }
+            } else if (operation < 9) {
+                String id1 = users.get(random.nextInt(users.size()));
+                List<String> friends = new ArrayList<>(graph.get(id1));
+                if (!friends.isEmpty()) {
+                    removeFriendship(id1, friends.get(random.nextInt(friends.size())));
+                }
+            } else {
+                removeUser(users.remove(random.nextInt(users.size())));
+            }
+
+            if (step % 50 == 0) {
+                assertEquals(countByTraversal(), index.getCount());
+            }
+        }
+        assertEquals(countByTraversal(), index.getCount());
+    }
+
+    private void addUser(String id) {
+        graph.putIfAbsent(id, new HashSet<>());
+        index.addUser(id);
+    }
+
+    private void addFriendship(String id1, String id2) {
+        graph.get(id1).add(id2);
+        graph.get(id2).add(id1);
+        index.addFriendship(id1, id2);
+    }
+
+    private void removeFriendship(String id1, String id2) {
+        graph.get(id1).remove(id2);
+        graph.get(id2).remove(id1);
+        index.removeFriendship(id1, id2);
+    }
+
+    private void removeUser(String id) {
+        for (String friend : graph.remove(id)) {
+            graph.get(friend).remove(id);
+        }
+        index.removeUser(id);
+    }
+
+    private int countByTraversal() {
+        Set<String> visited = new HashSet<>();
+        int count = 0;
+        for (String start : graph.keySet()) {
+            if (!visited.add(start)) {
+                continue;
+            }
+            count++;
+            Deque<String> stack = new ArrayDeque<>();
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                for (String friend : graph.get(stack.pop())) {
+                    if (visited.add(friend)) {
+                        stack.push(friend);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,113 @@
+package service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DiameterFinderTest {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    @Test
+    public void testFind_Path_ShouldReturnWholePath() {
+        GraphSnapshot graph = GraphTraversalTest.path(100, 1);
+        DiameterFinder finder = new DiameterFinder(graph);
+        int[] component = GraphTraversal.components(graph).get(0);
+
+        for (int threshold : new int[]{Integer.MAX_VALUE, 0}) {
+            DiameterFinder.Diameter diameter = finder.find(component, threshold, NO_DEADLINE);
+
+            assertEquals(99, diameter.getLength());
+            assertEquals(99, diameter.getUpperBound());
+            assertTrue(diameter.isExact());
+            assertValidPath(graph, diameter.getPath());
+        }
+    }
+
+    @Test
+    public void testFind_Cycle_ShouldReturnHalfTheCycle() {
+        int vertices = 101;
+        int[] from = new int[vertices];
+        int[] to = new int[vertices];
+        for (int i = 0; i < vertices; i++) {
+            from[i] = i;
+            to[i] = (i + 1) % vertices;
+        }
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(vertices), from, to);
+
+        DiameterFinder.Diameter diameter = new DiameterFinder(graph)
+                .find(GraphTraversal.components(graph).get(0), 0, NO_DEADLINE);
+
+        assertEquals(50, diameter.getLength());
+        assertTrue(diameter.isExact());
+        assertValidPath(graph, diameter.getPath());
+    }
+
+    @Test
+    public void testFind_SingleVertex_ShouldReturnEmptyPath() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(1), new int[0], new int[0]);
+
+        DiameterFinder.Diameter diameter = new DiameterFinder(graph).find(new int[]{0}, 0, NO_DEADLINE);
+
+        assertEquals(0, diameter.getLength());
+        assertTrue(diameter.isExact());
+    }
+
+    @Test
+    public void testFind_RandomGraphs_IFubShouldMatchBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            GraphSnapshot graph = randomGraph(random, 50 + random.nextInt(150), 1 + random.nextInt(3));
+            DiameterFinder finder = new DiameterFinder(graph);
+
+            for (int[] component : GraphTraversal.components(graph)) {
+                DiameterFinder.Diameter exact = finder.find(component, Integer.MAX_VALUE, NO_DEADLINE);
+                DiameterFinder.Diameter iFub = finder.find(component, 0, NO_DEADLINE);
+
+                assertEquals(exact.getLength(), iFub.getLength());
+                assertTrue(iFub.isExact());
+                assertValidPath(graph, iFub.getPath());
+            }
+        }
+    }
+
+    @Test
+    public void testFind_ExpiredDeadline_ShouldBoundTheDiameter() {
+        Random random = new Random(11);
+        GraphSnapshot graph = randomGraph(random, 2000, 1);
+        DiameterFinder finder = new DiameterFinder(graph);
+
+        for (int[] component : GraphTraversal.components(graph)) {
+            int diameter = finder.find(component, Integer.MAX_VALUE, NO_DEADLINE).getLength();
+            DiameterFinder.Diameter bounded = finder.find(component, 0, System.nanoTime() - 1);
+
+            assertTrue(bounded.getLength() <= diameter);
+            assertTrue(bounded.getUpperBound() >= diameter);
+            assertEquals(bounded.isExact(), bounded.getLength() == bounded.getUpperBound());
+            assertValidPath(graph, bounded.getPath());
+        }
+    }
+
+    private static GraphSnapshot randomGraph(Random random, int vertices, int averageDegree) {
+        int edges = vertices * averageDegree / 2;
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        for (int i = 0; i < edges; i++) {
+            from[i] = random.nextInt(vertices);
+            to[i] = random.nextInt(vertices);
+            if (from[i] == to[i]) {
+                to[i] = (to[i] + 1) % vertices;
+            }
+        }
+        return GraphSnapshot.fromEdges(GraphTraversalTest.ids(vertices), from, to);
+    }
+
+    private static void assertValidPath(GraphSnapshot graph, int[] path) {
+        for (int i = 1; i < path.length; i++) {
+            int[] neighbours = graph.getNeighbours(path[i - 1]);
+            assertTrue(Arrays.binarySearch(neighbours, path[i]) >= 0);
+        }
+    }
+}
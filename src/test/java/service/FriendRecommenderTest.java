@@ -0,0 +1,155 @@
+package service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class FriendRecommenderTest {
+
+    @Test
+    public void testRecommend_ShouldRankNonFriendsByMutualFriends() {
+        // 0 is friends with 1, 2 and 3; 4 shares 1, 2 and 3 with it, 5 shares 2 and 3, 6 shares 1
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(7),
+                new int[]{0, 0, 0, 1, 2, 3, 2, 3, 1, 1},
+                new int[]{1, 2, 3, 4, 4, 4, 5, 5, 6, 2});
+        FriendRecommender recommender = new FriendRecommender(graph);
+
+        FriendRecommender.Ranking ranking = recommender.recommend(0, 10);
+
+        assertEquals(3, ranking.size());
+        assertEquals(4, ranking.getVertex(0));
+        assertEquals(3, ranking.getMutualFriends(0));
+        assertEquals(5, ranking.getVertex(1));
+        assertEquals(2, ranking.getMutualFriends(1));
+        assertEquals(6, ranking.getVertex(2));
+        assertEquals(1, ranking.getMutualFriends(2));
+    }
+
+    @Test
+    public void testRecommend_ShouldKeepTopKAndBreakTiesById() {
+        // 0 - 1 - {2, 3, 4}: three candidates with one mutual friend each
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(5),
+                new int[]{0, 1, 1, 1}, new int[]{1, 4, 2, 3});
+        FriendRecommender recommender = new FriendRecommender(graph);
+
+        FriendRecommender.Ranking ranking = recommender.recommend(0, 2);
+
+        assertEquals(2, ranking.size());
+        assertEquals(2, ranking.getVertex(0));
+        assertEquals(3, ranking.getVertex(1));
+    }
+
+    @Test
+    public void testRecommend_IsolatedVertex_ShouldBeEmpty() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(3), new int[]{1}, new int[]{2});
+
+        assertEquals(0, new FriendRecommender(graph).recommend(0, 5).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecommend_NonPositiveK_ShouldThrow() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(2), new int[]{0}, new int[]{1});
+        new FriendRecommender(graph).recommend(0, 0);
+    }
+
+    @Test
+    public void testRecommendAll_RandomGraphs_ShouldMatchBruteForce() {
+        Random random = new Random(5);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 10; round++) {
+                int vertices = 1 + random.nextInt(500);
+                // snapshots of repositories hold every friendship once and no self-friendships
+                Set<Long> pairs = new HashSet<>();
+                int attempts = random.nextInt(4 * vertices);
+                for (int i = 0; i < attempts; i++) {
+                    int a = random.nextInt(vertices);
+                    int b = random.nextInt(vertices);
+                    if (a != b) {
+                        pairs.add((long) Math.min(a, b) * vertices + Math.max(a, b));
+                    }
+                }
+                int[] from = new int[pairs.size()];
+                int[] to = new int[pairs.size()];
+                int edge = 0;
+                for (long pair : pairs) {
+                    from[edge] = (int) (pair / vertices);
+                    to[edge++] = (int) (pair % vertices);
+                }
+                GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(vertices), from, to);
+                int k = 1 + random.nextInt(8);
+                List<Set<Integer>> neighbours = new ArrayList<>();
+                for (int vertex = 0; vertex < vertices; vertex++) {
+                    neighbours.add(neighbours(graph, vertex));
+                }
+
+                FriendRecommender.Ranking[] sequential = FriendRecommender.recommendAll(graph, k);
+                FriendRecommender.Ranking[] parallel = FriendRecommender.recommendAll(graph, k, pool);
+
+                for (int vertex = 0; vertex < vertices; vertex++) {
+                    List<int[]> expected = bruteForce(graph, neighbours, vertex, k);
+                    assertRanking(expected, sequential[vertex]);
+                    assertRanking(expected, parallel[vertex]);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEdgesScanned_ShouldMatchEstimateForAllVertices() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(5),
+                new int[]{0, 0, 1, 3}, new int[]{1, 2, 2, 4});
+        FriendRecommender recommender = new FriendRecommender(graph);
+        for (int vertex = 0; vertex < graph.getVertexCount(); vertex++) {
+            recommender.recommend(vertex, 3);
+        }
+
+        assertEquals(FriendRecommender.edgesScannedByAll(graph), recommender.getEdgesScanned());
+    }
+
+    /**
+     * @return {vertex, mutual friends} of the best k candidates, counted by intersecting sets
+     */
+    private static List<int[]> bruteForce(GraphSnapshot graph, List<Set<Integer>> neighbours, int vertex, int k) {
+        Set<Integer> friends = neighbours.get(vertex);
+        List<int[]> candidates = new ArrayList<>();
+        for (int candidate = 0; candidate < graph.getVertexCount(); candidate++) {
+            if (candidate == vertex || friends.contains(candidate)) {
+                continue;
+            }
+            Set<Integer> mutual = new HashSet<>(neighbours.get(candidate));
+            mutual.retainAll(friends);
+            if (!mutual.isEmpty()) {
+                candidates.add(new int[]{candidate, mutual.size()});
+            }
+        }
+        candidates.sort(Comparator.<int[]>comparingInt(c -> -c[1]).thenComparing(c -> graph.getId(c[0])));
+        return candidates.subList(0, Math.min(k, candidates.size()));
+    }
+
+    private static Set<Integer> neighbours(GraphSnapshot graph, int vertex) {
+        Set<Integer> neighbours = new HashSet<>();
+        for (int neighbour : graph.getNeighbours(vertex)) {
+            neighbours.add(neighbour);
+        }
+        return neighbours;
+    }
+
+    private static void assertRanking(List<int[]> expected, FriendRecommender.Ranking actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(expected.get(rank)[0], actual.getVertex(rank));
+            assertEquals(expected.get(rank)[1], actual.getMutualFriends(rank));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package service;
+
+import domain.User;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GraphSnapshotTest {
+
+    @Test
+    public void testOf_Users_ShouldBuildSymmetricSortedAdjacency() {
+        User user1 = new User("a", "Ana", "Stan");
+        User user2 = new User("b", "Ion", "Popa");
+        User user3 = new User("c", "Dan", "Radu");
+        befriend(user1, user3);
+        befriend(user1, user2);
+
+        GraphSnapshot graph = GraphSnapshot.of(List.of(user1, user2, user3));
+
+        assertEquals(3, graph.getVertexCount());
+        assertEquals(2, graph.getEdgeCount());
+        assertArrayEquals(new int[]{1, 2}, graph.getNeighbours(graph.indexOf("a")));
+        assertArrayEquals(new int[]{0}, graph.getNeighbours(graph.indexOf("b")));
+        assertSame(user3, graph.getUser(graph.indexOf("c")));
+    }
+
+    @Test
+    public void testOf_FriendOutsideSnapshot_ShouldBeDropped() {
+        User user1 = new User("a", "Ana", "Stan");
+        User removed = new User("b", "Ion", "Popa");
+        befriend(user1, removed);
+
+        GraphSnapshot graph = GraphSnapshot.of(List.of(user1));
+
+        assertEquals(0, graph.getDegree(0));
+        assertEquals(-1, graph.indexOf("b"));
+    }
+
+    @Test
+    public void testFromEdges_ShouldStoreEachEdgeInBothDirections() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(new String[]{"x", "y", "z"}, new int[]{2, 0}, new int[]{1, 2});
+
+        assertEquals(2, graph.getEdgeCount());
+        assertArrayEquals(new int[]{2}, graph.getNeighbours(0));
+        assertArrayEquals(new int[]{0, 1}, graph.getNeighbours(2));
+        assertNull(graph.getUser(0));
+        assertEquals(4 * 4 + 4 * 4, graph.getAdjacencyBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromEdges_MismatchedEndpoints_ShouldThrowIllegalArgumentException() {
+        GraphSnapshot.fromEdges(new String[]{"x", "y"}, new int[]{0}, new int[0]);
+    }
+
+    private static void befriend(User user1, User user2) {
+        user1.getFriends().add(user2);
+        user2.getFriends().add(user1);
+    }
+}
@@ -0,0 +1,240 @@
+package service;
+
+import domain.Friendship;
+import domain.User;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import repository.FriendshipRepository;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryUserRepository;
+import repository.Repository;
+import validator.UserValidator;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GraphStorageTest {
+    private static final Path IMAGE = Paths.get("test_graph.img");
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(IMAGE);
+        Files.deleteIfExists(Paths.get(IMAGE + ".tmp"));
+    }
+
+    @Test
+    public void testDirectAndMapped_ShouldMatchHeapSnapshot() {
+        List<User> users = users(300);
+        FriendshipRepository friendships = randomFriendships(300, 1_000);
+
+        GraphSnapshot heap = GraphStorage.heap().snapshot(users, friendships);
+        GraphSnapshot direct = GraphStorage.direct().snapshot(users, friendships);
+        GraphSnapshot mapped = GraphStorage.mapped(IMAGE).snapshot(users, friendships);
+
+        assertSameGraph(heap, direct);
+        assertSameGraph(heap, mapped);
+        assertEquals(GraphTraversal.countComponents(heap), GraphTraversal.countComponents(mapped));
+        assertSame(users.get(7), mapped.getUser(7));
+    }
+
+    @Test
+    public void testRestore_ShouldMapImageOfPreviousRun() {
+        List<User> users = users(100);
+        FriendshipRepository friendships = randomFriendships(100, 200);
+        GraphSnapshot written = GraphStorage.mapped(IMAGE).snapshot(users, friendships);
+
+        GraphSnapshot restored = GraphStorage.mapped(IMAGE).restore(userRepository(users), friendships).get();
+
+        assertSameGraph(written, restored);
+        assertEquals(written.indexOf("u42"), restored.indexOf("u42"));
+        assertNull(restored.getUser(0));
+    }
+
+    @Test
+    public void testRestore_MissingOrTruncatedImage_ShouldBeEmpty() throws IOException {
+        List<User> users = users(100);
+        FriendshipRepository friendships = randomFriendships(100, 200);
+        assertTrue(GraphStorage.mapped(IMAGE).restore(userRepository(users), friendships).isEmpty());
+        assertTrue(GraphStorage.heap().restore(userRepository(users), friendships).isEmpty());
+
+        GraphStorage.mapped(IMAGE).snapshot(users, friendships);
+        try (FileChannel channel = FileChannel.open(IMAGE, StandardOpenOption.WRITE)) {
+            channel.truncate(100);
+        }
+
+        assertTrue(GraphStorage.mapped(IMAGE).restore(userRepository(users), friendships).isEmpty());
+    }
+
+    @Test
+    public void testRestore_ImageOfOtherRepositories_ShouldBeDeleted() {
+        List<User> users = users(100);
+        FriendshipRepository friendships = randomFriendships(100, 200);
+        GraphStorage.mapped(IMAGE).snapshot(users, friendships);
+
+        assertTrue(GraphStorage.mapped(IMAGE).restore(userRepository(users), new InMemoryFriendshipRepository()).isEmpty());
+        assertFalse(Files.exists(IMAGE));
+
+        GraphStorage.mapped(IMAGE).snapshot(users, friendships);
+        List<User> renamed = users(100);
+        renamed.set(42, new User("x42", "First", "Last"));
+
+        assertTrue(GraphStorage.mapped(IMAGE).restore(userRepository(renamed), friendships).isEmpty());
+        assertTrue(GraphStorage.mapped(IMAGE).restore(userRepository(users(99)), friendships).isEmpty());
+        assertFalse(Files.exists(IMAGE));
+    }
+
+    @Test
+    public void testRestore_ImageWithReplacedFriendship_ShouldBeDeleted() {
+        List<User> users = users(100);
+        FriendshipRepository friendships = randomFriendships(100, 200);
+        GraphStorage.mapped(IMAGE).snapshot(users, friendships);
+        // as many friendships as the image was built from, but not the same ones
+        Friendship replaced = friendships.findAll().iterator().next();
+        friendships.delete(replaced.getUserId1(), replaced.getUserId2());
+        int other = 0;
+        while (other == 99 || friendships.findFriendIds("u99").contains("u" + other)) {
+            other++;
+        }
+        friendships.save(new Friendship("f", "u" + other, "u99"));
+
+        assertTrue(GraphStorage.mapped(IMAGE).restore(userRepository(users), friendships).isEmpty());
+        assertFalse(Files.exists(IMAGE));
+    }
+
+    @Test
+    public void testService_MappedStorage_ShouldReuseImageUntilFirstWrite() throws ValidationException {
+        Repository<String, User> repository = new InMemoryUserRepository(new UserValidator());
+        FriendshipRepository friendships = new InMemoryFriendshipRepository();
+        SocialNetworkService service = new SocialNetworkService(repository, friendships,
+                ExecutionMode.SEQUENTIAL, GraphStorage.mapped(IMAGE));
+        for (int i = 0; i < 4; i++) {
+            service.addUser(new User("u" + i, "First", "Last"));
+        }
+        service.addFriendship("u0", "u1");
+        service.addFriendship("u1", "u2");
+        assertEquals(2, service.getNumberOfCommunities());
+
+        SocialNetworkService restarted = new SocialNetworkService(repository, friendships,
+                ExecutionMode.PARALLEL, GraphStorage.mapped(IMAGE));
+        assertEquals(2, restarted.getNumberOfCommunities());
+        assertEquals("First", restarted.getCommunities().get(0).get(0).getFirstName());
+
+        restarted.addUser(new User("u4", "First", "Last"));
+        assertFalse(Files.exists(IMAGE));
+        assertEquals(3, restarted.getNumberOfCommunities());
+    }
+
+    @Test
+    public void testService_RestartAfterWrite_ShouldNotSeeStaleImage() throws ValidationException {
+        Repository<String, User> repository = new InMemoryUserRepository(new UserValidator());
+        FriendshipRepository friendships = new InMemoryFriendshipRepository();
+        SocialNetworkService service = new SocialNetworkService(repository, friendships,
+                ExecutionMode.SEQUENTIAL, GraphStorage.mapped(IMAGE));
+        for (int i = 0; i < 4; i++) {
+            service.addUser(new User("u" + i, "First", "Last"));
+        }
+        service.addFriendship("u0", "u1");
+        assertEquals(3, service.getNumberOfCommunities());
+
+        // writes after the image was built, without an analytics call to rebuild it
+        SocialNetworkService restarted = new SocialNetworkService(repository, friendships,
+                ExecutionMode.SEQUENTIAL, GraphStorage.mapped(IMAGE));
+        restarted.removeUser("u0");
+        restarted.addUser(new User("u4", "First", "Last"));
+        restarted.addFriendship("u2", "u3");
+
+        SocialNetworkService again = new SocialNetworkService(repository, friendships,
+                ExecutionMode.SEQUENTIAL, GraphStorage.mapped(IMAGE));
+        List<List<User>> communities = again.getCommunities();
+        assertEquals(3, communities.size());
+        for (List<User> community : communities) {
+            community.forEach(Assert::assertNotNull);
+        }
+        again.getMostSociableCommunity().forEach(Assert::assertNotNull);
+        assertEquals(2, again.findShortestPath("u2", "u3").get().size());
+    }
+
+    @Test
+    public void testService_UserRemovedBehindRestoredImage_ShouldRebuildInsteadOfReturningNull()
+            throws ValidationException {
+        Repository<String, User> repository = new InMemoryUserRepository(new UserValidator());
+        FriendshipRepository friendships = new InMemoryFriendshipRepository();
+        SocialNetworkService service = new SocialNetworkService(repository, friendships,
+                ExecutionMode.SEQUENTIAL, GraphStorage.mapped(IMAGE));
+        for (int i = 0; i < 4; i++) {
+            service.addUser(new User("u" + i, "First", "Last"));
+        }
+        service.addFriendship("u0", "u1");
+        service.addFriendship("u1", "u2");
+        service.addFriendship("u2", "u3");
+        assertEquals(1, service.getNumberOfCommunities());
+
+        for (int query = 0; query < 5; query++) {
+            SocialNetworkService restarted = new SocialNetworkService(repository, friendships,
+                    ExecutionMode.SEQUENTIAL, GraphStorage.mapped(IMAGE));
+            // the restored image still has u3, the repository no longer
+            repository.delete("u3");
+            switch (query) {
+                case 0 -> assertEquals(List.of(List.of("u0", "u1", "u2")), restarted.getCommunities().stream()
+                        .map(community -> community.stream().map(User::getId).toList()).toList());
+                case 1 -> assertEquals(3, restarted.getMostSociableCommunity().size());
+                case 2 -> assertFalse(restarted.precomputeFriendSuggestions(2).containsKey("u3"));
+                case 3 -> assertTrue(restarted.findShortestPath("u0", "u3").isEmpty());
+                default -> assertTrue(restarted.getFriendSuggestions("u1", 2).isEmpty());
+            }
+
+            // puts u3 back, with a fresh image
+            repository.save(new User("u3", "First", "Last"));
+            assertEquals(1, new SocialNetworkService(repository, friendships,
+                    ExecutionMode.SEQUENTIAL, GraphStorage.mapped(IMAGE)).getNumberOfCommunities());
+        }
+    }
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new User("u" + i, "First" + i, "Last" + i));
+        }
+        return users;
+    }
+
+    private static Repository<String, User> userRepository(List<User> users) {
+        Repository<String, User> repository = new InMemoryUserRepository(new UserValidator());
+        try {
+            repository.saveAll(users);
+        } catch (ValidationException e) {
+            throw new IllegalStateException(e);
+        }
+        return repository;
+    }
+
+    private static FriendshipRepository randomFriendships(int users, int count) {
+        FriendshipRepository friendships = new InMemoryFriendshipRepository();
+        Random random = new Random(3);
+        for (int i = 0; i < count; i++) {
+            friendships.save(new Friendship("f" + i, "u" + random.nextInt(users), "u" + random.nextInt(users)));
+        }
+        return friendships;
+    }
+
+    private static void assertSameGraph(GraphSnapshot expected, GraphSnapshot actual) {
+        assertEquals(expected.getVertexCount(), actual.getVertexCount());
+        assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+        assertEquals(expected.getAdjacencyBytes(), actual.getAdjacencyBytes());
+        for (int vertex = 0; vertex < expected.getVertexCount(); vertex++) {
+            assertEquals(expected.getId(vertex), actual.getId(vertex));
+            assertArrayEquals(expected.getNeighbours(vertex), actual.getNeighbours(vertex));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package service;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GraphTraversalTest {
+    private static final int PATH_LENGTH = 1_000_000;
+
+    @Test
+    public void testCountComponents_EmptyGraph_ShouldReturnZero() {
+        assertEquals(0, GraphTraversal.countComponents(GraphSnapshot.fromEdges(new String[0], new int[0], new int[0])));
+    }
+
+    @Test
+    public void testComponents_ShouldGroupConnectedVertices() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(ids(6), new int[]{0, 1, 4}, new int[]{1, 2, 5});
+
+        List<int[]> components = GraphTraversal.components(graph);
+
+        assertEquals(3, components.size());
+        assertArrayEquals(new int[]{0, 1, 2}, components.get(0));
+        assertArrayEquals(new int[]{3}, components.get(1));
+        assertArrayEquals(new int[]{4, 5}, components.get(2));
+    }
+
+    @Test
+    public void testCountComponents_MillionVertexPath_ShouldNotOverflowStack() {
+        assertEquals(1, GraphTraversal.countComponents(path(PATH_LENGTH, 1)));
+    }
+
+    @Test
+    public void testTraverse_MillionVertexPathFromMiddle_ShouldVisitEveryVertex() {
+        GraphSnapshot graph = path(PATH_LENGTH, 1);
+        BitSet visited = new BitSet(PATH_LENGTH);
+
+        int visitedCount = GraphTraversal.traverse(graph, PATH_LENGTH / 2, visited, new int[PATH_LENGTH]);
+
+        assertEquals(PATH_LENGTH, visitedCount);
+        assertEquals(PATH_LENGTH, visited.cardinality());
+    }
+
+    @Test
+    public void testComponents_TwoMillionVertexPaths_ShouldFindBoth() {
+        List<int[]> components = GraphTraversal.components(path(PATH_LENGTH, 2));
+
+        assertEquals(2, components.size());
+        assertEquals(PATH_LENGTH / 2, components.get(0).length);
+        assertEquals(PATH_LENGTH / 2, components.get(1).length);
+    }
+
+    /**
+     * @return {@code vertices} vertices split into {@code paths} equally long paths
+     */
+    static GraphSnapshot path(int vertices, int paths) {
+        int length = vertices / paths;
+        int[] from = new int[vertices - paths];
+        int[] to = new int[vertices - paths];
+        int edge = 0;
+        for (int path = 0; path < paths; path++) {
+            for (int i = 1; i < length; i++) {
+                from[edge] = path * length + i - 1;
+                to[edge] = path * length + i;
+                edge++;
+            }
+        }
+        return GraphSnapshot.fromEdges(ids(vertices), from, to);
+    }
+
+    static String[] ids(int vertices) {
+        String[] ids = new String[vertices];
+        for (int i = 0; i < vertices; i++) {
+            ids[i] = String.valueOf(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,52 @@
+package service;
+
+import domain.User;
+import exceptions.ValidationException;
+import metrics.MetricsRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import repository.InMemoryFriendshipRepository;
+import repository.InMemoryUserRepository;
+import validator.UserValidator;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedSocialNetworkServiceTest {
+    private MetricsRegistry metrics;
+    private InstrumentedSocialNetworkService service;
+
+    @Before
+    public void setUp() {
+        metrics = new MetricsRegistry();
+        service = new InstrumentedSocialNetworkService(
+                new SocialNetworkService(new InMemoryUserRepository(new UserValidator()),
+                        new InMemoryFriendshipRepository()), metrics);
+    }
+
+    @Test
+    public void testCalls_ShouldBeRecordedAndOverloadsShareAName() throws ValidationException {
+        service.addUser(new User("1", "John", "Doe"));
+        service.addUser(new User("2", "Jane", "Doe"));
+        service.addFriendship("1", "2");
+        service.getNumberOfCommunities();
+        service.getNumberOfCommunities(ExecutionMode.PARALLEL);
+        service.getNumberOfCommunities();
+
+        assertEquals(2, metrics.operation("service.addUser").getCount());
+        assertEquals(1, metrics.operation("service.addFriendship").getCount());
+        assertEquals(3, metrics.operation("service.getNumberOfCommunities").getCount());
+        assertEquals(1, metrics.getGauges().stream()
+                .filter(gauge -> gauge.getName().equals("service.analyticsCache.hits"))
+                .findFirst().get().getValue());
+    }
+
+    @Test
+    public void testAddFriendship_UnknownUser_ShouldCountError() {
+        try {
+            service.addFriendship("1", "2");
+            fail("expected ValidationException");
+        } catch (ValidationException expected) {
+            assertEquals(1, metrics.operation("service.addFriendship").getErrors());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ParallelComponentsTest {
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void cleanup() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testLabels_ShouldBeSmallestVertexOfComponent() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(6), new int[]{5, 1, 3}, new int[]{2, 2, 4});
+
+        assertArrayEquals(new int[]{0, 1, 1, 3, 3, 1}, ParallelComponents.labels(graph, pool));
+        assertEquals(3, ParallelComponents.count(graph, pool));
+    }
+
+    @Test
+    public void testComponents_RandomGraphs_ShouldMatchSequentialTraversal() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            int vertices = 1 + random.nextInt(50_000);
+            int edges = random.nextInt(vertices);
+            int[] from = new int[edges];
+            int[] to = new int[edges];
+            for (int i = 0; i < edges; i++) {
+                from[i] = random.nextInt(vertices);
+                to[i] = random.nextInt(vertices);
+            }
+            GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(vertices), from, to);
+
+            List<int[]> sequential = GraphTraversal.components(graph);
+            List<int[]> parallel = ParallelComponents.components(graph, pool);
+
+            assertEquals(sequential.size(), parallel.size());
+            for (int i = 0; i < sequential.size(); i++) {
+                int[] expected = sequential.get(i).clone();
+                Arrays.sort(expected);
+                assertArrayEquals(expected, parallel.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testCount_MillionVertexPaths_ShouldMatchSequentialTraversal() {
+        GraphSnapshot graph = GraphTraversalTest.path(1_000_000, 10);
+        assertEquals(10, ParallelComponents.count(graph, pool));
+    }
+}
@@ -0,0 +1,177 @@
+package service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ShortestPathFinderTest {
+    private static final int LARGE_GRAPH_VERTICES = 300_000;
+    private static final int HUB_FRIENDS = 150_000;
+
+    @Test
+    public void testFind_ShouldReturnShortestPathFromSourceToTarget() {
+        // 0 - 1 - 2 - 3 - 4 and the shortcut 1 - 5 - 4
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(6),
+                new int[]{0, 1, 2, 3, 1, 5}, new int[]{1, 2, 3, 4, 5, 4});
+        ShortestPathFinder finder = new ShortestPathFinder(graph);
+
+        assertArrayEquals(new int[]{0, 1, 5, 4}, finder.find(0, 4, 6));
+        assertArrayEquals(new int[]{4, 5, 1, 0}, finder.find(4, 0, 6));
+        assertArrayEquals(new int[]{2}, finder.find(2, 2, 0));
+    }
+
+    @Test
+    public void testFind_BeyondMaxDepthOrDisconnected_ShouldReturnNull() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(5),
+                new int[]{0, 1, 2}, new int[]{1, 2, 3});
+        ShortestPathFinder finder = new ShortestPathFinder(graph);
+
+        assertNull(finder.find(0, 3, 2));
+        assertEquals(4, finder.find(0, 3, 3).length);
+        assertNull(finder.find(0, 4, 6));
+        assertNull(finder.find(0, 1, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFind_NegativeMaxDepth_ShouldThrow() {
+        GraphSnapshot graph = GraphSnapshot.fromEdges(GraphTraversalTest.ids(2), new int[]{0}, new int[]{1});
+        new ShortestPathFinder(graph).find(0, 1, -1);
+    }
+
+    @Test
+    public void testFind_RandomGraphs_ShouldMatchBreadthFirstDistances() {
+        Random random = new Random(23);
+        for (int round = 0; round < 10; round++) {
+            int vertices = 2 + random.nextInt(2000);
+            GraphSnapshot graph = randomGraph(random, vertices, random.nextInt(3 * vertices), -1, 0);
+            ShortestPathFinder finder = new ShortestPathFinder(graph);
+            for (int query = 0; query < 50; query++) {
+                int source = random.nextInt(vertices);
+                int target = random.nextInt(vertices);
+                int maxDepth = random.nextInt(12);
+
+                int distance = distance(graph, source, target);
+                int[] path = finder.find(source, target, maxDepth);
+
+                if (distance < 0 || distance > maxDepth) {
+                    assertNull(path);
+                } else {
+                    assertValidPath(graph, source, target, path);
+                    assertEquals(distance, path.length - 1);
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testFind_LargeGraphWithHub_ShouldAnswerQuickly() {
+        Random random = new Random(31);
+        // a sparse graph plus one user who is friends with half of it
+        GraphSnapshot graph = randomGraph(random, LARGE_GRAPH_VERTICES, 2 * LARGE_GRAPH_VERTICES, 0, HUB_FRIENDS);
+        ShortestPathFinder finder = new ShortestPathFinder(graph);
+        for (int query = 0; query < 100; query++) {
+            finder.find(random.nextInt(LARGE_GRAPH_VERTICES), random.nextInt(LARGE_GRAPH_VERTICES), 6);
+        }
+
+        int queries = 1000;
+        long[] latencies = new long[queries];
+        for (int query = 0; query < queries; query++) {
+            int source = query % 10 == 0 ? 0 : random.nextInt(LARGE_GRAPH_VERTICES);
+            int target = random.nextInt(LARGE_GRAPH_VERTICES);
+            long start = System.nanoTime();
+            int[] path = finder.find(source, target, 6);
+            latencies[query] = System.nanoTime() - start;
+            if (query % 100 == 0) {
+                int distance = distance(graph, source, target);
+                assertEquals(distance < 0 || distance > 6 ? -1 : distance, path == null ? -1 : path.length - 1);
+            }
+        }
+        Arrays.sort(latencies);
+
+        // most pairs meet within a few friend lists, in microseconds; a search reading the whole
+        // graph takes milliseconds. The bounds leave room for slow machines
+        long median = latencies[queries / 2];
+        long p99 = latencies[queries * 99 / 100];
+        assertTrue("median latency " + median / 1000 + " µs", median < 1_000_000L);
+        assertTrue("p99 latency " + p99 / 1000 + " µs", p99 < 50_000_000L);
+    }
+
+    @Test
+    public void testFind_FromHubToItsFriend_ShouldNotReadTheHubsFriends() {
+        Random random = new Random(37);
+        GraphSnapshot graph = randomGraph(random, LARGE_GRAPH_VERTICES, LARGE_GRAPH_VERTICES, 0, HUB_FRIENDS);
+        ShortestPathFinder finder = new ShortestPathFinder(graph);
+        int friend = graph.getNeighbours(0)[HUB_FRIENDS / 2];
+
+        assertArrayEquals(new int[]{0, friend}, finder.find(0, friend, 6));
+        assertTrue(finder.getEdgesScanned() < graph.getDegree(friend) + 1);
+    }
+
+    /**
+     * @param hub a vertex which is made friends with at least {@code hubFriends} random others, or -1
+     * @return a graph with about {@code edges} random friendships and no duplicates
+     */
+    static GraphSnapshot randomGraph(Random random, int vertices, int edges, int hub, int hubFriends) {
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < edges; i++) {
+            addPair(pairs, vertices, random.nextInt(vertices), random.nextInt(vertices));
+        }
+        Set<Integer> friendsOfHub = new HashSet<>();
+        while (hub >= 0 && friendsOfHub.size() < hubFriends) {
+            int friend = random.nextInt(vertices);
+            if (friend != hub && friendsOfHub.add(friend)) {
+                addPair(pairs, vertices, hub, friend);
+            }
+        }
+        int[] from = new int[pairs.size()];
+        int[] to = new int[pairs.size()];
+        int edge = 0;
+        for (long pair : pairs) {
+            from[edge] = (int) (pair / vertices);
+            to[edge++] = (int) (pair % vertices);
+        }
+        return GraphSnapshot.fromEdges(GraphTraversalTest.ids(vertices), from, to);
+    }
+
+    private static void addPair(Set<Long> pairs, int vertices, int a, int b) {
+        if (a != b) {
+            pairs.add((long) Math.min(a, b) * vertices + Math.max(a, b));
+        }
+    }
+
+    /**
+     * @return the distance from source to target by a plain breadth-first search, or -1
+     */
+    private static int distance(GraphSnapshot graph, int source, int target) {
+        int[] distance = new int[graph.getVertexCount()];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[graph.getVertexCount()];
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int vertex = queue[head++];
+            for (int neighbour : graph.getNeighbours(vertex)) {
+                if (distance[neighbour] < 0) {
+                    distance[neighbour] = distance[vertex] + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return distance[target];
+    }
+
+    private static void assertValidPath(GraphSnapshot graph, int source, int target, int[] path) {
+        assertEquals(source, path[0]);
+        assertEquals(target, path[path.length - 1]);
+        for (int i = 0; i + 1 < path.length; i++) {
+            assertTrue(Arrays.binarySearch(graph.getNeighbours(path[i]), path[i + 1]) >= 0);
+        }
+    }
+}
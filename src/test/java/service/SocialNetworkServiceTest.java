@@ -4,11 +4,31 @@ import domain.User;
 import exceptions.ValidationException;
 import org.junit.Before;
 import org.junit.Test;
+import repository.ConcurrentFriendshipRepository;
+import repository.ConcurrentUserRepository;
+import repository.FileFriendshipRepository;
+import repository.FriendshipRepository;
+import repository.FileUserRepository;
+import repository.InMemoryFriendshipRepository;
 import repository.InMemoryUserRepository;
 import repository.Repository;
 import validator.UserValidator;
 
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -19,7 +39,7 @@ public class SocialNetworkServiceTest {
     @Before
     public void setUp() {
         repository = new InMemoryUserRepository(new UserValidator());
-        service = new SocialNetworkService(repository);
+        service = new SocialNetworkService(repository, new InMemoryFriendshipRepository());
     }
 
     @Test
@@ -44,11 +64,8 @@ public class SocialNetworkServiceTest {
 
         service.addFriendship("1", "2");
 
-        User updatedUser1 = repository.findOne("1").get();
-        User updatedUser2 = repository.findOne("2").get();
-
-        assertTrue(updatedUser1.getFriends().contains(user2));
-        assertTrue(updatedUser2.getFriends().contains(user1));
+        assertTrue(service.getFriends("1").contains(user2));
+        assertTrue(service.getFriends("2").contains(user1));
     }
 
     @Test(expected = ValidationException.class)
@@ -79,11 +96,119 @@ public class SocialNetworkServiceTest {
 
         service.removeFriendship("1", "2");
 
-        User updatedUser1 = repository.findOne("1").get();
-        User updatedUser2 = repository.findOne("2").get();
+        assertFalse(service.getFriends("1").contains(user2));
+        assertFalse(service.getFriends("2").contains(user1));
+    }
+
+    @Test
+    public void testFriendships_FileBackends_ShouldSurviveRestart() throws ValidationException {
+        String usersFile = "test_service_users.txt";
+        String friendshipsFile = "test_service_friendships.txt";
+        try {
+            service = new SocialNetworkService(new FileUserRepository(usersFile, new UserValidator()),
+                    new FileFriendshipRepository(friendshipsFile));
+            setupTestNetwork();
+            service.removeUser("7");
+
+            SocialNetworkService restarted = new SocialNetworkService(
+                    new FileUserRepository(usersFile, new UserValidator()),
+                    new FileFriendshipRepository(friendshipsFile));
 
-        assertFalse(updatedUser1.getFriends().contains(user2));
-        assertFalse(updatedUser2.getFriends().contains(user1));
+            assertEquals(1, restarted.getFriends("1").size());
+            assertEquals(2, restarted.getFriends("5").size());
+            assertEquals(1, restarted.getFriends("6").size());
+            assertEquals(2, restarted.getNumberOfCommunities());
+        } finally {
+            new File(usersFile).delete();
+            new File(friendshipsFile).delete();
+            new File(friendshipsFile + ".journal").delete();
+        }
+    }
+
+    @Test
+    public void testRemoveUser_ShouldRemoveItsFriendships() throws ValidationException {
+        setupTestNetwork();
+
+        service.removeUser("5");
+
+        assertTrue(service.getFriends("4").isEmpty());
+        assertEquals(List.of("7"), service.getFriends("6").stream().map(User::getId).collect(Collectors.toList()));
+        assertEquals(3, service.getNumberOfCommunities());
+    }
+
+    @Test
+    public void testConcurrentWrites_ShouldKeepGraphSymmetricAndIndexConsistent() throws Exception {
+        int users = 24;
+        int threads = 6;
+        Repository<String, User> concurrentUsers = new ConcurrentUserRepository(new UserValidator());
+        FriendshipRepository friendships = new ConcurrentFriendshipRepository(4);
+        SocialNetworkService shared = new SocialNetworkService(concurrentUsers, friendships);
+        for (int i = 0; i < users; i++) {
+            shared.addUser(new User(String.valueOf(i), "User", "Number" + i));
+        }
+        shared.getNumberOfCommunities(); // build the community index so writes update it
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < 5_000; i++) {
+                    String id1 = String.valueOf(random.nextInt(users));
+                    String id2 = String.valueOf(random.nextInt(users));
+                    int operation = random.nextInt(20);
+                    try {
+                        if (operation < 10) {
+                            shared.addFriendship(id1, id2);
+                        } else if (operation < 15) {
+                            shared.removeFriendship(id1, id2);
+                        } else if (operation < 17) {
+                            shared.removeUser(id1);
+                        } else if (operation < 19) {
+                            shared.addUser(new User(id1, "User", "Number" + id1));
+                        } else {
+                            shared.getNumberOfCommunities();
+                        }
+                    } catch (ValidationException | IllegalArgumentException e) {
+                        // missing user, existing user or existing friendship
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        for (int i = 0; i < users; i++) {
+            String id = String.valueOf(i);
+            for (String friendId : friendships.findFriendIds(id)) {
+                assertTrue(friendships.findFriendIds(friendId).contains(id));
+                assertTrue("friendship of removed user " + id, concurrentUsers.findOne(id).isPresent());
+                assertTrue("friendship of removed user " + friendId, concurrentUsers.findOne(friendId).isPresent());
+            }
+        }
+        int expected = new SocialNetworkService(concurrentUsers, friendships).getNumberOfCommunities();
+        assertEquals(expected, shared.getNumberOfCommunities());
+    }
+
+    @Test
+    public void testGetUsers_ShouldPageInIdOrder() throws ValidationException {
+        setupTestNetwork();
+
+        List<User> first = service.getUsers(null, 4);
+        List<User> second = service.getUsers(first.get(3).getId(), 4);
+
+        assertEquals(List.of("1", "2", "3", "4"), first.stream().map(User::getId).collect(Collectors.toList()));
+        assertEquals(List.of("5", "6", "7"), second.stream().map(User::getId).collect(Collectors.toList()));
     }
 
     @Test
@@ -115,6 +240,23 @@ public class SocialNetworkServiceTest {
         assertEquals(3, service.getNumberOfCommunities());
     }
 
+    @Test
+    public void testGetNumberOfCommunities_AfterRemovals_ShouldSplitCommunities() throws ValidationException {
+        setupTestNetwork();
+        assertEquals(2, service.getNumberOfCommunities());
+
+        service.removeFriendship("5", "6");
+        assertEquals(3, service.getNumberOfCommunities());
+
+        service.removeUser("2");
+        assertEquals(4, service.getNumberOfCommunities());
+
+        service.addUser(new User("8", "User8", "Last8"));
+        service.addFriendship("8", "1");
+        service.addFriendship("8", "3");
+        assertEquals(3, service.getNumberOfCommunities());
+    }
+
     @Test
     public void testGetMostSociableCommunity() throws ValidationException {
         // Create a network with two communities
@@ -126,6 +268,347 @@ public class SocialNetworkServiceTest {
         assertEquals(4, mostSociable.size());
     }
 
+    @Test
+    public void testFindMostSociableCommunity_ShouldReturnLongestPath() throws ValidationException {
+        setupTestNetwork();
+        // a triangle is larger than community 2 but its longest path is shorter
+        for (int i = 8; i <= 12; i++) {
+            service.addUser(new User(String.valueOf(i), "User" + i, "Last" + i));
+        }
+        service.addFriendship("8", "9");
+        service.addFriendship("9", "10");
+        service.addFriendship("10", "11");
+        service.addFriendship("11", "12");
+        service.addFriendship("12", "8");
+
+        SociableCommunity community = service.findMostSociableCommunity(Duration.ofSeconds(1)).orElseThrow();
+
+        assertEquals(4, community.getMembers().size());
+        assertEquals(3, community.getLength());
+        assertTrue(community.isExact());
+        List<String> path = community.getPath().stream().map(User::getId).collect(Collectors.toList());
+        assertTrue(path.equals(List.of("4", "5", "6", "7")) || path.equals(List.of("7", "6", "5", "4")));
+    }
+
+    @Test
+    public void testFindMostSociableCommunity_NoFriendships_ShouldReturnEmpty() throws ValidationException {
+        service.addUser(new User("1", "User1", "Last1"));
+
+        assertFalse(service.findMostSociableCommunity(Duration.ZERO).isPresent());
+        assertTrue(service.getMostSociableCommunity().isEmpty());
+    }
+
+    @Test
+    public void testAnalytics_RepeatedReads_ShouldHitCache() throws ValidationException {
+        setupTestNetwork();
+        AnalyticsCache cache = service.getAnalyticsCache();
+
+        assertEquals(2, service.getNumberOfCommunities());
+        List<User> mostSociable = service.getMostSociableCommunity();
+        assertEquals(2, service.getNumberOfCommunities());
+        assertSame(mostSociable, service.getMostSociableCommunity());
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testAnalytics_WriteBetweenReads_ShouldRecompute() throws ValidationException {
+        setupTestNetwork();
+        AnalyticsCache cache = service.getAnalyticsCache();
+        assertEquals(2, service.getNumberOfCommunities());
+        long version = cache.getVersion();
+
+        service.addFriendship("3", "4");
+
+        assertEquals(version + 1, cache.getVersion());
+        assertEquals(1, service.getNumberOfCommunities());
+        assertEquals(7, service.getMostSociableCommunity().size());
+        assertEquals(0, cache.getHits());
+
+        service.removeFriendship("3", "4");
+        assertEquals(2, service.getNumberOfCommunities());
+        service.removeUser("7");
+        assertEquals(3, service.getMostSociableCommunity().size());
+        assertEquals(version + 3, cache.getVersion());
+    }
+
+    @Test
+    public void testAnalytics_FailedWrite_ShouldKeepCache() throws ValidationException {
+        setupTestNetwork();
+        assertEquals(2, service.getNumberOfCommunities());
+        long version = service.getAnalyticsCache().getVersion();
+
+        assertThrows(ValidationException.class, () -> service.addFriendship("1", "2"));
+        service.removeUser("missing");
+
+        assertEquals(version, service.getAnalyticsCache().getVersion());
+        assertEquals(2, service.getNumberOfCommunities());
+        assertEquals(1, service.getAnalyticsCache().getHits());
+    }
+
+    @Test
+    public void testAnalytics_LongFriendshipChain_ShouldNotOverflowStack() throws ValidationException {
+        int chainLength = 50_000;
+        for (int i = 0; i < chainLength; i++) {
+            service.addUser(new User(String.valueOf(i), "User" + i, "Last" + i));
+            if (i > 0) {
+                service.addFriendship(String.valueOf(i - 1), String.valueOf(i));
+            }
+        }
+
+        assertEquals(1, service.getNumberOfCommunities());
+        assertEquals(chainLength, service.getMostSociableCommunity().size());
+
+        service.removeFriendship("24999", "25000");
+        assertEquals(2, service.getNumberOfCommunities());
+    }
+
+    @Test
+    public void testGetCommunities_ParallelMode_ShouldMatchSequentialMode() throws ValidationException {
+        setupTestNetwork();
+        service.addUser(new User("8", "User8", "Last8"));
+
+        List<List<User>> sequential = service.getCommunities(ExecutionMode.SEQUENTIAL);
+        List<List<User>> parallel = service.getCommunities(ExecutionMode.PARALLEL);
+
+        assertEquals(3, sequential.size());
+        assertEquals(sequential, parallel);
+        assertEquals(service.getNumberOfCommunities(ExecutionMode.SEQUENTIAL),
+                service.getNumberOfCommunities(ExecutionMode.PARALLEL));
+    }
+
+    @Test
+    public void testConfiguredParallelMode_ShouldBeUsedByDefault() throws ValidationException {
+        service = new SocialNetworkService(repository, new InMemoryFriendshipRepository(), ExecutionMode.PARALLEL);
+        setupTestNetwork();
+
+        assertEquals(2, service.getNumberOfCommunities());
+        assertEquals(4, service.getMostSociableCommunity().size());
+    }
+
+    @Test
+    public void testGetFriendSuggestions_ShouldRankNonFriendsByMutualFriends() throws ValidationException {
+        for (int i = 1; i <= 6; i++) {
+            service.addUser(new User(String.valueOf(i), "User" + i, "Last" + i));
+        }
+        service.addFriendship("1", "2");
+        service.addFriendship("1", "3");
+        service.addFriendship("2", "4");
+        service.addFriendship("3", "4");
+        service.addFriendship("3", "5");
+        service.addFriendship("2", "3");
+
+        List<FriendSuggestion> suggestions = service.getFriendSuggestions("1", 5);
+
+        assertEquals(List.of("4", "5"), suggestions.stream().map(s -> s.getUser().getId()).collect(Collectors.toList()));
+        assertEquals(2, suggestions.get(0).getMutualFriends());
+        assertEquals(1, suggestions.get(1).getMutualFriends());
+        assertEquals(1, service.getFriendSuggestions("1", 1).size());
+        assertTrue(service.getFriendSuggestions("6", 5).isEmpty());
+        assertTrue(service.getFriendSuggestions("missing", 5).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetFriendSuggestions_NonPositiveK_ShouldThrow() {
+        service.getFriendSuggestions("1", 0);
+    }
+
+    @Test
+    public void testPrecomputeFriendSuggestions_ShouldMatchOnDemandSuggestionsInBothModes() throws ValidationException {
+        Random random = new Random(17);
+        int users = 300;
+        for (int i = 0; i < users; i++) {
+            service.addUser(new User("u" + i, "First" + i, "Last" + i));
+        }
+        for (int i = 0; i < 900; i++) {
+            String id1 = "u" + random.nextInt(users);
+            String id2 = "u" + random.nextInt(users);
+            try {
+                service.addFriendship(id1, id2);
+            } catch (ValidationException e) {
+                // already friends
+            }
+        }
+        Map<String, List<String>> onDemand = new HashMap<>();
+        for (int i = 0; i < users; i++) {
+            onDemand.put("u" + i, describe(service.getFriendSuggestions("u" + i, 5)));
+        }
+        // ranked on the snapshot once an analytics has taken one
+        service.getCommunities();
+        for (int i = 0; i < users; i++) {
+            assertEquals(onDemand.get("u" + i), describe(service.getFriendSuggestions("u" + i, 5)));
+        }
+
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            service.getAnalyticsCache().invalidate();
+            Map<String, List<FriendSuggestion>> precomputed = service.precomputeFriendSuggestions(mode, 5);
+
+            assertEquals(users, precomputed.size());
+            for (int i = 0; i < users; i++) {
+                List<FriendSuggestion> suggestions = precomputed.get("u" + i);
+                assertEquals(onDemand.get("u" + i), describe(suggestions));
+                // answered from the precomputed suggestions until the next write
+                if (!suggestions.isEmpty()) {
+                    assertSame(suggestions.get(0), service.getFriendSuggestions("u" + i, 1).get(0));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetFriendSuggestions_WithSnapshot_ShouldNotReadFriendLists() throws ValidationException {
+        int[] friendListReads = new int[1];
+        FriendshipRepository friendships = new InMemoryFriendshipRepository() {
+            @Override
+            public Set<String> findFriendIds(String userId) {
+                friendListReads[0]++;
+                return super.findFriendIds(userId);
+            }
+        };
+        service = new SocialNetworkService(repository, friendships);
+        setupTestNetwork();
+
+        service.findShortestPath("1", "2");
+        int reads = friendListReads[0];
+        List<FriendSuggestion> suggestions = service.getFriendSuggestions("1", 3);
+
+        assertEquals(reads, friendListReads[0]);
+        assertEquals(List.of("3"), describeIds(suggestions));
+        assertEquals(1, suggestions.get(0).getMutualFriends());
+    }
+
+    @Test
+    public void testPrecomputeFriendSuggestions_ShouldBeDroppedByWrites() throws ValidationException {
+        for (int i = 1; i <= 4; i++) {
+            service.addUser(new User(String.valueOf(i), "User" + i, "Last" + i));
+        }
+        service.addFriendship("1", "2");
+        service.addFriendship("2", "3");
+        assertEquals(List.of("3"), describeIds(service.precomputeFriendSuggestions(3).get("1")));
+
+        service.addFriendship("2", "4");
+
+        assertEquals(List.of("3", "4"), describeIds(service.getFriendSuggestions("1", 3)));
+        assertEquals(List.of("3", "4"), describeIds(service.precomputeFriendSuggestions(3).get("1")));
+    }
+
+    @Test
+    public void testFindShortestPath_ShouldReturnUsersFromFirstToSecond() throws ValidationException {
+        setupTestNetwork();
+        service.addFriendship("3", "4");
+
+        assertEquals(List.of("1", "2", "3", "4", "5"), pathIds(service.findShortestPath("1", "5")));
+        assertEquals(List.of("5", "4", "3", "2", "1"), pathIds(service.findShortestPath("5", "1")));
+        assertEquals(List.of("2"), pathIds(service.findShortestPath("2", "2")));
+        assertEquals(service.findShortestPath("1", "5"), service.findShortestPath("1", "5"));
+    }
+
+    @Test
+    public void testFindShortestPath_BeyondMaxDepthOrUnknownUser_ShouldBeEmpty() throws ValidationException {
+        setupTestNetwork();
+
+        assertTrue(service.findShortestPath("1", "4").isEmpty());
+        assertTrue(service.findShortestPath("4", "7", 2).isEmpty());
+        assertEquals(4, service.findShortestPath("4", "7", 3).get().size());
+        assertTrue(service.findShortestPath("1", "missing").isEmpty());
+    }
+
+    @Test
+    public void testFindShortestPath_ShouldSeeWrites() throws ValidationException {
+        setupTestNetwork();
+        assertTrue(service.findShortestPath("1", "7").isEmpty());
+
+        service.addFriendship("3", "4");
+        assertEquals(7, service.findShortestPath("1", "7", 6).get().size());
+        assertEquals(7, service.findShortestPath("7", "1", 6).get().size());
+
+        service.addFriendship("2", "6");
+        assertEquals(List.of("7", "6", "2", "1"), pathIds(service.findShortestPath("7", "1", 6)));
+
+        service.removeUser("6");
+        assertEquals(List.of("1", "2", "3", "4", "5"), pathIds(service.findShortestPath("1", "5")));
+        assertTrue(service.findShortestPath("1", "7").isEmpty());
+    }
+
+    @Test
+    public void testFindShortestPath_ShouldNotCountInAnalyticsCache() throws ValidationException {
+        setupTestNetwork();
+        AnalyticsCache cache = service.getAnalyticsCache();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        service.findShortestPath("1", "3");
+        service.findShortestPath("4", "7");
+
+        assertEquals(hits, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+    }
+
+    @Test(timeout = 30_000)
+    public void testFindShortestPath_ConcurrentQueries_ShouldMatchSequentialAnswers() throws Exception {
+        setupTestNetwork();
+        service.addFriendship("3", "4");
+        Map<List<Object>, Optional<List<User>>> expected = new HashMap<>();
+        for (int from = 1; from <= 7; from++) {
+            for (int to = 1; to <= 7; to++) {
+                for (int maxDepth = 0; maxDepth <= 6; maxDepth++) {
+                    expected.put(List.of(String.valueOf(from), String.valueOf(to), maxDepth),
+                            service.findShortestPath(String.valueOf(from), String.valueOf(to), maxDepth));
+                }
+            }
+        }
+        service.addUser(new User("8", "User8", "Last8"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> queries = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                queries.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 2_000; i++) {
+                        String from = String.valueOf(1 + random.nextInt(7));
+                        String to = String.valueOf(1 + random.nextInt(7));
+                        int maxDepth = random.nextInt(7);
+                        assertEquals(expected.get(List.of(from, to, maxDepth)),
+                                service.findShortestPath(from, to, maxDepth));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> query : queries) {
+                query.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindShortestPath_NegativeMaxDepth_ShouldThrow() {
+        service.findShortestPath("1", "2", -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindShortestPath_NullId_ShouldThrow() {
+        service.findShortestPath(null, "2");
+    }
+
+    private static List<String> pathIds(Optional<List<User>> path) {
+        return path.orElseThrow().stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> describe(List<FriendSuggestion> suggestions) {
+        return suggestions.stream()
+                .map(s -> s.getUser().getId() + ":" + s.getMutualFriends())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> describeIds(List<FriendSuggestion> suggestions) {
+        return suggestions.stream().map(s -> s.getUser().getId()).collect(Collectors.toList());
+    }
+
     private void setupTestNetwork() throws ValidationException {
         for (int i = 1; i <= 7; i++) {
             service.addUser(new User(String.valueOf(i), "User" + i, "Last" + i));